@@ -1,12 +1,34 @@
 package com.rideshare.api_gateway;
 
+import com.rideshare.api_gateway.cache.ResponseCacheFilter;
+import com.rideshare.api_gateway.coalesce.RequestCoalescingFilter;
+import com.rideshare.api_gateway.loadbalancer.LatencyAwareLoadBalancer;
+import com.rideshare.api_gateway.loadbalancer.LatencyAwareLoadBalancerConfiguration;
+import com.rideshare.api_gateway.ratelimit.RateLimitProps;
+import com.rideshare.api_gateway.resilience.ResilienceProps;
+import com.rideshare.api_gateway.security.JwtVerifier;
+import com.rideshare.api_gateway.security.TokenDenylist;
+import com.rideshare.api_gateway.traffic.HeavyHitters;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
 import reactor.core.publisher.Hooks;
 
 @EnableDiscoveryClient
 @SpringBootApplication
+@LoadBalancerClients(defaultConfiguration = LatencyAwareLoadBalancerConfiguration.class)
+@EnableConfigurationProperties({
+        JwtVerifier.JwtProps.class,
+        TokenDenylist.RevocationProps.class,
+        RateLimitProps.class,
+        HeavyHitters.HeavyHitterProps.class,
+        LatencyAwareLoadBalancer.LoadBalancerProps.class,
+        ResilienceProps.class,
+        RequestCoalescingFilter.CoalescingProps.class,
+        ResponseCacheFilter.ResponseCacheProps.class
+})
 public class ApiGatewayApplication {
 
     // ✅ Move the hook call here to ensure it runs first
@@ -0,0 +1,366 @@
+package com.rideshare.api_gateway.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.rideshare.api_gateway.filter.JwtAuthenticationFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.reactivestreams.Publisher;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Optional, bounded cache of GET responses, partitioned by verified subject: an entry is only ever
+ * served to the subject that fetched it, so {@code Cache-Control: private} responses (profiles) are
+ * cacheable here, the same way a client's own cache would keep them.
+ * <p>
+ * The upstream Cache-Control decides: no-store responses are never kept, max-age (capped at
+ * max-age) makes an entry fresh for that long, and no-cache or a missing max-age means every use is
+ * revalidated. Fresh entries are answered from memory. Stale entries that carry an ETag are
+ * revalidated with the gateway's own If-None-Match: an upstream 304 is answered from the stored
+ * body, so only headers cross the backend link and the service skips building the body. The client's
+ * If-None-Match is honoured against the stored ETag in both cases, so clients polling an unchanged
+ * resource get a 304 without a body.
+ * <p>
+ * Only 200 responses with an ETag or a positive max-age are stored, and only when they are small
+ * (max-body-size), not streamed, set no cookies and vary on nothing but the Accept headers, which
+ * are part of the key. Requests without a subject, sending cookies or Range, or asking for
+ * no-store are passed through. The cache is bounded by total body size (max-size) and an entry is
+ * dropped ttl after it was stored or last revalidated; there is no invalidation on writes, so
+ * staleness is bounded by the upstream max-age.
+ * <p>
+ * Runs after rate limiting, so hits still count against limits, and before request coalescing, so
+ * concurrent revalidations of one entry share a single upstream call.
+ */
+@Component
+public class ResponseCacheFilter implements GlobalFilter, Ordered {
+
+    private static final String METRIC = "gateway.response-cache.requests";
+    // Vary values covered by the cache key (the subject stands in for Authorization)
+    private static final Set<String> KEYED_VARY = Set.of(
+            "accept", "accept-encoding", "accept-language", "authorization");
+
+    /** A stored 200 response; fresh until freshUntil (nanoTime), revalidated with its ETag after that. */
+    private record Entry(HttpHeaders headers, byte[] body, String etag, long storedAt, long freshUntil) {
+
+        boolean isFresh(long now) {
+            return now - freshUntil < 0;
+        }
+    }
+
+    private final ResponseCacheProps props;
+    private final Cache<String, Entry> entries;
+    private final Counter hits;
+    private final Counter revalidated;
+    private final Counter misses;
+
+    public ResponseCacheFilter(ResponseCacheProps props, MeterRegistry registry) {
+        this.props = props;
+        this.entries = Caffeine.newBuilder()
+                .maximumWeight(props.maxSize().toBytes())
+                .weigher((String key, Entry entry) -> key.length() + entry.body().length)
+                .expireAfterWrite(props.ttl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, entries, "gateway.response-cache");
+        this.hits = Counter.builder(METRIC).tag("result", "hit").register(registry);
+        this.revalidated = Counter.builder(METRIC).tag("result", "revalidated").register(registry);
+        this.misses = Counter.builder(METRIC).tag("result", "miss").register(registry);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        HttpHeaders headers = request.getHeaders();
+        String subject = headers.getFirst(JwtAuthenticationFilter.SUBJECT_HEADER);
+        if (!props.enabled() || route == null || subject == null || !HttpMethod.GET.equals(request.getMethod())
+                || (!props.routes().isEmpty() && !props.routes().contains(route.getId()))
+                || headers.containsKey(HttpHeaders.COOKIE) || headers.containsKey(HttpHeaders.RANGE)) {
+            return chain.filter(exchange);
+        }
+        Set<String> requestDirectives = directives(headers.getCacheControl());
+        if (requestDirectives.contains("no-store")) {
+            return chain.filter(exchange);
+        }
+        String key = keyOf(route, request, subject);
+        long now = System.nanoTime();
+        Entry entry = entries.getIfPresent(key);
+
+        if (entry != null && entry.isFresh(now) && !requestDirectives.contains("no-cache")) {
+            hits.increment();
+            return answerFromCache(exchange, entry, now);
+        }
+        if (entry != null && entry.etag() != null) {
+            // Ask upstream whether the stored copy is still current
+            ServerHttpRequest conditional = request.mutate()
+                    .headers(h -> h.setIfNoneMatch(entry.etag()))
+                    .build();
+            CachingResponse response = new CachingResponse(exchange.getResponse(), key, entry,
+                    matches(headers.getIfNoneMatch(), entry.etag()));
+            return chain.filter(exchange.mutate().request(conditional).response(response).build())
+                    .doOnSuccess(done -> response.store());
+        }
+        misses.increment();
+        CachingResponse response = new CachingResponse(exchange.getResponse(), key, null, false);
+        return chain.filter(exchange.mutate().response(response).build())
+                .doOnSuccess(done -> response.store());
+    }
+
+    private static Mono<Void> answerFromCache(ServerWebExchange exchange, Entry entry, long now) {
+        ServerHttpResponse response = exchange.getResponse();
+        HttpHeaders headers = response.getHeaders();
+        headers.putAll(entry.headers());
+        headers.set(HttpHeaders.AGE, String.valueOf(TimeUnit.NANOSECONDS.toSeconds(now - entry.storedAt())));
+        if (entry.etag() != null && matches(exchange.getRequest().getHeaders().getIfNoneMatch(), entry.etag())) {
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            headers.remove(HttpHeaders.CONTENT_TYPE);
+            return response.setComplete();
+        }
+        response.setStatusCode(HttpStatus.OK);
+        headers.setContentLength(entry.body().length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(entry.body())));
+    }
+
+    private static String keyOf(Route route, ServerHttpRequest request, String subject) {
+        HttpHeaders headers = request.getHeaders();
+        String query = request.getURI().getRawQuery();
+        return new StringBuilder(128)
+                .append(route.getId()).append('\n')
+                .append(request.getPath().value()).append('?').append(query != null ? query : "").append('\n')
+                .append(subject).append('\n')
+                .append(headers.getFirst(HttpHeaders.ACCEPT)).append('\n')
+                .append(headers.getFirst(HttpHeaders.ACCEPT_ENCODING)).append('\n')
+                .append(headers.getFirst(HttpHeaders.ACCEPT_LANGUAGE))
+                .toString();
+    }
+
+    // If-None-Match uses the weak comparison (RFC 9110 13.1.2)
+    private static boolean matches(List<String> ifNoneMatch, String etag) {
+        String opaque = opaque(etag);
+        for (String candidate : ifNoneMatch) {
+            if ("*".equals(candidate) || opaque(candidate).equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String opaque(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    /** Lower-cased Cache-Control directives, with max-age kept as "max-age=N". */
+    static Set<String> directives(String cacheControl) {
+        if (cacheControl == null || cacheControl.isBlank()) {
+            return Set.of();
+        }
+        Set<String> directives = new HashSet<>();
+        for (String directive : cacheControl.split(",")) {
+            String trimmed = directive.trim().toLowerCase(Locale.ROOT).replace("\"", "");
+            if (!trimmed.isEmpty()) {
+                directives.add(trimmed);
+            }
+        }
+        return directives;
+    }
+
+    static long maxAgeSeconds(Set<String> directives) {
+        for (String directive : directives) {
+            if (directive.startsWith("max-age=")) {
+                try {
+                    return Long.parseLong(directive.substring("max-age=".length()).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Keeps a copy of a 200 response for storing, and on a revalidation turns the upstream 304 into
+     * the stored response (or passes it on when the client's own ETag matched).
+     */
+    private final class CachingResponse extends ServerHttpResponseDecorator {
+        private final String key;
+        private final Entry revalidating;
+        private final boolean clientHasEntry;
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        private volatile boolean storable = true;
+
+        CachingResponse(ServerHttpResponse delegate, String key, Entry revalidating, boolean clientHasEntry) {
+            super(delegate);
+            this.key = key;
+            this.revalidating = revalidating;
+            this.clientHasEntry = clientHasEntry;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            if (revalidating != null && hasStatus(HttpStatus.NOT_MODIFIED)) {
+                return notModified(Flux.from(body));
+            }
+            return super.writeWith(Flux.from(body).doOnNext(this::copy));
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            storable = false;
+            return super.writeAndFlushWith(body);
+        }
+
+        @Override
+        public Mono<Void> setComplete() {
+            if (revalidating != null && hasStatus(HttpStatus.NOT_MODIFIED)) {
+                return notModified(Flux.empty());
+            }
+            return super.setComplete();
+        }
+
+        private Mono<Void> notModified(Flux<? extends DataBuffer> upstreamBody) {
+            storable = false;
+            revalidated.increment();
+            // The 304 carries the current caching headers; the stored body is still valid
+            HttpHeaders headers = new HttpHeaders();
+            headers.addAll(revalidating.headers());
+            getHeaders().forEach((name, values) -> {
+                if (!HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)
+                        && !HttpHeaders.TRANSFER_ENCODING.equalsIgnoreCase(name)) {
+                    headers.put(name, values);
+                }
+            });
+            Set<String> directives = directives(headers.getCacheControl());
+            if (directives.contains("no-store")) {
+                entries.invalidate(key);
+            } else {
+                long now = System.nanoTime();
+                entries.put(key, new Entry(headers, revalidating.body(), revalidating.etag(), now,
+                        now + freshness(directives)));
+            }
+            if (clientHasEntry) {
+                return upstreamBody.doOnNext(DataBufferUtils::release).then(super.setComplete());
+            }
+            setStatusCode(HttpStatus.OK);
+            getHeaders().putAll(headers);
+            getHeaders().setContentLength(revalidating.body().length);
+            return upstreamBody.doOnNext(DataBufferUtils::release)
+                    .then(super.writeWith(Mono.just(bufferFactory().wrap(revalidating.body()))));
+        }
+
+        private boolean hasStatus(HttpStatus status) {
+            return getStatusCode() != null && getStatusCode().value() == status.value();
+        }
+
+        private void copy(DataBuffer buffer) {
+            if (!storable) {
+                return;
+            }
+            int length = buffer.readableByteCount();
+            if (body.size() + length > props.maxBodySize().toBytes()) {
+                storable = false;
+                body.reset();
+                return;
+            }
+            byte[] bytes = new byte[length];
+            int position = buffer.readPosition();
+            buffer.read(bytes);
+            buffer.readPosition(position);
+            body.write(bytes, 0, length);
+        }
+
+        void store() {
+            if (!storable) {
+                return;
+            }
+            HttpHeaders headers = getHeaders();
+            if (!hasStatus(HttpStatus.OK)) {
+                // Gone, forbidden or failing: do not keep answering with the old copy
+                entries.invalidate(key);
+                return;
+            }
+            Set<String> directives = directives(headers.getCacheControl());
+            String etag = headers.getETag();
+            long freshness = freshness(directives);
+            if (directives.contains("no-store") || headers.containsKey(HttpHeaders.SET_COOKIE)
+                    || !varyIsKeyed(headers.getVary()) || (etag == null && freshness == 0)) {
+                entries.invalidate(key);
+                return;
+            }
+            HttpHeaders stored = new HttpHeaders();
+            stored.addAll(headers);
+            stored.remove(HttpHeaders.TRANSFER_ENCODING);
+            stored.remove(HttpHeaders.CONNECTION);
+            stored.remove(HttpHeaders.CONTENT_LENGTH);
+            long now = System.nanoTime();
+            entries.put(key, new Entry(stored, body.toByteArray(), etag, now, now + freshness));
+        }
+
+        private long freshness(Set<String> directives) {
+            if (directives.contains("no-cache")) {
+                return 0;
+            }
+            long seconds = Math.min(maxAgeSeconds(directives), props.maxAge().toSeconds());
+            return TimeUnit.SECONDS.toNanos(Math.max(0, seconds));
+        }
+
+        private boolean varyIsKeyed(List<String> vary) {
+            for (String header : vary) {
+                if (!KEYED_VARY.contains(header.trim().toLowerCase(Locale.ROOT))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        // After RateLimitFilter, before RequestCoalescingFilter
+        return Ordered.HIGHEST_PRECEDENCE + 22;
+    }
+
+    /**
+     * @param routes      route ids whose responses may be cached; empty means every route
+     * @param maxSize     total size of cached bodies
+     * @param maxBodySize larger responses are not cached
+     * @param maxAge      cap on the upstream max-age
+     * @param ttl         an entry not stored or revalidated again within this time is dropped
+     */
+    @ConfigurationProperties(prefix = "gateway.response-cache")
+    public record ResponseCacheProps(
+            @DefaultValue("false") boolean enabled,
+            @DefaultValue List<String> routes,
+            @DefaultValue("64MB") DataSize maxSize,
+            @DefaultValue("64KB") DataSize maxBodySize,
+            @DefaultValue("5m") Duration maxAge,
+            @DefaultValue("10m") Duration ttl
+    ) {}
+}
@@ -0,0 +1,230 @@
+package com.rideshare.api_gateway.coalesce;
+
+import com.rideshare.api_gateway.filter.JwtAuthenticationFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.publisher.SignalType;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Single-flight for identical concurrent GETs: the first request for a key (route, path, query,
+ * verified subject, the Accept headers and the conditional headers) goes upstream as usual while its response is copied;
+ * identical requests arriving meanwhile wait for that copy instead of calling the service, so a
+ * popular entry expiring in a service cache costs one backend call instead of hundreds.
+ * <p>
+ * Only the concurrent burst is shared: the key is dropped as soon as the leader's response is
+ * complete, so nothing is cached. Bounds: at most max-waiters per call and max-flights calls
+ * at once; bodies over max-body-size, streamed responses and responses setting cookies are not
+ * shared; a waiter gives up after max-wait. In every one of those cases the waiter simply makes
+ * its own upstream call. Requests sending cookies are never coalesced.
+ * <p>
+ * Runs after rate limiting, so every request still counts against its limits, and before the
+ * per-route concurrency limit, so waiters do not hold concurrency slots.
+ */
+@Component
+public class RequestCoalescingFilter implements GlobalFilter, Ordered {
+
+    private static final String METRIC = "gateway.coalesce.requests";
+
+    /** Status, headers and full body of a leader's response. */
+    private record SharedResponse(HttpStatusCode status, HttpHeaders headers, byte[] body) {}
+
+    private static final class Flight {
+        final Sinks.One<SharedResponse> response = Sinks.one();
+        final AtomicInteger waiters = new AtomicInteger();
+    }
+
+    private final CoalescingProps props;
+    private final Map<String, Flight> flights = new ConcurrentHashMap<>();
+    private final Counter leaders;
+    private final Counter coalesced;
+    private final Counter fallbacks;
+
+    public RequestCoalescingFilter(CoalescingProps props, MeterRegistry registry) {
+        this.props = props;
+        this.leaders = Counter.builder(METRIC).tag("result", "leader").register(registry);
+        this.coalesced = Counter.builder(METRIC).tag("result", "coalesced").register(registry);
+        this.fallbacks = Counter.builder(METRIC).tag("result", "fallback").register(registry);
+        Gauge.builder("gateway.coalesce.flights", flights, Map::size)
+                .description("Upstream calls currently shared by waiting requests")
+                .register(registry);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        if (!props.enabled() || route == null || !HttpMethod.GET.equals(request.getMethod())
+                || request.getHeaders().containsKey(HttpHeaders.COOKIE)) {
+            return chain.filter(exchange);
+        }
+        String key = keyOf(route, request);
+        Flight existing = flights.get(key);
+        if (existing == null) {
+            if (flights.size() >= props.maxFlights()) {
+                return chain.filter(exchange);
+            }
+            Flight flight = new Flight();
+            existing = flights.putIfAbsent(key, flight);
+            if (existing == null) {
+                leaders.increment();
+                return lead(exchange, chain, key, flight);
+            }
+        }
+        if (existing.waiters.incrementAndGet() > props.maxWaiters()) {
+            return chain.filter(exchange);
+        }
+        return existing.response.asMono()
+                .timeout(props.maxWait(), Mono.empty())
+                .flatMap(shared -> {
+                    coalesced.increment();
+                    return write(exchange.getResponse(), shared).thenReturn(Boolean.TRUE);
+                })
+                // The leader's response could not be shared, or took too long: call upstream after all
+                .switchIfEmpty(Mono.defer(() -> {
+                    fallbacks.increment();
+                    return chain.filter(exchange).thenReturn(Boolean.TRUE);
+                }))
+                .then();
+    }
+
+    private Mono<Void> lead(ServerWebExchange exchange, GatewayFilterChain chain, String key, Flight flight) {
+        CapturingResponse capture = new CapturingResponse(exchange.getResponse(), props.maxBodySize().toBytes());
+        return chain.filter(exchange.mutate().response(capture).build())
+                .doFinally(signal -> {
+                    // New arrivals from here on start their own call: only concurrent requests share
+                    flights.remove(key, flight);
+                    SharedResponse shared = signal == SignalType.ON_COMPLETE ? capture.shared() : null;
+                    if (shared != null) {
+                        flight.response.tryEmitValue(shared);
+                    } else {
+                        flight.response.tryEmitEmpty();
+                    }
+                });
+    }
+
+    private static Mono<Void> write(ServerHttpResponse response, SharedResponse shared) {
+        response.setStatusCode(shared.status());
+        response.getHeaders().putAll(shared.headers());
+        response.getHeaders().setContentLength(shared.body().length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(shared.body())));
+    }
+
+    private static String keyOf(Route route, ServerHttpRequest request) {
+        HttpHeaders headers = request.getHeaders();
+        String query = request.getURI().getRawQuery();
+        return new StringBuilder(128)
+                .append(route.getId()).append('\n')
+                .append(request.getPath().value()).append('?').append(query != null ? query : "").append('\n')
+                .append(headers.getFirst(JwtAuthenticationFilter.SUBJECT_HEADER)).append('\n')
+                .append(headers.getFirst(HttpHeaders.ACCEPT)).append('\n')
+                .append(headers.getFirst(HttpHeaders.ACCEPT_ENCODING)).append('\n')
+                .append(headers.getFirst(HttpHeaders.ACCEPT_LANGUAGE)).append('\n')
+                // A 304 is only an answer for a client holding that ETag
+                .append(headers.getFirst(HttpHeaders.IF_NONE_MATCH)).append('\n')
+                .append(headers.getFirst(HttpHeaders.IF_MODIFIED_SINCE))
+                .toString();
+    }
+
+    /** Passes the leader's response through untouched while keeping a copy of it, up to a size. */
+    private static final class CapturingResponse extends ServerHttpResponseDecorator {
+        private final long maxBytes;
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        private volatile boolean shareable = true;
+
+        CapturingResponse(ServerHttpResponse delegate, long maxBytes) {
+            super(delegate);
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            return super.writeWith(Flux.from(body).doOnNext(this::copy));
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            // Streamed (SSE, NDJSON): waiters make their own call
+            shareable = false;
+            return super.writeAndFlushWith(body);
+        }
+
+        private void copy(DataBuffer buffer) {
+            if (!shareable) {
+                return;
+            }
+            int length = buffer.readableByteCount();
+            if (body.size() + length > maxBytes) {
+                shareable = false;
+                body.reset();
+                return;
+            }
+            byte[] bytes = new byte[length];
+            int position = buffer.readPosition();
+            buffer.read(bytes);
+            buffer.readPosition(position);
+            body.write(bytes, 0, length);
+        }
+
+        SharedResponse shared() {
+            HttpStatusCode status = getStatusCode();
+            if (!shareable || status == null || getHeaders().containsKey(HttpHeaders.SET_COOKIE)) {
+                return null;
+            }
+            HttpHeaders headers = new HttpHeaders();
+            headers.addAll(getHeaders());
+            headers.remove(HttpHeaders.TRANSFER_ENCODING);
+            headers.remove(HttpHeaders.CONNECTION);
+            headers.remove(HttpHeaders.CONTENT_LENGTH);
+            return new SharedResponse(status, headers, body.toByteArray());
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        // After RateLimitFilter, before RouteGuardFilter
+        return Ordered.HIGHEST_PRECEDENCE + 25;
+    }
+
+    /**
+     * @param maxWaiters  requests that may wait on one upstream call; later ones call upstream themselves
+     * @param maxFlights  distinct keys shared at once
+     * @param maxBodySize larger responses are not shared
+     * @param maxWait     a waiter calls upstream itself if the shared response takes longer
+     */
+    @ConfigurationProperties(prefix = "gateway.coalescing")
+    public record CoalescingProps(
+            @DefaultValue("true") boolean enabled,
+            @DefaultValue("1000") int maxWaiters,
+            @DefaultValue("10000") int maxFlights,
+            @DefaultValue("256KB") DataSize maxBodySize,
+            @DefaultValue("5s") Duration maxWait
+    ) {}
+}
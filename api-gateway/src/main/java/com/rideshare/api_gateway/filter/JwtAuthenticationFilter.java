@@ -0,0 +1,103 @@
+package com.rideshare.api_gateway.filter;
+
+import com.rideshare.api_gateway.security.JwtVerifier;
+import com.rideshare.api_gateway.security.JwtVerifier.VerifiedToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Validates bearer tokens once at the edge and forwards the verified identity as trusted headers.
+ * Client-supplied copies of those headers are always stripped so services can rely on them.
+ * Requests without a bearer token pass through untouched; each service still decides what is public.
+ * An invalid bearer token is rejected with 401, except on auth-service's public routes: there it is
+ * dropped and the request continues anonymously, so an expired access token cannot block a refresh
+ * or a new OTP login.
+ */
+@Component
+public class JwtAuthenticationFilter implements GlobalFilter, Ordered {
+
+    public static final String SUBJECT_HEADER = "X-Auth-Subject";
+    public static final String ROLE_HEADER = "X-Auth-Role";
+    private static final String BEARER = "Bearer ";
+    // Mirrors auth-service's permitAll list
+    private static final List<PathPattern> PUBLIC_AUTH_PATHS = List.of(
+            PathPatternParser.defaultInstance.parse("/api/auth/**"),
+            PathPatternParser.defaultInstance.parse("/.well-known/jwks.json"));
+
+    private static final Logger log = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
+
+    private final JwtVerifier jwtVerifier;
+
+    public JwtAuthenticationFilter(JwtVerifier jwtVerifier) {
+        this.jwtVerifier = jwtVerifier;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        String authorization = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+
+        if (authorization == null || !authorization.startsWith(BEARER)) {
+            return chain.filter(exchange.mutate().request(stripIdentity(exchange.getRequest())).build());
+        }
+
+        Optional<VerifiedToken> token = jwtVerifier.verify(authorization.substring(BEARER.length()).trim());
+        if (token.isEmpty() && isPublicAuthPath(exchange.getRequest())) {
+            log.debug("Dropped invalid bearer token for public path={}", exchange.getRequest().getPath());
+            ServerHttpRequest request = stripIdentity(exchange.getRequest()).mutate()
+                    .headers(headers -> headers.remove(HttpHeaders.AUTHORIZATION))
+                    .build();
+            return chain.filter(exchange.mutate().request(request).build());
+        }
+        if (token.isEmpty()) {
+            log.debug("Rejected invalid bearer token for path={}", exchange.getRequest().getPath());
+            exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
+            return exchange.getResponse().setComplete();
+        }
+
+        VerifiedToken verified = token.get();
+        ServerHttpRequest request = exchange.getRequest().mutate()
+                .headers(headers -> {
+                    headers.set(SUBJECT_HEADER, verified.subject());
+                    if (verified.role() != null) {
+                        headers.set(ROLE_HEADER, verified.role());
+                    } else {
+                        headers.remove(ROLE_HEADER);
+                    }
+                })
+                .build();
+        return chain.filter(exchange.mutate().request(request).build());
+    }
+
+    private static boolean isPublicAuthPath(ServerHttpRequest request) {
+        return PUBLIC_AUTH_PATHS.stream().anyMatch(pattern -> pattern.matches(request.getPath().pathWithinApplication()));
+    }
+
+    private static ServerHttpRequest stripIdentity(ServerHttpRequest request) {
+        return request.mutate()
+                .headers(headers -> {
+                    headers.remove(SUBJECT_HEADER);
+                    headers.remove(ROLE_HEADER);
+                })
+                .build();
+    }
+
+    @Override
+    public int getOrder() {
+        // Before routing / load-balancing filters
+        return Ordered.HIGHEST_PRECEDENCE + 10;
+    }
+}
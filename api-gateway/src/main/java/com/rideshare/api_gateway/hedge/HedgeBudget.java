@@ -0,0 +1,43 @@
+package com.rideshare.api_gateway.hedge;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps hedges at a fraction of requests, in the style of Finagle's retry budget: every request
+ * deposits {@code ratio} of a token, every hedge withdraws a whole one, and at most
+ * {@code maxBurst} tokens are kept. Over any period hedges stay below ratio x requests + maxBurst,
+ * so a backend that slows down for everyone cannot double its own load through hedging.
+ */
+final class HedgeBudget {
+
+    // Tokens are kept in thousandths so a deposit is one atomic add
+    private static final long UNIT = 1000;
+
+    private final long deposit;
+    private final long max;
+    private final AtomicLong balance;
+
+    HedgeBudget(double ratio, int maxBurst) {
+        this.deposit = Math.round(ratio * UNIT);
+        this.max = maxBurst * UNIT;
+        this.balance = new AtomicLong(max);
+    }
+
+    void deposit() {
+        if (balance.get() < max) {
+            balance.accumulateAndGet(deposit, (current, add) -> Math.min(max, current + add));
+        }
+    }
+
+    boolean tryWithdraw() {
+        while (true) {
+            long current = balance.get();
+            if (current < UNIT) {
+                return false;
+            }
+            if (balance.compareAndSet(current, current - UNIT)) {
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.rideshare.api_gateway.hedge;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycleValidator;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.ReactiveLoadBalancerClientFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Opt-in request hedging for idempotent GET routes, configured per route:
+ * <pre>
+ * filters:
+ *   - name: Hedge
+ *     args:
+ *       percentile: 0.95
+ *       budget: 0.1
+ * </pre>
+ * Runs right after the load balancer picked the primary instance and takes over the routing for
+ * GET requests: the primary call is sent as usual, and if it is still outstanding after the route's
+ * percentile latency a second call goes to another instance of the same service (see
+ * {@link HedgePolicy}). Both calls are buffered in full, so only use it on routes with small responses.
+ * The hedge instance goes through the same load-balancer lifecycle as the primary, so its
+ * in-flight count and latency are tracked.
+ * <p>
+ * ReactiveLoadBalancerClientFilter has already started the primary's lifecycle and completes it
+ * as SUCCESS, with the time the whole exchange took, once the response is written. When the
+ * primary fails or loses the race that would be wrong, so this filter completes it itself (FAILED,
+ * or DISCARD when cancelled) and takes the primary out of the exchange, which turns the load
+ * balancer filter's completion into a no-op.
+ */
+@Component
+public class HedgeGatewayFilterFactory extends AbstractGatewayFilterFactory<HedgeGatewayFilterFactory.Config> {
+
+    private static final int MAX_BODY_BYTES = 1024 * 1024;
+    // Draws from the load balancer before giving up on finding a second instance
+    private static final int HEDGE_PICKS = 3;
+
+    private final LoadBalancerClientFactory clientFactory;
+    private final ObjectProvider<List<HttpHeadersFilter>> headersFilters;
+    private final MeterRegistry registry;
+    private final WebClient webClient;
+
+    public HedgeGatewayFilterFactory(LoadBalancerClientFactory clientFactory,
+                                     ObjectProvider<List<HttpHeadersFilter>> headersFilters,
+                                     WebClient.Builder webClientBuilder,
+                                     MeterRegistry registry) {
+        super(Config.class);
+        this.clientFactory = clientFactory;
+        this.headersFilters = headersFilters;
+        this.registry = registry;
+        this.webClient = webClientBuilder
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(MAX_BODY_BYTES))
+                .build();
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        HedgePolicy policy = new HedgePolicy(config.getRouteId(), config.getPercentile(), config.getMinDelay(),
+                config.getMaxDelay(), config.getBudget(), config.getMaxBurst(), registry);
+        return new OrderedGatewayFilter((exchange, chain) -> filter(exchange, chain, policy, config),
+                ReactiveLoadBalancerClientFilter.LOAD_BALANCER_CLIENT_FILTER_ORDER + 1);
+    }
+
+    private Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain, HedgePolicy policy, Config config) {
+        Response<ServiceInstance> primary = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR);
+        URI primaryUrl = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR);
+        if (!HttpMethod.GET.equals(exchange.getRequest().getMethod()) || primary == null || !primary.hasServer()
+                || primaryUrl == null || ServerWebExchangeUtils.isAlreadyRouted(exchange)) {
+            return chain.filter(exchange);
+        }
+        ServerWebExchangeUtils.setAlreadyRouted(exchange);
+        long primaryStart = System.nanoTime();
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.addAll(HttpHeadersFilter.filterRequest(headersFilters.getIfAvailable(), exchange));
+        headers.remove(HttpHeaders.HOST);
+        return policy.execute(
+                        () -> get(primaryUrl, headers, config.getTimeout())
+                                .doOnError(e -> completePrimary(exchange, primary, primaryStart,
+                                        CompletionContext.Status.FAILED, e))
+                                .doFinally(signal -> {
+                                    if (signal == SignalType.CANCEL) {
+                                        completePrimary(exchange, primary, primaryStart,
+                                                CompletionContext.Status.DISCARD, null);
+                                    }
+                                }),
+                        () -> hedge(exchange, primary.getServer(), primaryUrl, headers, config.getTimeout()))
+                .flatMap(outcome -> write(exchange, outcome.value()));
+    }
+
+    private Mono<ResponseEntity<byte[]>> get(URI url, HttpHeaders headers, Duration timeout) {
+        return webClient.get()
+                .uri(url)
+                .headers(h -> h.addAll(headers))
+                .exchangeToMono(response -> response.toEntity(byte[].class))
+                .timeout(timeout);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void completePrimary(ServerWebExchange exchange, Response<ServiceInstance> primary, long start,
+                                 CompletionContext.Status status, Throwable error) {
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR, new EmptyResponse());
+        RequestDataContext context = new RequestDataContext(new RequestData(exchange.getRequest()), "default");
+        context.setRequestStartTime(start);
+        DefaultRequest<RequestDataContext> lbRequest = new DefaultRequest<>(context);
+        CompletionContext completion = new CompletionContext<>(status, error, lbRequest, primary);
+        lifecycles(primary.getServer().getServiceId()).forEach(lifecycle -> lifecycle.onComplete(completion));
+    }
+
+    private Set<LoadBalancerLifecycle> lifecycles(String serviceId) {
+        return LoadBalancerLifecycleValidator.getSupportedLifecycleProcessors(
+                clientFactory.getInstances(serviceId, LoadBalancerLifecycle.class),
+                RequestDataContext.class, ResponseData.class, ServiceInstance.class);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Mono<ResponseEntity<byte[]>> hedge(ServerWebExchange exchange, ServiceInstance primary, URI primaryUrl,
+                                               HttpHeaders headers, Duration timeout) {
+        String serviceId = primary.getServiceId();
+        ReactorServiceInstanceLoadBalancer loadBalancer =
+                clientFactory.getInstance(serviceId, ReactorServiceInstanceLoadBalancer.class);
+        if (loadBalancer == null) {
+            return Mono.empty();
+        }
+        Set<LoadBalancerLifecycle> lifecycles = lifecycles(serviceId);
+        RequestData requestData = new RequestData(exchange.getRequest());
+        DefaultRequest<RequestDataContext> lbRequest = new DefaultRequest<>(new RequestDataContext(requestData, "default"));
+
+        return loadBalancer.choose(lbRequest)
+                .repeat(HEDGE_PICKS - 1)
+                .filter(response -> response.hasServer() && !sameInstance(response.getServer(), primary))
+                .next()
+                .flatMap(response -> {
+                    ServiceInstance instance = response.getServer();
+                    URI url = UriComponentsBuilder.fromUri(primaryUrl)
+                            .scheme(instance.isSecure() ? "https" : "http")
+                            .host(instance.getHost())
+                            .port(instance.getPort())
+                            .build(true)
+                            .toUri();
+                    lifecycles.forEach(lifecycle -> lifecycle.onStartRequest(lbRequest, response));
+                    return webClient.get()
+                            .uri(url)
+                            .headers(h -> h.addAll(headers))
+                            .exchangeToMono(client -> {
+                                ResponseData responseData = new ResponseData(client, requestData);
+                                return client.toEntity(byte[].class).doOnNext(entity -> lifecycles.forEach(lifecycle ->
+                                        lifecycle.onComplete(new CompletionContext<>(CompletionContext.Status.SUCCESS,
+                                                lbRequest, response, responseData))));
+                            })
+                            .timeout(timeout)
+                            .doOnError(e -> lifecycles.forEach(lifecycle -> lifecycle.onComplete(
+                                    new CompletionContext<>(CompletionContext.Status.FAILED, e, lbRequest, response))))
+                            // Lost the race: release the instance without a latency sample
+                            .doOnCancel(() -> lifecycles.forEach(lifecycle -> lifecycle.onComplete(
+                                    new CompletionContext<>(CompletionContext.Status.DISCARD, lbRequest, response))));
+                });
+    }
+
+    private static boolean sameInstance(ServiceInstance a, ServiceInstance b) {
+        return Objects.equals(a.getHost(), b.getHost()) && a.getPort() == b.getPort();
+    }
+
+    private Mono<Void> write(ServerWebExchange exchange, ResponseEntity<byte[]> entity) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(entity.getStatusCode());
+        response.getHeaders().putAll(HttpHeadersFilter.filter(headersFilters.getIfAvailable(), entity.getHeaders(),
+                exchange, HttpHeadersFilter.Type.RESPONSE));
+        byte[] body = entity.getBody() != null ? entity.getBody() : new byte[0];
+        response.getHeaders().remove(HttpHeaders.TRANSFER_ENCODING);
+        response.getHeaders().setContentLength(body.length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+    }
+
+    public static class Config implements HasRouteId {
+
+        private String routeId;
+        /** Latency percentile after which the hedge is sent. */
+        private double percentile = 0.95;
+        private Duration minDelay = Duration.ofMillis(10);
+        private Duration maxDelay = Duration.ofMillis(500);
+        /** Hedges allowed per request, on top of max-burst. */
+        private double budget = 0.1;
+        private int maxBurst = 10;
+        private Duration timeout = Duration.ofSeconds(5);
+
+        @Override
+        public void setRouteId(String routeId) {
+            this.routeId = routeId;
+        }
+
+        @Override
+        public String getRouteId() {
+            return routeId;
+        }
+
+        public double getPercentile() {
+            return percentile;
+        }
+
+        public void setPercentile(double percentile) {
+            this.percentile = percentile;
+        }
+
+        public Duration getMinDelay() {
+            return minDelay;
+        }
+
+        public void setMinDelay(Duration minDelay) {
+            this.minDelay = minDelay;
+        }
+
+        public Duration getMaxDelay() {
+            return maxDelay;
+        }
+
+        public void setMaxDelay(Duration maxDelay) {
+            this.maxDelay = maxDelay;
+        }
+
+        public double getBudget() {
+            return budget;
+        }
+
+        public void setBudget(double budget) {
+            this.budget = budget;
+        }
+
+        public int getMaxBurst() {
+            return maxBurst;
+        }
+
+        public void setMaxBurst(int maxBurst) {
+            this.maxBurst = maxBurst;
+        }
+
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(Duration timeout) {
+            this.timeout = timeout;
+        }
+    }
+}
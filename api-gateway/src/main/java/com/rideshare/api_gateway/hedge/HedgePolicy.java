@@ -0,0 +1,143 @@
+package com.rideshare.api_gateway.hedge;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Hedging state of one route: the latency distribution the hedge delay is read from, the budget,
+ * and the metrics.
+ * <p>
+ * A call starts the primary at once. If it has not produced a response after the route's
+ * {@code percentile} latency (clamped to [min-delay, max-delay]) and the budget allows, a second
+ * call goes to another instance; the first response wins and the other call is cancelled. The delay
+ * is re-read from the latency histogram at most once a second; until there are enough samples,
+ * max-delay is used.
+ * <p>
+ * The histogram holds the primary's own latency, never the winner's: a hedge that wins would
+ * otherwise pull the percentile down, making the next hedges fire earlier and win more often.
+ * A primary cancelled because the hedge won is recorded with the time it had run, a lower bound
+ * on its latency that keeps the tail above the hedge delay. Failed primaries are not recorded.
+ * <p>
+ * Metrics, tagged by route: gateway.hedge.latency (primary calls, with the configured percentile),
+ * gateway.hedge.requests{winner=primary|hedge}, gateway.hedge.sent and gateway.hedge.budget.exhausted.
+ */
+final class HedgePolicy {
+
+    private static final int MIN_SAMPLES = 100;
+    private static final long DELAY_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /** A response and whether the hedge produced it. */
+    record Outcome<T>(T value, boolean hedged) {}
+
+    private final Duration minDelay;
+    private final Duration maxDelay;
+    private final HedgeBudget budget;
+    private final Timer latency;
+    private final Counter wonByPrimary;
+    private final Counter wonByHedge;
+    private final Counter sent;
+    private final Counter budgetExhausted;
+
+    private volatile Duration delay;
+    private volatile long delayComputedAt;
+
+    HedgePolicy(String routeId, double percentile, Duration minDelay, Duration maxDelay,
+                double budgetRatio, int maxBurst, MeterRegistry registry) {
+        this.minDelay = minDelay;
+        this.maxDelay = maxDelay;
+        this.budget = new HedgeBudget(budgetRatio, maxBurst);
+        this.delay = maxDelay;
+        this.delayComputedAt = System.nanoTime();
+        this.latency = Timer.builder("gateway.hedge.latency")
+                .tag("route", routeId)
+                .publishPercentiles(percentile)
+                .distributionStatisticExpiry(Duration.ofMinutes(1))
+                .register(registry);
+        this.wonByPrimary = winner(routeId, "primary", registry);
+        this.wonByHedge = winner(routeId, "hedge", registry);
+        this.sent = Counter.builder("gateway.hedge.sent").tag("route", routeId).register(registry);
+        this.budgetExhausted = Counter.builder("gateway.hedge.budget.exhausted").tag("route", routeId).register(registry);
+    }
+
+    private static Counter winner(String routeId, String winner, MeterRegistry registry) {
+        return Counter.builder("gateway.hedge.requests")
+                .tag("route", routeId)
+                .tag("winner", winner)
+                .register(registry);
+    }
+
+    /**
+     * Races the primary against a delayed hedge. The hedge supplier may return an empty Mono
+     * (no other instance); if every call fails, the primary's error is propagated.
+     */
+    <T> Mono<Outcome<T>> execute(Supplier<Mono<T>> primary, Supplier<Mono<T>> hedge) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            budget.deposit();
+            // Whichever comes first: the answer, the cancellation, or an error (not recorded)
+            AtomicBoolean settled = new AtomicBoolean();
+            Runnable recordPrimary = () -> {
+                if (settled.compareAndSet(false, true)) {
+                    latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            };
+            Mono<Outcome<T>> first = primary.get()
+                    .doOnNext(value -> recordPrimary.run())
+                    .doOnError(e -> settled.set(true))
+                    .doOnCancel(recordPrimary)
+                    .map(value -> new Outcome<>(value, false));
+            Mono<Outcome<T>> second = Mono.delay(delay(start)).flatMap(tick -> {
+                if (!budget.tryWithdraw()) {
+                    budgetExhausted.increment();
+                    return Mono.empty();
+                }
+                sent.increment();
+                return hedge.get().map(value -> new Outcome<>(value, true));
+            });
+            return Mono.firstWithValue(first, second)
+                    .doOnNext(outcome -> (outcome.hedged() ? wonByHedge : wonByPrimary).increment())
+                    .onErrorMap(NoSuchElementException.class, HedgePolicy::firstFailure);
+        });
+    }
+
+    Duration delay(long now) {
+        if (now - delayComputedAt >= DELAY_REFRESH_NANOS) {
+            delayComputedAt = now;
+            delay = computeDelay();
+        }
+        return delay;
+    }
+
+    private Duration computeDelay() {
+        HistogramSnapshot snapshot = latency.takeSnapshot();
+        ValueAtPercentile[] values = snapshot.percentileValues();
+        if (snapshot.count() < MIN_SAMPLES || values.length == 0) {
+            return maxDelay;
+        }
+        long nanos = (long) values[0].value(TimeUnit.NANOSECONDS);
+        return Duration.ofNanos(Math.max(minDelay.toNanos(), Math.min(maxDelay.toNanos(), nanos)));
+    }
+
+    // firstWithValue reports "no value" and carries each source's error (or empty completion) as its cause
+    private static Throwable firstFailure(NoSuchElementException e) {
+        List<Throwable> failures = e.getCause() != null
+                ? Exceptions.unwrapMultiple(e.getCause())
+                : List.of(e.getSuppressed());
+        return failures.stream()
+                .filter(failure -> !(failure instanceof NoSuchElementException))
+                .findFirst()
+                .orElse(e);
+    }
+}
@@ -0,0 +1,239 @@
+package com.rideshare.api_gateway.loadbalancer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.TimedRequestContext;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.SelectedInstanceCallback;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Power-of-two-choices over a peak EWMA of latency. Each pick draws two random instances and takes
+ * the cheaper one, where cost = latency EWMA x (in-flight + 1): a replica stalled in GC stops
+ * completing, its in-flight count climbs and traffic moves away within a few requests, while the
+ * random draw keeps every gateway from herding onto the same "best" instance.
+ * <p>
+ * Latency samples come from the gateway's load-balancer lifecycle callbacks. A slower sample
+ * replaces the EWMA at once and faster ones pull it down over decay-time, so the balancer is quick
+ * to leave a slow instance and careful about coming back. An instance first seen by this gateway
+ * has its cost inflated over slow-start, so a replica that is still warming up gets a growing
+ * share of traffic instead of a full one.
+ */
+public class LatencyAwareLoadBalancer implements ReactorServiceInstanceLoadBalancer,
+        LoadBalancerLifecycle<Object, Object, ServiceInstance> {
+
+    private static final Logger log = LoggerFactory.getLogger(LatencyAwareLoadBalancer.class);
+    // A brand-new instance still costs at most ten times a warm one
+    private static final double MIN_WARMUP_WEIGHT = 0.1;
+    // Latency assumed before any instance has been measured
+    private static final double DEFAULT_LATENCY_NANOS = 1_000_000;
+
+    private final ObjectProvider<ServiceInstanceListSupplier> suppliers;
+    private final String serviceId;
+    private final LoadBalancerProps props;
+    private final LongSupplier clock;
+    private final Map<String, InstanceStats> stats = new ConcurrentHashMap<>();
+
+    public LatencyAwareLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> suppliers, String serviceId,
+                                    LoadBalancerProps props) {
+        this(suppliers, serviceId, props, System::nanoTime);
+    }
+
+    LatencyAwareLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> suppliers, String serviceId,
+                             LoadBalancerProps props, LongSupplier clock) {
+        this.suppliers = suppliers;
+        this.serviceId = serviceId;
+        this.props = props;
+        this.clock = clock;
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = suppliers.getIfAvailable(NoopServiceInstanceListSupplier::new);
+        return supplier.get(request).next().map(instances -> {
+            Response<ServiceInstance> response = choose(instances);
+            if (supplier instanceof SelectedInstanceCallback callback && response.hasServer()) {
+                callback.selectedServiceInstance(response.getServer());
+            }
+            return response;
+        });
+    }
+
+    private Response<ServiceInstance> choose(List<ServiceInstance> instances) {
+        if (instances.isEmpty()) {
+            log.warn("No servers available for service: {}", serviceId);
+            return new EmptyResponse();
+        }
+        long now = clock.getAsLong();
+        if (stats.size() > instances.size()) {
+            forgetRemoved(instances);
+        }
+        if (instances.size() == 1) {
+            statsOf(instances.get(0), now);
+            return new DefaultResponse(instances.get(0));
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(instances.size());
+        int second = random.nextInt(instances.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        InstanceStats a = statsOf(instances.get(first), now);
+        InstanceStats b = statsOf(instances.get(second), now);
+        double fallback = a.ewma() > 0 && b.ewma() > 0 ? 0 : meanLatency();
+        return new DefaultResponse(cost(a, now, fallback) <= cost(b, now, fallback)
+                ? instances.get(first)
+                : instances.get(second));
+    }
+
+    private double cost(InstanceStats instance, long now, double fallback) {
+        double latency = instance.ewma() > 0 ? instance.ewma() : fallback;
+        double cost = latency * (instance.inFlight.get() + 1);
+        long slowStart = props.slowStart().toNanos();
+        if (slowStart > 0) {
+            double weight = Math.max(MIN_WARMUP_WEIGHT, Math.min(1, (double) (now - instance.firstSeen) / slowStart));
+            cost /= weight;
+        }
+        return cost;
+    }
+
+    // Instances not measured yet are assumed to be as fast as the average measured one
+    private double meanLatency() {
+        double sum = 0;
+        int measured = 0;
+        for (InstanceStats instance : stats.values()) {
+            double ewma = instance.ewma();
+            if (ewma > 0) {
+                sum += ewma;
+                measured++;
+            }
+        }
+        return measured == 0 ? DEFAULT_LATENCY_NANOS : sum / measured;
+    }
+
+    private InstanceStats statsOf(ServiceInstance instance, long now) {
+        return stats.computeIfAbsent(keyOf(instance), k -> new InstanceStats(now));
+    }
+
+    private void forgetRemoved(List<ServiceInstance> instances) {
+        Set<String> live = new HashSet<>(instances.size() * 2);
+        for (ServiceInstance instance : instances) {
+            live.add(keyOf(instance));
+        }
+        stats.keySet().retainAll(live);
+    }
+
+    private static String keyOf(ServiceInstance instance) {
+        return instance.getInstanceId() != null
+                ? instance.getInstanceId()
+                : instance.getHost() + ":" + instance.getPort();
+    }
+
+    @Override
+    public boolean supports(Class requestContextClass, Class responseClass, Class serverTypeClass) {
+        return ServiceInstance.class.isAssignableFrom(serverTypeClass);
+    }
+
+    @Override
+    public void onStart(Request<Object> request) {
+    }
+
+    @Override
+    public void onStartRequest(Request<Object> request, Response<ServiceInstance> lbResponse) {
+        if (request.getContext() instanceof TimedRequestContext timed) {
+            timed.setRequestStartTime(clock.getAsLong());
+        }
+        if (lbResponse.hasServer()) {
+            statsOf(lbResponse.getServer(), clock.getAsLong()).inFlight.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void onComplete(CompletionContext<Object, ServiceInstance, Object> completionContext) {
+        Response<ServiceInstance> lbResponse = completionContext.getLoadBalancerResponse();
+        if (lbResponse == null || !lbResponse.hasServer()) {
+            return;
+        }
+        InstanceStats instance = stats.get(keyOf(lbResponse.getServer()));
+        if (instance == null) {
+            return;
+        }
+        instance.inFlight.updateAndGet(inFlight -> Math.max(0, inFlight - 1));
+        if (completionContext.status() == CompletionContext.Status.DISCARD) {
+            // Started but abandoned (e.g. a hedge that lost the race): says nothing about latency
+            return;
+        }
+        if (completionContext.getLoadBalancerRequest() != null
+                && completionContext.getLoadBalancerRequest().getContext() instanceof TimedRequestContext timed
+                && timed.getRequestStartTime() > 0) {
+            long now = clock.getAsLong();
+            long latency = now - timed.getRequestStartTime();
+            if (completionContext.status() == CompletionContext.Status.FAILED) {
+                // A connection refused fails fast; it must not make the instance look attractive
+                latency = Math.max(latency, props.failurePenalty().toNanos());
+            }
+            instance.record(latency, now, props.decayTime().toNanos());
+        }
+    }
+
+    private static final class InstanceStats {
+        final long firstSeen;
+        final AtomicInteger inFlight = new AtomicInteger();
+        // Written under this, read without it
+        private volatile double ewmaNanos;
+        private long lastSample;
+
+        InstanceStats(long firstSeen) {
+            this.firstSeen = firstSeen;
+        }
+
+        double ewma() {
+            return ewmaNanos;
+        }
+
+        synchronized void record(long latency, long now, long decayNanos) {
+            if (latency >= ewmaNanos) {
+                ewmaNanos = latency;
+            } else {
+                double weight = Math.exp(-(double) (now - lastSample) / decayNanos);
+                ewmaNanos = ewmaNanos * weight + latency * (1 - weight);
+            }
+            lastSample = now;
+        }
+    }
+
+    /**
+     * @param decayTime      how long a latency spike keeps weighing on an instance
+     * @param slowStart      ramp-up period for an instance this gateway has not seen before; 0 disables it
+     * @param failurePenalty latency charged for a request that failed, if it failed faster than this
+     */
+    @ConfigurationProperties(prefix = "gateway.load-balancer")
+    public record LoadBalancerProps(
+            @DefaultValue("10s") Duration decayTime,
+            @DefaultValue("30s") Duration slowStart,
+            @DefaultValue("1s") Duration failurePenalty
+    ) {}
+}
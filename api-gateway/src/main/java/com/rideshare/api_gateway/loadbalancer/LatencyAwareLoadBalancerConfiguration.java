@@ -0,0 +1,25 @@
+package com.rideshare.api_gateway.loadbalancer;
+
+import com.rideshare.api_gateway.loadbalancer.LatencyAwareLoadBalancer.LoadBalancerProps;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+/**
+ * Per-service load-balancer configuration, applied to every lb:// route through
+ * {@code @LoadBalancerClients(defaultConfiguration = ...)}. Deliberately not a @Configuration:
+ * it is instantiated in each service's child context, not in the application context.
+ * The bean is declared with its concrete type so the gateway also finds it as a LoadBalancerLifecycle.
+ */
+public class LatencyAwareLoadBalancerConfiguration {
+
+    @Bean
+    public LatencyAwareLoadBalancer latencyAwareLoadBalancer(Environment environment,
+                                                             LoadBalancerClientFactory clientFactory,
+                                                             LoadBalancerProps props) {
+        String serviceId = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+        return new LatencyAwareLoadBalancer(
+                clientFactory.getLazyProvider(serviceId, ServiceInstanceListSupplier.class), serviceId, props);
+    }
+}
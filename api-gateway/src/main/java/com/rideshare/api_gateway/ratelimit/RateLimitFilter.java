@@ -0,0 +1,196 @@
+package com.rideshare.api_gateway.ratelimit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rideshare.api_gateway.filter.JwtAuthenticationFilter;
+import com.rideshare.api_gateway.ratelimit.RateLimitProps.KeyType;
+import com.rideshare.api_gateway.ratelimit.RateLimitProps.Rule;
+import com.rideshare.api_gateway.ratelimit.TokenBucketLimiter.CompiledRule;
+import com.rideshare.api_gateway.ratelimit.TokenBucketLimiter.Decision;
+import com.rideshare.api_gateway.traffic.HeavyHitters;
+import com.rideshare.api_gateway.traffic.HeavyHitters.Dimension;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Applies the configured rate limits before routing. A request must be admitted by every rule
+ * matching its method and path; otherwise it is answered 429 with Retry-After and never reaches
+ * the services. The JSON body is only buffered when a matching rule is keyed by mobile number,
+ * and only up to 4KB: a larger body on such a route is answered 413 without reaching the service.
+ * Bodies without a readable mobile number all share one bucket per rule rather than skipping it.
+ */
+@Component
+public class RateLimitFilter implements GlobalFilter, Ordered {
+
+    private static final Logger log = LoggerFactory.getLogger(RateLimitFilter.class);
+    // OTP and registration bodies are tiny; anything larger is rejected rather than buffered
+    private static final int MAX_KEY_BODY_BYTES = 4096;
+    // Bucket key for bodies the mobile number could not be read from
+    private static final String NO_MOBILE_NUMBER = "-";
+
+    private final TokenBucketLimiter limiter;
+    private final ObjectMapper objectMapper;
+    private final HeavyHitters heavyHitters;
+
+    public RateLimitFilter(TokenBucketLimiter limiter, ObjectMapper objectMapper, HeavyHitters heavyHitters) {
+        this.limiter = limiter;
+        this.objectMapper = objectMapper;
+        this.heavyHitters = heavyHitters;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (!limiter.isEnabled()) {
+            return chain.filter(exchange);
+        }
+        List<Rule> matching = matchingRules(exchange.getRequest());
+        if (matching.isEmpty()) {
+            return chain.filter(exchange);
+        }
+        if (matching.stream().noneMatch(rule -> rule.key() == KeyType.MOBILE_NUMBER)) {
+            return decide(exchange, chain, matching, null);
+        }
+        if (exchange.getRequest().getHeaders().getContentLength() > MAX_KEY_BODY_BYTES) {
+            return payloadTooLarge(exchange);
+        }
+        // Chunked bodies have no Content-Length: stop reading as soon as one passes the limit
+        ServerHttpRequest limited = new ServerHttpRequestDecorator(exchange.getRequest()) {
+            @Override
+            public Flux<DataBuffer> getBody() {
+                return DataBufferUtils.join(super.getBody(), MAX_KEY_BODY_BYTES).flux();
+            }
+        };
+        return ServerWebExchangeUtils.cacheRequestBody(exchange.mutate().request(limited).build(), request -> {
+                    DataBuffer body = exchange.getAttribute(ServerWebExchangeUtils.CACHED_REQUEST_BODY_ATTR);
+                    return decide(exchange.mutate().request(request).build(), chain, matching, mobileNumberOf(body));
+                })
+                .onErrorResume(DataBufferLimitException.class, e -> payloadTooLarge(exchange));
+    }
+
+    private List<Rule> matchingRules(ServerHttpRequest request) {
+        List<Rule> matching = new ArrayList<>(2);
+        for (CompiledRule compiled : limiter.rules()) {
+            Rule rule = compiled.rule();
+            boolean methodMatches = rule.method() == null || rule.method().isBlank()
+                    || rule.method().equalsIgnoreCase(request.getMethod().name());
+            if (methodMatches && compiled.path().matches(request.getPath().pathWithinApplication())) {
+                matching.add(rule);
+            }
+        }
+        return matching;
+    }
+
+    private Mono<Void> decide(ServerWebExchange exchange, GatewayFilterChain chain, List<Rule> rules, String mobileNumber) {
+        List<Rule> taken = new ArrayList<>(rules.size());
+        List<String> takenKeys = new ArrayList<>(rules.size());
+        for (Rule rule : rules) {
+            String key = keyOf(rule.key(), exchange, mobileNumber);
+            if (key == null || (rule.heavyHittersOnly() && !isHeavy(rule.key(), exchange))) {
+                continue;
+            }
+            Decision decision = limiter.tryAcquire(rule, key);
+            if (!decision.allowed()) {
+                for (int i = 0; i < taken.size(); i++) {
+                    limiter.release(taken.get(i), takenKeys.get(i));
+                }
+                log.debug("Rate limited by rule={} path={}", rule.id(), exchange.getRequest().getPath());
+                return tooManyRequests(exchange, decision);
+            }
+            taken.add(rule);
+            takenKeys.add(key);
+        }
+        return chain.filter(exchange);
+    }
+
+    private static String keyOf(KeyType type, ServerWebExchange exchange, String mobileNumber) {
+        return switch (type) {
+            case ROUTE -> "*";
+            case CLIENT_IP -> clientIp(exchange);
+            case SUBJECT -> {
+                String subject = exchange.getRequest().getHeaders().getFirst(JwtAuthenticationFilter.SUBJECT_HEADER);
+                yield subject != null ? subject : "ip:" + clientIp(exchange);
+            }
+            case MOBILE_NUMBER -> mobileNumber != null ? mobileNumber : NO_MOBILE_NUMBER;
+        };
+    }
+
+    private boolean isHeavy(KeyType type, ServerWebExchange exchange) {
+        return switch (type) {
+            case ROUTE -> heavyHitters.isHeavy(Dimension.PATH,
+                    exchange.getRequest().getPath().pathWithinApplication().value());
+            case CLIENT_IP -> isHeavyClient(exchange);
+            case SUBJECT -> {
+                String subject = exchange.getRequest().getHeaders().getFirst(JwtAuthenticationFilter.SUBJECT_HEADER);
+                yield subject != null
+                        ? heavyHitters.isHeavy(Dimension.SUBJECT, subject)
+                        : isHeavyClient(exchange);
+            }
+            // Request bodies are not counted
+            case MOBILE_NUMBER -> false;
+        };
+    }
+
+    private boolean isHeavyClient(ServerWebExchange exchange) {
+        InetSocketAddress remote = exchange.getRequest().getRemoteAddress();
+        return remote != null && remote.getAddress() != null && heavyHitters.isHeavy(remote.getAddress());
+    }
+
+    private static String clientIp(ServerWebExchange exchange) {
+        InetSocketAddress remote = exchange.getRequest().getRemoteAddress();
+        return remote == null || remote.getAddress() == null ? "unknown" : remote.getAddress().getHostAddress();
+    }
+
+    private String mobileNumberOf(DataBuffer body) {
+        if (body == null) {
+            return null;
+        }
+        try {
+            JsonNode mobile = objectMapper.readTree(body.toString(body.readPosition(), body.readableByteCount(),
+                    StandardCharsets.UTF_8)).get("mobileNumber");
+            return mobile == null || !mobile.isTextual() ? null : mobile.asText();
+        } catch (Exception e) {
+            // Not JSON: let the service reject it, within the shared bucket
+            return null;
+        }
+    }
+
+    private static Mono<Void> payloadTooLarge(ServerWebExchange exchange) {
+        exchange.getResponse().setStatusCode(HttpStatus.PAYLOAD_TOO_LARGE);
+        return exchange.getResponse().setComplete();
+    }
+
+    private static Mono<Void> tooManyRequests(ServerWebExchange exchange, Decision decision) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER,
+                String.valueOf(Math.max(1, (decision.retryAfter().toMillis() + 999) / 1000)));
+        return response.setComplete();
+    }
+
+    @Override
+    public int getOrder() {
+        // After JwtAuthenticationFilter, so SUBJECT rules see the verified subject
+        return Ordered.HIGHEST_PRECEDENCE + 20;
+    }
+}
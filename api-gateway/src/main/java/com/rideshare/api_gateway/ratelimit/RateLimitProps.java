@@ -0,0 +1,58 @@
+package com.rideshare.api_gateway.ratelimit;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Rate limits applied at the gateway. Served by config-service, and re-read on
+ * /actuator/refresh (or a bus refresh) without a restart.
+ *
+ * @param syncInterval how often local consumption is reconciled with the shared buckets in Redis
+ * @param idleTimeout  local buckets unused for this long are forgotten
+ * @param rules        every matching rule must admit a request
+ */
+@ConfigurationProperties(prefix = "gateway.rate-limit")
+public record RateLimitProps(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("1s") Duration syncInterval,
+        @DefaultValue("15m") Duration idleTimeout,
+        @DefaultValue List<Rule> rules
+) {
+
+    /** What a rule counts requests by. */
+    public enum KeyType {
+        /** All requests matching the rule share one bucket. */
+        ROUTE,
+        /** Remote address (set server.forward-headers-strategy behind a proxy). */
+        CLIENT_IP,
+        /** Verified token subject; anonymous requests are counted per client IP. */
+        SUBJECT,
+        /** mobileNumber field of a JSON request body; requests without one skip the rule. */
+        MOBILE_NUMBER
+    }
+
+    /**
+     * Allows {@code capacity} requests per {@code period} per key, refilled continuously.
+     *
+     * @param path             path pattern, e.g. /api/auth/otp or /api/users/**
+     * @param method           HTTP method, or empty for any
+     * @param heavyHittersOnly only apply the rule to keys the heavy-hitter detector currently flags
+     *                         (CLIENT_IP, SUBJECT and ROUTE keys; see gateway.heavy-hitters)
+     */
+    public record Rule(
+            String id,
+            String path,
+            String method,
+            KeyType key,
+            long capacity,
+            Duration period,
+            boolean heavyHittersOnly
+    ) {
+        public double tokensPerNano() {
+            return (double) capacity / period.toNanos();
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package com.rideshare.api_gateway.ratelimit;
+
+import com.rideshare.api_gateway.ratelimit.RateLimitProps.Rule;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Local token buckets, one per (rule, key), reconciled with shared buckets in Redis.
+ * Every decision is taken locally under one of {@value #STRIPES} locks picked by key hash, so
+ * requests for different keys rarely contend and no request waits on the network.
+ * Every sync-interval the consumption since the last sync is sent for all touched keys in one
+ * script call; Redis refills and debits the shared bucket and returns its level, which replaces
+ * the local one. Between syncs a node only spends its local level, so a client spread over N
+ * gateways can burst to at most N x capacity once; the excess stays as debt in the shared bucket,
+ * so over time the admitted rate still matches the limit. If Redis is unreachable the limits
+ * keep working per node.
+ */
+@Component
+public class TokenBucketLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenBucketLimiter.class);
+    private static final String METRIC = "gateway.ratelimit";
+    private static final String KEY_PREFIX = "ratelimit:";
+    private static final int STRIPES = 64;
+    private static final int SYNC_CHUNK = 500;
+
+    @SuppressWarnings("rawtypes")
+    static final RedisScript<List> SYNC_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/ratelimit-sync.lua"), List.class);
+
+    /** A rule with its parsed path pattern. */
+    public record CompiledRule(Rule rule, PathPattern path) {}
+
+    /** Outcome of an acquire; retryAfter is how long until the next token, zero when allowed. */
+    public record Decision(boolean allowed, Duration retryAfter) {
+        static final Decision ALLOWED = new Decision(true, Duration.ZERO);
+    }
+
+    // Guarded by the stripe it lives in
+    private static final class Bucket {
+        final String ruleId;
+        final String key;
+        double tokens;
+        long refilledAt;
+        long lastUsed;
+        long consumedSinceSync;
+
+        Bucket(String ruleId, String key, double tokens, long now) {
+            this.ruleId = ruleId;
+            this.key = key;
+            this.tokens = tokens;
+            this.refilledAt = now;
+            this.lastUsed = now;
+        }
+
+        void refill(Rule rule, long now) {
+            tokens = Math.min(rule.capacity(), tokens + (now - refilledAt) * rule.tokensPerNano());
+            refilledAt = now;
+        }
+    }
+
+    private static final class Stripe {
+        final Map<String, Bucket> buckets = new HashMap<>();
+    }
+
+    private final StringRedisTemplate redis;
+    private final Environment environment;
+    private final MeterRegistry registry;
+    private final LongSupplier nanoClock;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final ScheduledExecutorService syncer = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("ratelimit-sync").daemon().factory());
+    private final Map<String, Counter> decisions = new ConcurrentHashMap<>();
+    private final Timer syncTimer;
+    private final Counter syncFailures;
+
+    private volatile RateLimitProps props;
+    private volatile List<CompiledRule> rules = List.of();
+    private volatile Map<String, Rule> rulesById = Map.of();
+
+    @Autowired
+    public TokenBucketLimiter(StringRedisTemplate redis, Environment environment, RateLimitProps props,
+                              MeterRegistry registry) {
+        this(redis, environment, props, registry, System::nanoTime);
+    }
+
+    /**
+     * @param nanoClock monotonic time in nanoseconds, as System.nanoTime
+     */
+    TokenBucketLimiter(StringRedisTemplate redis, Environment environment, RateLimitProps props,
+                       MeterRegistry registry, LongSupplier nanoClock) {
+        this.redis = redis;
+        this.environment = environment;
+        this.registry = registry;
+        this.nanoClock = nanoClock;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+        apply(props);
+        this.syncTimer = Timer.builder(METRIC + ".sync").register(registry);
+        this.syncFailures = Counter.builder(METRIC + ".sync.failures").register(registry);
+        Gauge.builder(METRIC + ".buckets", this, TokenBucketLimiter::bucketCount)
+                .description("Local buckets held by this node")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        long interval = props.syncInterval().toMillis();
+        syncer.scheduleWithFixedDelay(this::sync, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /** Limits changed in config-service and were pulled by a refresh: rebind and swap the rules. */
+    @EventListener
+    public void onEnvironmentChange(EnvironmentChangeEvent event) {
+        if (event.getKeys().stream().anyMatch(key -> key.startsWith("gateway.rate-limit"))) {
+            apply(Binder.get(environment).bindOrCreate("gateway.rate-limit", RateLimitProps.class));
+            log.info("Rate limit rules reloaded: {}", rulesById.keySet());
+        }
+    }
+
+    private void apply(RateLimitProps updated) {
+        PathPatternParser parser = PathPatternParser.defaultInstance;
+        this.rules = updated.rules().stream()
+                .map(rule -> new CompiledRule(rule, parser.parse(rule.path())))
+                .toList();
+        this.rulesById = updated.rules().stream().collect(Collectors.toUnmodifiableMap(Rule::id, Function.identity()));
+        this.props = updated;
+    }
+
+    public boolean isEnabled() {
+        return props.enabled();
+    }
+
+    public List<CompiledRule> rules() {
+        return rules;
+    }
+
+    /** Takes one token for the key under the rule, or says how long until one is available. */
+    public Decision tryAcquire(Rule rule, String key) {
+        String id = rule.id() + ":" + key;
+        long now = nanoClock.getAsLong();
+        Decision decision;
+        Stripe stripe = stripeOf(id);
+        synchronized (stripe) {
+            Bucket bucket = stripe.buckets.computeIfAbsent(id, k -> new Bucket(rule.id(), key, rule.capacity(), now));
+            bucket.refill(rule, now);
+            bucket.lastUsed = now;
+            if (bucket.tokens >= 1) {
+                bucket.tokens -= 1;
+                bucket.consumedSinceSync++;
+                decision = Decision.ALLOWED;
+            } else {
+                decision = new Decision(false, Duration.ofNanos((long) Math.ceil((1 - bucket.tokens) / rule.tokensPerNano())));
+            }
+        }
+        decisionCounter(rule.id(), decision.allowed() ? "allowed" : "denied").increment();
+        return decision;
+    }
+
+    /** Gives back a token taken by tryAcquire, when another rule denied the same request. */
+    public void release(Rule rule, String key) {
+        String id = rule.id() + ":" + key;
+        Stripe stripe = stripeOf(id);
+        synchronized (stripe) {
+            Bucket bucket = stripe.buckets.get(id);
+            if (bucket != null && bucket.consumedSinceSync > 0) {
+                bucket.tokens = Math.min(rule.capacity(), bucket.tokens + 1);
+                bucket.consumedSinceSync--;
+            }
+        }
+    }
+
+    void sync() {
+        try {
+            syncTimer.record(this::syncOnce);
+        } catch (RuntimeException e) {
+            syncFailures.increment();
+            log.warn("Rate limit sync failed, deciding locally until the next one: {}", e.getMessage());
+        }
+    }
+
+    private void syncOnce() {
+        Map<String, Rule> current = rulesById;
+        long now = nanoClock.getAsLong();
+        long idleNanos = props.idleTimeout().toNanos();
+        List<Bucket> touched = new ArrayList<>();
+        List<Long> consumed = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                Iterator<Bucket> it = stripe.buckets.values().iterator();
+                while (it.hasNext()) {
+                    Bucket bucket = it.next();
+                    if (!current.containsKey(bucket.ruleId)
+                            || (bucket.consumedSinceSync == 0 && now - bucket.lastUsed > idleNanos)) {
+                        it.remove();
+                    } else if (bucket.consumedSinceSync > 0) {
+                        touched.add(bucket);
+                        consumed.add(bucket.consumedSinceSync);
+                        bucket.consumedSinceSync = 0;
+                    }
+                }
+            }
+        }
+        for (int from = 0; from < touched.size(); from += SYNC_CHUNK) {
+            int to = Math.min(touched.size(), from + SYNC_CHUNK);
+            try {
+                reconcile(touched.subList(from, to), consumed.subList(from, to), current);
+            } catch (RuntimeException e) {
+                // Charge the consumption again with the next sync
+                for (int i = from; i < touched.size(); i++) {
+                    Bucket bucket = touched.get(i);
+                    synchronized (stripeOf(bucket.ruleId + ":" + bucket.key)) {
+                        bucket.consumedSinceSync += consumed.get(i);
+                    }
+                }
+                throw e;
+            }
+        }
+    }
+
+    private void reconcile(List<Bucket> buckets, List<Long> consumed, Map<String, Rule> current) {
+        List<String> keys = new ArrayList<>(buckets.size());
+        Object[] args = new Object[buckets.size() * 3];
+        for (int i = 0; i < buckets.size(); i++) {
+            Bucket bucket = buckets.get(i);
+            Rule rule = current.get(bucket.ruleId);
+            keys.add(KEY_PREFIX + bucket.ruleId + ":" + bucket.key);
+            args[3 * i] = String.valueOf(consumed.get(i));
+            args[3 * i + 1] = String.valueOf(rule.capacity());
+            args[3 * i + 2] = String.valueOf(rule.tokensPerNano() * 1_000_000);
+        }
+        List<?> levels = redis.execute(SYNC_SCRIPT, keys, args);
+        if (levels == null || levels.size() != buckets.size()) {
+            throw new IllegalStateException("Unexpected sync reply for " + buckets.size() + " keys");
+        }
+        long now = nanoClock.getAsLong();
+        for (int i = 0; i < buckets.size(); i++) {
+            Bucket bucket = buckets.get(i);
+            Rule rule = current.get(bucket.ruleId);
+            double shared = Double.parseDouble(String.valueOf(levels.get(i)));
+            synchronized (stripeOf(bucket.ruleId + ":" + bucket.key)) {
+                // Tokens taken here since the snapshot are not in the shared level yet
+                bucket.tokens = Math.min(rule.capacity(), Math.max(0, shared - bucket.consumedSinceSync));
+                bucket.refilledAt = now;
+            }
+        }
+    }
+
+    private Stripe stripeOf(String id) {
+        int h = id.hashCode();
+        return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+    }
+
+    private Counter decisionCounter(String ruleId, String result) {
+        return decisions.computeIfAbsent(ruleId + ":" + result, k -> Counter.builder(METRIC + ".decisions")
+                .tag("rule", ruleId)
+                .tag("result", result)
+                .register(registry));
+    }
+
+    private int bucketCount() {
+        int count = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                count += stripe.buckets.size();
+            }
+        }
+        return count;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        syncer.shutdownNow();
+    }
+}
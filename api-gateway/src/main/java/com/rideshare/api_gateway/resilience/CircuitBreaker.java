@@ -0,0 +1,112 @@
+package com.rideshare.api_gateway.resilience;
+
+import com.rideshare.api_gateway.resilience.ResilienceProps.Breaker;
+
+import java.time.Duration;
+
+/**
+ * Count-based circuit breaker for one route. CLOSED lets everything through and keeps the outcome
+ * of the last {@code window} calls; once at least minimum-calls are in and the failure rate reaches
+ * the threshold it OPENs and rejects for open-duration. Then HALF_OPEN lets half-open-calls probes
+ * through: all succeeding closes it, any failing opens it again.
+ * The CLOSED path only reads a volatile; state changes and outcomes are serialized on this.
+ */
+final class CircuitBreaker {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final Breaker props;
+    private volatile State state = State.CLOSED;
+
+    // Guarded by this
+    private final boolean[] outcomes;
+    private int next;
+    private int calls;
+    private int failures;
+    private long openedAt;
+    private int probesIssued;
+    private int probesSucceeded;
+
+    CircuitBreaker(Breaker props) {
+        this.props = props;
+        this.outcomes = new boolean[props.window()];
+    }
+
+    boolean tryAcquire(long now) {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        synchronized (this) {
+            if (state == State.OPEN && now - openedAt >= props.openDuration().toNanos()) {
+                state = State.HALF_OPEN;
+                probesIssued = 0;
+                probesSucceeded = 0;
+            }
+            return switch (state) {
+                case CLOSED -> true;
+                case OPEN -> false;
+                case HALF_OPEN -> {
+                    if (probesIssued >= props.halfOpenCalls()) {
+                        yield false;
+                    }
+                    probesIssued++;
+                    yield true;
+                }
+            };
+        }
+    }
+
+    /** Hands back a half-open probe slot that was not used (the request was cancelled). */
+    synchronized void release() {
+        if (state == State.HALF_OPEN && probesIssued > 0) {
+            probesIssued--;
+        }
+    }
+
+    synchronized void record(boolean failed, long now) {
+        switch (state) {
+            case CLOSED -> {
+                if (calls == outcomes.length) {
+                    failures -= outcomes[next] ? 1 : 0;
+                } else {
+                    calls++;
+                }
+                outcomes[next] = failed;
+                failures += failed ? 1 : 0;
+                next = (next + 1) % outcomes.length;
+                if (calls >= props.minimumCalls() && failures >= props.failureRateThreshold() * calls) {
+                    open(now);
+                }
+            }
+            case HALF_OPEN -> {
+                if (failed) {
+                    open(now);
+                } else if (++probesSucceeded >= props.halfOpenCalls()) {
+                    state = State.CLOSED;
+                }
+            }
+            // Late outcomes of calls admitted before opening
+            case OPEN -> { }
+        }
+    }
+
+    private void open(long now) {
+        state = State.OPEN;
+        openedAt = now;
+        calls = 0;
+        failures = 0;
+        next = 0;
+    }
+
+    /** How long until an open breaker lets probes through; zero otherwise. */
+    synchronized Duration retryAfter(long now) {
+        if (state != State.OPEN) {
+            return Duration.ZERO;
+        }
+        return Duration.ofNanos(Math.max(0, props.openDuration().toNanos() - (now - openedAt)));
+    }
+
+    State state() {
+        return state;
+    }
+}
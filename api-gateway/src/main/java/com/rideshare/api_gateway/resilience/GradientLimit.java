@@ -0,0 +1,113 @@
+package com.rideshare.api_gateway.resilience;
+
+import com.rideshare.api_gateway.resilience.ResilienceProps.Concurrency;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Adaptive concurrency limit for one route, after Netflix's Gradient2. Admission is a CAS on the
+ * in-flight count against the current limit; the limit itself is recomputed once per sample window
+ * from gradient = tolerance x long-term latency / recent latency, clamped to [0.5, 1]:
+ * <pre>limit = limit x (1 - smoothing) + (limit x gradient + sqrt(limit)) x smoothing</pre>
+ * When the backend slows down (a slow database, a GC storm) the gradient drops and so does the
+ * limit, so fewer requests are in flight to the service at once. Nothing waits at the gateway:
+ * a request over the limit is rejected immediately (503) instead of queueing in the service's
+ * thread pool.
+ */
+final class GradientLimit {
+
+    private static final int MIN_WINDOW_SAMPLES = 5;
+
+    private final Concurrency props;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int limit;
+
+    // Guarded by this
+    private double estimatedLimit;
+    private double longRtt;
+    private long windows;
+    private long windowStart;
+    private long windowRttSum;
+    private int windowSamples;
+    private int windowMaxInFlight;
+    private boolean windowDropped;
+
+    GradientLimit(Concurrency props, long now) {
+        this.props = props;
+        this.estimatedLimit = props.initialLimit();
+        this.limit = props.initialLimit();
+        this.windowStart = now;
+    }
+
+    boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /** Gives back a slot without a sample (the request was cancelled or never sent). */
+    void release() {
+        inFlight.decrementAndGet();
+    }
+
+    /** Gives back a slot and feeds the request's latency into the limit. */
+    void release(long rttNanos, boolean dropped, long now) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        synchronized (this) {
+            windowRttSum += rttNanos;
+            windowSamples++;
+            windowMaxInFlight = Math.max(windowMaxInFlight, inFlightBefore);
+            windowDropped |= dropped;
+            if (now - windowStart >= props.sampleWindow().toNanos() && windowSamples >= MIN_WINDOW_SAMPLES) {
+                update((double) windowRttSum / windowSamples);
+                windowStart = now;
+                windowRttSum = 0;
+                windowSamples = 0;
+                windowMaxInFlight = 0;
+                windowDropped = false;
+            }
+        }
+    }
+
+    private void update(double shortRtt) {
+        windows++;
+        if (windows <= 10) {
+            // Plain average while warming up
+            longRtt += (shortRtt - longRtt) / windows;
+        } else {
+            longRtt += (shortRtt - longRtt) * 2 / (props.longWindow() + 1);
+        }
+        // Latency came back down after an overload: stop comparing against the inflated average
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+
+        double next;
+        if (windowDropped) {
+            next = estimatedLimit * props.backoffRatio();
+        } else if (windowMaxInFlight < estimatedLimit / 2) {
+            // Not using the limit, so latency says nothing about whether it is right
+            return;
+        } else {
+            double gradient = Math.max(0.5, Math.min(1.0, props.tolerance() * longRtt / shortRtt));
+            next = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+            next = estimatedLimit * (1 - props.smoothing()) + next * props.smoothing();
+        }
+        estimatedLimit = Math.max(props.minLimit(), Math.min(props.maxLimit(), next));
+        limit = (int) estimatedLimit;
+    }
+
+    int limit() {
+        return limit;
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+}
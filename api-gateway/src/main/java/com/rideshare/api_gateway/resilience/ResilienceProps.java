@@ -0,0 +1,53 @@
+package com.rideshare.api_gateway.resilience;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Per-route overload protection at the gateway. Every route gets its own concurrency limit and
+ * circuit breaker with these settings, so one slow backend cannot take the others down with it.
+ */
+@ConfigurationProperties(prefix = "gateway.resilience")
+public record ResilienceProps(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue Concurrency concurrency,
+        @DefaultValue Breaker circuitBreaker
+) {
+
+    /**
+     * Gradient limit: shrinks when the recent latency rises above the long-term one, grows by about
+     * sqrt(limit) per sample window while latency holds.
+     *
+     * @param sampleWindow  latencies are averaged over this period (and at least 5 requests) per update
+     * @param longWindow    number of sample windows the long-term latency averages over
+     * @param tolerance     recent latency may reach tolerance x long-term latency before the limit shrinks
+     * @param smoothing     share of each computed limit that is applied (0..1]
+     * @param backoffRatio  factor applied to the limit when a window saw timeouts or errors
+     */
+    public record Concurrency(
+            @DefaultValue("20") int initialLimit,
+            @DefaultValue("5") int minLimit,
+            @DefaultValue("500") int maxLimit,
+            @DefaultValue("250ms") Duration sampleWindow,
+            @DefaultValue("600") int longWindow,
+            @DefaultValue("1.5") double tolerance,
+            @DefaultValue("0.2") double smoothing,
+            @DefaultValue("0.9") double backoffRatio
+    ) {}
+
+    /**
+     * @param failureRateThreshold opens when this share of the last {@code window} calls failed (5xx or error)
+     * @param minimumCalls         calls needed in the window before the failure rate counts
+     * @param openDuration         how long an open breaker rejects before letting probes through
+     * @param halfOpenCalls        probe calls that must all succeed to close again
+     */
+    public record Breaker(
+            @DefaultValue("0.5") double failureRateThreshold,
+            @DefaultValue("50") int window,
+            @DefaultValue("20") int minimumCalls,
+            @DefaultValue("10s") Duration openDuration,
+            @DefaultValue("5") int halfOpenCalls
+    ) {}
+}
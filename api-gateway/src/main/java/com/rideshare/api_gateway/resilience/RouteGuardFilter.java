@@ -0,0 +1,89 @@
+package com.rideshare.api_gateway.resilience;
+
+import com.rideshare.api_gateway.resilience.RouteGuards.Guard;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.time.Duration;
+
+/**
+ * Guards every route with its adaptive concurrency limit and circuit breaker. A request over the
+ * limit, or for a route whose breaker is open, is answered 503 with Retry-After right here, so a
+ * struggling backend sheds load instead of stacking up requests until the gateway times out.
+ * Latency is measured around the rest of the chain, i.e. until the response has been written.
+ */
+@Component
+public class RouteGuardFilter implements GlobalFilter, Ordered {
+
+    private static final Logger log = LoggerFactory.getLogger(RouteGuardFilter.class);
+    private static final Duration LIMIT_RETRY_AFTER = Duration.ofSeconds(1);
+
+    private final RouteGuards guards;
+
+    public RouteGuardFilter(RouteGuards guards) {
+        this.guards = guards;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        if (!guards.isEnabled() || route == null) {
+            return chain.filter(exchange);
+        }
+        Guard guard = guards.forRoute(route.getId());
+        if (!guard.limit.tryAcquire()) {
+            guard.rejectedByLimit.increment();
+            return serviceUnavailable(exchange, LIMIT_RETRY_AFTER);
+        }
+        long start = guards.now();
+        if (!guard.breaker.tryAcquire(start)) {
+            guard.limit.release();
+            guard.rejectedByBreaker.increment();
+            log.debug("Circuit open for route={}", route.getId());
+            return serviceUnavailable(exchange, guard.breaker.retryAfter(start));
+        }
+        return chain.filter(exchange).doFinally(signal -> {
+            if (signal == SignalType.CANCEL) {
+                guard.limit.release();
+                guard.breaker.release();
+                return;
+            }
+            long now = guards.now();
+            HttpStatusCode status = exchange.getResponse().getStatusCode();
+            boolean failed = signal == SignalType.ON_ERROR || (status != null && status.is5xxServerError());
+            // Only timeouts and overload answers say the limit is too high; a 500 is the service's own bug
+            boolean dropped = signal == SignalType.ON_ERROR || (status != null
+                    && (status.value() == HttpStatus.SERVICE_UNAVAILABLE.value()
+                    || status.value() == HttpStatus.GATEWAY_TIMEOUT.value()));
+            guard.limit.release(now - start, dropped, now);
+            guard.breaker.record(failed, now);
+        });
+    }
+
+    private static Mono<Void> serviceUnavailable(ServerWebExchange exchange, Duration retryAfter) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER,
+                String.valueOf(Math.max(1, (retryAfter.toMillis() + 999) / 1000)));
+        return response.setComplete();
+    }
+
+    @Override
+    public int getOrder() {
+        // After authentication and rate limiting, before load balancing and routing
+        return Ordered.HIGHEST_PRECEDENCE + 30;
+    }
+}
@@ -0,0 +1,100 @@
+package com.rideshare.api_gateway.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * One concurrency limit and circuit breaker per gateway route, created on the route's first request.
+ * <p>
+ * Metrics, tagged by route: gateway.route.concurrency.limit, gateway.route.concurrency.inflight,
+ * gateway.route.circuit.state (0 closed, 1 half-open, 2 open) and
+ * gateway.route.rejected{reason=concurrency|circuit_open}.
+ */
+@Component
+public class RouteGuards {
+
+    /** The limit and breaker of one route. */
+    static final class Guard {
+        final GradientLimit limit;
+        final CircuitBreaker breaker;
+        final Counter rejectedByLimit;
+        final Counter rejectedByBreaker;
+
+        Guard(GradientLimit limit, CircuitBreaker breaker, Counter rejectedByLimit, Counter rejectedByBreaker) {
+            this.limit = limit;
+            this.breaker = breaker;
+            this.rejectedByLimit = rejectedByLimit;
+            this.rejectedByBreaker = rejectedByBreaker;
+        }
+    }
+
+    private final ResilienceProps props;
+    private final MeterRegistry registry;
+    private final LongSupplier nanoClock;
+    private final Map<String, Guard> guards = new ConcurrentHashMap<>();
+
+    @Autowired
+    public RouteGuards(ResilienceProps props, MeterRegistry registry) {
+        this(props, registry, System::nanoTime);
+    }
+
+    /**
+     * @param nanoClock monotonic time in nanoseconds, as System.nanoTime
+     */
+    RouteGuards(ResilienceProps props, MeterRegistry registry, LongSupplier nanoClock) {
+        this.props = props;
+        this.registry = registry;
+        this.nanoClock = nanoClock;
+    }
+
+    boolean isEnabled() {
+        return props.enabled();
+    }
+
+    /** The time latencies and open durations are measured with. */
+    long now() {
+        return nanoClock.getAsLong();
+    }
+
+    Guard forRoute(String routeId) {
+        Guard guard = guards.get(routeId);
+        return guard != null ? guard : guards.computeIfAbsent(routeId, this::create);
+    }
+
+    private Guard create(String routeId) {
+        GradientLimit limit = new GradientLimit(props.concurrency(), now());
+        CircuitBreaker breaker = new CircuitBreaker(props.circuitBreaker());
+        Gauge.builder("gateway.route.concurrency.limit", limit, GradientLimit::limit)
+                .tag("route", routeId)
+                .description("Current adaptive concurrency limit")
+                .register(registry);
+        Gauge.builder("gateway.route.concurrency.inflight", limit, GradientLimit::inFlight)
+                .tag("route", routeId)
+                .register(registry);
+        Gauge.builder("gateway.route.circuit.state", breaker, b -> switch (b.state()) {
+                    case CLOSED -> 0;
+                    case HALF_OPEN -> 1;
+                    case OPEN -> 2;
+                })
+                .tag("route", routeId)
+                .description("0 closed, 1 half-open, 2 open")
+                .register(registry);
+        return new Guard(limit, breaker,
+                rejected(routeId, "concurrency"),
+                rejected(routeId, "circuit_open"));
+    }
+
+    private Counter rejected(String routeId, String reason) {
+        return Counter.builder("gateway.route.rejected")
+                .tag("route", routeId)
+                .tag("reason", reason)
+                .register(registry);
+    }
+}
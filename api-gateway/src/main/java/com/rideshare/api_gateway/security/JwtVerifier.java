@@ -0,0 +1,269 @@
+package com.rideshare.api_gateway.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.security.Jwk;
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.PublicJwk;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Verifies access tokens issued by auth-service (RS256, ES256 or EdDSA).
+ * The verification key is picked by the token's kid from auth-service's JWK set, which is
+ * refreshed every jwks-refresh-interval and, at most once per jwks-min-refresh-interval, as soon
+ * as a token names an unknown kid. Tokens without a kid use the configured RS256 public-key.
+ * The parser is built once at startup; successfully verified tokens are remembered by their
+ * SHA-256 digest until the token itself expires, so repeat requests skip the signature check.
+ */
+@Component
+public class JwtVerifier {
+
+    /** kid auth-service gives its single legacy RS256 key, and the key of tokens without a kid. */
+    static final String DEFAULT_KEY_ID = "default";
+
+    private static final Logger log = LoggerFactory.getLogger(JwtVerifier.class);
+
+    private final JwtProps jwtProps;
+    private final MeterRegistry meterRegistry;
+    private final TokenDenylist denylist;
+    private JwtParser parser;
+    private Cache<String, VerifiedToken> verified;
+
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("jwks-refresh").daemon().factory());
+    private final AtomicLong lastOnDemandRefresh = new AtomicLong();
+    private Map<String, Key> staticKeys = Map.of();
+    private volatile Map<String, Key> keys = Map.of();
+    private volatile String jwksEtag;
+
+    public JwtVerifier(JwtProps jwtProps, MeterRegistry meterRegistry, TokenDenylist denylist) {
+        this.jwtProps = jwtProps;
+        this.meterRegistry = meterRegistry;
+        this.denylist = denylist;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (jwtProps.publicKey() != null && !jwtProps.publicKey().isBlank()) {
+            try {
+                var pubClean = jwtProps.publicKey()
+                        .replaceAll("-----\\w+ PUBLIC KEY-----", "")
+                        .replaceAll("\\s", "");
+                PublicKey publicKey = KeyFactory.getInstance("RSA")
+                        .generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(pubClean)));
+                staticKeys = Map.of(DEFAULT_KEY_ID, publicKey);
+            } catch (Exception e) {
+                throw new IllegalStateException("Failed to load RSA public key for JWT verification", e);
+            }
+        }
+        keys = staticKeys;
+        parser = Jwts.parser().keyLocator(new LocatorAdapter<Key>() {
+            @Override
+            protected Key locate(JwsHeader header) {
+                Key key = keys.get(header.getKeyId() == null ? DEFAULT_KEY_ID : header.getKeyId());
+                if (key == null) {
+                    refreshSoon();
+                }
+                return key;
+            }
+        }).build();
+
+        verified = Caffeine.newBuilder()
+                .maximumSize(jwtProps.verifiedCacheSize())
+                .expireAfter(new TokenExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verified, "gateway.jwt.verified");
+
+        if (jwtProps.jwksUri() != null && !jwtProps.jwksUri().isBlank()) {
+            lastOnDemandRefresh.set(System.nanoTime() - jwtProps.jwksMinRefreshInterval().toNanos());
+            long interval = jwtProps.jwksRefreshInterval().toMillis();
+            refresher.scheduleWithFixedDelay(this::refreshKeys, 0, interval, TimeUnit.MILLISECONDS);
+        } else if (staticKeys.isEmpty()) {
+            throw new IllegalStateException("Either spring.jwt.public-key or spring.jwt.jwks-uri must be set");
+        }
+    }
+
+    /**
+     * Returns the verified token, or empty if the signature, format or expiry is invalid or the
+     * token has been revoked. The revocation check runs on every call, cached or not.
+     * Tokens without iat or exp are rejected: revoke-all cut-offs compare against iat, and the
+     * cache keeps an entry until exp. auth-service always sets both.
+     */
+    public Optional<VerifiedToken> verify(String token) {
+        String digest = digest(token);
+        VerifiedToken cached = verified.getIfPresent(digest);
+        if (cached != null && !cached.isExpired()) {
+            return denylist.isRevoked(cached) ? Optional.empty() : Optional.of(cached);
+        }
+        VerifiedToken result;
+        try {
+            Claims claims = parser.parseSignedClaims(token).getPayload();
+            if (claims.getIssuedAt() == null || claims.getExpiration() == null) {
+                log.debug("Rejected token without iat or exp for subject={}", claims.getSubject());
+                return Optional.empty();
+            }
+            result = new VerifiedToken(
+                    claims.getSubject(),
+                    claims.get("role", String.class),
+                    claims.getId(),
+                    claims.getIssuedAt().toInstant(),
+                    claims.getExpiration().toInstant());
+        } catch (Exception ex) {
+            return Optional.empty();
+        }
+        verified.put(digest, result);
+        return denylist.isRevoked(result) ? Optional.empty() : Optional.of(result);
+    }
+
+    // An unknown kid usually means auth-service started signing with a new key; bounded so forged kids cannot hammer it
+    private void refreshSoon() {
+        if (jwtProps.jwksUri() == null || jwtProps.jwksUri().isBlank()) {
+            return;
+        }
+        long now = System.nanoTime();
+        long last = lastOnDemandRefresh.get();
+        if (now - last >= jwtProps.jwksMinRefreshInterval().toNanos() && lastOnDemandRefresh.compareAndSet(last, now)) {
+            refresher.execute(this::refreshKeys);
+        }
+    }
+
+    void refreshKeys() {
+        try {
+            HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(jwtProps.jwksUri()))
+                    .timeout(Duration.ofSeconds(5))
+                    .GET();
+            if (jwksEtag != null) {
+                request.header("If-None-Match", jwksEtag);
+            }
+            HttpResponse<String> response = http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() == 304) {
+                refreshCounter("not_modified").increment();
+                return;
+            }
+            if (response.statusCode() != 200) {
+                throw new IOException("HTTP " + response.statusCode());
+            }
+            Map<String, Key> fetched = new HashMap<>(staticKeys);
+            for (Jwk<?> jwk : Jwks.setParser().build().parse(response.body()).getKeys()) {
+                if (jwk instanceof PublicJwk<?> publicJwk && jwk.getId() != null) {
+                    fetched.put(jwk.getId(), publicJwk.toKey());
+                }
+            }
+            keys = Map.copyOf(fetched);
+            jwksEtag = response.headers().firstValue("ETag").orElse(null);
+            refreshCounter("updated").increment();
+            log.info("Loaded JWT verification keys {}", fetched.keySet());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            // Keep verifying with the keys we have; the next refresh tries again
+            refreshCounter("failed").increment();
+            log.warn("JWK set refresh from {} failed: {}", jwtProps.jwksUri(), e.getMessage());
+        }
+    }
+
+    private Counter refreshCounter(String result) {
+        return Counter.builder("gateway.jwt.jwks.refresh")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /** Cache entries live exactly as long as the token they vouch for. */
+    private static final class TokenExpiry implements Expiry<String, VerifiedToken> {
+        @Override
+        public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+            return Math.max(0, value.remaining().toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    /**
+     * @param publicKey              RS256 key for tokens without a kid (optional when jwks-uri is set)
+     * @param jwksUri                auth-service's /.well-known/jwks.json
+     * @param jwksRefreshInterval    periodic refresh; keep it below auth-service's jwks-max-age
+     * @param jwksMinRefreshInterval minimum gap between refreshes triggered by unknown kids
+     */
+    @ConfigurationProperties(prefix = "spring.jwt")
+    public record JwtProps(
+            String publicKey,
+            // Upper bound on remembered token digests (~200 bytes each)
+            @DefaultValue("100000") long verifiedCacheSize,
+            String jwksUri,
+            @DefaultValue("5m") Duration jwksRefreshInterval,
+            @DefaultValue("30s") Duration jwksMinRefreshInterval
+    ) {}
+
+    /** Claims the gateway forwards to downstream services, plus what revocation checks need. */
+    public record VerifiedToken(String subject, String role, String tokenId, Instant issuedAt, Instant expiresAt) {
+        boolean isExpired() {
+            return !expiresAt.isAfter(Instant.now());
+        }
+
+        Duration remaining() {
+            return Duration.between(Instant.now(), expiresAt);
+        }
+    }
+}
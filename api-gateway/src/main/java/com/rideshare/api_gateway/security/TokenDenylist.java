@@ -0,0 +1,198 @@
+package com.rideshare.api_gateway.security;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rideshare.api_gateway.messaging.BroadcastConsumer;
+import com.rideshare.api_gateway.security.JwtVerifier.VerifiedToken;
+import com.rideshare.api_gateway.util.BloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * In-memory denylist of revoked access tokens, replicated from auth-service's token-revocations topic.
+ * Every gateway reads every partition of the topic itself, without a consumer group (see
+ * {@link BroadcastConsumer}), starting max-token-lifetime back, so a restarted node relearns every
+ * revocation that can still matter and no group is left behind on the broker per restart.
+ * No remote call per request: a Bloom filter over revoked jtis and subjects answers the common
+ * "not revoked" case with a few bit probes, and only filter hits look at the maps. Entries are dropped once every token they
+ * cover has expired, and the filter is then rebuilt from what is left.
+ */
+@Component
+public class TokenDenylist {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenDenylist.class);
+
+    /** Wire format, see auth-service's TokenRevocation. Times are epoch seconds. */
+    record TokenRevocation(String tokenId, String subject, long issuedBefore, long expiresAt) {}
+
+    /** Tokens of a subject issued before issuedBefore are revoked; forgotten after expiresAt. */
+    private record SubjectRevocation(long issuedBefore, long expiresAt) {
+        SubjectRevocation merge(SubjectRevocation other) {
+            return new SubjectRevocation(Math.max(issuedBefore, other.issuedBefore), Math.max(expiresAt, other.expiresAt));
+        }
+    }
+
+    private final ObjectMapper objectMapper;
+    private final RevocationProps props;
+    private final Function<Consumer<String>, AutoCloseable> subscriber;
+    private final LongSupplier clock;
+    private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+    private final Map<String, SubjectRevocation> revokedSubjects = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService pruner = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("denylist-prune").daemon().factory());
+    private volatile BloomFilter filter;
+    private volatile AutoCloseable subscription;
+
+    private final Counter rejected;
+    private final Counter received;
+
+    @Autowired
+    public TokenDenylist(ObjectMapper objectMapper, RevocationProps props, MeterRegistry registry,
+                         ConsumerFactory<?, ?> consumerFactory) {
+        this(objectMapper, props, registry, handler -> {
+            BroadcastConsumer consumer = new BroadcastConsumer("denylist-revocations",
+                    consumerFactory.getConfigurationProperties(), props.topic(),
+                    Instant.now().minus(props.maxTokenLifetime()), handler);
+            consumer.start();
+            return consumer;
+        }, System::currentTimeMillis);
+    }
+
+    /**
+     * @param subscriber starts delivering revocation payloads to the handler; the result stops it
+     * @param clock      epoch millis
+     */
+    TokenDenylist(ObjectMapper objectMapper, RevocationProps props, MeterRegistry registry,
+                  Function<Consumer<String>, AutoCloseable> subscriber, LongSupplier clock) {
+        this.objectMapper = objectMapper;
+        this.props = props;
+        this.subscriber = subscriber;
+        this.clock = clock;
+        this.filter = newFilter();
+        this.rejected = Counter.builder("gateway.jwt.revoked")
+                .description("Requests rejected because their token was revoked")
+                .register(registry);
+        this.received = Counter.builder("gateway.jwt.revocations.received").register(registry);
+        Gauge.builder("gateway.jwt.revocations.size", this, d -> d.revokedTokens.size() + d.revokedSubjects.size())
+                .description("Live denylist entries")
+                .register(registry);
+        Gauge.builder("gateway.jwt.revocations.filter.fpp", this, d -> d.filter.expectedFalsePositiveRate())
+                .description("False-positive probability estimated from the filter fill ratio")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        subscription = subscriber.apply(this::onRevocation);
+        long interval = props.pruneInterval().toMillis();
+        pruner.scheduleWithFixedDelay(this::prune, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /** True if the token was revoked; called for every authenticated request. */
+    public boolean isRevoked(VerifiedToken token) {
+        BloomFilter current = filter;
+        boolean revoked = false;
+        if (token.tokenId() != null && current.mightContain(token.tokenId())) {
+            revoked = revokedTokens.containsKey(token.tokenId());
+        }
+        if (!revoked && current.mightContain(token.subject())) {
+            SubjectRevocation revocation = revokedSubjects.get(token.subject());
+            revoked = revocation != null && token.issuedAt().getEpochSecond() < revocation.issuedBefore();
+        }
+        if (revoked) {
+            rejected.increment();
+        }
+        return revoked;
+    }
+
+    void onRevocation(String payload) {
+        TokenRevocation revocation;
+        try {
+            revocation = objectMapper.readValue(payload, TokenRevocation.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Skipping unreadable token revocation: {}", e.getMessage());
+            return;
+        }
+        if (revocation.expiresAt() <= now()) {
+            return;
+        }
+        received.increment();
+        add(revocation);
+    }
+
+    // Serialized with prune(): an entry added while the filter is rebuilt must land in the new filter
+    synchronized void add(TokenRevocation revocation) {
+        if (revocation.tokenId() != null) {
+            revokedTokens.merge(revocation.tokenId(), revocation.expiresAt(), Math::max);
+            filter.put(revocation.tokenId());
+        } else if (revocation.subject() != null) {
+            revokedSubjects.merge(revocation.subject(),
+                    new SubjectRevocation(revocation.issuedBefore(), revocation.expiresAt()), SubjectRevocation::merge);
+            filter.put(revocation.subject());
+        }
+    }
+
+    synchronized void prune() {
+        long now = now();
+        int before = revokedTokens.size() + revokedSubjects.size();
+        revokedTokens.values().removeIf(expiresAt -> expiresAt <= now);
+        revokedSubjects.values().removeIf(revocation -> revocation.expiresAt() <= now);
+        if (revokedTokens.size() + revokedSubjects.size() == before) {
+            return;
+        }
+        BloomFilter rebuilt = newFilter();
+        revokedTokens.keySet().forEach(rebuilt::put);
+        revokedSubjects.keySet().forEach(rebuilt::put);
+        filter = rebuilt;
+    }
+
+    private long now() {
+        return clock.getAsLong() / 1000;
+    }
+
+    private BloomFilter newFilter() {
+        return BloomFilter.create(props.expectedRevocations(), props.falsePositiveRate());
+    }
+
+    @PreDestroy
+    public void shutdown() throws Exception {
+        pruner.shutdownNow();
+        if (subscription != null) {
+            subscription.close();
+        }
+    }
+
+    /**
+     * @param maxTokenLifetime    longest access-token lifetime auth-service issues (expiration-seconds)
+     * @param expectedRevocations live entries the filter is sized for; beyond it more lookups reach the maps
+     */
+    @ConfigurationProperties(prefix = "gateway.revocation")
+    public record RevocationProps(
+            @DefaultValue("token-revocations") String topic,
+            @DefaultValue("1h") Duration maxTokenLifetime,
+            @DefaultValue("100000") long expectedRevocations,
+            @DefaultValue("0.001") double falsePositiveRate,
+            @DefaultValue("1m") Duration pruneInterval
+    ) {}
+}
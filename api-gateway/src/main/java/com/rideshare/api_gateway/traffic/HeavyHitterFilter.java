@@ -0,0 +1,52 @@
+package com.rideshare.api_gateway.traffic;
+
+import com.rideshare.api_gateway.filter.JwtAuthenticationFilter;
+import com.rideshare.api_gateway.traffic.HeavyHitters.Dimension;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+
+/**
+ * Counts every routed request by client IP, verified subject and path. Runs after
+ * JwtAuthenticationFilter, so only verified subjects are counted, and before RateLimitFilter,
+ * so rejected requests still count and heavy-hitters-only rules see the current request.
+ * Nothing is allocated per request: the client is counted by address and the path by the
+ * string the request already holds.
+ */
+@Component
+public class HeavyHitterFilter implements GlobalFilter, Ordered {
+
+    private final HeavyHitters heavyHitters;
+
+    public HeavyHitterFilter(HeavyHitters heavyHitters) {
+        this.heavyHitters = heavyHitters;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (heavyHitters.isEnabled()) {
+            ServerHttpRequest request = exchange.getRequest();
+            InetSocketAddress remote = request.getRemoteAddress();
+            if (remote != null && remote.getAddress() != null) {
+                heavyHitters.record(remote.getAddress());
+            }
+            String subject = request.getHeaders().getFirst(JwtAuthenticationFilter.SUBJECT_HEADER);
+            if (subject != null) {
+                heavyHitters.record(Dimension.SUBJECT, subject);
+            }
+            heavyHitters.record(Dimension.PATH, request.getPath().pathWithinApplication().value());
+        }
+        return chain.filter(exchange);
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE + 15;
+    }
+}
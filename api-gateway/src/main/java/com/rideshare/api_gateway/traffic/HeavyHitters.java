@@ -0,0 +1,296 @@
+package com.rideshare.api_gateway.traffic;
+
+import com.rideshare.api_gateway.util.CountMinSketch;
+import com.rideshare.api_gateway.util.Hashing;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.stereotype.Component;
+
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Live view of who and what dominates traffic over the last window, per client IP, subject and path.
+ * <p>
+ * Each dimension keeps a Count-Min Sketch per window slice plus one over the whole window; a request
+ * increments the current slice and the window sketch, and when a slice ages out its counts are
+ * subtracted from the window sketch and it is reused. Next to the sketch sits a top-K heap of
+ * candidate keys: a key whose windowed estimate beats the smallest one held replaces it. Memory is
+ * fixed by the sketch shape and K, whatever the number of distinct keys, and a request that does not
+ * make it into the heap costs a few atomic increments and no allocation.
+ * <p>
+ * The heap is locked only when a key enters it or its estimate has grown by 1/16 since it was last
+ * updated, so a key that stays on top costs a lock-free map lookup on most requests. Client IPs are
+ * counted by {@link InetAddress}, hashed from its address bits, and only formatted for {@link #top}.
+ */
+@Component
+public class HeavyHitters {
+
+    public enum Dimension { CLIENT_IP, SUBJECT, PATH }
+
+    /** A key and its estimated request count over the window. */
+    public record Entry(String key, long count) {}
+
+    // A held key's heap count is refreshed once its estimate grows by count >> OFFER_STEP_SHIFT
+    private static final int OFFER_STEP_SHIFT = 4;
+
+    private final HeavyHitterProps props;
+    private final Map<Dimension, Tracker> trackers = new EnumMap<>(Dimension.class);
+    private final ScheduledExecutorService rotator = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("heavy-hitters-rotate").daemon().factory());
+
+    public HeavyHitters(HeavyHitterProps props) {
+        this.props = props;
+        for (Dimension dimension : Dimension.values()) {
+            trackers.put(dimension, new Tracker(props));
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        long slice = props.window().toMillis() / props.slices();
+        rotator.scheduleAtFixedRate(this::rotate, slice, slice, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isEnabled() {
+        return props.enabled();
+    }
+
+    /** Counts a request by subject or path; client IPs go through {@link #record(InetAddress)}. */
+    public void record(Dimension dimension, String key) {
+        trackers.get(textual(dimension)).record(key, CountMinSketch.hash(key));
+    }
+
+    public void record(InetAddress client) {
+        trackers.get(Dimension.CLIENT_IP).record(client, hash(client));
+    }
+
+    /** Estimated requests for the subject or path over the window; may overcount, never undercounts. */
+    public long estimate(Dimension dimension, String key) {
+        return trackers.get(textual(dimension)).window.estimate(CountMinSketch.hash(key));
+    }
+
+    public long estimate(InetAddress client) {
+        return trackers.get(Dimension.CLIENT_IP).window.estimate(hash(client));
+    }
+
+    /** True if the key sent at least heavy-threshold requests over the window. */
+    public boolean isHeavy(Dimension dimension, String key) {
+        return props.enabled() && estimate(dimension, key) >= props.heavyThreshold();
+    }
+
+    public boolean isHeavy(InetAddress client) {
+        return props.enabled() && estimate(client) >= props.heavyThreshold();
+    }
+
+    /** The current top keys, largest first. */
+    public List<Entry> top(Dimension dimension) {
+        return trackers.get(dimension).top();
+    }
+
+    void rotate() {
+        trackers.values().forEach(Tracker::rotate);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rotator.shutdownNow();
+    }
+
+    private static Dimension textual(Dimension dimension) {
+        if (dimension == Dimension.CLIENT_IP) {
+            throw new IllegalArgumentException("Client IPs are counted by InetAddress");
+        }
+        return dimension;
+    }
+
+    // Inet4Address.hashCode() is the address itself and Inet6Address folds its bytes; neither allocates
+    private static long hash(InetAddress client) {
+        long family = client instanceof Inet6Address ? 1L << 32 : 0;
+        return Hashing.mix64(family | (client.hashCode() & 0xFFFFFFFFL));
+    }
+
+    private static final class Tracker {
+        final CountMinSketch window;
+        final CountMinSketch[] slices;
+        volatile int current;
+
+        // Top-K min-heap on count, with a key -> slot index; guarded by this
+        final Object[] keys;
+        final long[] hashes;
+        final long[] counts;
+        final Map<Object, Integer> slots;
+        int size;
+        // Heap count of every held key, written under the lock and read without it
+        final Map<Object, Long> held;
+        // Estimate a new key must beat to enter a full heap; read without the lock
+        volatile long floor;
+
+        Tracker(HeavyHitterProps props) {
+            this.window = CountMinSketch.create(props.error(), props.confidence());
+            this.slices = new CountMinSketch[props.slices()];
+            for (int i = 0; i < slices.length; i++) {
+                slices[i] = window.emptyCopy();
+            }
+            this.keys = new Object[props.topK()];
+            this.hashes = new long[props.topK()];
+            this.counts = new long[props.topK()];
+            this.slots = new HashMap<>(props.topK() * 2);
+            this.held = new ConcurrentHashMap<>(props.topK() * 2);
+        }
+
+        void record(Object key, long hash) {
+            slices[current].add(hash);
+            window.add(hash);
+            long estimate = window.estimate(hash);
+            if (estimate <= floor) {
+                return;
+            }
+            Long count = held.get(key);
+            if (count == null || estimate - count >= Math.max(1, count >> OFFER_STEP_SHIFT)) {
+                offer(key, hash, estimate);
+            }
+        }
+
+        synchronized void offer(Object key, long hash, long estimate) {
+            Integer slot = slots.get(key);
+            if (slot != null) {
+                counts[slot] = estimate;
+                held.put(key, estimate);
+                siftDown(slot);
+            } else if (size < keys.length) {
+                set(size, key, hash, estimate);
+                siftUp(size++);
+            } else if (estimate > counts[0]) {
+                slots.remove(keys[0]);
+                held.remove(keys[0]);
+                set(0, key, hash, estimate);
+                siftDown(0);
+            }
+            floor = size < keys.length ? 0 : counts[0];
+        }
+
+        synchronized List<Entry> top() {
+            List<Entry> top = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                String key = keys[i] instanceof InetAddress address ? address.getHostAddress() : (String) keys[i];
+                top.add(new Entry(key, window.estimate(hashes[i])));
+            }
+            top.sort(Comparator.comparingLong(Entry::count).reversed());
+            return top;
+        }
+
+        // Only called from the rotator thread
+        void rotate() {
+            int next = (current + 1) % slices.length;
+            window.subtract(slices[next]);
+            slices[next].clear();
+            current = next;
+            refresh();
+        }
+
+        // Counts in the heap went stale as slices aged out: re-estimate, drop the idle, re-heapify
+        private synchronized void refresh() {
+            int kept = 0;
+            slots.clear();
+            held.clear();
+            for (int i = 0; i < size; i++) {
+                long estimate = window.estimate(hashes[i]);
+                if (estimate > 0) {
+                    set(kept++, keys[i], hashes[i], estimate);
+                }
+            }
+            for (int i = kept; i < size; i++) {
+                keys[i] = null;
+            }
+            size = kept;
+            for (int i = size / 2 - 1; i >= 0; i--) {
+                siftDown(i);
+            }
+            floor = size < keys.length ? 0 : counts[0];
+        }
+
+        private void set(int slot, Object key, long hash, long count) {
+            keys[slot] = key;
+            hashes[slot] = hash;
+            counts[slot] = count;
+            slots.put(key, slot);
+            held.put(key, count);
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (counts[parent] <= counts[i]) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int smallest = i;
+                int left = 2 * i + 1;
+                int right = left + 1;
+                if (left < size && counts[left] < counts[smallest]) {
+                    smallest = left;
+                }
+                if (right < size && counts[right] < counts[smallest]) {
+                    smallest = right;
+                }
+                if (smallest == i) {
+                    return;
+                }
+                swap(i, smallest);
+                i = smallest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            Object key = keys[a];
+            long hash = hashes[a];
+            long count = counts[a];
+            keys[a] = keys[b];
+            hashes[a] = hashes[b];
+            counts[a] = counts[b];
+            keys[b] = key;
+            hashes[b] = hash;
+            counts[b] = count;
+            slots.put(keys[a], a);
+            slots.put(keys[b], b);
+        }
+    }
+
+    /**
+     * @param window         period the counts cover, advanced in {@code slices} steps
+     * @param error          sketch overcount bound, as a fraction of the window's total requests
+     * @param confidence     probability that an estimate stays within that bound
+     * @param topK           keys tracked per dimension
+     * @param heavyThreshold requests per window that mark a key heavy (for heavy-hitters-only rate limit rules)
+     */
+    @ConfigurationProperties(prefix = "gateway.heavy-hitters")
+    public record HeavyHitterProps(
+            @DefaultValue("true") boolean enabled,
+            @DefaultValue("1m") Duration window,
+            @DefaultValue("6") int slices,
+            @DefaultValue("0.002") double error,
+            @DefaultValue("0.99") double confidence,
+            @DefaultValue("20") int topK,
+            @DefaultValue("600") long heavyThreshold
+    ) {}
+}
@@ -0,0 +1,57 @@
+package com.rideshare.api_gateway.traffic;
+
+import com.rideshare.api_gateway.traffic.HeavyHitters.Dimension;
+import com.rideshare.api_gateway.traffic.HeavyHitters.Entry;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * /actuator/heavyhitters: the top client IPs, subjects and paths of this gateway over the last
+ * window; /actuator/heavyhitters/{dimension} (CLIENT_IP, SUBJECT or PATH) for one of them.
+ * Subjects are mobile numbers, so only their last four digits are shown. Actuator listens on the
+ * management port, which is not published outside the cluster.
+ */
+@Component
+@Endpoint(id = "heavyhitters")
+public class HeavyHittersEndpoint {
+
+    private static final int VISIBLE_SUBJECT_CHARS = 4;
+
+    private final HeavyHitters heavyHitters;
+
+    public HeavyHittersEndpoint(HeavyHitters heavyHitters) {
+        this.heavyHitters = heavyHitters;
+    }
+
+    @ReadOperation
+    public Map<Dimension, List<Entry>> all() {
+        Map<Dimension, List<Entry>> top = new EnumMap<>(Dimension.class);
+        for (Dimension dimension : Dimension.values()) {
+            top.put(dimension, dimension(dimension));
+        }
+        return top;
+    }
+
+    @ReadOperation
+    public List<Entry> dimension(@Selector Dimension dimension) {
+        List<Entry> top = heavyHitters.top(dimension);
+        if (dimension != Dimension.SUBJECT) {
+            return top;
+        }
+        return top.stream().map(entry -> new Entry(maskSubject(entry.key()), entry.count())).toList();
+    }
+
+    static String maskSubject(String subject) {
+        int hidden = subject.length() - VISIBLE_SUBJECT_CHARS;
+        if (hidden <= 0) {
+            return "*".repeat(VISIBLE_SUBJECT_CHARS);
+        }
+        return "*".repeat(hidden) + subject.substring(hidden);
+    }
+}
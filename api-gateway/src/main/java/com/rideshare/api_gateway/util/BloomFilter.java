@@ -0,0 +1,88 @@
+package com.rideshare.api_gateway.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free Bloom filter over strings, safe for concurrent put/mightContain.
+ * Uses Kirsch–Mitzenmacher double hashing over two independent 64-bit hashes.
+ */
+public final class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bitSize;
+    private final int hashCount;
+    private final AtomicLong bitsSet = new AtomicLong();
+
+    private BloomFilter(long bitSize, int hashCount) {
+        long wordCount = (bitSize + 63) >>> 6;
+        if (wordCount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Bloom filter too large: " + bitSize + " bits");
+        }
+        this.words = new AtomicLongArray((int) wordCount);
+        this.bitSize = wordCount << 6;
+        this.hashCount = hashCount;
+    }
+
+    /**
+     * Size the filter for the expected number of insertions at the target false-positive rate.
+     */
+    public static BloomFilter create(long expectedInsertions, double falsePositiveRate) {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("falsePositiveRate must be in (0, 1)");
+        }
+        long n = Math.max(1, expectedInsertions);
+        long m = Math.max(64, (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2))));
+        int k = Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
+        return new BloomFilter(m, k);
+    }
+
+    public void put(CharSequence value) {
+        long h1 = Hashing.hash64(value, 0x9E3779B97F4A7C15L);
+        long h2 = Hashing.hash64(value, 0xC2B2AE3D27D4EB4FL);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bitSize);
+            if (setBit(bit)) {
+                bitsSet.incrementAndGet();
+            }
+        }
+    }
+
+    public boolean mightContain(CharSequence value) {
+        long h1 = Hashing.hash64(value, 0x9E3779B97F4A7C15L);
+        long h2 = Hashing.hash64(value, 0xC2B2AE3D27D4EB4FL);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bitSize);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Current false-positive probability estimated from the fill ratio: (bitsSet / m)^k. */
+    public double expectedFalsePositiveRate() {
+        return Math.pow((double) bitsSet.get() / bitSize, hashCount);
+    }
+
+    public long bitSize() {
+        return bitSize;
+    }
+
+    public int hashCount() {
+        return hashCount;
+    }
+
+    private boolean setBit(long bit) {
+        int index = (int) (bit >>> 6);
+        long mask = 1L << bit;
+        long current;
+        do {
+            current = words.get(index);
+            if ((current & mask) != 0) {
+                return false;
+            }
+        } while (!words.compareAndSet(index, current, current | mask));
+        return true;
+    }
+}
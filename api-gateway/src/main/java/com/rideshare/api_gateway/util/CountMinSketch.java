@@ -0,0 +1,94 @@
+package com.rideshare.api_gateway.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free Count-Min Sketch, safe for concurrent add/estimate.
+ * Estimates never undercount; with width = e / epsilon and depth = ln(1 / delta) they overcount
+ * by more than epsilon x total with probability at most delta. Keys are hashed once by the caller
+ * ({@link #hash}), so the same hash can be used against several sketches of the same shape.
+ */
+public final class CountMinSketch {
+
+    private final AtomicLongArray cells;
+    private final int width;
+    private final int depth;
+
+    private CountMinSketch(int width, int depth) {
+        this.cells = new AtomicLongArray(width * depth);
+        this.width = width;
+        this.depth = depth;
+    }
+
+    /**
+     * Size the sketch for a relative error (of the total count) at the given confidence.
+     * The width is rounded up to a power of two.
+     */
+    public static CountMinSketch create(double epsilon, double confidence) {
+        if (epsilon <= 0 || epsilon >= 1 || confidence <= 0 || confidence >= 1) {
+            throw new IllegalArgumentException("epsilon and confidence must be in (0, 1)");
+        }
+        int width = Integer.highestOneBit((int) Math.ceil(Math.E / epsilon) - 1) << 1;
+        int depth = Math.max(1, (int) Math.ceil(Math.log(1 / (1 - confidence))));
+        if ((long) width * depth > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Count-Min Sketch too large: " + width + " x " + depth);
+        }
+        return new CountMinSketch(width, depth);
+    }
+
+    /** An empty sketch of the same shape, so hashes and {@link #subtract} carry over. */
+    public CountMinSketch emptyCopy() {
+        return new CountMinSketch(width, depth);
+    }
+
+    public void add(long hash) {
+        for (int row = 0; row < depth; row++) {
+            cells.incrementAndGet(cell(hash, row));
+        }
+    }
+
+    public long estimate(long hash) {
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, cells.get(cell(hash, row)));
+        }
+        return Math.max(0, min);
+    }
+
+    /** Removes the counts of another sketch of the same shape, e.g. a window slice that expired. */
+    public void subtract(CountMinSketch other) {
+        if (other.width != width || other.depth != depth) {
+            throw new IllegalArgumentException("Sketch shapes differ");
+        }
+        for (int i = 0; i < cells.length(); i++) {
+            long count = other.cells.get(i);
+            if (count != 0) {
+                cells.addAndGet(i, -count);
+            }
+        }
+    }
+
+    public void clear() {
+        for (int i = 0; i < cells.length(); i++) {
+            cells.set(i, 0);
+        }
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int depth() {
+        return depth;
+    }
+
+    private int cell(long hash, int row) {
+        // Kirsch–Mitzenmacher: row hashes from the two halves of one 64-bit hash
+        int combined = (int) hash + row * ((int) (hash >>> 32) | 1);
+        return row * width + (combined & (width - 1));
+    }
+
+    public static long hash(CharSequence value) {
+        return Hashing.hash64(value, 0x9E3779B97F4A7C15L);
+    }
+}
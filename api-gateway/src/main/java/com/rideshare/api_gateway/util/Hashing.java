@@ -0,0 +1,30 @@
+package com.rideshare.api_gateway.util;
+
+/**
+ * The 64-bit string hash behind {@link BloomFilter} and {@link CountMinSketch}: FNV-1a style
+ * mixing of the chars, then the murmur3 fmix64 finaliser. Allocation-free; different seeds give
+ * independent hashes of the same value.
+ */
+public final class Hashing {
+
+    private Hashing() {
+    }
+
+    public static long hash64(CharSequence value, long seed) {
+        long h = seed ^ value.length();
+        for (int i = 0; i < value.length(); i++) {
+            h = (h ^ value.charAt(i)) * 0x100000001B3L;
+        }
+        return mix64(h);
+    }
+
+    /** The murmur3 fmix64 finaliser: spreads every input bit over the whole result. */
+    public static long mix64(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
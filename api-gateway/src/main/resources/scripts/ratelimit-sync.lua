@@ -0,0 +1,22 @@
+-- Reconcile local token-bucket consumption with the shared buckets, for many keys in one call.
+-- KEYS[i] = ratelimit:{rule}:{key}
+-- ARGV[3i-2] = tokens consumed locally since the last sync   ARGV[3i-1] = capacity   ARGV[3i] = refill per millisecond
+-- Returns each shared bucket's level after refill and debit, as a string; negative = debt from over-admission.
+-- Uses the Redis clock so gateways with skewed clocks agree.
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+local levels = {}
+for i, key in ipairs(KEYS) do
+    local consumed = tonumber(ARGV[3 * i - 2])
+    local capacity = tonumber(ARGV[3 * i - 1])
+    local rate = tonumber(ARGV[3 * i])
+    local state = redis.call('HMGET', key, 'tokens', 'ts')
+    local tokens = tonumber(state[1]) or capacity
+    local ts = tonumber(state[2]) or now
+    tokens = math.min(capacity, tokens + math.max(0, now - ts) * rate) - consumed
+    redis.call('HSET', key, 'tokens', tostring(tokens), 'ts', now)
+    -- Gone once it would have refilled completely anyway
+    redis.call('PEXPIRE', key, math.ceil((capacity - tokens) / rate) + 1000)
+    levels[i] = tostring(tokens)
+end
+return levels
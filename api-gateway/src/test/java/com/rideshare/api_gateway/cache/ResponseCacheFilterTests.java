@@ -0,0 +1,136 @@
+package com.rideshare.api_gateway.cache;
+
+import com.rideshare.api_gateway.cache.ResponseCacheFilter.ResponseCacheProps;
+import com.rideshare.api_gateway.filter.JwtAuthenticationFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives the filter with a fake upstream that serves one profile with a fixed ETag and answers a
+ * matching If-None-Match with 304, recording the conditional header of every call it gets.
+ */
+class ResponseCacheFilterTests {
+
+    private static final String ETAG = "\"9885791402-v1\"";
+    private static final String BODY = "{\"firstName\":\"Gopal\"}";
+
+    private final Route route = Route.async()
+            .id("user-profile")
+            .uri(URI.create("http://user-service"))
+            .predicate(exchange -> true)
+            .build();
+    private final List<String> upstreamCalls = new ArrayList<>();
+    private String cacheControl;
+    private ResponseCacheFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        cacheControl = "no-cache, private";
+        filter = new ResponseCacheFilter(new ResponseCacheProps(true, List.of(), DataSize.ofMegabytes(1),
+                DataSize.ofKilobytes(64), Duration.ofMinutes(5), Duration.ofMinutes(10)), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void noCacheEntryIsRevalidatedAndServedFromTheStoredBody() {
+        MockServerWebExchange first = get("9885791402", null);
+        MockServerWebExchange second = get("9885791402", null);
+
+        assertThat(bodyOf(first)).isEqualTo(BODY);
+        assertThat(bodyOf(second)).isEqualTo(BODY);
+
+        assertThat(second.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(second.getResponse().getHeaders().getETag()).isEqualTo(ETAG);
+        // The second call only asked whether the stored copy is current
+        assertThat(upstreamCalls).containsExactly("none", ETAG);
+    }
+
+    @Test
+    void clientHoldingTheCurrentETagGetsNotModified() {
+        get("9885791402", null);
+        MockServerWebExchange conditional = get("9885791402", ETAG);
+
+        assertThat(conditional.getResponse().getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(conditional.getResponse().getHeaders().getETag()).isEqualTo(ETAG);
+    }
+
+    @Test
+    void freshEntryIsAnsweredWithoutCallingUpstream() {
+        cacheControl = "private, max-age=60";
+        get("9885791402", null);
+        MockServerWebExchange cached = get("9885791402", null);
+
+        assertThat(bodyOf(cached)).isEqualTo(BODY);
+        assertThat(cached.getResponse().getHeaders().getFirst(HttpHeaders.AGE)).isNotNull();
+        assertThat(upstreamCalls).hasSize(1);
+    }
+
+    @Test
+    void entriesAreNotSharedBetweenSubjects() {
+        cacheControl = "private, max-age=60";
+        get("9885791402", null);
+        get("9876543210", null);
+
+        assertThat(upstreamCalls).containsExactly("none", "none");
+    }
+
+    @Test
+    void noStoreResponsesAreNotKept() {
+        cacheControl = "no-store";
+        get("9885791402", null);
+        get("9885791402", null);
+
+        assertThat(upstreamCalls).containsExactly("none", "none");
+    }
+
+    private MockServerWebExchange get(String subject, String ifNoneMatch) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get("/api/users/profile/me")
+                .header(JwtAuthenticationFilter.SUBJECT_HEADER, subject);
+        if (ifNoneMatch != null) {
+            request.header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, route);
+        filter.filter(exchange, upstream()).block();
+        return exchange;
+    }
+
+    private GatewayFilterChain upstream() {
+        return exchange -> {
+            List<String> conditional = exchange.getRequest().getHeaders().getIfNoneMatch();
+            upstreamCalls.add(conditional.isEmpty() ? "none" : conditional.get(0));
+            ServerHttpResponse response = exchange.getResponse();
+            response.getHeaders().setETag(ETAG);
+            response.getHeaders().setCacheControl(cacheControl);
+            if (conditional.contains(ETAG)) {
+                response.setStatusCode(HttpStatus.NOT_MODIFIED);
+                return response.setComplete();
+            }
+            response.setStatusCode(HttpStatus.OK);
+            byte[] body = BODY.getBytes(StandardCharsets.UTF_8);
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+        };
+    }
+
+    private static String bodyOf(MockServerWebExchange exchange) {
+        return exchange.getResponse().getBodyAsString().block();
+    }
+}
@@ -0,0 +1,245 @@
+package com.rideshare.api_gateway.coalesce;
+
+import com.rideshare.api_gateway.coalesce.RequestCoalescingFilter.CoalescingProps;
+import com.rideshare.api_gateway.filter.JwtAuthenticationFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.unit.DataSize;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives the filter with a fake upstream that counts its calls and, while {@code hold} is set,
+ * keeps each call open until the test releases it, so requests can be made to overlap.
+ */
+class RequestCoalescingFilterTests {
+
+    private static final String PATH = "/api/users/42?fields=name";
+    private static final String BODY = "{\"firstName\":\"Gopal\"}";
+
+    private final Route route = Route.async()
+            .id("user-profile")
+            .uri(URI.create("http://user-service"))
+            .predicate(exchange -> true)
+            .build();
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final AtomicInteger calls = new AtomicInteger();
+    private final List<Sinks.Empty<Void>> held = new ArrayList<>();
+    private volatile boolean hold = true;
+    private volatile boolean streamed;
+    private volatile String body = BODY;
+
+    private final GatewayFilterChain chain = exchange -> {
+        calls.incrementAndGet();
+        Mono<Void> gate = Mono.empty();
+        if (hold) {
+            Sinks.Empty<Void> call = Sinks.empty();
+            held.add(call);
+            gate = call.asMono();
+        }
+        return gate.then(Mono.defer(() -> respond(exchange.getResponse())));
+    };
+
+    @Test
+    void concurrentIdenticalRequestsShareTheLeadersCall() {
+        RequestCoalescingFilter filter = filter(props(10, DataSize.ofKilobytes(1), Duration.ofSeconds(5)));
+        MockServerWebExchange leader = send(filter, get());
+        List<MockServerWebExchange> waiters = List.of(send(filter, get()), send(filter, get()), send(filter, get()));
+        assertThat(calls).hasValue(1);
+        assertThat(registry.get("gateway.coalesce.flights").gauge().value()).isEqualTo(1);
+
+        held.get(0).tryEmitEmpty();
+
+        for (MockServerWebExchange exchange : concat(leader, waiters)) {
+            assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(exchange.getResponse().getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+            assertThat(exchange.getResponse().getBodyAsString().block()).isEqualTo(BODY);
+        }
+        assertThat(count("leader")).isEqualTo(1);
+        assertThat(count("coalesced")).isEqualTo(3);
+        assertThat(registry.get("gateway.coalesce.flights").gauge().value()).isZero();
+    }
+
+    @Test
+    void nothingIsKeptOnceTheLeaderIsDone() {
+        RequestCoalescingFilter filter = filter(props(10, DataSize.ofKilobytes(1), Duration.ofSeconds(5)));
+        hold = false;
+
+        send(filter, get());
+        send(filter, get());
+
+        assertThat(calls).hasValue(2);
+        assertThat(count("leader")).isEqualTo(2);
+    }
+
+    @Test
+    void requestsThatCouldGetADifferentAnswerAreNotShared() {
+        RequestCoalescingFilter filter = filter(props(10, DataSize.ofKilobytes(1), Duration.ofSeconds(5)));
+
+        send(filter, get());
+        send(filter, MockServerHttpRequest.get(PATH).header(JwtAuthenticationFilter.SUBJECT_HEADER, "9000000002"));
+        send(filter, get().header(HttpHeaders.IF_NONE_MATCH, "\"9000000001-v1\""));
+        send(filter, get().header(HttpHeaders.IF_MODIFIED_SINCE, "Sun, 18 Oct 2026 10:00:00 GMT"));
+        send(filter, get().header(HttpHeaders.COOKIE, "session=1"));
+
+        assertThat(calls).hasValue(5);
+        assertThat(count("coalesced")).isZero();
+    }
+
+    @Test
+    void waitersFallBackWhenTheLeaderIsCancelled() {
+        RequestCoalescingFilter filter = filter(props(10, DataSize.ofKilobytes(1), Duration.ofSeconds(5)));
+        Disposable leader = filter.filter(exchange(get()), chain).subscribe();
+        List<MockServerWebExchange> waiters = List.of(send(filter, get()), send(filter, get()));
+        hold = false;
+
+        leader.dispose();
+
+        assertThat(calls).hasValue(3);
+        assertThat(count("fallback")).isEqualTo(2);
+        for (MockServerWebExchange waiter : waiters) {
+            assertThat(waiter.getResponse().getBodyAsString().block()).isEqualTo(BODY);
+        }
+    }
+
+    @Test
+    void waitersFallBackWhenTheLeaderFails() {
+        RequestCoalescingFilter filter = filter(props(10, DataSize.ofKilobytes(1), Duration.ofSeconds(5)));
+        AtomicReference<Throwable> leaderError = new AtomicReference<>();
+        filter.filter(exchange(get()), chain).subscribe(done -> { }, leaderError::set);
+        MockServerWebExchange waiter = send(filter, get());
+        hold = false;
+
+        held.get(0).tryEmitError(new IllegalStateException("connection reset"));
+
+        assertThat(leaderError.get()).hasMessage("connection reset");
+        assertThat(calls).hasValue(2);
+        assertThat(waiter.getResponse().getBodyAsString().block()).isEqualTo(BODY);
+        assertThat(count("fallback")).isEqualTo(1);
+    }
+
+    @Test
+    void waitersBeyondMaxWaitersCallUpstreamThemselves() {
+        RequestCoalescingFilter filter = filter(props(2, DataSize.ofKilobytes(1), Duration.ofSeconds(5)));
+
+        for (int i = 0; i < 5; i++) {
+            send(filter, get());
+        }
+
+        // The leader plus one call each for the two requests past the limit
+        assertThat(calls).hasValue(3);
+        held.forEach(Sinks.Empty::tryEmitEmpty);
+        assertThat(count("coalesced")).isEqualTo(2);
+    }
+
+    @Test
+    void responsesOverMaxBodySizeAreNotShared() {
+        RequestCoalescingFilter filter = filter(props(10, DataSize.ofBytes(16), Duration.ofSeconds(5)));
+        MockServerWebExchange leader = send(filter, get());
+        MockServerWebExchange waiter = send(filter, get());
+        hold = false;
+
+        held.get(0).tryEmitEmpty();
+
+        assertThat(leader.getResponse().getBodyAsString().block()).isEqualTo(BODY);
+        assertThat(waiter.getResponse().getBodyAsString().block()).isEqualTo(BODY);
+        assertThat(calls).hasValue(2);
+        assertThat(count("fallback")).isEqualTo(1);
+    }
+
+    @Test
+    void streamedResponsesAreNotShared() {
+        RequestCoalescingFilter filter = filter(props(10, DataSize.ofKilobytes(1), Duration.ofSeconds(5)));
+        streamed = true;
+        send(filter, get());
+        MockServerWebExchange waiter = send(filter, get());
+        hold = false;
+
+        held.get(0).tryEmitEmpty();
+
+        assertThat(calls).hasValue(2);
+        assertThat(count("coalesced")).isZero();
+        assertThat(waiter.getResponse().getBodyAsString().block()).isEqualTo(BODY);
+    }
+
+    @Test
+    void waiterGivesUpAfterMaxWait() {
+        RequestCoalescingFilter filter = filter(props(10, DataSize.ofKilobytes(1), Duration.ofMillis(100)));
+        send(filter, get());
+        hold = false;
+        MockServerWebExchange waiter = exchange(get());
+
+        filter.filter(waiter, chain).block(Duration.ofSeconds(5));
+
+        assertThat(calls).hasValue(2);
+        assertThat(count("fallback")).isEqualTo(1);
+        assertThat(waiter.getResponse().getBodyAsString().block()).isEqualTo(BODY);
+    }
+
+    private Mono<Void> respond(ServerHttpResponse response) {
+        response.setStatusCode(HttpStatus.OK);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        DataBuffer buffer = response.bufferFactory().wrap(body.getBytes(StandardCharsets.UTF_8));
+        return streamed
+                ? response.writeAndFlushWith(Flux.just(Flux.just(buffer)))
+                : response.writeWith(Mono.just(buffer));
+    }
+
+    private RequestCoalescingFilter filter(CoalescingProps props) {
+        return new RequestCoalescingFilter(props, registry);
+    }
+
+    private static CoalescingProps props(int maxWaiters, DataSize maxBodySize, Duration maxWait) {
+        return new CoalescingProps(true, maxWaiters, 100, maxBodySize, maxWait);
+    }
+
+    private MockServerWebExchange send(RequestCoalescingFilter filter, MockServerHttpRequest.BaseBuilder<?> request) {
+        MockServerWebExchange exchange = exchange(request);
+        filter.filter(exchange, chain).subscribe();
+        return exchange;
+    }
+
+    private MockServerWebExchange exchange(MockServerHttpRequest.BaseBuilder<?> request) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, route);
+        return exchange;
+    }
+
+    private static MockServerHttpRequest.BaseBuilder<?> get() {
+        return MockServerHttpRequest.get(PATH).header(JwtAuthenticationFilter.SUBJECT_HEADER, "9000000001");
+    }
+
+    private static List<MockServerWebExchange> concat(MockServerWebExchange first, List<MockServerWebExchange> rest) {
+        List<MockServerWebExchange> all = new ArrayList<>(rest.size() + 1);
+        all.add(first);
+        all.addAll(rest);
+        return all;
+    }
+
+    private double count(String result) {
+        return registry.get("gateway.coalesce.requests").tag("result", result).counter().count();
+    }
+}
@@ -0,0 +1,98 @@
+package com.rideshare.api_gateway.filter;
+
+import com.rideshare.api_gateway.security.JwtVerifier;
+import com.rideshare.api_gateway.security.JwtVerifier.VerifiedToken;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs mock requests through the filter with a stubbed verifier; requests it lets through are
+ * collected instead of routed.
+ */
+class JwtAuthenticationFilterTests {
+
+    private static final String GOOD = "good-token";
+    private static final String BAD = "bad-token";
+
+    private final JwtVerifier verifier = mock(JwtVerifier.class);
+    private final JwtAuthenticationFilter filter = new JwtAuthenticationFilter(verifier);
+    private final List<ServerWebExchange> forwarded = new ArrayList<>();
+    private final GatewayFilterChain chain = exchange -> {
+        forwarded.add(exchange);
+        return Mono.empty();
+    };
+
+    JwtAuthenticationFilterTests() {
+        Instant now = Instant.now();
+        when(verifier.verify(GOOD)).thenReturn(Optional.of(
+                new VerifiedToken("9000000001", "RIDER", "jti-1", now, now.plusSeconds(600))));
+        when(verifier.verify(BAD)).thenReturn(Optional.empty());
+    }
+
+    @Test
+    void verifiedIdentityReplacesClientSuppliedHeaders() {
+        send(MockServerHttpRequest.get("/api/users/profile/me")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + GOOD)
+                .header(JwtAuthenticationFilter.SUBJECT_HEADER, "9000000002")
+                .header(JwtAuthenticationFilter.ROLE_HEADER, "ADMIN"));
+
+        assertThat(forwarded).hasSize(1);
+        HttpHeaders headers = forwarded.get(0).getRequest().getHeaders();
+        assertThat(headers.get(JwtAuthenticationFilter.SUBJECT_HEADER)).containsExactly("9000000001");
+        assertThat(headers.get(JwtAuthenticationFilter.ROLE_HEADER)).containsExactly("RIDER");
+    }
+
+    @Test
+    void clientSuppliedIdentityHeadersAreStrippedWithoutAToken() {
+        send(MockServerHttpRequest.get("/api/users/profile/me")
+                .header(JwtAuthenticationFilter.SUBJECT_HEADER, "9000000002")
+                .header(JwtAuthenticationFilter.ROLE_HEADER, "ADMIN"));
+
+        assertThat(forwarded).hasSize(1);
+        HttpHeaders headers = forwarded.get(0).getRequest().getHeaders();
+        assertThat(headers).doesNotContainKeys(JwtAuthenticationFilter.SUBJECT_HEADER,
+                JwtAuthenticationFilter.ROLE_HEADER);
+    }
+
+    @Test
+    void invalidTokenIsRejectedOnProtectedRoutes() {
+        MockServerWebExchange exchange = send(MockServerHttpRequest.get("/api/users/profile/me")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + BAD));
+
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+        assertThat(forwarded).isEmpty();
+    }
+
+    @Test
+    void invalidTokenIsDroppedOnPublicAuthRoutes() {
+        send(MockServerHttpRequest.post("/api/auth/refresh")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + BAD)
+                .header(JwtAuthenticationFilter.SUBJECT_HEADER, "9000000002"));
+
+        assertThat(forwarded).hasSize(1);
+        HttpHeaders headers = forwarded.get(0).getRequest().getHeaders();
+        assertThat(headers).doesNotContainKeys(HttpHeaders.AUTHORIZATION, JwtAuthenticationFilter.SUBJECT_HEADER,
+                JwtAuthenticationFilter.ROLE_HEADER);
+    }
+
+    private MockServerWebExchange send(MockServerHttpRequest.BaseBuilder<?> request) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        filter.filter(exchange, chain).block();
+        return exchange;
+    }
+}
@@ -0,0 +1,145 @@
+package com.rideshare.api_gateway.hedge;
+
+import com.rideshare.api_gateway.hedge.HedgePolicy.Outcome;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Races fake instances with fixed response times through the hedging policy. Until the latency
+ * histogram has enough samples the hedge delay is max-delay, which the tests set explicitly.
+ */
+class HedgePolicyTests {
+
+    private MeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void hedgeAnswersWhenPrimaryIsSlow() {
+        HedgePolicy policy = policy(Duration.ofMillis(50), 0.1, 10);
+        AtomicBoolean slowCancelled = new AtomicBoolean();
+
+        long start = System.nanoTime();
+        Outcome<String> outcome = policy.execute(
+                () -> instance("slow", Duration.ofSeconds(2)).doOnCancel(() -> slowCancelled.set(true)),
+                () -> instance("fast", Duration.ofMillis(20))).block();
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        assertThat(outcome.value()).isEqualTo("fast");
+        assertThat(outcome.hedged()).isTrue();
+        assertThat(elapsed).isLessThan(Duration.ofMillis(1000));
+        assertThat(slowCancelled).isTrue();
+        assertThat(count("gateway.hedge.sent")).isEqualTo(1);
+        assertThat(registry.get("gateway.hedge.requests").tag("winner", "hedge").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void fastPrimaryIsNotHedged() {
+        HedgePolicy policy = policy(Duration.ofMillis(300), 0.1, 10);
+        AtomicBoolean hedgeCalled = new AtomicBoolean();
+
+        Outcome<String> outcome = policy.execute(
+                () -> instance("fast", Duration.ofMillis(10)),
+                () -> {
+                    hedgeCalled.set(true);
+                    return instance("other", Duration.ofMillis(10));
+                }).block();
+
+        assertThat(outcome.value()).isEqualTo("fast");
+        assertThat(outcome.hedged()).isFalse();
+        assertThat(hedgeCalled).isFalse();
+        assertThat(count("gateway.hedge.sent")).isZero();
+    }
+
+    @Test
+    void budgetCapsHedgesWhenEveryPrimaryIsSlow() {
+        // 10% of requests plus a burst of 2
+        HedgePolicy policy = policy(Duration.ofMillis(10), 0.1, 2);
+        int requests = 20;
+
+        for (int i = 0; i < requests; i++) {
+            policy.execute(() -> instance("slow", Duration.ofMillis(60)), () -> instance("fast", Duration.ofMillis(5)))
+                    .block();
+        }
+
+        assertThat(count("gateway.hedge.sent")).isLessThanOrEqualTo(2 + requests * 0.1);
+        assertThat(count("gateway.hedge.budget.exhausted")).isPositive();
+        assertThat(count("gateway.hedge.sent") + count("gateway.hedge.budget.exhausted")).isEqualTo(requests);
+    }
+
+    @Test
+    void latencyIsThePrimarysOwn() {
+        HedgePolicy policy = policy(Duration.ofMillis(300), 0.1, 10);
+
+        policy.execute(() -> instance("fast", Duration.ofMillis(10)), () -> instance("other", Duration.ofMillis(10)))
+                .block();
+
+        assertThat(latency().count()).isEqualTo(1);
+        assertThat(latency().totalTime(TimeUnit.MILLISECONDS)).isBetween(10.0, 300.0);
+    }
+
+    @Test
+    void primaryThatLostIsRecordedWithTheTimeItRan() {
+        HedgePolicy policy = policy(Duration.ofMillis(50), 0.1, 10);
+
+        policy.execute(() -> instance("slow", Duration.ofSeconds(2)), () -> instance("fast", Duration.ofMillis(20)))
+                .block();
+
+        // A lower bound on the primary's latency, at least the hedge delay
+        assertThat(latency().count()).isEqualTo(1);
+        assertThat(latency().totalTime(TimeUnit.MILLISECONDS)).isBetween(70.0, 1000.0);
+    }
+
+    @Test
+    void failedPrimaryIsNotRecordedWhenTheHedgeAnswers() {
+        HedgePolicy policy = policy(Duration.ofMillis(20), 0.1, 10);
+
+        Outcome<String> outcome = policy.execute(
+                () -> Mono.delay(Duration.ofMillis(5)).then(Mono.<String>error(new IllegalStateException("reset"))),
+                () -> instance("fast", Duration.ofMillis(10))).block();
+
+        assertThat(outcome.hedged()).isTrue();
+        assertThat(latency().count()).isZero();
+    }
+
+    @Test
+    void primaryFailureIsPropagatedWhenThereIsNoOtherInstance() {
+        HedgePolicy policy = policy(Duration.ofMillis(20), 0.1, 10);
+
+        assertThatThrownBy(() -> policy.execute(
+                () -> Mono.<String>error(new IllegalStateException("connection refused")),
+                Mono::empty).block())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("connection refused");
+    }
+
+    private HedgePolicy policy(Duration maxDelay, double budget, int maxBurst) {
+        return new HedgePolicy("user-profile", 0.95, Duration.ofMillis(1), maxDelay, budget, maxBurst, registry);
+    }
+
+    private static Mono<String> instance(String name, Duration responseTime) {
+        return Mono.delay(responseTime).map(tick -> name);
+    }
+
+    private Timer latency() {
+        return registry.get("gateway.hedge.latency").timer();
+    }
+
+    private double count(String name) {
+        return registry.get(name).counter().count();
+    }
+}
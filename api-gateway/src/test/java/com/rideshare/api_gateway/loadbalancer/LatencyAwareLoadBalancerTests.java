@@ -0,0 +1,213 @@
+package com.rideshare.api_gateway.loadbalancer;
+
+import com.rideshare.api_gateway.loadbalancer.LatencyAwareLoadBalancer.LoadBalancerProps;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.TimedRequestContext;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.RoundRobinLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.function.LongSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives the balancers with a simulated request stream on a virtual clock: one request every 2ms,
+ * each served by the chosen fake instance in its own (jittered) time, completions reported back
+ * through the lifecycle callbacks the way the gateway's load-balancer filter does.
+ */
+class LatencyAwareLoadBalancerTests {
+
+    private static final String SERVICE = "user-service";
+    private static final long ARRIVAL_INTERVAL_NANOS = Duration.ofMillis(2).toNanos();
+    private static final LoadBalancerProps PROPS =
+            new LoadBalancerProps(Duration.ofSeconds(10), Duration.ofSeconds(10), Duration.ofSeconds(1));
+
+    @Test
+    void lowerTailLatencyThanRoundRobin() {
+        // Two healthy replicas of different speeds and one stalled in GC
+        Map<String, Long> serviceMillis = Map.of("user-service-1", 5L, "user-service-2", 20L, "user-service-3", 200L);
+        List<ServiceInstance> instances = new ArrayList<>(List.of(instance(1), instance(2), instance(3)));
+
+        Simulation roundRobin = new Simulation(serviceMillis);
+        roundRobin.run(new RoundRobinLoadBalancer(provider(instances), SERVICE), 5_000);
+
+        Simulation latencyAware = new Simulation(serviceMillis);
+        latencyAware.run(new LatencyAwareLoadBalancer(provider(instances), SERVICE, PROPS, latencyAware), 5_000);
+
+        assertThat(roundRobin.p99()).isGreaterThanOrEqualTo(Duration.ofMillis(150).toNanos());
+        assertThat(latencyAware.p99()).isLessThan(roundRobin.p99() / 2);
+    }
+
+    @Test
+    void rampsUpNewInstanceOverSlowStart() {
+        Map<String, Long> serviceMillis = Map.of("user-service-1", 10L, "user-service-2", 10L, "user-service-3", 10L);
+        List<ServiceInstance> instances = new ArrayList<>(List.of(instance(1), instance(2)));
+        Simulation simulation = new Simulation(serviceMillis);
+        LatencyAwareLoadBalancer balancer = new LatencyAwareLoadBalancer(provider(instances), SERVICE, PROPS, simulation);
+        // Past slow-start for the first two
+        simulation.run(balancer, 10_000);
+
+        instances.add(instance(3));
+        double justAdded = simulation.run(balancer, 500).share("user-service-3");
+        simulation.run(balancer, 10_000);
+        double warm = simulation.run(balancer, 2_500).share("user-service-3");
+
+        assertThat(justAdded).isLessThan(0.1);
+        assertThat(warm).isGreaterThan(0.2);
+    }
+
+    @Test
+    void primaryOvertakenByAHedgeLeavesNoTrace() {
+        List<ServiceInstance> instances = List.of(instance(1), instance(2));
+        long[] now = {1};
+        LatencyAwareLoadBalancer balancer = new LatencyAwareLoadBalancer(provider(instances), SERVICE, PROPS, () -> now[0]);
+        List<Request<Object>> requests = new ArrayList<>();
+        for (ServiceInstance instance : instances) {
+            Request<Object> request = new DefaultRequest<>(new TimedContext());
+            balancer.onStartRequest(request, new DefaultResponse(instance));
+            requests.add(request);
+        }
+        now[0] += Duration.ofMillis(10).toNanos();
+        for (int i = 0; i < instances.size(); i++) {
+            balancer.onComplete(new CompletionContext<>(CompletionContext.Status.SUCCESS, requests.get(i),
+                    new DefaultResponse(instances.get(i))));
+        }
+        now[0] += PROPS.slowStart().toNanos();
+
+        // The primary on instance 1 is still out when the hedge answers, a second later
+        Request<Object> primary = new DefaultRequest<>(new TimedContext());
+        balancer.onStartRequest(primary, new DefaultResponse(instances.get(0)));
+        now[0] += Duration.ofSeconds(1).toNanos();
+        // What the hedge filter reports for it, then what the load balancer filter is left to report
+        balancer.onComplete(new CompletionContext<>(CompletionContext.Status.DISCARD, new DefaultRequest<>(new TimedContext()),
+                new DefaultResponse(instances.get(0))));
+        balancer.onComplete(new CompletionContext<>(CompletionContext.Status.SUCCESS, primary, new EmptyResponse()));
+
+        // Neither a one-second sample nor a leaked in-flight count: both instances still cost the same
+        int first = 0;
+        for (int i = 0; i < 1_000; i++) {
+            if (balancer.choose(new DefaultRequest<>(new TimedContext())).block().getServer() == instances.get(0)) {
+                first++;
+            }
+        }
+        assertThat(first).isBetween(350, 650);
+    }
+
+    private static ServiceInstance instance(int n) {
+        return new DefaultServiceInstance(SERVICE + "-" + n, SERVICE, "10.0.0." + n, 8080, false);
+    }
+
+    // Re-reads the list on every pick, so instances can be added mid-run
+    private static ObjectProvider<ServiceInstanceListSupplier> provider(List<ServiceInstance> instances) {
+        ServiceInstanceListSupplier supplier = new ServiceInstanceListSupplier() {
+            @Override
+            public String getServiceId() {
+                return SERVICE;
+            }
+
+            @Override
+            public Flux<List<ServiceInstance>> get() {
+                return Flux.defer(() -> Flux.just(List.copyOf(instances)));
+            }
+        };
+        return new StaticListableBeanFactory(Map.of("supplier", supplier))
+                .getBeanProvider(ServiceInstanceListSupplier.class);
+    }
+
+    private static final class TimedContext implements TimedRequestContext {
+        private long startTime;
+
+        @Override
+        public long getRequestStartTime() {
+            return startTime;
+        }
+
+        @Override
+        public void setRequestStartTime(long requestStartTime) {
+            this.startTime = requestStartTime;
+        }
+    }
+
+    private record InFlight(long completesAt, Request<Object> request, Response<ServiceInstance> response) {}
+
+    /** Virtual clock plus the latencies and picks of the last run. */
+    private static final class Simulation implements LongSupplier {
+        private final Map<String, Long> serviceMillis;
+        private final Random random = new Random(42);
+        private final PriorityQueue<InFlight> inFlight = new PriorityQueue<>(Comparator.comparingLong(InFlight::completesAt));
+        private long now;
+        private long[] latencies;
+        private List<String> picks;
+
+        Simulation(Map<String, Long> serviceMillis) {
+            this.serviceMillis = serviceMillis;
+        }
+
+        @Override
+        public long getAsLong() {
+            return now;
+        }
+
+        Simulation run(ReactorServiceInstanceLoadBalancer balancer, int requests) {
+            LatencyAwareLoadBalancer lifecycle = balancer instanceof LatencyAwareLoadBalancer latencyAware ? latencyAware : null;
+            latencies = new long[requests];
+            picks = new ArrayList<>(requests);
+            long start = now;
+            for (int i = 0; i < requests; i++) {
+                long arrival = start + i * ARRIVAL_INTERVAL_NANOS;
+                while (!inFlight.isEmpty() && inFlight.peek().completesAt() <= arrival) {
+                    InFlight done = inFlight.poll();
+                    now = done.completesAt();
+                    if (lifecycle != null) {
+                        lifecycle.onComplete(new CompletionContext<>(CompletionContext.Status.SUCCESS,
+                                done.request(), done.response()));
+                    }
+                }
+                now = arrival;
+                Request<Object> request = new DefaultRequest<>(new TimedContext());
+                Response<ServiceInstance> response = balancer.choose(request).block();
+                if (lifecycle != null) {
+                    lifecycle.onStartRequest(request, response);
+                }
+                String id = response.getServer().getInstanceId();
+                // +-20% jitter around the instance's service time
+                long latency = (long) (Duration.ofMillis(serviceMillis.get(id)).toNanos() * (0.8 + 0.4 * random.nextDouble()));
+                latencies[i] = latency;
+                picks.add(id);
+                inFlight.add(new InFlight(arrival + latency, request, response));
+            }
+            now = start + requests * ARRIVAL_INTERVAL_NANOS;
+            return this;
+        }
+
+        long p99() {
+            long[] sorted = latencies.clone();
+            Arrays.sort(sorted);
+            return sorted[(int) (sorted.length * 0.99)];
+        }
+
+        double share(String instanceId) {
+            return (double) picks.stream().filter(instanceId::equals).count() / picks.size();
+        }
+    }
+}
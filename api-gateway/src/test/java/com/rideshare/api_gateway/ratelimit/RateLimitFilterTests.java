@@ -0,0 +1,186 @@
+package com.rideshare.api_gateway.ratelimit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rideshare.api_gateway.ratelimit.RateLimitProps.KeyType;
+import com.rideshare.api_gateway.ratelimit.RateLimitProps.Rule;
+import com.rideshare.api_gateway.ratelimit.TokenBucketLimiterTests.FakeRedis;
+import com.rideshare.api_gateway.traffic.HeavyHitters;
+import com.rideshare.api_gateway.traffic.HeavyHitters.HeavyHitterProps;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Sends mock requests through the filter with the limiter on a frozen clock, so a spent bucket
+ * stays spent. Requests the filter lets through are collected instead of routed.
+ */
+class RateLimitFilterTests {
+
+    private static final Rule OTP_ROUTE = new Rule("otp-route", "/api/auth/otp", "POST", KeyType.ROUTE, 10,
+            Duration.ofMinutes(1), false);
+    private static final Rule OTP_IP = new Rule("otp-ip", "/api/auth/otp", "POST", KeyType.CLIENT_IP, 1,
+            Duration.ofMinutes(1), false);
+    private static final Rule OTP_NUMBER = new Rule("otp-number", "/api/auth/otp", "POST", KeyType.MOBILE_NUMBER, 1,
+            Duration.ofMinutes(1), false);
+    private static final Rule USERS_HEAVY = new Rule("users-heavy", "/api/users/**", null, KeyType.CLIENT_IP, 1,
+            Duration.ofMinutes(1), true);
+
+    private final List<ServerWebExchange> forwarded = new ArrayList<>();
+    private final GatewayFilterChain chain = exchange -> {
+        forwarded.add(exchange);
+        return Mono.empty();
+    };
+    private final HeavyHitters heavyHitters = new HeavyHitters(
+            new HeavyHitterProps(true, Duration.ofMinutes(1), 6, 0.002, 0.99, 20, 3));
+    private TokenBucketLimiter limiter;
+
+    @Test
+    void deniedRequestGets429WithRetryAfter() {
+        RateLimitFilter filter = filter(OTP_IP);
+
+        assertThat(send(filter, otp("10.0.0.1", "{}")).getResponse().getStatusCode()).isNull();
+        MockServerWebExchange denied = send(filter, otp("10.0.0.1", "{}"));
+
+        assertThat(denied.getResponse().getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(denied.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("60");
+        send(filter, otp("10.0.0.2", "{}"));
+        assertThat(forwarded).hasSize(2);
+    }
+
+    @Test
+    void tokensOfEarlierRulesAreReleasedWhenALaterRuleDenies() {
+        RateLimitFilter filter = filter(OTP_ROUTE, OTP_IP);
+
+        send(filter, otp("10.0.0.1", "{}"));
+        for (int i = 0; i < 5; i++) {
+            send(filter, otp("10.0.0.1", "{}"));
+        }
+
+        // Only the admitted request spent a route token
+        int left = 0;
+        while (limiter.tryAcquire(OTP_ROUTE, "*").allowed()) {
+            left++;
+        }
+        assertThat(left).isEqualTo(9);
+        assertThat(forwarded).hasSize(1);
+    }
+
+    @Test
+    void mobileNumberIsReadFromTheJsonBody() {
+        RateLimitFilter filter = filter(OTP_NUMBER);
+        String body = "{\"mobileNumber\":\"9000000001\"}";
+
+        MockServerWebExchange first = send(filter, otp("10.0.0.1", body));
+        MockServerWebExchange sameNumber = send(filter, otp("10.0.0.2", body));
+        send(filter, otp("10.0.0.1", "{\"mobileNumber\":\"9000000002\"}"));
+
+        assertThat(first.getResponse().getStatusCode()).isNull();
+        assertThat(sameNumber.getResponse().getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(forwarded).hasSize(2);
+        // The body was buffered, not consumed: the service still gets it
+        assertThat(bodyOf(forwarded.get(0))).isEqualTo(body);
+    }
+
+    @Test
+    void requestsWithoutAMobileNumberShareOneBucket() {
+        RateLimitFilter filter = filter(OTP_NUMBER);
+
+        send(filter, otp("10.0.0.1", "{\"mobileNumber\":null}"));
+        MockServerWebExchange noNumber = send(filter, otp("10.0.0.2", "{}"));
+        MockServerWebExchange notJson = send(filter, otp("10.0.0.3", "not json"));
+        send(filter, otp("10.0.0.1", "{\"mobileNumber\":\"9000000001\"}"));
+
+        assertThat(noNumber.getResponse().getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(notJson.getResponse().getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(forwarded).hasSize(2);
+    }
+
+    @Test
+    void paddingTheBodyPastTheLimitIsRejectedNotExempted() {
+        RateLimitFilter filter = filter(OTP_NUMBER);
+        String padded = "{\"mobileNumber\":\"9000000001\"" + " ".repeat(5000) + "}";
+
+        MockServerWebExchange declared = send(filter, MockServerHttpRequest.post("/api/auth/otp")
+                .remoteAddress(new InetSocketAddress("10.0.0.1", 40000))
+                .contentType(MediaType.APPLICATION_JSON)
+                .contentLength(padded.length())
+                .body(padded));
+        // No Content-Length (chunked): the limit applies while reading
+        MockServerWebExchange chunked = send(filter, otp("10.0.0.1", padded));
+
+        assertThat(declared.getResponse().getStatusCode()).isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE);
+        assertThat(chunked.getResponse().getStatusCode()).isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE);
+        assertThat(forwarded).isEmpty();
+        // The number's bucket is untouched
+        send(filter, otp("10.0.0.1", "{\"mobileNumber\":\"9000000001\"}"));
+        assertThat(forwarded).hasSize(1);
+    }
+
+    @Test
+    void heavyHittersOnlyRuleIgnoresLightClients() {
+        RateLimitFilter filter = filter(USERS_HEAVY);
+
+        send(filter, users("10.0.0.1"));
+        send(filter, users("10.0.0.1"));
+        assertThat(forwarded).hasSize(2);
+
+        for (int i = 0; i < 3; i++) {
+            heavyHitters.record(new InetSocketAddress("10.0.0.1", 0).getAddress());
+        }
+        send(filter, users("10.0.0.1"));
+        MockServerWebExchange limited = send(filter, users("10.0.0.1"));
+
+        assertThat(limited.getResponse().getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        send(filter, users("10.0.0.2"));
+        assertThat(forwarded).hasSize(4);
+    }
+
+    private RateLimitFilter filter(Rule... rules) {
+        limiter = new TokenBucketLimiter(new FakeRedis(), new MockEnvironment(),
+                new RateLimitProps(true, Duration.ofSeconds(1), Duration.ofMinutes(15), List.of(rules)),
+                new SimpleMeterRegistry(), () -> 0L);
+        return new RateLimitFilter(limiter, new ObjectMapper(), heavyHitters);
+    }
+
+    private MockServerWebExchange send(RateLimitFilter filter, MockServerHttpRequest request) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        filter.filter(exchange, chain).block();
+        return exchange;
+    }
+
+    private static MockServerHttpRequest otp(String ip, String body) {
+        return MockServerHttpRequest.post("/api/auth/otp")
+                .remoteAddress(new InetSocketAddress(ip, 40000))
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    private static MockServerHttpRequest users(String ip) {
+        return MockServerHttpRequest.get("/api/users/42")
+                .remoteAddress(new InetSocketAddress(ip, 40000))
+                .build();
+    }
+
+    private static String bodyOf(ServerWebExchange exchange) {
+        return DataBufferUtils.join(exchange.getRequest().getBody())
+                .map(buffer -> buffer.toString(StandardCharsets.UTF_8))
+                .block();
+    }
+}
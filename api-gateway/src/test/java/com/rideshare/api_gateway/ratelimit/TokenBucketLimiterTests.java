@@ -0,0 +1,237 @@
+package com.rideshare.api_gateway.ratelimit;
+
+import com.rideshare.api_gateway.ratelimit.RateLimitProps.KeyType;
+import com.rideshare.api_gateway.ratelimit.RateLimitProps.Rule;
+import com.rideshare.api_gateway.ratelimit.TokenBucketLimiter.Decision;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the limiter on a fake clock against a fake Redis that records every sync call and, unless a
+ * test says otherwise, answers as a fresh shared bucket would: capacity minus what was consumed.
+ */
+class TokenBucketLimiterTests {
+
+    private static final Rule OTP = new Rule("otp", "/api/auth/otp", "POST", KeyType.CLIENT_IP, 3,
+            Duration.ofSeconds(1), false);
+    private static final Rule USERS = new Rule("users", "/api/users/**", "", KeyType.SUBJECT, 100,
+            Duration.ofMinutes(1), false);
+
+    private final AtomicLong nanos = new AtomicLong(1_000_000_000L);
+    private final FakeRedis redis = new FakeRedis();
+    private final MockEnvironment environment = new MockEnvironment();
+    private MeterRegistry registry;
+    private TokenBucketLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        limiter = new TokenBucketLimiter(redis, environment,
+                new RateLimitProps(true, Duration.ofSeconds(1), Duration.ofMinutes(15), List.of(OTP, USERS)),
+                registry, nanos::get);
+    }
+
+    @Test
+    void burstUpToCapacityThenDeniedWithTheTimeToTheNextToken() {
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.tryAcquire(OTP, "10.0.0.1").allowed()).isTrue();
+        }
+        Decision denied = limiter.tryAcquire(OTP, "10.0.0.1");
+
+        assertThat(denied.allowed()).isFalse();
+        // 3 per second: one token every 333.3ms
+        assertThat(denied.retryAfter()).isBetween(Duration.ofMillis(333), Duration.ofMillis(334));
+        assertThat(limiter.tryAcquire(OTP, "10.0.0.2").allowed()).isTrue();
+        assertThat(registry.get("gateway.ratelimit.decisions").tags("rule", "otp", "result", "denied")
+                .counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void refillsContinuouslyUpToCapacity() {
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire(OTP, "10.0.0.1");
+        }
+        advance(Duration.ofMillis(334));
+        assertThat(limiter.tryAcquire(OTP, "10.0.0.1").allowed()).isTrue();
+        assertThat(limiter.tryAcquire(OTP, "10.0.0.1").allowed()).isFalse();
+
+        // A long pause refills to capacity, not beyond
+        advance(Duration.ofMinutes(1));
+        assertThat(acquireAll(OTP, "10.0.0.1")).isEqualTo(3);
+    }
+
+    @Test
+    void releaseReturnsATokenTakenSinceTheLastSync() {
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire(OTP, "10.0.0.1");
+        }
+        limiter.release(OTP, "10.0.0.1");
+        assertThat(acquireAll(OTP, "10.0.0.1")).isEqualTo(1);
+
+        // Already charged to the shared bucket: nothing to give back
+        limiter.sync();
+        limiter.release(OTP, "10.0.0.1");
+        assertThat(acquireAll(OTP, "10.0.0.1")).isZero();
+    }
+
+    @Test
+    void syncSendsConsumptionAndAdoptsTheSharedLevel() {
+        limiter.tryAcquire(OTP, "10.0.0.1");
+        limiter.tryAcquire(OTP, "10.0.0.1");
+        // Another gateway already spent the rest
+        redis.reply = keys -> List.of("0.0");
+
+        limiter.sync();
+
+        assertThat(redis.calls).containsExactly(Map.of("ratelimit:otp:10.0.0.1", "2"));
+        assertThat(acquireAll(OTP, "10.0.0.1")).isZero();
+        // Untouched keys are not sent again
+        limiter.sync();
+        assertThat(redis.calls).hasSize(1);
+    }
+
+    @Test
+    void sharedDebtIsClampedLocallyToAnEmptyBucket() {
+        limiter.tryAcquire(OTP, "10.0.0.1");
+        redis.reply = keys -> List.of("-6.0");
+
+        limiter.sync();
+
+        Decision denied = limiter.tryAcquire(OTP, "10.0.0.1");
+        assertThat(denied.allowed()).isFalse();
+        // One token away locally; the debt is paid off in Redis
+        assertThat(denied.retryAfter()).isLessThanOrEqualTo(Duration.ofMillis(334));
+    }
+
+    @Test
+    void tokensTakenDuringTheRoundTripAreSubtractedFromTheSharedLevel() {
+        limiter.tryAcquire(OTP, "10.0.0.1");
+        redis.reply = keys -> {
+            limiter.tryAcquire(OTP, "10.0.0.1");
+            return List.of("2.0");
+        };
+
+        limiter.sync();
+
+        assertThat(acquireAll(OTP, "10.0.0.1")).isEqualTo(1);
+        limiter.sync();
+        assertThat(redis.calls.get(1)).isEqualTo(Map.of("ratelimit:otp:10.0.0.1", "2"));
+    }
+
+    @Test
+    void failedChunkIsChargedAgainAtTheNextSync() {
+        // Two chunks: 500 keys, then 1
+        for (int i = 0; i < 501; i++) {
+            limiter.tryAcquire(USERS, "subject-" + i);
+        }
+        Function<List<String>, List<?>> fresh = redis.reply;
+        redis.reply = keys -> {
+            if (redis.calls.size() == 2) {
+                throw new IllegalStateException("connection reset");
+            }
+            return fresh.apply(keys);
+        };
+
+        limiter.sync();
+
+        assertThat(redis.calls).extracting(Map::size).containsExactly(500, 1);
+        assertThat(registry.get("gateway.ratelimit.sync.failures").counter().count()).isEqualTo(1);
+
+        redis.reply = fresh;
+        limiter.sync();
+        assertThat(redis.calls).hasSize(3);
+        assertThat(redis.calls.get(2)).isEqualTo(redis.calls.get(1));
+        assertThat(redis.calls.get(2).values()).containsExactly("1");
+    }
+
+    @Test
+    void removedRuleDropsItsBucketsAtTheNextSync() {
+        environment.setProperty("gateway.rate-limit.rules[0].id", "users");
+        environment.setProperty("gateway.rate-limit.rules[0].path", "/api/users/**");
+        environment.setProperty("gateway.rate-limit.rules[0].key", "SUBJECT");
+        environment.setProperty("gateway.rate-limit.rules[0].capacity", "100");
+        environment.setProperty("gateway.rate-limit.rules[0].period", "1m");
+        limiter.tryAcquire(OTP, "10.0.0.1");
+        limiter.tryAcquire(USERS, "9000000001");
+
+        limiter.onEnvironmentChange(new EnvironmentChangeEvent(Set.of("gateway.rate-limit.rules[1].id")));
+        limiter.sync();
+
+        assertThat(limiter.rules()).extracting(compiled -> compiled.rule().id()).containsExactly("users");
+        assertThat(registry.get("gateway.ratelimit.buckets").gauge().value()).isEqualTo(1);
+        assertThat(redis.calls).containsExactly(Map.of("ratelimit:users:9000000001", "1"));
+    }
+
+    @Test
+    void idleBucketsAreForgotten() {
+        limiter.tryAcquire(OTP, "10.0.0.1");
+        limiter.sync();
+        assertThat(registry.get("gateway.ratelimit.buckets").gauge().value()).isEqualTo(1);
+
+        advance(Duration.ofMinutes(16));
+        limiter.sync();
+
+        assertThat(registry.get("gateway.ratelimit.buckets").gauge().value()).isZero();
+    }
+
+    private int acquireAll(Rule rule, String key) {
+        int allowed = 0;
+        while (limiter.tryAcquire(rule, key).allowed()) {
+            allowed++;
+        }
+        return allowed;
+    }
+
+    private void advance(Duration duration) {
+        nanos.addAndGet(duration.toNanos());
+    }
+
+    /** Records each sync call as key -> consumed, in argument order. */
+    static final class FakeRedis extends StringRedisTemplate {
+
+        final List<Map<String, String>> calls = new ArrayList<>();
+        Function<List<String>, List<?>> reply;
+        private List<Object> args;
+
+        FakeRedis() {
+            reply = keys -> {
+                List<String> levels = new ArrayList<>(keys.size());
+                for (int i = 0; i < keys.size(); i++) {
+                    long capacity = Long.parseLong(String.valueOf(args.get(3 * i + 1)));
+                    long consumed = Long.parseLong(String.valueOf(args.get(3 * i)));
+                    levels.add(String.valueOf((double) (capacity - consumed)));
+                }
+                return levels;
+            };
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T execute(RedisScript<T> script, List<String> keys, Object... args) {
+            this.args = List.of(args);
+            Map<String, String> call = new LinkedHashMap<>();
+            for (int i = 0; i < keys.size(); i++) {
+                call.put(keys.get(i), String.valueOf(args[3 * i]));
+            }
+            calls.add(call);
+            return (T) reply.apply(keys);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.rideshare.api_gateway.resilience;
+
+import com.rideshare.api_gateway.resilience.CircuitBreaker.State;
+import com.rideshare.api_gateway.resilience.ResilienceProps.Breaker;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Window of 10 calls, opens at 50% once 4 are in, 10s open, 2 probes; time is passed in. */
+class CircuitBreakerTests {
+
+    private static final long OPEN = Duration.ofSeconds(10).toNanos();
+
+    private final CircuitBreaker breaker = new CircuitBreaker(new Breaker(0.5, 10, 4, Duration.ofSeconds(10), 2));
+    private long now = 1_000_000_000L;
+
+    @Test
+    void opensOnceMinimumCallsAreInAndTheThresholdIsReached() {
+        record(true, true, true);
+        assertThat(breaker.state()).isEqualTo(State.CLOSED);
+
+        record(false);
+
+        assertThat(breaker.state()).isEqualTo(State.OPEN);
+        assertThat(breaker.tryAcquire(now)).isFalse();
+        assertThat(breaker.retryAfter(now)).isEqualTo(Duration.ofSeconds(10));
+        assertThat(breaker.retryAfter(now + OPEN / 2)).isEqualTo(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void oldOutcomesSlideOutOfTheWindow() {
+        record(true, false, false, false);
+        for (int i = 0; i < 10; i++) {
+            record(false);
+        }
+        // The first failure has aged out: 4 of 10 is under the threshold
+        record(true, true, true, true);
+        assertThat(breaker.state()).isEqualTo(State.CLOSED);
+
+        record(true);
+        assertThat(breaker.state()).isEqualTo(State.OPEN);
+    }
+
+    @Test
+    void goesClosedOpenHalfOpenClosed() {
+        record(true, true, true, true);
+        assertThat(breaker.state()).isEqualTo(State.OPEN);
+
+        now += OPEN - 1;
+        assertThat(breaker.tryAcquire(now)).isFalse();
+
+        now += 1;
+        assertThat(breaker.tryAcquire(now)).isTrue();
+        assertThat(breaker.state()).isEqualTo(State.HALF_OPEN);
+        assertThat(breaker.tryAcquire(now)).isTrue();
+        // Only half-open-calls probes at a time
+        assertThat(breaker.tryAcquire(now)).isFalse();
+        assertThat(breaker.retryAfter(now)).isZero();
+
+        record(false);
+        assertThat(breaker.state()).isEqualTo(State.HALF_OPEN);
+        record(false);
+        assertThat(breaker.state()).isEqualTo(State.CLOSED);
+
+        // Closed again with a fresh window
+        record(true, true, true);
+        assertThat(breaker.state()).isEqualTo(State.CLOSED);
+    }
+
+    @Test
+    void aFailedProbeOpensAgainForTheFullDuration() {
+        record(true, true, true, true);
+        now += OPEN;
+        assertThat(breaker.tryAcquire(now)).isTrue();
+
+        record(true);
+
+        assertThat(breaker.state()).isEqualTo(State.OPEN);
+        assertThat(breaker.retryAfter(now)).isEqualTo(Duration.ofSeconds(10));
+        assertThat(breaker.tryAcquire(now + OPEN - 1)).isFalse();
+    }
+
+    @Test
+    void aCancelledProbeHandsItsSlotBack() {
+        record(true, true, true, true);
+        now += OPEN;
+        assertThat(breaker.tryAcquire(now)).isTrue();
+        assertThat(breaker.tryAcquire(now)).isTrue();
+        assertThat(breaker.tryAcquire(now)).isFalse();
+
+        breaker.release();
+
+        assertThat(breaker.tryAcquire(now)).isTrue();
+        assertThat(breaker.tryAcquire(now)).isFalse();
+    }
+
+    @Test
+    void lateOutcomesWhileOpenAreIgnored() {
+        record(true, true, true, true);
+
+        record(false, false, false);
+
+        assertThat(breaker.state()).isEqualTo(State.OPEN);
+    }
+
+    private void record(boolean... failed) {
+        for (boolean f : failed) {
+            breaker.record(f, now);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.rideshare.api_gateway.resilience;
+
+import com.rideshare.api_gateway.resilience.ResilienceProps.Concurrency;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Feeds the limit whole sample windows on a fake clock: every window fills the current limit,
+ * then releases every request with the same latency, the last one at the end of the window.
+ */
+class GradientLimitTests {
+
+    private static final Duration WINDOW = Duration.ofMillis(250);
+
+    private final Concurrency props = new Concurrency(20, 5, 500, WINDOW, 600, 1.5, 0.2, 0.9);
+    private long now = 1_000_000_000L;
+    private final GradientLimit limit = new GradientLimit(props, now);
+
+    @Test
+    void admitsUpToTheLimitAndNoMore() {
+        for (int i = 0; i < 20; i++) {
+            assertThat(limit.tryAcquire()).isTrue();
+        }
+        assertThat(limit.tryAcquire()).isFalse();
+
+        limit.release();
+        assertThat(limit.tryAcquire()).isTrue();
+        assertThat(limit.inFlight()).isEqualTo(20);
+    }
+
+    @Test
+    void growsWhileLatencyHolds() {
+        List<Integer> limits = windows(20, Duration.ofMillis(10));
+
+        assertThat(limits).isSorted();
+        assertThat(limit.limit()).isGreaterThan(30);
+    }
+
+    @Test
+    void shrinksUnderRisingLatencyAndRecovers() {
+        windows(20, Duration.ofMillis(10));
+        int steady = limit.limit();
+
+        List<Integer> slow = windows(20, Duration.ofMillis(40));
+
+        assertThat(slow).isSortedAccordingTo((a, b) -> Integer.compare(b, a));
+        assertThat(limit.limit()).isLessThan(steady / 2).isGreaterThanOrEqualTo(props.minLimit());
+
+        List<Integer> recovered = windows(40, Duration.ofMillis(10));
+
+        assertThat(recovered).isSorted();
+        assertThat(limit.limit()).isGreaterThanOrEqualTo(steady);
+    }
+
+    @Test
+    void droppedRequestsBackOffToTheMinimum() {
+        window(Duration.ofMillis(10), true);
+        assertThat(limit.limit()).isEqualTo(18);
+
+        for (int i = 0; i < 20; i++) {
+            window(Duration.ofMillis(10), true);
+        }
+        assertThat(limit.limit()).isEqualTo(props.minLimit());
+    }
+
+    @Test
+    void underusedLimitIsLeftAlone() {
+        // Five requests, never more than one at a time, at ten times the latency
+        for (int i = 0; i < 10; i++) {
+            window(Duration.ofMillis(10), false);
+        }
+        int before = limit.limit();
+        for (int i = 0; i < 5; i++) {
+            limit.tryAcquire();
+            now += i == 4 ? WINDOW.toNanos() : 0;
+            limit.release(Duration.ofMillis(100).toNanos(), false, now);
+        }
+
+        assertThat(limit.limit()).isEqualTo(before);
+    }
+
+    private List<Integer> windows(int count, Duration rtt) {
+        List<Integer> limits = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            window(rtt, false);
+            limits.add(limit.limit());
+        }
+        return limits;
+    }
+
+    private void window(Duration rtt, boolean dropped) {
+        int requests = limit.limit();
+        for (int i = 0; i < requests; i++) {
+            assertThat(limit.tryAcquire()).isTrue();
+        }
+        for (int i = 0; i < requests; i++) {
+            if (i == requests - 1) {
+                now += WINDOW.toNanos();
+            }
+            limit.release(rtt.toNanos(), dropped, now);
+        }
+        assertThat(limit.inFlight()).isZero();
+    }
+}
@@ -0,0 +1,148 @@
+package com.rideshare.api_gateway.resilience;
+
+import com.rideshare.api_gateway.resilience.ResilienceProps.Breaker;
+import com.rideshare.api_gateway.resilience.ResilienceProps.Concurrency;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the filter on a fake clock with a fixed limit of 2 (min = initial) and a breaker that opens
+ * after 2 failed calls for 10s and closes after 1 good probe. Upstream calls stay in flight until
+ * their sink is completed.
+ */
+class RouteGuardFilterTests {
+
+    private final Route route = Route.async()
+            .id("user-service")
+            .uri(URI.create("http://user-service"))
+            .predicate(exchange -> true)
+            .build();
+    private final AtomicLong nanos = new AtomicLong(1_000_000_000L);
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final RouteGuardFilter filter = new RouteGuardFilter(new RouteGuards(new ResilienceProps(true,
+            new Concurrency(2, 2, 2, Duration.ofMillis(250), 600, 1.5, 0.2, 0.9),
+            new Breaker(0.5, 10, 2, Duration.ofSeconds(10), 1)), registry, nanos::get));
+    private final List<Sinks.Empty<Void>> upstream = new ArrayList<>();
+    private HttpStatus upstreamStatus = HttpStatus.OK;
+
+    private final GatewayFilterChain chain = exchange -> {
+        Sinks.Empty<Void> call = Sinks.empty();
+        upstream.add(call);
+        return call.asMono().then(Mono.fromRunnable(() -> exchange.getResponse().setStatusCode(upstreamStatus)));
+    };
+
+    @Test
+    void requestsOverTheLimitGet503WithRetryAfter() {
+        send();
+        send();
+
+        MockServerWebExchange rejected = send();
+
+        assertThat(rejected.getResponse().getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(rejected.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        assertThat(upstream).hasSize(2);
+        assertThat(registry.get("gateway.route.rejected").tag("reason", "concurrency").counter().count())
+                .isEqualTo(1);
+
+        upstream.get(0).tryEmitEmpty();
+        send();
+        assertThat(upstream).hasSize(3);
+    }
+
+    @Test
+    void openCircuitGets503UntilAProbeSucceeds() {
+        upstreamStatus = HttpStatus.INTERNAL_SERVER_ERROR;
+        send();
+        answer();
+        send();
+        answer();
+
+        nanos.addAndGet(Duration.ofSeconds(3).toNanos());
+        MockServerWebExchange rejected = send();
+
+        assertThat(rejected.getResponse().getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(rejected.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("7");
+        assertThat(registry.get("gateway.route.circuit.state").gauge().value()).isEqualTo(2);
+        // The limit slot taken before the breaker said no was handed back
+        assertThat(registry.get("gateway.route.concurrency.inflight").gauge().value()).isZero();
+
+        nanos.addAndGet(Duration.ofSeconds(7).toNanos());
+        upstreamStatus = HttpStatus.OK;
+        MockServerWebExchange probe = send();
+        assertThat(registry.get("gateway.route.circuit.state").gauge().value()).isEqualTo(1);
+        answer();
+
+        assertThat(probe.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(registry.get("gateway.route.circuit.state").gauge().value()).isZero();
+    }
+
+    @Test
+    void cancelledRequestReleasesItsSlotAndProbe() {
+        upstreamStatus = HttpStatus.SERVICE_UNAVAILABLE;
+        send();
+        answer();
+        send();
+        answer();
+        nanos.addAndGet(Duration.ofSeconds(10).toNanos());
+
+        Disposable probe = subscribe(exchange());
+        assertThat(send().getResponse().getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+
+        probe.dispose();
+
+        assertThat(registry.get("gateway.route.concurrency.inflight").gauge().value()).isZero();
+        MockServerWebExchange next = send();
+        assertThat(next.getResponse().getStatusCode()).isNull();
+        assertThat(upstream).hasSize(4);
+    }
+
+    @Test
+    void requestsWithoutARouteAreNotGuarded() {
+        for (int i = 0; i < 3; i++) {
+            MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/actuator/health"));
+            filter.filter(exchange, chain).subscribe();
+        }
+
+        assertThat(upstream).hasSize(3);
+    }
+
+    private MockServerWebExchange send() {
+        MockServerWebExchange exchange = exchange();
+        subscribe(exchange);
+        return exchange;
+    }
+
+    private Disposable subscribe(MockServerWebExchange exchange) {
+        return filter.filter(exchange, chain).subscribe();
+    }
+
+    /** Lets the latest upstream call answer with upstreamStatus. */
+    private void answer() {
+        upstream.get(upstream.size() - 1).tryEmitEmpty();
+    }
+
+    private MockServerWebExchange exchange() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/users/42"));
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, route);
+        return exchange;
+    }
+}
@@ -0,0 +1,232 @@
+package com.rideshare.api_gateway.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rideshare.api_gateway.security.JwtVerifier.JwtProps;
+import com.rideshare.api_gateway.security.JwtVerifier.VerifiedToken;
+import com.rideshare.api_gateway.security.TokenDenylist.RevocationProps;
+import com.rideshare.api_gateway.security.TokenDenylist.TokenRevocation;
+import com.sun.net.httpserver.HttpServer;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Verifies real RS256 tokens against a generated key pair. The JWKS case serves the key set from a
+ * local JDK HttpServer, so the on-demand refresh goes over HTTP exactly as it does against auth-service.
+ */
+class JwtVerifierTests {
+
+    private static final String SUBJECT = "9000000001";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final KeyPair keys = rsaKeyPair();
+    private MeterRegistry registry;
+    private TokenDenylist denylist;
+    private JwtVerifier verifier;
+    private HttpServer jwksServer;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        RevocationProps props = new RevocationProps("token-revocations", Duration.ofHours(1), 1_000, 0.001,
+                Duration.ofMinutes(1));
+        denylist = new TokenDenylist(objectMapper, props, registry, handler -> () -> {}, System::currentTimeMillis);
+        denylist.start();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (verifier != null) {
+            verifier.shutdown();
+        }
+        if (jwksServer != null) {
+            jwksServer.stop(0);
+        }
+        denylist.shutdown();
+    }
+
+    @Test
+    void acceptsATokenSignedWithTheConfiguredKey() {
+        verifier = staticKeyVerifier();
+        Instant now = Instant.now();
+
+        Optional<VerifiedToken> token = verifier.verify(token(keys.getPrivate(), null, now, now.plusSeconds(600)));
+
+        assertThat(token).isPresent();
+        assertThat(token.get().subject()).isEqualTo(SUBJECT);
+        assertThat(token.get().role()).isEqualTo("RIDER");
+    }
+
+    @Test
+    void rejectsATokenSignedWithAnotherKey() {
+        verifier = staticKeyVerifier();
+        Instant now = Instant.now();
+
+        assertThat(verifier.verify(token(rsaKeyPair().getPrivate(), null, now, now.plusSeconds(600)))).isEmpty();
+    }
+
+    @Test
+    void rejectsATamperedToken() {
+        verifier = staticKeyVerifier();
+        Instant now = Instant.now();
+        String token = token(keys.getPrivate(), null, now, now.plusSeconds(600));
+        String[] parts = token.split("\\.");
+        String forged = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                ("{\"sub\":\"9000000002\",\"role\":\"ADMIN\",\"iat\":" + now.getEpochSecond()
+                        + ",\"exp\":" + now.plusSeconds(600).getEpochSecond() + "}").getBytes(StandardCharsets.UTF_8));
+
+        assertThat(verifier.verify(parts[0] + "." + forged + "." + parts[2])).isEmpty();
+    }
+
+    @Test
+    void rejectsAnExpiredToken() {
+        verifier = staticKeyVerifier();
+        Instant now = Instant.now();
+
+        assertThat(verifier.verify(token(keys.getPrivate(), null, now.minusSeconds(660), now.minusSeconds(60))))
+                .isEmpty();
+    }
+
+    @Test
+    void rejectsATokenWithoutIssuedAt() {
+        verifier = staticKeyVerifier();
+
+        assertThat(verifier.verify(token(keys.getPrivate(), null, null, Instant.now().plusSeconds(600)))).isEmpty();
+    }
+
+    @Test
+    void repeatVerificationWithinTheTokenLifetimeIsACacheHit() {
+        verifier = staticKeyVerifier();
+        Instant now = Instant.now();
+        String token = token(keys.getPrivate(), null, now, now.plusSeconds(600));
+
+        VerifiedToken first = verifier.verify(token).orElseThrow();
+        VerifiedToken second = verifier.verify(token).orElseThrow();
+
+        assertThat(second).isSameAs(first);
+        assertThat(cacheGets("hit")).isEqualTo(1);
+        assertThat(cacheGets("miss")).isEqualTo(1);
+    }
+
+    @Test
+    void cachedTokenIsStillCheckedForRevocation() throws Exception {
+        verifier = staticKeyVerifier();
+        Instant now = Instant.now();
+        String token = token(keys.getPrivate(), null, now.minusSeconds(5), now.plusSeconds(600));
+        assertThat(verifier.verify(token)).isPresent();
+
+        denylist.onRevocation(objectMapper.writeValueAsString(
+                new TokenRevocation(null, SUBJECT, now.getEpochSecond(), now.plusSeconds(600).getEpochSecond())));
+
+        assertThat(verifier.verify(token)).isEmpty();
+        assertThat(cacheGets("hit")).isEqualTo(1);
+    }
+
+    @Test
+    void unknownKidTriggersAJwksRefresh() throws Exception {
+        AtomicReference<String> jwks = new AtomicReference<>();
+        jwksServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        jwksServer.createContext("/.well-known/jwks.json", exchange -> {
+            String body = jwks.get();
+            if (body == null) {
+                exchange.sendResponseHeaders(404, -1);
+            } else {
+                byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, bytes.length);
+                exchange.getResponseBody().write(bytes);
+            }
+            exchange.close();
+        });
+        jwksServer.start();
+        verifier = new JwtVerifier(new JwtProps(null, 1_000,
+                "http://localhost:" + jwksServer.getAddress().getPort() + "/.well-known/jwks.json",
+                Duration.ofHours(1), Duration.ofSeconds(30)), registry, denylist);
+        verifier.init();
+        // Let the startup refresh find nothing, so only the unknown kid can load the key
+        awaitRefreshes("failed");
+
+        jwks.set(jwkSet("k2", (RSAPublicKey) keys.getPublic()));
+        Instant now = Instant.now();
+        String token = token(keys.getPrivate(), "k2", now, now.plusSeconds(600));
+
+        assertThat(verifier.verify(token)).isEmpty();
+        awaitRefreshes("updated");
+        assertThat(verifier.verify(token)).isPresent();
+    }
+
+    private JwtVerifier staticKeyVerifier() {
+        String publicKey = Base64.getEncoder().encodeToString(keys.getPublic().getEncoded());
+        JwtVerifier jwtVerifier = new JwtVerifier(new JwtProps(publicKey, 1_000, null, Duration.ofMinutes(5),
+                Duration.ofSeconds(30)), registry, denylist);
+        jwtVerifier.init();
+        return jwtVerifier;
+    }
+
+    private double cacheGets(String result) {
+        return registry.get("cache.gets").tag("cache", "gateway.jwt.verified").tag("result", result)
+                .functionCounter().count();
+    }
+
+    private void awaitRefreshes(String result) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (registry.find("gateway.jwt.jwks.refresh").tag("result", result).counter() == null) {
+            assertThat(System.nanoTime()).as("JWK set refresh with result " + result).isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private static String token(PrivateKey key, String kid, Instant issuedAt, Instant expiresAt) {
+        return Jwts.builder()
+                .header().keyId(kid).and()
+                .subject(SUBJECT)
+                .claim("role", "RIDER")
+                .id("jti-" + System.nanoTime())
+                .issuedAt(issuedAt == null ? null : Date.from(issuedAt))
+                .expiration(Date.from(expiresAt))
+                .signWith(key)
+                .compact();
+    }
+
+    private static String jwkSet(String kid, RSAPublicKey key) {
+        return "{\"keys\":[{\"kty\":\"RSA\",\"kid\":\"" + kid + "\",\"n\":\"" + base64Url(key.getModulus())
+                + "\",\"e\":\"" + base64Url(key.getPublicExponent()) + "\"}]}";
+    }
+
+    private static String base64Url(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        if (bytes.length > 1 && bytes[0] == 0) {
+            bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static KeyPair rsaKeyPair() {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            return generator.generateKeyPair();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
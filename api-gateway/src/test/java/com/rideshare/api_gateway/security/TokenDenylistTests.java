@@ -0,0 +1,139 @@
+package com.rideshare.api_gateway.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rideshare.api_gateway.security.JwtVerifier.VerifiedToken;
+import com.rideshare.api_gateway.security.TokenDenylist.RevocationProps;
+import com.rideshare.api_gateway.security.TokenDenylist.TokenRevocation;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives the denylist through its subscription handler with a fake clock; no broker involved.
+ * Times in the wire format are epoch seconds.
+ */
+class TokenDenylistTests {
+
+    private static final long NOW = 1_700_000_000L;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicLong clockMillis = new AtomicLong(NOW * 1000);
+    private final AtomicReference<Consumer<String>> handler = new AtomicReference<>();
+    private final AtomicBoolean subscriptionClosed = new AtomicBoolean();
+    private MeterRegistry registry;
+    private TokenDenylist denylist;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        RevocationProps props = new RevocationProps("token-revocations", Duration.ofHours(1), 1_000, 0.001,
+                Duration.ofMinutes(1));
+        denylist = new TokenDenylist(objectMapper, props, registry, h -> {
+            handler.set(h);
+            return () -> subscriptionClosed.set(true);
+        }, clockMillis::get);
+        denylist.start();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        denylist.shutdown();
+    }
+
+    @Test
+    void revokedJtiBlocksOnlyThatToken() throws Exception {
+        deliver(new TokenRevocation("jti-1", "9000000001", 0, NOW + 600));
+
+        assertThat(denylist.isRevoked(token("9000000001", "jti-1", NOW - 60))).isTrue();
+        assertThat(denylist.isRevoked(token("9000000001", "jti-2", NOW - 60))).isFalse();
+        assertThat(registry.get("gateway.jwt.revoked").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void subjectRevocationBlocksTokensIssuedBeforeTheCutoff() throws Exception {
+        deliver(new TokenRevocation(null, "9000000001", NOW, NOW + 3600));
+
+        assertThat(denylist.isRevoked(token("9000000001", "jti-1", NOW - 1))).isTrue();
+        // A login in or after the cutoff second is not affected
+        assertThat(denylist.isRevoked(token("9000000001", "jti-2", NOW))).isFalse();
+        assertThat(denylist.isRevoked(token("9000000002", "jti-3", NOW - 1))).isFalse();
+    }
+
+    @Test
+    void subjectRevocationsMergeToTheLatestCutoff() throws Exception {
+        deliver(new TokenRevocation(null, "9000000001", NOW + 10, NOW + 3600));
+        deliver(new TokenRevocation(null, "9000000001", NOW, NOW + 1800));
+
+        assertThat(denylist.isRevoked(token("9000000001", "jti-1", NOW + 5))).isTrue();
+
+        // The earlier expiry does not shorten the merged entry
+        clockMillis.set((NOW + 1900) * 1000);
+        denylist.prune();
+        assertThat(denylist.isRevoked(token("9000000001", "jti-1", NOW + 5))).isTrue();
+    }
+
+    @Test
+    void expiredAndUnreadableRevocationsAreSkipped() throws Exception {
+        deliver(new TokenRevocation("jti-1", null, 0, NOW));
+        handler.get().accept("{not json");
+
+        assertThat(registry.get("gateway.jwt.revocations.received").counter().count()).isZero();
+        assertThat(registry.get("gateway.jwt.revocations.size").gauge().value()).isZero();
+        assertThat(denylist.isRevoked(token("9000000001", "jti-1", NOW - 60))).isFalse();
+    }
+
+    @Test
+    void pruneDropsExpiredEntriesAndRebuildsTheFilter() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            deliver(new TokenRevocation("short-" + i, null, 0, NOW + 60));
+        }
+        deliver(new TokenRevocation("long", null, 0, NOW + 3600));
+        deliver(new TokenRevocation(null, "9000000001", NOW, NOW + 3600));
+        double fullFpp = registry.get("gateway.jwt.revocations.filter.fpp").gauge().value();
+
+        clockMillis.set((NOW + 60) * 1000);
+        denylist.prune();
+
+        assertThat(registry.get("gateway.jwt.revocations.size").gauge().value()).isEqualTo(2);
+        assertThat(registry.get("gateway.jwt.revocations.filter.fpp").gauge().value()).isLessThan(fullFpp);
+        assertThat(denylist.isRevoked(token("9000000002", "short-0", NOW - 60))).isFalse();
+        assertThat(denylist.isRevoked(token("9000000002", "long", NOW - 60))).isTrue();
+        assertThat(denylist.isRevoked(token("9000000001", "other", NOW - 60))).isTrue();
+
+        // Revocations arriving after the rebuild land in the new filter
+        deliver(new TokenRevocation("later", null, 0, NOW + 3600));
+        assertThat(denylist.isRevoked(token("9000000002", "later", NOW))).isTrue();
+
+        clockMillis.set((NOW + 3600) * 1000);
+        denylist.prune();
+        assertThat(registry.get("gateway.jwt.revocations.size").gauge().value()).isZero();
+        assertThat(registry.get("gateway.jwt.revocations.filter.fpp").gauge().value()).isZero();
+    }
+
+    @Test
+    void shutdownClosesTheSubscription() throws Exception {
+        denylist.shutdown();
+
+        assertThat(subscriptionClosed).isTrue();
+    }
+
+    private void deliver(TokenRevocation revocation) throws Exception {
+        handler.get().accept(objectMapper.writeValueAsString(revocation));
+    }
+
+    private static VerifiedToken token(String subject, String tokenId, long issuedAt) {
+        return new VerifiedToken(subject, "RIDER", tokenId, Instant.ofEpochSecond(issuedAt),
+                Instant.ofEpochSecond(issuedAt + 3600));
+    }
+}
@@ -0,0 +1,35 @@
+package com.rideshare.api_gateway.traffic;
+
+import com.rideshare.api_gateway.traffic.HeavyHitters.Dimension;
+import com.rideshare.api_gateway.traffic.HeavyHitters.Entry;
+import com.rideshare.api_gateway.traffic.HeavyHitters.HeavyHitterProps;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * What the actuator endpoint reveals; the counting itself is covered by HeavyHittersTests.
+ */
+class HeavyHittersEndpointTests {
+
+    private final HeavyHitters heavyHitters = new HeavyHitters(
+            new HeavyHitterProps(true, Duration.ofMinutes(1), 2, 0.002, 0.99, 3, 100));
+    private final HeavyHittersEndpoint endpoint = new HeavyHittersEndpoint(heavyHitters);
+
+    @Test
+    void subjectsAreMaskedToTheirLastFourCharacters() {
+        heavyHitters.record(Dimension.SUBJECT, "9000000001");
+        heavyHitters.record(Dimension.PATH, "/api/users/profile/me");
+
+        assertThat(endpoint.dimension(Dimension.SUBJECT)).containsExactly(new Entry("******0001", 1));
+        assertThat(endpoint.all().get(Dimension.SUBJECT)).containsExactly(new Entry("******0001", 1));
+        assertThat(endpoint.dimension(Dimension.PATH)).containsExactly(new Entry("/api/users/profile/me", 1));
+    }
+
+    @Test
+    void shortSubjectsAreMaskedEntirely() {
+        assertThat(HeavyHittersEndpoint.maskSubject("123")).isEqualTo("****");
+    }
+}
@@ -0,0 +1,105 @@
+package com.rideshare.api_gateway.traffic;
+
+import com.rideshare.api_gateway.traffic.HeavyHitters.Dimension;
+import com.rideshare.api_gateway.traffic.HeavyHitters.Entry;
+import com.rideshare.api_gateway.traffic.HeavyHitters.HeavyHitterProps;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Top-3 trackers over a two-slice window, rotated by hand. Counts are small enough that the sketch
+ * estimates are exact.
+ */
+class HeavyHittersTests {
+
+    private final HeavyHitters heavyHitters = new HeavyHitters(
+            new HeavyHitterProps(true, Duration.ofMinutes(1), 2, 0.002, 0.99, 3, 100));
+
+    @Test
+    void topKeysAreOrderedByCount() {
+        record("/a", 50);
+        record("/b", 40);
+        record("/c", 30);
+        record("/d", 20);
+
+        assertThat(heavyHitters.top(Dimension.PATH)).containsExactly(
+                new Entry("/a", 50), new Entry("/b", 40), new Entry("/c", 30));
+    }
+
+    @Test
+    void interleavedRequestsKeepExactCounts() {
+        for (int i = 0; i < 1_000; i++) {
+            heavyHitters.record(Dimension.PATH, "/a");
+            if (i % 2 == 0) {
+                heavyHitters.record(Dimension.PATH, "/b");
+            }
+            if (i % 10 == 0) {
+                heavyHitters.record(Dimension.PATH, "/c");
+            }
+        }
+
+        assertThat(heavyHitters.top(Dimension.PATH)).containsExactly(
+                new Entry("/a", 1_000), new Entry("/b", 500), new Entry("/c", 100));
+    }
+
+    @Test
+    void aKeyThatOvertakesTheSmallestEvictsIt() {
+        record("/a", 50);
+        record("/b", 40);
+        record("/c", 30);
+
+        record("/e", 35);
+
+        assertThat(heavyHitters.top(Dimension.PATH)).containsExactly(
+                new Entry("/a", 50), new Entry("/b", 40), new Entry("/e", 35));
+    }
+
+    @Test
+    void countsAgeOutWithTheirSlice() {
+        record("/a", 5);
+        heavyHitters.rotate();
+        record("/b", 3);
+
+        assertThat(heavyHitters.top(Dimension.PATH)).containsExactly(new Entry("/a", 5), new Entry("/b", 3));
+
+        heavyHitters.rotate();
+        assertThat(heavyHitters.top(Dimension.PATH)).containsExactly(new Entry("/b", 3));
+        assertThat(heavyHitters.estimate(Dimension.PATH, "/a")).isZero();
+
+        // A forgotten key can come back
+        record("/a", 4);
+        assertThat(heavyHitters.top(Dimension.PATH)).containsExactly(new Entry("/a", 4), new Entry("/b", 3));
+    }
+
+    @Test
+    void clientsAreCountedByAddressAndListedAsText() {
+        InetAddress client = address("10.0.0.1");
+        for (int i = 0; i < 100; i++) {
+            heavyHitters.record(client);
+        }
+        heavyHitters.record(address("2001:db8::1"));
+
+        assertThat(heavyHitters.isHeavy(client)).isTrue();
+        assertThat(heavyHitters.isHeavy(address("10.0.0.2"))).isFalse();
+        assertThat(heavyHitters.top(Dimension.CLIENT_IP)).containsExactly(
+                new Entry("10.0.0.1", 100), new Entry("2001:db8:0:0:0:0:0:1", 1));
+        assertThatThrownBy(() -> heavyHitters.isHeavy(Dimension.CLIENT_IP, "10.0.0.1"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private void record(String path, int times) {
+        for (int i = 0; i < times; i++) {
+            heavyHitters.record(Dimension.PATH, path);
+        }
+    }
+
+    private static InetAddress address(String literal) {
+        return new InetSocketAddress(literal, 0).getAddress();
+    }
+}
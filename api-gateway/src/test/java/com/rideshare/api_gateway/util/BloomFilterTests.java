@@ -0,0 +1,66 @@
+package com.rideshare.api_gateway.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BloomFilterTests {
+
+    @Test
+    void neverReportsAnInsertedValueAsAbsent() {
+        BloomFilter filter = BloomFilter.create(10_000, 0.001);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put(tokenId(i));
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(filter.mightContain(tokenId(i))).as(tokenId(i)).isTrue();
+        }
+    }
+
+    @Test
+    void falsePositiveRateStaysNearTheTargetAtCapacity() {
+        BloomFilter filter = BloomFilter.create(10_000, 0.001);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put(tokenId(i));
+        }
+        int falsePositives = 0;
+        int probes = 200_000;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain(tokenId(1_000_000 + i))) {
+                falsePositives++;
+            }
+        }
+        assertThat((double) falsePositives / probes).isLessThan(0.002);
+        assertThat(filter.expectedFalsePositiveRate()).isBetween(0.0005, 0.002);
+    }
+
+    @Test
+    void sizesFromExpectedInsertionsAndRate() {
+        BloomFilter filter = BloomFilter.create(100_000, 0.001);
+        // m = -n ln p / ln^2 2 ~ 14.38 bits per element, k = m/n ln 2 ~ 10
+        assertThat(filter.bitSize()).isBetween(1_437_700L, 1_437_800L);
+        assertThat(filter.bitSize() % 64).isZero();
+        assertThat(filter.hashCount()).isEqualTo(10);
+    }
+
+    @Test
+    void rejectsRatesOutsideZeroToOne() {
+        assertThatThrownBy(() -> BloomFilter.create(100, 0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> BloomFilter.create(100, 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void seedsGiveIndependentHashes() {
+        String value = tokenId(1);
+        assertThat(Hashing.hash64(value, 1)).isNotEqualTo(Hashing.hash64(value, 2));
+        assertThat(Hashing.hash64(value, 1)).isEqualTo(Hashing.hash64(new StringBuilder(value), 1));
+    }
+
+    /** Deterministic jti-shaped values. */
+    private static String tokenId(int i) {
+        return new UUID(0x5EED_0000_0000_0000L + i, ~(long) i).toString();
+    }
+}
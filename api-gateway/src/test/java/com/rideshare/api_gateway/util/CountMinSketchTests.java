@@ -0,0 +1,86 @@
+package com.rideshare.api_gateway.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CountMinSketchTests {
+
+    @Test
+    void sizesFromErrorAndConfidence() {
+        CountMinSketch sketch = CountMinSketch.create(0.002, 0.99);
+        // width = e / 0.002 ~ 1360, rounded up to a power of two; depth = ln(1 / 0.01) ~ 4.6
+        assertThat(sketch.width()).isEqualTo(2048);
+        assertThat(sketch.depth()).isEqualTo(5);
+        assertThatThrownBy(() -> CountMinSketch.create(0, 0.99)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CountMinSketch.create(0.01, 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void neverUndercountsAndRarelyOvercountsBeyondTheBound() {
+        double epsilon = 0.01;
+        CountMinSketch sketch = CountMinSketch.create(epsilon, 0.99);
+        int keys = 5_000;
+        int total = 200_000;
+        long[] actual = new long[keys];
+        Random random = new Random(42);
+        for (int i = 0; i < total; i++) {
+            // Skewed: low keys are far more frequent
+            int key = (int) (keys * Math.pow(random.nextDouble(), 3));
+            actual[key]++;
+            sketch.add(CountMinSketch.hash(key(key)));
+        }
+
+        int beyondBound = 0;
+        for (int key = 0; key < keys; key++) {
+            long estimate = sketch.estimate(CountMinSketch.hash(key(key)));
+            assertThat(estimate).as(key(key)).isGreaterThanOrEqualTo(actual[key]);
+            if (estimate - actual[key] > epsilon * total) {
+                beyondBound++;
+            }
+        }
+        assertThat(beyondBound).isLessThanOrEqualTo(keys / 100);
+    }
+
+    @Test
+    void subtractingAnExpiredSliceRemovesExactlyItsCounts() {
+        CountMinSketch window = CountMinSketch.create(0.01, 0.99);
+        CountMinSketch older = window.emptyCopy();
+        CountMinSketch newer = window.emptyCopy();
+        for (int i = 0; i < 30; i++) {
+            add(window, older, "10.0.0.1");
+        }
+        for (int i = 0; i < 10; i++) {
+            add(window, older, "10.0.0.2");
+            add(window, newer, "10.0.0.2");
+        }
+
+        window.subtract(older);
+        older.clear();
+
+        assertThat(window.estimate(CountMinSketch.hash("10.0.0.1"))).isZero();
+        assertThat(window.estimate(CountMinSketch.hash("10.0.0.2"))).isEqualTo(10);
+        assertThat(older.estimate(CountMinSketch.hash("10.0.0.2"))).isZero();
+    }
+
+    @Test
+    void subtractRejectsADifferentShape() {
+        CountMinSketch sketch = CountMinSketch.create(0.01, 0.99);
+
+        assertThatThrownBy(() -> sketch.subtract(CountMinSketch.create(0.001, 0.99)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static void add(CountMinSketch window, CountMinSketch slice, String key) {
+        long hash = CountMinSketch.hash(key);
+        window.add(hash);
+        slice.add(hash);
+    }
+
+    private static String key(int i) {
+        return "/api/users/" + i;
+    }
+}
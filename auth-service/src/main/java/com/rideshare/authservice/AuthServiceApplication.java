@@ -1,6 +1,10 @@
 package com.rideshare.authservice;
 
+import com.rideshare.authservice.messaging.NotificationPublisher;
+import com.rideshare.authservice.messaging.RevocationPublisher;
 import com.rideshare.authservice.security.JwtUtil;
+import com.rideshare.authservice.service.RefreshTokenService;
+import com.rideshare.authservice.service.RegisteredNumberFilter;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
@@ -10,7 +14,13 @@ import org.springframework.boot.context.properties.EnableConfigurationProperties
  * Handles OTP login and JWT issuance for RideShare.
  */
 @SpringBootApplication
-@EnableConfigurationProperties(JwtUtil.JwtProps.class)
+@EnableConfigurationProperties({
+        JwtUtil.JwtProps.class,
+        NotificationPublisher.PublisherProps.class,
+        RegisteredNumberFilter.AdmissionProps.class,
+        RefreshTokenService.RefreshProps.class,
+        RevocationPublisher.RevocationProps.class
+})
 public class AuthServiceApplication {
     public static void main(String[] args) {
         SpringApplication.run(AuthServiceApplication.class, args);
@@ -0,0 +1,34 @@
+package com.rideshare.authservice.config;
+
+import com.rideshare.datasource.ReplicaRoutingConfig;
+import com.rideshare.datasource.sharding.Resharder;
+import com.rideshare.datasource.sharding.ShardRouter;
+import com.rideshare.datasource.sharding.ShardedTable;
+import com.rideshare.datasource.sharding.ShardingConfig;
+import com.rideshare.datasource.sharding.ShardingConfig.ShardProps;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * Read-replica routing and hash sharding from the datasource-sharding module, plus the table
+ * auth-service moves between shards when resharding.
+ */
+@Configuration
+@Import({ReplicaRoutingConfig.class, ShardingConfig.class})
+public class DataSourceConfig {
+
+    // id is an identity column: the new owner assigns its own, rows are only ever looked up by number
+    static final ShardedTable AUTH_USERS = new ShardedTable("auth_users", "mobile_number", "id",
+            List.of("mobile_number", "role", "verified"));
+
+    @Bean
+    public Resharder authUserResharder(ShardRouter shardRouter, DataSource dataSource, ShardProps props,
+                                       MeterRegistry registry) {
+        return new Resharder(shardRouter, dataSource, AUTH_USERS, props.previousRing(), props.migrationBatchSize(), registry);
+    }
+}
@@ -10,12 +10,15 @@ import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.listener.CommonErrorHandler;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.util.backoff.FixedBackOff;
 
 import java.util.HashMap;
 import java.util.Map;
 
 /**
- * Infra beans for Redis and Kafka producer.
+ * Infra beans for Redis, Kafka producer and the Kafka listener error handling.
  */
 @Configuration
 public class InfraConfig {
@@ -23,6 +26,25 @@ public class InfraConfig {
     @Value("${spring.kafka.bootstrap-servers:localhost:9092}")
     private String kafkaBootstrap;
 
+    @Value("${spring.kafka.producer.acks:all}")
+    private String acks;
+
+    @Value("${spring.kafka.producer.compression-type:lz4}")
+    private String compressionType;
+
+    @Value("${spring.kafka.producer.batch-size:65536}")
+    private int batchSize;
+
+    @Value("${spring.kafka.producer.properties.linger.ms:20}")
+    private int lingerMs;
+
+    @Value("${spring.kafka.producer.properties.max.block.ms:5000}")
+    private int maxBlockMs;
+
+    // At least linger.ms + request.timeout.ms, or KafkaProducer rejects the config
+    @Value("${spring.kafka.producer.properties.delivery.timeout.ms:35000}")
+    private int deliveryTimeoutMs;
+
     @Bean
     public LettuceConnectionFactory redisConnectionFactory(
             @Value("${spring.data.redis.host:localhost}") String redisHost,
@@ -41,7 +63,16 @@ public class InfraConfig {
         props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaBootstrap);
         props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
         props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        // Add more producer config (retries, acks) as needed
+        // Durable, idempotent delivery
+        props.put(ProducerConfig.ACKS_CONFIG, acks);
+        props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        // Batch small OTP events together instead of one request per record
+        props.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        props.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        props.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType);
+        // Fail fast when the broker is unreachable so NotificationPublisher can retry later
+        props.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, maxBlockMs);
+        props.put(ProducerConfig.DELIVERY_TIMEOUT_MS_CONFIG, deliveryTimeoutMs);
         return new DefaultKafkaProducerFactory<>(props);
     }
 
@@ -49,4 +80,10 @@ public class InfraConfig {
     public KafkaTemplate<String, String> kafkaTemplate() {
         return new KafkaTemplate<>(producerFactory());
     }
+
+    // auth_users replication must not skip events: retry a failed batch every second until it applies
+    @Bean
+    public CommonErrorHandler kafkaErrorHandler() {
+        return new DefaultErrorHandler(new FixedBackOff(1000L, FixedBackOff.UNLIMITED_ATTEMPTS));
+    }
 }
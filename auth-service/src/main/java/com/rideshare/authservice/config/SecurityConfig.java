@@ -7,7 +7,7 @@ import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.config.http.SessionCreationPolicy;
 
 /**
- * Security configuration for AuthService: allow /api/auth/** publicly, stateless.
+ * Security configuration for AuthService: allow /api/auth/** and the JWK set publicly, stateless.
  */
 @Configuration
 public class SecurityConfig {
@@ -17,7 +17,7 @@ public class SecurityConfig {
         http
                 .csrf(csrf -> csrf.disable())
                 .authorizeHttpRequests(auth -> auth
-                        .requestMatchers("/api/auth/**", "/actuator/health").permitAll()
+                        .requestMatchers("/api/auth/**", "/.well-known/jwks.json", "/actuator/health").permitAll()
                         .anyRequest().authenticated()
                 )
                 .sessionManagement(sm -> sm.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
@@ -3,10 +3,13 @@ package com.rideshare.authservice.controller;
 import com.rideshare.authservice.dto.JwtResponse;
 import com.rideshare.authservice.dto.OtpRequest;
 import com.rideshare.authservice.dto.OtpVerifyRequest;
+import com.rideshare.authservice.dto.RefreshRequest;
 import com.rideshare.authservice.service.AuthService;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -18,6 +21,7 @@ import org.springframework.web.bind.annotation.*;
 public class AuthController {
 
     private static final Logger log = LoggerFactory.getLogger(AuthController.class);
+    private static final String BEARER = "Bearer ";
     private final AuthService authService;
 
     public AuthController(AuthService authService) {
@@ -42,4 +46,29 @@ public class AuthController {
         }
         return ResponseEntity.ok(response);
     }
+
+    /** Exchange a refresh token for a new JWT and the next refresh token */
+    @PostMapping("/refresh")
+    public ResponseEntity<JwtResponse> refresh(@RequestBody RefreshRequest req) {
+        JwtResponse response = authService.refresh(req);
+        if (response.token() == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+        }
+        return ResponseEntity.ok(response);
+    }
+
+    /** Revoke the caller's access and refresh token; allSessions=true logs out every device */
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+                                       @RequestBody(required = false) RefreshRequest req,
+                                       @RequestParam(defaultValue = "false") boolean allSessions) {
+        if (authorization == null || !authorization.startsWith(BEARER)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        String refreshToken = req == null ? null : req.refreshToken();
+        if (!authService.logout(authorization.substring(BEARER.length()).trim(), refreshToken, allSessions)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return ResponseEntity.noContent().build();
+    }
 }
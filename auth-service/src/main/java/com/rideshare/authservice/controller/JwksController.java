@@ -0,0 +1,34 @@
+package com.rideshare.authservice.controller;
+
+import com.rideshare.authservice.security.JwtUtil;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * Publishes the token verification keys. Verifiers fetch the set once, cache it for
+ * jwks-max-age and revalidate with If-None-Match (answered 304 while no key changed).
+ */
+@RestController
+public class JwksController {
+
+    private final JwtUtil jwtUtil;
+    private final JwtUtil.JwtProps jwtProps;
+
+    public JwksController(JwtUtil jwtUtil, JwtUtil.JwtProps jwtProps) {
+        this.jwtUtil = jwtUtil;
+        this.jwtProps = jwtProps;
+    }
+
+    @GetMapping(value = "/.well-known/jwks.json", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> jwks() {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(jwtProps.jwksMaxAge()).cachePublic())
+                .eTag(jwtUtil.jwksEtag())
+                .body(jwtUtil.jwks());
+    }
+}
@@ -0,0 +1,27 @@
+package com.rideshare.authservice.controller;
+
+import com.rideshare.authservice.service.AuthService;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+/**
+ * /actuator/sessions/{mobileNumber}: DELETE revokes every access and refresh token of the user,
+ * e.g. when an account is blocked. Gateways reject the revoked tokens within seconds.
+ */
+@Component
+@Endpoint(id = "sessions")
+public class SessionsEndpoint {
+
+    private final AuthService authService;
+
+    public SessionsEndpoint(AuthService authService) {
+        this.authService = authService;
+    }
+
+    @DeleteOperation
+    public void revoke(@Selector String mobileNumber) {
+        authService.revokeAllSessions(mobileNumber);
+    }
+}
@@ -2,5 +2,11 @@ package com.rideshare.authservice.dto;
 
 public record JwtResponse(
         String token,
+        String refreshToken,
         String message)
-{}
+{
+    /** Response without tokens, for failed logins and refreshes. */
+    public JwtResponse(String token, String message) {
+        this(token, null, message);
+    }
+}
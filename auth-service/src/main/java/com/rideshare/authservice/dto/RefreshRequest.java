@@ -0,0 +1,3 @@
+package com.rideshare.authservice.dto;
+
+public record RefreshRequest(String refreshToken) {}
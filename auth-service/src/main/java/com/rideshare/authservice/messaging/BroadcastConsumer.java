@@ -0,0 +1,110 @@
+package com.rideshare.authservice.messaging;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Reads every partition of a topic on every instance, for state each replica must hold in full.
+ * Partitions are assigned manually and no group.id is set, so nothing is committed and no consumer
+ * group is left on the broker; each start re-reads from startAt (or the end, for partitions with
+ * nothing newer).
+ */
+public final class BroadcastConsumer implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(BroadcastConsumer.class);
+    private static final Duration POLL_TIMEOUT = Duration.ofSeconds(1);
+
+    private final String topic;
+    private final Instant startAt;
+    private final Consumer<String> handler;
+    private final KafkaConsumer<String, String> consumer;
+    private final Thread poller;
+    private volatile boolean running = true;
+
+    /**
+     * @param consumerConfig base consumer configuration; group.id and auto-commit are overridden
+     */
+    public BroadcastConsumer(String name, Map<String, Object> consumerConfig, String topic, Instant startAt,
+                             Consumer<String> handler) {
+        this.topic = topic;
+        this.startAt = startAt;
+        this.handler = handler;
+        Map<String, Object> config = new HashMap<>(consumerConfig);
+        config.remove(ConsumerConfig.GROUP_ID_CONFIG);
+        config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        config.put(ConsumerConfig.CLIENT_ID_CONFIG, name);
+        this.consumer = new KafkaConsumer<>(config, new StringDeserializer(), new StringDeserializer());
+        this.poller = Thread.ofPlatform().name(name).daemon().unstarted(this::pollLoop);
+    }
+
+    public void start() {
+        poller.start();
+    }
+
+    private void pollLoop() {
+        try {
+            assignAndSeek();
+            while (running) {
+                for (ConsumerRecord<String, String> record : consumer.poll(POLL_TIMEOUT)) {
+                    try {
+                        handler.accept(record.value());
+                    } catch (RuntimeException e) {
+                        log.warn("Skipping {} record at {}-{}@{}: {}",
+                                topic, record.topic(), record.partition(), record.offset(), e.getMessage());
+                    }
+                }
+            }
+        } catch (WakeupException e) {
+            // close()
+        } catch (Exception e) {
+            log.error("Broadcast consumer for {} stopped", topic, e);
+        } finally {
+            consumer.close();
+        }
+    }
+
+    private void assignAndSeek() {
+        List<TopicPartition> partitions = new ArrayList<>();
+        for (PartitionInfo info : consumer.partitionsFor(topic)) {
+            partitions.add(new TopicPartition(info.topic(), info.partition()));
+        }
+        consumer.assign(partitions);
+        Map<TopicPartition, Long> timestamps = new HashMap<>();
+        partitions.forEach(partition -> timestamps.put(partition, startAt.toEpochMilli()));
+        Map<TopicPartition, OffsetAndTimestamp> offsets = consumer.offsetsForTimes(timestamps);
+        List<TopicPartition> atEnd = new ArrayList<>();
+        for (TopicPartition partition : partitions) {
+            OffsetAndTimestamp offset = offsets.get(partition);
+            if (offset != null) {
+                consumer.seek(partition, offset.offset());
+            } else {
+                atEnd.add(partition);
+            }
+        }
+        consumer.seekToEnd(atEnd);
+        log.info("Reading all {} partitions of {} from {}", partitions.size(), topic, startAt);
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        consumer.wakeup();
+        poller.join(POLL_TIMEOUT.multipliedBy(5).toMillis());
+    }
+}
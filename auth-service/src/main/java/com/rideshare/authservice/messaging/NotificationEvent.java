@@ -0,0 +1,11 @@
+package com.rideshare.authservice.messaging;
+
+/**
+ * A pending Kafka record for NotificationService.
+ */
+public record NotificationEvent(
+        long createdAtMillis,
+        String topic,
+        String key,
+        String payload)
+{}
@@ -0,0 +1,285 @@
+package com.rideshare.authservice.messaging;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded, batched publisher for notification events.
+ * Callers never block and never do I/O: events go into a fixed-size queue drained by a single
+ * thread in size/time-bounded batches. When the queue is full or the broker rejects a record, the
+ * event is handed to a bounded spill buffer, and the drainer thread appends that buffer to a local
+ * spill log. Every replay-interval, and once at startup, the spill log is moved back into the queue;
+ * events older than max-replay-age are dropped there. Events that find the spill buffer full are
+ * dropped and counted.
+ * <p>
+ * Events still queued at shutdown are spilled too, so they are delivered after the next start if
+ * they are not too old by then. The spill log holds OTPs in plain text and is created owner-only.
+ */
+@Component
+public class NotificationPublisher {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationPublisher.class);
+    private static final String METRIC = "notification.publisher";
+
+    private final KafkaTemplate<String, String> kafka;
+    private final PublisherProps props;
+    private final LongSupplier clock;
+    private final BlockingQueue<NotificationEvent> queue;
+    private final BlockingQueue<NotificationEvent> toSpill;
+    private final SpillLog spillLog;
+    private final Thread drainer = Thread.ofPlatform().name("notification-publisher").daemon()
+            .unstarted(this::drainLoop);
+    private volatile boolean running = true;
+    private long nextReplayAt;
+
+    private final Counter published;
+    private final Counter failed;
+    private final Counter spilled;
+    private final Counter rejected;
+    private final Counter replayed;
+    private final Counter expired;
+    private final Counter dropped;
+    private final Timer batchTimer;
+    private final DistributionSummary batchSize;
+
+    @Autowired
+    public NotificationPublisher(KafkaTemplate<String, String> kafka, PublisherProps props, MeterRegistry registry) {
+        this(kafka, props, registry, System::currentTimeMillis);
+    }
+
+    NotificationPublisher(KafkaTemplate<String, String> kafka, PublisherProps props, MeterRegistry registry,
+                          LongSupplier clock) {
+        this.kafka = kafka;
+        this.props = props;
+        this.clock = clock;
+        this.queue = new ArrayBlockingQueue<>(props.queueCapacity());
+        this.toSpill = new ArrayBlockingQueue<>(props.spillBufferCapacity());
+        this.spillLog = new SpillLog(Path.of(props.spillFile()));
+
+        Gauge.builder(METRIC + ".queue.size", queue, BlockingQueue::size).register(registry);
+        Gauge.builder(METRIC + ".queue.remaining", queue, BlockingQueue::remainingCapacity).register(registry);
+        Gauge.builder(METRIC + ".spill.buffer.size", toSpill, BlockingQueue::size).register(registry);
+        this.published = counter(registry, "published");
+        this.failed = counter(registry, "failed");
+        this.spilled = counter(registry, "spilled");
+        this.rejected = counter(registry, "rejected");
+        this.replayed = counter(registry, "replayed");
+        this.expired = counter(registry, "expired");
+        this.dropped = counter(registry, "dropped");
+        this.batchTimer = Timer.builder(METRIC + ".batch.duration").register(registry);
+        this.batchSize = DistributionSummary.builder(METRIC + ".batch.size").register(registry);
+    }
+
+    private static Counter counter(MeterRegistry registry, String result) {
+        return Counter.builder(METRIC + ".events").tag("result", result).register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        // Replay what the previous run spilled right away
+        nextReplayAt = clock.getAsLong();
+        drainer.start();
+    }
+
+    /**
+     * Enqueue an event without blocking. Returns false if the queue was full; the event is then
+     * spilled and retried later, or dropped if the spill buffer is full as well.
+     */
+    public boolean publish(String topic, String key, String payload) {
+        NotificationEvent event = new NotificationEvent(clock.getAsLong(), topic, key, payload);
+        if (running && queue.offer(event)) {
+            return true;
+        }
+        rejected.increment();
+        spill(event);
+        return false;
+    }
+
+    private void drainLoop() {
+        List<NotificationEvent> batch = new ArrayList<>(props.batchSize());
+        long lingerNanos = props.lingerTime().toNanos();
+        while (running || !queue.isEmpty()) {
+            try {
+                flushSpillBuffer();
+                if (clock.getAsLong() >= nextReplayAt) {
+                    nextReplayAt = clock.getAsLong() + props.replayInterval().toMillis();
+                    replaySpilled();
+                }
+                NotificationEvent first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+
+                // Fill up to batch-size, waiting at most linger-time from the first event
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < props.batchSize()) {
+                    queue.drainTo(batch, props.batchSize() - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= props.batchSize() || remaining <= 0) break;
+                    NotificationEvent next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                sendBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                batch.forEach(this::spill);
+                return;
+            } catch (Exception e) {
+                log.error("Notification batch of {} failed, spilling", batch.size(), e);
+                batch.forEach(this::spill);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void sendBatch(List<NotificationEvent> batch) throws InterruptedException {
+        batchSize.record(batch.size());
+        long start = System.nanoTime();
+        List<CompletableFuture<?>> futures = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            NotificationEvent event = batch.get(i);
+            try {
+                futures.add(kafka.send(event.topic(), event.key(), event.payload())
+                        .whenComplete((result, ex) -> {
+                            if (ex == null) {
+                                published.increment();
+                            } else {
+                                failed.increment();
+                                spill(event);
+                            }
+                        }));
+            } catch (Exception e) {
+                // Producer could not even buffer the record (e.g. metadata unavailable): spill the rest
+                log.warn("Kafka unavailable, spilling {} notification events", batch.size() - i, e);
+                failed.increment(batch.size() - i);
+                batch.subList(i, batch.size()).forEach(this::spill);
+                break;
+            }
+        }
+        // Wait for acks so a slow broker backs up into the bounded queue instead of the heap
+        try {
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                    .get(props.sendTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException ignored) {
+            // per-record callbacks already account for failures
+        }
+        batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    // Non-blocking: called on request threads and producer callback threads. The drainer writes the file.
+    private void spill(NotificationEvent event) {
+        if (!toSpill.offer(event)) {
+            dropped.increment();
+        }
+    }
+
+    /** Appends everything handed to the spill buffer so far to the spill log. */
+    void flushSpillBuffer() {
+        List<NotificationEvent> events = new ArrayList<>(toSpill.size());
+        toSpill.drainTo(events);
+        writeSpillLog(events);
+    }
+
+    private void writeSpillLog(List<NotificationEvent> events) {
+        if (events.isEmpty()) return;
+        try {
+            spillLog.append(events);
+            spilled.increment(events.size());
+        } catch (IOException e) {
+            dropped.increment(events.size());
+            log.error("Failed to spill {} notification events; they are lost", events.size(), e);
+        }
+    }
+
+    /** Moves spilled events back into the queue, dropping the ones past max-replay-age. */
+    void replaySpilled() {
+        flushSpillBuffer();
+        try {
+            List<NotificationEvent> events = spillLog.drain();
+            if (events.isEmpty()) return;
+
+            long cutoff = clock.getAsLong() - props.maxReplayAge().toMillis();
+            List<NotificationEvent> overflow = new ArrayList<>();
+            int count = 0;
+            int stale = 0;
+            for (NotificationEvent event : events) {
+                if (event.createdAtMillis() < cutoff) {
+                    stale++;
+                } else if (queue.offer(event)) {
+                    count++;
+                } else {
+                    overflow.add(event);
+                }
+            }
+            replayed.increment(count);
+            expired.increment(stale);
+            if (!overflow.isEmpty()) {
+                spillLog.append(overflow);
+            }
+            log.info("Replayed {} spilled notification events, {} expired, {} still pending",
+                    count, stale, overflow.size());
+        } catch (Exception e) {
+            log.error("Failed to replay spilled notification events", e);
+        }
+    }
+
+    int pendingSpills() {
+        return toSpill.size();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        drainer.join(props.sendTimeout().toMillis());
+        List<NotificationEvent> leftover = new ArrayList<>(queue.size() + toSpill.size());
+        queue.drainTo(leftover);
+        toSpill.drainTo(leftover);
+        if (!leftover.isEmpty()) {
+            log.info("Spilling {} undelivered notification events for the next start", leftover.size());
+            writeSpillLog(leftover);
+        }
+    }
+
+    /**
+     * @param spillBufferCapacity events waiting for the drainer to append them to the spill log
+     * @param spillFile           append-only spill log, replayed every replay-interval and at startup
+     */
+    @ConfigurationProperties(prefix = "notification.publisher")
+    public record PublisherProps(
+            @DefaultValue("10000") int queueCapacity,
+            @DefaultValue("500") int batchSize,
+            @DefaultValue("20ms") Duration lingerTime,
+            @DefaultValue("10s") Duration sendTimeout,
+            @DefaultValue("10000") int spillBufferCapacity,
+            @DefaultValue("logs/notification-spill.log") String spillFile,
+            @DefaultValue("30s") Duration replayInterval,
+            // OTPs are useless after their TTL; don't deliver stale ones on replay
+            @DefaultValue("3m") Duration maxReplayAge
+    ) {}
+}
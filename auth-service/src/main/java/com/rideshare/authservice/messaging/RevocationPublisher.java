@@ -0,0 +1,66 @@
+package com.rideshare.authservice.messaging;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Publishes token revocations for the gateways' denylists.
+ * Unlike notifications these are sent synchronously: a logout or block only reports success once
+ * the revocation is acknowledged by the broker, instead of sitting in a spill log that may expire.
+ */
+@Component
+public class RevocationPublisher {
+
+    private static final Logger log = LoggerFactory.getLogger(RevocationPublisher.class);
+
+    private final KafkaTemplate<String, String> kafka;
+    private final ObjectMapper objectMapper;
+    private final RevocationProps props;
+    private final Counter published;
+
+    public RevocationPublisher(KafkaTemplate<String, String> kafka, ObjectMapper objectMapper,
+                               RevocationProps props, MeterRegistry registry) {
+        this.kafka = kafka;
+        this.objectMapper = objectMapper;
+        this.props = props;
+        this.published = Counter.builder("auth.token.revocations").register(registry);
+    }
+
+    public void publish(TokenRevocation revocation) {
+        try {
+            kafka.send(props.topic(), revocation.subject(), objectMapper.writeValueAsString(revocation))
+                    .get(props.sendTimeout().toMillis(), TimeUnit.MILLISECONDS);
+            published.increment();
+            log.info("Published {}", revocation);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while publishing token revocation", e);
+        } catch (JsonProcessingException | ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("Token revocation not acknowledged", e);
+        }
+    }
+
+    /**
+     * @param topic       must be retained for at least the access-token lifetime, so a restarted
+     *                    gateway can replay every revocation that still matters
+     * @param sendTimeout how long a logout waits for the broker
+     */
+    @ConfigurationProperties(prefix = "auth.revocation")
+    public record RevocationProps(
+            @DefaultValue("token-revocations") String topic,
+            @DefaultValue("5s") Duration sendTimeout
+    ) {}
+}
@@ -0,0 +1,92 @@
+package com.rideshare.authservice.messaging;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Append-only local file for events that could not be handed to Kafka.
+ * One event per line: {@code epochMillis \t topic \t key \t payload}. Payloads are compact JSON
+ * (no raw newlines). Replay atomically moves the file aside first, so appends never race a reader.
+ */
+final class SpillLog {
+
+    private static final Logger log = LoggerFactory.getLogger(SpillLog.class);
+
+    private final Path file;
+    private final Path replayFile;
+
+    SpillLog(Path file) {
+        this.file = file;
+        this.replayFile = file.resolveSibling(file.getFileName() + ".replay");
+    }
+
+    synchronized void append(Collection<NotificationEvent> events) throws IOException {
+        if (events.isEmpty()) return;
+        createIfMissing();
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.APPEND, StandardOpenOption.WRITE)) {
+            for (NotificationEvent e : events) {
+                out.write(Long.toString(e.createdAtMillis()));
+                out.write('\t');
+                out.write(e.topic());
+                out.write('\t');
+                out.write(e.key());
+                out.write('\t');
+                out.write(e.payload());
+                out.write('\n');
+            }
+        }
+    }
+
+    /**
+     * Removes and returns everything spilled so far. A replay file left behind by a crash is
+     * picked up first.
+     */
+    List<NotificationEvent> drain() throws IOException {
+        synchronized (this) {
+            if (!Files.exists(replayFile)) {
+                if (!Files.exists(file) || Files.size(file) == 0) {
+                    return List.of();
+                }
+                Files.move(file, replayFile, StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+        List<NotificationEvent> events = new ArrayList<>();
+        for (String line : Files.readAllLines(replayFile, StandardCharsets.UTF_8)) {
+            String[] parts = line.split("\t", 4);
+            if (parts.length != 4) {
+                log.warn("Skipping malformed spill entry ({} chars)", line.length());
+                continue;
+            }
+            events.add(new NotificationEvent(Long.parseLong(parts[0]), parts[1], parts[2], parts[3]));
+        }
+        Files.delete(replayFile);
+        return events;
+    }
+
+    private void createIfMissing() throws IOException {
+        if (Files.exists(file)) return;
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Files.createFile(file);
+        try {
+            // Payloads can carry OTPs: keep the file owner-readable only
+            Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException ignored) {
+            // non-POSIX filesystem
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.rideshare.authservice.messaging;
+
+/**
+ * A revocation on the token-revocations topic (JSON, keyed by subject), read by every gateway.
+ * Either one token by {@code tokenId} (jti), or every token of {@code subject} issued before
+ * {@code issuedBefore}. Times are epoch seconds; {@code expiresAt} is when the last covered token
+ * expires on its own, after which the entry can be forgotten.
+ */
+public record TokenRevocation(
+        String tokenId,
+        String subject,
+        long issuedBefore,
+        long expiresAt)
+{}
@@ -0,0 +1,11 @@
+package com.rideshare.authservice.messaging;
+
+/**
+ * A registration or role change relayed from user-service's outbox (user-events topic, JSON).
+ */
+public record UserEvent(
+        long eventId,
+        String type,
+        String mobileNumber,
+        String role)
+{}
@@ -0,0 +1,116 @@
+package com.rideshare.authservice.messaging;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rideshare.authservice.service.RefreshTokenService;
+import com.rideshare.authservice.service.RegisteredNumberFilter;
+import com.rideshare.datasource.sharding.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps auth_users in step with user-service registrations, from the user-events topic.
+ * Each poll is applied as one JDBC batch upsert per shard. Roles only ever grow, from RIDER or
+ * OWNER to BOTH, so the upsert inserts unknown numbers and otherwise only applies an upgrade to
+ * BOTH: replays, duplicates and out-of-order delivery all leave the same row. Upgrades are also
+ * written into the user's refresh-token families, so the next refresh carries the new role. A failed batch is
+ * retried as a whole (see InfraConfig); unreadable records are logged and skipped.
+ */
+@Component
+public class UserEventConsumer {
+
+    private static final Logger log = LoggerFactory.getLogger(UserEventConsumer.class);
+    private static final String METRIC = "auth.user.events";
+    private static final String BOTH = "BOTH";
+
+    static final String UPSERT_SQL = """
+            insert into auth_users (mobile_number, role, verified)
+            values (?, ?, false)
+            on conflict (mobile_number) do update
+                set role = excluded.role
+                where excluded.role = 'BOTH' and auth_users.role <> 'BOTH'""";
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final ShardRouter shardRouter;
+    private final RegisteredNumberFilter registeredNumbers;
+    private final RefreshTokenService refreshTokens;
+    private final ObjectMapper objectMapper;
+
+    private final Counter applied;
+    private final Counter unreadable;
+
+    public UserEventConsumer(DataSource dataSource, PlatformTransactionManager txManager, ShardRouter shardRouter,
+                             RegisteredNumberFilter registeredNumbers, RefreshTokenService refreshTokens,
+                             ObjectMapper objectMapper, MeterRegistry registry) {
+        this.jdbc = new JdbcTemplate(dataSource);
+        this.tx = new TransactionTemplate(txManager);
+        this.shardRouter = shardRouter;
+        this.registeredNumbers = registeredNumbers;
+        this.refreshTokens = refreshTokens;
+        this.objectMapper = objectMapper;
+        this.applied = Counter.builder(METRIC).tag("result", "applied").register(registry);
+        this.unreadable = Counter.builder(METRIC).tag("result", "unreadable").register(registry);
+    }
+
+    @KafkaListener(topics = "${user-events.topic:user-events}",
+            groupId = "${user-events.group-id:auth-service-user-events}",
+            batch = "true",
+            properties = {"auto.offset.reset=earliest", "max.poll.records=500"})
+    public void onEvents(List<ConsumerRecord<String, String>> records) {
+        // Collapse the poll to one row per number; BOTH wins over anything else
+        Map<String, String> roles = new LinkedHashMap<>();
+        for (ConsumerRecord<String, String> record : records) {
+            UserEvent event = parse(record);
+            if (event != null) {
+                roles.merge(event.mobileNumber(), event.role(), (a, b) -> BOTH.equals(a) ? a : b);
+            }
+        }
+        if (roles.isEmpty()) return;
+
+        Map<String, List<Object[]>> byShard = new LinkedHashMap<>();
+        roles.forEach((mobileNumber, role) -> byShard
+                .computeIfAbsent(shardRouter.ownerForWrite(mobileNumber), s -> new ArrayList<>())
+                .add(new Object[]{mobileNumber, role}));
+        byShard.forEach((shard, rows) -> shardRouter.runOnShard(shard,
+                () -> tx.executeWithoutResult(status -> jdbc.batchUpdate(UPSERT_SQL, rows))));
+
+        roles.keySet().forEach(registeredNumbers::register);
+        roles.forEach((mobileNumber, role) -> {
+            if (BOTH.equals(role)) {
+                refreshTokens.updateRole(mobileNumber, role);
+            }
+        });
+        applied.increment(roles.size());
+        log.debug("Applied {} user events ({} records) to auth_users", roles.size(), records.size());
+    }
+
+    private UserEvent parse(ConsumerRecord<String, String> record) {
+        try {
+            UserEvent event = objectMapper.readValue(record.value(), UserEvent.class);
+            if (event.mobileNumber() == null || event.role() == null) {
+                throw new IllegalArgumentException("mobileNumber and role are required");
+            }
+            return event;
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            unreadable.increment();
+            log.warn("Skipping unreadable user event at {}-{}@{}: {}",
+                    record.topic(), record.partition(), record.offset(), e.getMessage());
+            return null;
+        }
+    }
+}
@@ -1,10 +1,38 @@
 package com.rideshare.authservice.repository;
 
 import com.rideshare.authservice.entity.UserAuth;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface UserAuthRepository extends JpaRepository<UserAuth, Long> {
     Optional<UserAuth> findByMobileNumber(String mobileNumber);
+
+    /** Read-write transaction on purpose: answered by the primary, never by a lagging replica. */
+    @Transactional
+    boolean existsByMobileNumber(String mobileNumber);
+
+    /** Read-write transaction on purpose: login reads the primary, so a just-registered user is always found. */
+    @Transactional
+    @Query("select u from UserAuth u where u.mobileNumber = :mobileNumber")
+    Optional<UserAuth> findOnPrimaryByMobileNumber(@Param("mobileNumber") String mobileNumber);
+
+    /** Sets the verified flag with one keyed UPDATE; returns 0 if it was already set. */
+    @Transactional
+    @Modifying
+    @Query("update UserAuth u set u.verified = true where u.mobileNumber = :mobileNumber and u.verified = false")
+    int markVerified(@Param("mobileNumber") String mobileNumber);
+
+    /** Forward-only scan of every registered number; caller must hold a transaction and close the stream. */
+    @Query("select u.mobileNumber from UserAuth u")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<String> streamAllMobileNumbers();
 }
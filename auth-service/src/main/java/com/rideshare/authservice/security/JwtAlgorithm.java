@@ -0,0 +1,96 @@
+package com.rideshare.authservice.security;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.SignatureAlgorithm;
+
+import java.math.BigInteger;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Token signing algorithms auth-service can be configured with, and how each one's public key
+ * is published as a JWK (RFC 7517/7518, RFC 8037 for Ed25519).
+ * Signing cost differs by roughly an order of magnitude: RS256 needs a 2048-bit modular
+ * exponentiation per token, ES256 and EdDSA a single elliptic-curve multiplication.
+ */
+public enum JwtAlgorithm {
+
+    RS256("RSA", Jwts.SIG.RS256) {
+        @Override
+        void putKeyParams(Map<String, Object> jwk, PublicKey key) {
+            RSAPublicKey rsa = (RSAPublicKey) key;
+            jwk.put("kty", "RSA");
+            jwk.put("n", base64Url(unsigned(rsa.getModulus(), (rsa.getModulus().bitLength() + 7) / 8)));
+            jwk.put("e", base64Url(unsigned(rsa.getPublicExponent(), (rsa.getPublicExponent().bitLength() + 7) / 8)));
+        }
+    },
+
+    ES256("EC", Jwts.SIG.ES256) {
+        @Override
+        void putKeyParams(Map<String, Object> jwk, PublicKey key) {
+            ECPublicKey ec = (ECPublicKey) key;
+            jwk.put("kty", "EC");
+            jwk.put("crv", "P-256");
+            jwk.put("x", base64Url(unsigned(ec.getW().getAffineX(), 32)));
+            jwk.put("y", base64Url(unsigned(ec.getW().getAffineY(), 32)));
+        }
+    },
+
+    EdDSA("Ed25519", Jwts.SIG.EdDSA) {
+        @Override
+        void putKeyParams(Map<String, Object> jwk, PublicKey key) {
+            // X.509 encoding of an Ed25519 key is a fixed 12-byte header followed by the 32 raw key bytes
+            byte[] encoded = key.getEncoded();
+            jwk.put("kty", "OKP");
+            jwk.put("crv", "Ed25519");
+            jwk.put("x", base64Url(Arrays.copyOfRange(encoded, encoded.length - 32, encoded.length)));
+        }
+    };
+
+    private final String keyFactory;
+    private final SignatureAlgorithm signature;
+
+    JwtAlgorithm(String keyFactory, SignatureAlgorithm signature) {
+        this.keyFactory = keyFactory;
+        this.signature = signature;
+    }
+
+    /** {@link java.security.KeyFactory} algorithm for this algorithm's PEM keys. */
+    public String keyFactory() {
+        return keyFactory;
+    }
+
+    public SignatureAlgorithm signature() {
+        return signature;
+    }
+
+    /** Public JWK for verifiers: key parameters plus kid, use and alg. */
+    public Map<String, Object> toJwk(String keyId, PublicKey key) {
+        Map<String, Object> jwk = new LinkedHashMap<>();
+        putKeyParams(jwk, key);
+        jwk.put("kid", keyId);
+        jwk.put("use", "sig");
+        jwk.put("alg", name());
+        return jwk;
+    }
+
+    abstract void putKeyParams(Map<String, Object> jwk, PublicKey key);
+
+    // Big-endian magnitude left-padded (or stripped of its sign byte) to exactly length bytes
+    private static byte[] unsigned(BigInteger value, int length) {
+        byte[] bytes = value.toByteArray();
+        byte[] out = new byte[length];
+        int copy = Math.min(bytes.length, length);
+        System.arraycopy(bytes, bytes.length - copy, out, length - copy, copy);
+        return out;
+    }
+
+    private static String base64Url(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
@@ -1,74 +1,148 @@
 package com.rideshare.authservice.security;
 
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.LocatorAdapter;
 import jakarta.annotation.PostConstruct;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
 import org.springframework.stereotype.Component;
 
-// Import the new props interface below
-// import com.rideshare.authservice.security.JwtUtil.JwtProps;
-
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
 import java.security.KeyFactory;
+import java.security.MessageDigest;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.security.spec.X509EncodedKeySpec;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Base64;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
 
 /**
- * JWT utility for generating and validating RS256 tokens.
- * Properties injected using @ConfigurationProperties.
+ * JWT utility for generating and validating signed tokens.
+ * Holds every configured key by kid: the active key signs new tokens, the others only verify
+ * (tokens they signed before a rotation stay valid until they expire). All public keys are
+ * published as a JWK set so verifiers can pick the key from the token's kid header.
+ * <p>
+ * Rotation: add the new key, deploy, and wait at least jwks-max-age so every verifier has seen it;
+ * then make it active; drop the old key once expiration-seconds have passed.
  */
 @Component
 public class JwtUtil {
 
-    // Inject the fully populated properties object via constructor
+    /** kid of the single RS256 key configured through private-key/public-key when keys is empty. */
+    public static final String DEFAULT_KEY_ID = "default";
+
     private final JwtProps jwtProps;
-    private PrivateKey privateKey;
-    private PublicKey publicKey;
+    private Map<String, SigningKey> keys;
+    private SigningKey active;
+    // JwtParser is immutable and thread-safe; build it once instead of per validation
+    private JwtParser parser;
+    private Map<String, Object> jwks;
+    private String jwksEtag;
 
     public JwtUtil(JwtProps jwtProps) {
         this.jwtProps = jwtProps;
     }
 
+    private record SigningKey(String id, JwtAlgorithm algorithm, PrivateKey privateKey, PublicKey publicKey) {}
+
     @PostConstruct
     public void init() {
-        try {
-            var kf = KeyFactory.getInstance("RSA");
+        List<KeyProps> configured = jwtProps.keys().isEmpty()
+                ? List.of(new KeyProps(DEFAULT_KEY_ID, JwtAlgorithm.RS256, jwtProps.privateKey(), jwtProps.publicKey()))
+                : jwtProps.keys();
+
+        Map<String, SigningKey> loaded = new LinkedHashMap<>();
+        for (KeyProps key : configured) {
+            if (loaded.put(key.id(), load(key)) != null) {
+                throw new IllegalStateException("Duplicate JWT key id " + key.id());
+            }
+        }
+        keys = Collections.unmodifiableMap(loaded);
+
+        String activeId = jwtProps.activeKeyId() == null ? configured.get(0).id() : jwtProps.activeKeyId();
+        active = keys.get(activeId);
+        if (active == null || active.privateKey() == null) {
+            throw new IllegalStateException("Active JWT key " + activeId + " must be configured with a private key");
+        }
+
+        parser = Jwts.parser().keyLocator(new LocatorAdapter<Key>() {
+            @Override
+            protected Key locate(JwsHeader header) {
+                // Tokens issued before kids were introduced carry none and were signed by the default key
+                String kid = header.getKeyId() == null ? DEFAULT_KEY_ID : header.getKeyId();
+                SigningKey key = keys.get(kid);
+                return key == null ? null : key.publicKey();
+            }
+        }).build();
 
-            // Use the values from the props object
-            var privClean = jwtProps.privateKey()
-                    .replaceAll("-----\\w+ PRIVATE KEY-----", "")
-                    .replaceAll("\\s", "");
-            var pubClean = jwtProps.publicKey()
-                    .replaceAll("-----\\w+ PUBLIC KEY-----", "")
-                    .replaceAll("\\s", "");
+        jwks = Map.of("keys", keys.values().stream()
+                .map(key -> key.algorithm().toJwk(key.id(), key.publicKey()))
+                .toList());
+        jwksEtag = etag(keys.values());
+    }
 
-            byte[] privBytes = Base64.getDecoder().decode(privClean);
-            byte[] pubBytes = Base64.getDecoder().decode(pubClean);
+    private static SigningKey load(KeyProps key) {
+        try {
+            var kf = KeyFactory.getInstance(key.algorithm().keyFactory());
+            // Verify-only keys (retired after a rotation) have no private half
+            PrivateKey privateKey = key.privateKey() == null || key.privateKey().isBlank()
+                    ? null
+                    : kf.generatePrivate(new PKCS8EncodedKeySpec(pemBody(key.privateKey())));
+            PublicKey publicKey = kf.generatePublic(new X509EncodedKeySpec(pemBody(key.publicKey())));
+            return new SigningKey(key.id(), key.algorithm(), privateKey, publicKey);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to load " + key.algorithm() + " key " + key.id() + " for JWT", e);
+        }
+    }
 
-            privateKey = kf.generatePrivate(new PKCS8EncodedKeySpec(privBytes));
-            publicKey = kf.generatePublic(new X509EncodedKeySpec(pubBytes));
+    private static byte[] pemBody(String pem) {
+        return Base64.getDecoder().decode(pem
+                .replaceAll("-----(BEGIN|END) [A-Z ]+-----", "")
+                .replaceAll("\\s", ""));
+    }
+
+    // Changes whenever a key is added, removed or replaced, so cached JWK sets revalidate cheaply
+    private static String etag(Iterable<SigningKey> keys) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (SigningKey key : keys) {
+                digest.update(key.id().getBytes(StandardCharsets.UTF_8));
+                digest.update(key.publicKey().getEncoded());
+            }
+            return HexFormat.of().formatHex(digest.digest(), 0, 16);
         } catch (Exception e) {
-            throw new IllegalStateException("Failed to load RSA keys for JWT", e);
+            throw new IllegalStateException("SHA-256 not available", e);
         }
     }
 
     /**
-     * Generate RS256-signed JWT with provided subject and claims.
+     * Generate a JWT signed with the active key, with provided subject and claims.
      */
     public String generateToken(String subject, Map<String, Object> claims) {
         Instant now = Instant.now();
         return Jwts.builder()
-                .setSubject(subject)
-                .addClaims(claims)
-                .setIssuedAt(Date.from(now))
-                .setExpiration(Date.from(now.plusSeconds(jwtProps.expirationSeconds()))) // Use the props value
-                .signWith(privateKey, SignatureAlgorithm.RS256)
+                .header().keyId(active.id()).and()
+                .claims(claims)
+                // jti: lets a single token be revoked before it expires
+                .id(UUID.randomUUID().toString())
+                .subject(subject)
+                .issuedAt(Date.from(now))
+                .expiration(Date.from(now.plusSeconds(jwtProps.expirationSeconds()))) // Use the props value
+                .signWith(active.privateKey(), active.algorithm().signature())
                 .compact();
     }
 
@@ -77,21 +151,64 @@ public class JwtUtil {
      */
     public boolean validateToken(String token) {
         try {
-            Jwts.parserBuilder().setSigningKey(publicKey).build().parseClaimsJws(token);
+            parser.parseSignedClaims(token);
             return true;
         } catch (Exception ex) {
             return false;
         }
     }
 
+    /**
+     * Claims of a valid token, or empty if the signature, format or expiry is invalid.
+     */
+    public Optional<Claims> parse(String token) {
+        try {
+            return Optional.of(parser.parseSignedClaims(token).getPayload());
+        } catch (Exception ex) {
+            return Optional.empty();
+        }
+    }
+
+    /** Lifetime of the access tokens issued now. */
+    public long expirationSeconds() {
+        return jwtProps.expirationSeconds();
+    }
+
+    /** Public keys as a JWK set ({@code {"keys": [...]}}), in configuration order. */
+    public Map<String, Object> jwks() {
+        return jwks;
+    }
+
+    public String jwksEtag() {
+        return jwksEtag;
+    }
+
     // --- Configuration Properties Definition ---
     // Define a record (immutable data holder) for the properties
     // This assumes your properties start with "security.jwt"
+    /**
+     * @param privateKey  single RS256 key (kid "default"), used when keys is empty
+     * @param publicKey   public half of privateKey
+     * @param keys        signing keys by kid; keys without a private key only verify
+     * @param activeKeyId kid that signs new tokens; defaults to the first entry of keys
+     * @param jwksMaxAge  how long verifiers may cache the JWK set
+     */
     @ConfigurationProperties(prefix = "spring.security.jwt")
     public record JwtProps(
             String privateKey,
             String publicKey,
             // The default value handling moves to your YAML/properties file if using this approach
-            long expirationSeconds
+            long expirationSeconds,
+            @DefaultValue List<KeyProps> keys,
+            String activeKeyId,
+            @DefaultValue("15m") Duration jwksMaxAge
+    ) {}
+
+    /** One signing key: PEM-encoded PKCS#8 private key and X.509 public key. */
+    public record KeyProps(
+            String id,
+            @DefaultValue("RS256") JwtAlgorithm algorithm,
+            String privateKey,
+            String publicKey
     ) {}
 }
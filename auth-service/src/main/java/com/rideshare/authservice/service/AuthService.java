@@ -3,18 +3,24 @@ package com.rideshare.authservice.service;
 import com.rideshare.authservice.dto.JwtResponse;
 import com.rideshare.authservice.dto.OtpRequest;
 import com.rideshare.authservice.dto.OtpVerifyRequest;
+import com.rideshare.authservice.dto.RefreshRequest;
 import com.rideshare.authservice.exception.UserNotRegisteredException;
 import com.rideshare.authservice.entity.UserAuth;
+import com.rideshare.authservice.messaging.RevocationPublisher;
+import com.rideshare.authservice.messaging.TokenRevocation;
 import com.rideshare.authservice.repository.UserAuthRepository;
 import com.rideshare.authservice.security.JwtUtil;
+import com.rideshare.datasource.sharding.ShardRouter;
+import io.jsonwebtoken.Claims;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Map;
+import java.util.Optional;
 
 /**
- * Auth orchestration: request OTP (only for already registered users) and verify OTP to issue JWT.
+ * Auth orchestration: request OTP (only for already registered users), verify OTP to issue JWT
+ * and refresh token, renew the JWT from a refresh token, and revoke sessions.
  */
 @Service
 @RequiredArgsConstructor
@@ -22,15 +28,29 @@ public class AuthService {
 
     private final UserAuthRepository userRepo;
     private final OtpService otpService;
+    private final RegisteredNumberFilter registeredNumbers;
     private final JwtUtil jwtUtil;
+    private final ShardRouter shardRouter;
+    private final RefreshTokenService refreshTokens;
+    private final RevocationPublisher revocations;
 
     /**
      * Request OTP for login. Reject if user is not registered (explicit registration required).
+     * Not @Transactional: a method-level transaction would borrow a DB connection before the
+     * admission filter could reject the number. The repository lookup runs in its own read-only tx.
      */
-    @Transactional(readOnly = true)
     public void requestOtp(OtpRequest req) {
-        boolean exists = userRepo.findByMobileNumber(req.mobileNumber()).isPresent();
+        if (!registeredNumbers.mightBeRegistered(req.mobileNumber())) {
+            throw new UserNotRegisteredException(
+                    "User not registered. Please register first using /api/users/register.");
+        }
+        // The lookup may be served by a read replica; confirm a miss on the primary so a user who
+        // registered moments ago is not rejected because of replication lag
+        String mobileNumber = req.mobileNumber();
+        boolean exists = shardRouter.findByKey(mobileNumber, () -> userRepo.findByMobileNumber(mobileNumber)).isPresent()
+                || shardRouter.onShardOf(mobileNumber, () -> userRepo.existsByMobileNumber(mobileNumber));
         if (!exists) {
+            registeredNumbers.recordFalsePositive();
             throw new UserNotRegisteredException(
                     "User not registered. Please register first using /api/users/register.");
         }
@@ -39,21 +59,27 @@ public class AuthService {
 
     /**
      * Verify OTP and return JWT response. Marks user verified on first success.
+     * Not @Transactional: while resharding the lookup may ask two shards, and a transaction is
+     * pinned to one. The read and the flag update each run in their own repository transaction.
      */
-    @Transactional
     public JwtResponse verifyOtp(OtpVerifyRequest req) {
-        boolean ok = otpService.verifyOtp(req.mobileNumber(), req.otpCode());
-        if (!ok) {
+        OtpService.Outcome outcome = otpService.verifyOtp(req.mobileNumber(), req.otpCode());
+        if (outcome == OtpService.Outcome.TOO_MANY_ATTEMPTS) {
+            return new JwtResponse(null, "Too many invalid attempts. Please request a new OTP.");
+        }
+        if (outcome != OtpService.Outcome.VERIFIED) {
             return new JwtResponse(null, "Invalid or expired OTP");
         }
 
-        UserAuth user = userRepo.findByMobileNumber(req.mobileNumber())
+        String mobileNumber = req.mobileNumber();
+        UserAuth user = shardRouter.findByKey(mobileNumber, () -> userRepo.findOnPrimaryByMobileNumber(mobileNumber))
                 .orElseThrow(() -> new UserNotRegisteredException(
                         "User not registered. Please register first using /api/users/register."));
 
         if (!user.isVerified()) {
+            // update only the verification flag once after first successful OTP verification
+            shardRouter.writeOnShardOf(mobileNumber, () -> userRepo.markVerified(mobileNumber));
             user.setVerified(true);
-            userRepo.save(user); // update only the verification flag once after first successful OTP verification
         }
 
         // Embed role and verified flag as claims
@@ -61,7 +87,59 @@ public class AuthService {
                 user.getMobileNumber(),
                 Map.of("role", user.getRole(), "verified", user.isVerified())
         );
+        String refreshToken = refreshTokens.issue(user.getMobileNumber(), user.getRole(), user.isVerified());
+
+        return new JwtResponse(token, refreshToken, "Login successful");
+    }
+
+    /**
+     * Issue a new JWT and rotate the refresh token. Touches only Redis: the claims are the ones
+     * captured at login (role changes are carried over by UserEventConsumer).
+     */
+    public JwtResponse refresh(RefreshRequest req) {
+        RefreshTokenService.Rotation rotation = refreshTokens.rotate(req.refreshToken());
+        return switch (rotation.outcome()) {
+            case ROTATED -> new JwtResponse(
+                    jwtUtil.generateToken(rotation.subject(),
+                            Map.of("role", rotation.role(), "verified", rotation.verified())),
+                    rotation.refreshToken(),
+                    "Token refreshed");
+            case REUSED -> new JwtResponse(null, "Refresh token already used. Please log in again.");
+            case EXPIRED, MALFORMED -> new JwtResponse(null, "Invalid or expired refresh token");
+        };
+    }
 
-        return new JwtResponse(token, "Login successful");
+    /**
+     * Log out: revoke the presented access token and refresh token, or with allSessions every
+     * token of the user. Returns false if the access token is not valid.
+     */
+    public boolean logout(String accessToken, String refreshToken, boolean allSessions) {
+        Optional<Claims> parsed = jwtUtil.parse(accessToken);
+        if (parsed.isEmpty()) {
+            return false;
+        }
+        Claims claims = parsed.get();
+        // Tokens issued before jti was added can only be revoked together with the rest of the user's
+        if (allSessions || claims.getId() == null) {
+            revokeAllSessions(claims.getSubject());
+            return true;
+        }
+        refreshTokens.revoke(refreshToken);
+        revocations.publish(new TokenRevocation(claims.getId(), claims.getSubject(), 0,
+                claims.getExpiration().toInstant().getEpochSecond()));
+        return true;
+    }
+
+    /**
+     * Revoke every access and refresh token of a user (logout everywhere, account block).
+     * Refresh families go first, so no new access token can be minted after the revocation.
+     * iat has second precision, so the cutoff is the start of the next second: it covers every token
+     * issued up to the call, and also a re-login within the rest of that second, which then simply
+     * has to log in again.
+     */
+    public void revokeAllSessions(String mobileNumber) {
+        refreshTokens.revokeAll(mobileNumber);
+        long cutoff = System.currentTimeMillis() / 1000 + 1;
+        revocations.publish(new TokenRevocation(null, mobileNumber, cutoff, cutoff + jwtUtil.expirationSeconds()));
     }
 }
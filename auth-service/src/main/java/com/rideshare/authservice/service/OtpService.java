@@ -1,20 +1,20 @@
 package com.rideshare.authservice.service;
 
+import com.rideshare.authservice.messaging.NotificationPublisher;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
 
-import jakarta.annotation.PreDestroy;
 import java.security.SecureRandom;
 import java.time.Duration;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.List;
 
 /**
- * Handles OTP generation, storage (Redis), and async delivery event publish (Kafka).
+ * Handles OTP generation, storage (Redis), and async delivery event publish (Kafka via NotificationPublisher).
  */
 @Service
 @RequiredArgsConstructor
@@ -24,13 +24,33 @@ public class OtpService {
 
     private static final SecureRandom RNG = new SecureRandom();
     private static final String OTP_PREFIX = "otp:";
+    private static final String NOTIFICATION_TOPIC = "notification-events";
     private static final Duration OTP_TTL = Duration.ofMinutes(3);
+    private static final int MAX_ATTEMPTS = 5;
+
+    // Server-side scripts: each OTP operation is a single atomic round trip (EVALSHA after first load)
+    static final RedisScript<Long> STORE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/otp-store.lua"), Long.class);
+    static final RedisScript<Long> VERIFY_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/otp-verify.lua"), Long.class);
 
     private final StringRedisTemplate redis;
-    private final KafkaTemplate<String, String> kafka;
+    private final NotificationPublisher publisher;
+
+    /** Result of a verify-and-consume attempt. */
+    public enum Outcome {
+        VERIFIED, MISMATCH, EXPIRED, TOO_MANY_ATTEMPTS;
 
-    // Virtual thread executor for I/O-bound async tasks
-    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        static Outcome fromScript(Long code) {
+            if (code == null) return EXPIRED;
+            return switch (code.intValue()) {
+                case 1 -> VERIFIED;
+                case 0 -> MISMATCH;
+                case -2 -> TOO_MANY_ATTEMPTS;
+                default -> EXPIRED;
+            };
+        }
+    }
 
     /**
      * Generate a secure 6-digit OTP, store in Redis (TTL) and publish an event to NotificationService (Kafka).
@@ -38,36 +58,26 @@ public class OtpService {
     public void generateAndSendOtp(String mobile) {
         int otp = 100000 + RNG.nextInt(900000);
         String key = OTP_PREFIX + mobile;
-        redis.opsForValue().set(key, String.valueOf(otp), OTP_TTL);
+        // Hash {code, attempts} with TTL, written by one script call
+        redis.execute(STORE_SCRIPT, List.of(key), String.valueOf(otp), String.valueOf(OTP_TTL.toMillis()));
 
         // Build a minimal JSON payload for NotificationService (it handles delivery).
         String event = String.format("{\"type\":\"OTP\",\"mobile\":\"%s\",\"otp\":\"%d\"}", mobile, otp);
 
-        // Publish asynchronously using virtual threads to avoid blocking caller threads
-        executor.submit(() -> {
-            try {
-                kafka.send("notification-events", mobile, event);
-                log.debug("OTP event published for mobile={}", mobile);
-            } catch (Exception e) {
-                log.error("Failed to publish OTP event for mobile={}", mobile, e);
-            }
-        });
+        // Bounded, batched hand-off; never blocks the request thread
+        if (!publisher.publish(NOTIFICATION_TOPIC, mobile, event)) {
+            log.warn("Notification queue full, OTP event queued for retry for mobile={}", mobile);
+        }
     }
 
     /**
-     * Verify OTP by reading Redis key. If valid, delete the key (one-time use).
+     * Verify and consume the OTP in one atomic round trip. A match deletes the key (one-time use),
+     * so two concurrent verifies can never both succeed; repeated mismatches burn the OTP.
      */
-    public boolean verifyOtp(String mobile, String otpInput) {
+    public Outcome verifyOtp(String mobile, String otpInput) {
+        if (otpInput == null) return Outcome.MISMATCH;
         String key = OTP_PREFIX + mobile;
-        String stored = redis.opsForValue().get(key);
-        if (stored == null) return false;
-        boolean ok = stored.equals(otpInput);
-        if (ok) redis.delete(key);
-        return ok;
-    }
-
-    @PreDestroy
-    public void shutdown() {
-        executor.shutdown();
+        Long result = redis.execute(VERIFY_SCRIPT, List.of(key), otpInput, String.valueOf(MAX_ATTEMPTS));
+        return Outcome.fromScript(result);
     }
 }
@@ -0,0 +1,181 @@
+package com.rideshare.authservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * Opaque, rotating refresh tokens kept in Redis, so an expired access token is renewed without
+ * another OTP, SMS or database read.
+ * <p>
+ * A login starts a token family: {@code <family>.<secret>}, both random. Redis keeps one hash per
+ * family holding the SHA-256 of the current secret and the claims captured at login. Every refresh
+ * swaps the secret in one atomic script call and hands out the new token; presenting a secret that
+ * was already swapped out means the token was copied, so the whole family is revoked and the user
+ * logs in again. The one exception is the secret replaced by the last rotation, accepted again for
+ * reuse-grace afterwards: a client that lost the refresh response and retries gets a new token
+ * instead of being logged out. Families expire after idle-ttl without use and at the latest
+ * max-lifetime after login.
+ */
+@Service
+public class RefreshTokenService {
+
+    private static final Logger log = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    private static final SecureRandom RNG = new SecureRandom();
+    private static final String FAMILY_PREFIX = "refresh:";
+    private static final String USER_PREFIX = "refresh-user:";
+    // 16-byte family id and 32-byte secret, base64url without padding
+    private static final Pattern TOKEN = Pattern.compile("[A-Za-z0-9_-]{22}\\.[A-Za-z0-9_-]{43}");
+
+    static final RedisScript<Long> ISSUE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/refresh-issue.lua"), Long.class);
+    @SuppressWarnings("rawtypes")
+    static final RedisScript<List> ROTATE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/refresh-rotate.lua"), List.class);
+    static final RedisScript<Long> ROLE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/refresh-role.lua"), Long.class);
+    static final RedisScript<Long> REVOKE_ALL_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/refresh-revoke-all.lua"), Long.class);
+
+    private final StringRedisTemplate redis;
+    private final RefreshProps props;
+    private final LongSupplier clock;
+    private final Map<Outcome, Counter> outcomes = new EnumMap<>(Outcome.class);
+    private final Counter issued;
+
+    public enum Outcome { ROTATED, EXPIRED, REUSED, MALFORMED }
+
+    /** Result of a refresh; the claims and the next token are only set when ROTATED. */
+    public record Rotation(Outcome outcome, String subject, String role, boolean verified, String refreshToken) {
+        static Rotation failed(Outcome outcome) {
+            return new Rotation(outcome, null, null, false, null);
+        }
+    }
+
+    @Autowired
+    public RefreshTokenService(StringRedisTemplate redis, RefreshProps props, MeterRegistry registry) {
+        this(redis, props, registry, System::currentTimeMillis);
+    }
+
+    RefreshTokenService(StringRedisTemplate redis, RefreshProps props, MeterRegistry registry, LongSupplier clock) {
+        this.redis = redis;
+        this.props = props;
+        this.clock = clock;
+        this.issued = Counter.builder("auth.refresh.tokens").tag("result", "issued").register(registry);
+        for (Outcome outcome : Outcome.values()) {
+            outcomes.put(outcome, Counter.builder("auth.refresh.tokens")
+                    .tag("result", outcome.name().toLowerCase())
+                    .register(registry));
+        }
+    }
+
+    /** Starts a new family for a successful OTP login and returns its first refresh token. */
+    public String issue(String subject, String role, boolean verified) {
+        String family = random(16);
+        String secret = random(32);
+        long now = clock.getAsLong();
+        redis.execute(ISSUE_SCRIPT, List.of(FAMILY_PREFIX + family, USER_PREFIX + subject),
+                family, hash(secret), subject, role, String.valueOf(verified),
+                String.valueOf(props.idleTtl().toMillis()),
+                String.valueOf(now + props.maxLifetime().toMillis()),
+                String.valueOf(props.maxLifetime().toMillis()));
+        issued.increment();
+        return family + "." + secret;
+    }
+
+    /** Exchanges a refresh token for the next one of its family, in one Redis round trip. */
+    public Rotation rotate(String refreshToken) {
+        if (refreshToken == null || !TOKEN.matcher(refreshToken).matches()) {
+            return count(Rotation.failed(Outcome.MALFORMED));
+        }
+        int dot = refreshToken.indexOf('.');
+        String family = refreshToken.substring(0, dot);
+        String nextSecret = random(32);
+        List<?> reply = redis.execute(ROTATE_SCRIPT, List.of(FAMILY_PREFIX + family),
+                hash(refreshToken.substring(dot + 1)), hash(nextSecret),
+                String.valueOf(props.idleTtl().toMillis()), String.valueOf(clock.getAsLong()),
+                String.valueOf(props.reuseGrace().toMillis()));
+
+        String status = reply == null || reply.isEmpty() ? "expired" : String.valueOf(reply.get(0));
+        return switch (status) {
+            case "ok" -> count(new Rotation(Outcome.ROTATED, (String) reply.get(1), (String) reply.get(2),
+                    Boolean.parseBoolean((String) reply.get(3)), family + "." + nextSecret));
+            case "reused" -> {
+                log.warn("Refresh token reuse detected, family {} revoked", family);
+                yield count(Rotation.failed(Outcome.REUSED));
+            }
+            default -> count(Rotation.failed(Outcome.EXPIRED));
+        };
+    }
+
+    /** Carries a role change into the user's live families, so refreshed tokens get the new role. */
+    public void updateRole(String subject, String role) {
+        redis.execute(ROLE_SCRIPT, List.of(USER_PREFIX + subject), role, FAMILY_PREFIX);
+    }
+
+    /** Ends the family of a refresh token (logout of one session). */
+    public void revoke(String refreshToken) {
+        if (refreshToken != null && TOKEN.matcher(refreshToken).matches()) {
+            redis.delete(FAMILY_PREFIX + refreshToken.substring(0, refreshToken.indexOf('.')));
+        }
+    }
+
+    /** Ends every family of a user (logout everywhere, account block). */
+    public void revokeAll(String subject) {
+        redis.execute(REVOKE_ALL_SCRIPT, List.of(USER_PREFIX + subject), FAMILY_PREFIX);
+    }
+
+    private Rotation count(Rotation rotation) {
+        outcomes.get(rotation.outcome()).increment();
+        return rotation;
+    }
+
+    private static String random(int bytes) {
+        byte[] buf = new byte[bytes];
+        RNG.nextBytes(buf);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buf);
+    }
+
+    // Only digests are stored, so a Redis dump or replica does not hand out usable tokens
+    private static String hash(String secret) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(secret.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * @param idleTtl     a family unused for this long expires
+     * @param maxLifetime a family expires this long after login however often it is refreshed
+     * @param reuseGrace  how long after a rotation the replaced secret is still accepted; 0 = never
+     */
+    @ConfigurationProperties(prefix = "auth.refresh-token")
+    public record RefreshProps(
+            @DefaultValue("14d") Duration idleTtl,
+            @DefaultValue("60d") Duration maxLifetime,
+            @DefaultValue("10s") Duration reuseGrace
+    ) {}
+}
@@ -0,0 +1,228 @@
+package com.rideshare.authservice.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rideshare.authservice.messaging.BroadcastConsumer;
+import com.rideshare.authservice.messaging.UserEvent;
+import com.rideshare.authservice.repository.UserAuthRepository;
+import com.rideshare.authservice.util.BloomFilter;
+import com.rideshare.datasource.sharding.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * In-memory admission gate over auth_users.mobile_number.
+ * A negative answer means the number is definitely not registered, so requestOtp can reject it
+ * without touching Postgres. The filter is built from a streaming scan at startup, rebuilt
+ * periodically to pick up rows written by other processes, and updated incrementally via
+ * {@link #register(String)}. Until the first build completes every number is admitted.
+ * When sharded, every shard is scanned into the same filter.
+ * <p>
+ * Only the replica that owns a user-events partition writes the row, so every instance also
+ * reads the whole topic itself (see {@link BroadcastConsumer}) and registers each number. That
+ * subscription starts once the first build has a filter to write into, from one rebuild interval
+ * back, so registrations the scan missed are replayed.
+ */
+@Component
+public class RegisteredNumberFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(RegisteredNumberFilter.class);
+    private static final String METRIC = "auth.admission.filter";
+
+    private final UserAuthRepository userRepo;
+    private final TransactionTemplate readOnlyTx;
+    private final AdmissionProps props;
+    private final ShardRouter shardRouter;
+    private final ObjectMapper objectMapper;
+    private final Function<Consumer<String>, AutoCloseable> subscriber;
+    private final ScheduledExecutorService rebuilder = Executors.newSingleThreadScheduledExecutor(
+            r -> Thread.ofPlatform().name("admission-filter-rebuild").daemon().unstarted(r));
+
+    private volatile BloomFilter current;
+    private volatile BloomFilter building;
+    private final AtomicLong lastRebuildMillis = new AtomicLong();
+    private volatile AutoCloseable subscription;
+
+    private final Counter rejected;
+    private final Counter admitted;
+    private final Counter falsePositives;
+    private final Timer rebuildTimer;
+
+    @Autowired
+    public RegisteredNumberFilter(UserAuthRepository userRepo, PlatformTransactionManager txManager,
+                                  AdmissionProps props, MeterRegistry registry, ShardRouter shardRouter,
+                                  ConsumerFactory<?, ?> consumerFactory, ObjectMapper objectMapper,
+                                  @Value("${user-events.topic:user-events}") String eventsTopic) {
+        this(userRepo, txManager, props, registry, shardRouter, objectMapper, handler -> {
+            BroadcastConsumer consumer = new BroadcastConsumer("admission-filter-events",
+                    consumerFactory.getConfigurationProperties(), eventsTopic,
+                    Instant.now().minus(props.rebuildInterval()), handler);
+            consumer.start();
+            return consumer;
+        });
+    }
+
+    /**
+     * @param subscriber starts delivering user-events payloads to the handler; the result stops it
+     */
+    RegisteredNumberFilter(UserAuthRepository userRepo, PlatformTransactionManager txManager,
+                           AdmissionProps props, MeterRegistry registry, ShardRouter shardRouter,
+                           ObjectMapper objectMapper, Function<Consumer<String>, AutoCloseable> subscriber) {
+        this.userRepo = userRepo;
+        this.props = props;
+        this.shardRouter = shardRouter;
+        this.objectMapper = objectMapper;
+        this.subscriber = subscriber;
+        this.readOnlyTx = new TransactionTemplate(txManager);
+        this.readOnlyTx.setReadOnly(true);
+
+        this.rejected = Counter.builder(METRIC + ".decisions").tag("outcome", "rejected").register(registry);
+        this.admitted = Counter.builder(METRIC + ".decisions").tag("outcome", "admitted").register(registry);
+        this.falsePositives = Counter.builder(METRIC + ".decisions").tag("outcome", "false_positive").register(registry);
+        this.rebuildTimer = Timer.builder(METRIC + ".rebuild.duration").register(registry);
+        Gauge.builder(METRIC + ".expected.fpp", this, f -> f.current == null ? 1.0 : f.current.expectedFalsePositiveRate())
+                .description("False-positive probability estimated from the filter fill ratio")
+                .register(registry);
+        Gauge.builder(METRIC + ".observed.fpp", this, RegisteredNumberFilter::observedFalsePositiveRate)
+                .description("Share of unregistered numbers the filter let through")
+                .register(registry);
+        Gauge.builder(METRIC + ".rebuild.last.millis", lastRebuildMillis, AtomicLong::get).register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!props.enabled()) return;
+        // First build runs in the background so startup isn't blocked by the scan
+        long interval = props.rebuildInterval().toMillis();
+        rebuilder.scheduleWithFixedDelay(this::rebuild, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /** False means the number is definitely not in auth_users. */
+    public boolean mightBeRegistered(String mobileNumber) {
+        BloomFilter filter = current;
+        if (filter == null || filter.mightContain(mobileNumber)) {
+            admitted.increment();
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    /** Record that an admitted number was not found in the database. */
+    public void recordFalsePositive() {
+        falsePositives.increment();
+    }
+
+    /** Incremental update for numbers inserted into auth_users, by this instance or another. */
+    public void register(String mobileNumber) {
+        BloomFilter filter = current;
+        if (filter != null) filter.put(mobileNumber);
+        BloomFilter next = building;
+        if (next != null) next.put(mobileNumber);
+    }
+
+    /** One user-events payload from the broadcast subscription. */
+    void onUserEvent(String payload) {
+        try {
+            UserEvent event = objectMapper.readValue(payload, UserEvent.class);
+            if (event.mobileNumber() != null) {
+                register(event.mobileNumber());
+            }
+        } catch (JsonProcessingException e) {
+            // UserEventConsumer counts and logs these
+            log.debug("Ignoring unreadable user event: {}", e.getMessage());
+        }
+    }
+
+    void rebuild() {
+        long start = System.nanoTime();
+        try {
+            long count = 0;
+            for (String shard : shardRouter.shards()) {
+                count += shardRouter.onShard(shard, userRepo::count);
+            }
+            long expected = Math.max(props.expectedInsertions(), (long) (count * 1.5));
+            BloomFilter next = BloomFilter.create(expected, props.falsePositiveRate());
+            building = next;
+            subscribe();
+            AtomicLong loaded = new AtomicLong();
+            for (String shard : shardRouter.shards()) {
+                shardRouter.runOnShard(shard, () -> readOnlyTx.executeWithoutResult(status -> {
+                    try (Stream<String> numbers = userRepo.streamAllMobileNumbers()) {
+                        numbers.forEach(number -> {
+                            next.put(number);
+                            loaded.incrementAndGet();
+                        });
+                    }
+                }));
+            }
+            current = next;
+            long elapsed = System.nanoTime() - start;
+            rebuildTimer.record(elapsed, TimeUnit.NANOSECONDS);
+            lastRebuildMillis.set(TimeUnit.NANOSECONDS.toMillis(elapsed));
+            log.info("Admission filter rebuilt: {} numbers, {} bits, k={}, est. fpp={}",
+                    loaded, next.bitSize(), next.hashCount(), String.format("%.5f", next.expectedFalsePositiveRate()));
+        } catch (Exception e) {
+            // Keep serving with the previous filter (or fail open if there is none)
+            log.error("Admission filter rebuild failed", e);
+        } finally {
+            building = null;
+        }
+    }
+
+    private void subscribe() {
+        if (subscription != null) return;
+        try {
+            subscription = subscriber.apply(this::onUserEvent);
+        } catch (Exception e) {
+            // Other replicas' registrations then show up at the next rebuild
+            log.warn("Could not subscribe to user events; retrying at the next rebuild", e);
+        }
+    }
+
+    /** Unregistered numbers admitted, over all unregistered numbers seen (admitted or rejected). */
+    double observedFalsePositiveRate() {
+        double fp = falsePositives.count();
+        double negatives = fp + rejected.count();
+        return negatives == 0 ? 0.0 : fp / negatives;
+    }
+
+    @PreDestroy
+    public void shutdown() throws Exception {
+        rebuilder.shutdownNow();
+        AutoCloseable open = subscription;
+        if (open != null) open.close();
+    }
+
+    @ConfigurationProperties(prefix = "admission.registered-numbers")
+    public record AdmissionProps(
+            @DefaultValue("true") boolean enabled,
+            @DefaultValue("1000000") long expectedInsertions,
+            @DefaultValue("0.01") double falsePositiveRate,
+            @DefaultValue("10m") Duration rebuildInterval
+    ) {}
+}
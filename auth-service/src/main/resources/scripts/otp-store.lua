@@ -0,0 +1,6 @@
+-- Store a fresh OTP and reset its attempt counter in one round trip.
+-- KEYS[1] = otp:{mobile}   ARGV[1] = code   ARGV[2] = ttl millis
+redis.call('DEL', KEYS[1])
+redis.call('HSET', KEYS[1], 'code', ARGV[1], 'attempts', 0)
+redis.call('PEXPIRE', KEYS[1], ARGV[2])
+return 1
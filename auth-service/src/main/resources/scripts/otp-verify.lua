@@ -0,0 +1,17 @@
+-- Atomically compare and consume an OTP.
+-- KEYS[1] = otp:{mobile}   ARGV[1] = submitted code   ARGV[2] = max attempts
+-- Returns: 1 verified, 0 mismatch, -1 missing/expired, -2 too many attempts (OTP burned)
+local code = redis.call('HGET', KEYS[1], 'code')
+if not code then
+    return -1
+end
+if code == ARGV[1] then
+    redis.call('DEL', KEYS[1])
+    return 1
+end
+local attempts = redis.call('HINCRBY', KEYS[1], 'attempts', 1)
+if attempts >= tonumber(ARGV[2]) then
+    redis.call('DEL', KEYS[1])
+    return -2
+end
+return 0
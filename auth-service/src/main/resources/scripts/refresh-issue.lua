@@ -0,0 +1,10 @@
+-- Start a refresh-token family at login and index it under its user.
+-- KEYS[1] = refresh:{family}   KEYS[2] = refresh-user:{subject}
+-- ARGV[1] = family id   ARGV[2] = secret hash   ARGV[3] = subject   ARGV[4] = role   ARGV[5] = verified
+-- ARGV[6] = idle ttl millis   ARGV[7] = absolute expiry (epoch millis)   ARGV[8] = max lifetime millis
+redis.call('HSET', KEYS[1], 'secret', ARGV[2], 'subject', ARGV[3], 'role', ARGV[4],
+        'verified', ARGV[5], 'expires', ARGV[7])
+redis.call('PEXPIRE', KEYS[1], ARGV[6])
+redis.call('SADD', KEYS[2], ARGV[1])
+redis.call('PEXPIRE', KEYS[2], ARGV[8])
+return 1
@@ -0,0 +1,9 @@
+-- End every refresh-token family of a user.
+-- KEYS[1] = refresh-user:{subject}   ARGV[1] = family key prefix
+-- Family keys are derived inside the script, so this needs a single Redis node (not Redis Cluster).
+local families = redis.call('SMEMBERS', KEYS[1])
+for _, family in ipairs(families) do
+    redis.call('DEL', ARGV[1] .. family)
+end
+redis.call('DEL', KEYS[1])
+return #families
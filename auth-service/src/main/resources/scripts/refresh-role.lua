@@ -0,0 +1,15 @@
+-- Apply a role change to every live refresh-token family of a user; drops index entries of expired families.
+-- KEYS[1] = refresh-user:{subject}   ARGV[1] = role   ARGV[2] = family key prefix
+-- Family keys are derived inside the script, so this needs a single Redis node (not Redis Cluster).
+local families = redis.call('SMEMBERS', KEYS[1])
+local updated = 0
+for _, family in ipairs(families) do
+    local key = ARGV[2] .. family
+    if redis.call('EXISTS', key) == 1 then
+        redis.call('HSET', key, 'role', ARGV[1])
+        updated = updated + 1
+    else
+        redis.call('SREM', KEYS[1], family)
+    end
+end
+return updated
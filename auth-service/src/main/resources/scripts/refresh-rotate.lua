@@ -0,0 +1,28 @@
+-- Exchange the family's current refresh secret for the next one.
+-- KEYS[1] = refresh:{family}
+-- ARGV[1] = presented secret hash   ARGV[2] = next secret hash   ARGV[3] = idle ttl millis   ARGV[4] = now (epoch millis)
+-- ARGV[5] = reuse grace millis
+-- Returns {'ok', subject, role, verified}, {'expired'}, or {'reused'}: an already rotated secret was
+-- presented again, so a copy of the token is in someone else's hands and the whole family is revoked.
+-- The secret replaced by the last rotation is still accepted for the grace period after it, once
+-- or more, so a client retrying a refresh whose response it lost is not logged out.
+local family = redis.call('HMGET', KEYS[1], 'secret', 'subject', 'role', 'verified', 'expires', 'previous', 'rotated')
+if not family[1] then
+    return {'expired'}
+end
+local remaining = tonumber(family[5]) - tonumber(ARGV[4])
+if remaining <= 0 then
+    redis.call('DEL', KEYS[1])
+    return {'expired'}
+end
+if family[1] == ARGV[1] then
+    redis.call('HSET', KEYS[1], 'secret', ARGV[2], 'previous', ARGV[1], 'rotated', ARGV[4])
+elseif family[6] == ARGV[1] and tonumber(ARGV[4]) - tonumber(family[7]) <= tonumber(ARGV[5]) then
+    -- Retry: replaces the secret the lost response carried; previous and rotated stay, so the grace does not extend
+    redis.call('HSET', KEYS[1], 'secret', ARGV[2])
+else
+    redis.call('DEL', KEYS[1])
+    return {'reused'}
+end
+redis.call('PEXPIRE', KEYS[1], math.min(tonumber(ARGV[3]), remaining))
+return {'ok', family[2], family[3], family[4]}
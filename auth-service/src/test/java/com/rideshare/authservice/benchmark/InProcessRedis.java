@@ -0,0 +1,100 @@
+package com.rideshare.authservice.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Minimal in-process Redis stand-in for benchmarks.
+ * Commands execute one at a time (like the single-threaded Redis server) and every call
+ * pays a simulated network round trip, so the benchmark measures round-trip count rather than
+ * client library overhead. The scripted commands mirror scripts/otp-store.lua and otp-verify.lua.
+ */
+final class InProcessRedis {
+
+    private final ReentrantLock server = new ReentrantLock();
+    private final Map<String, Map<String, String>> hashes = new HashMap<>();
+    private final Map<String, String> strings = new HashMap<>();
+    private final long rttNanos;
+
+    InProcessRedis(long rttNanos) {
+        this.rttNanos = rttNanos;
+    }
+
+    private void roundTrip() {
+        if (rttNanos > 0) {
+            LockSupport.parkNanos(rttNanos);
+        }
+    }
+
+    // --- legacy string commands ---
+
+    void set(String key, String value) {
+        roundTrip();
+        server.lock();
+        try {
+            strings.put(key, value);
+        } finally {
+            server.unlock();
+        }
+    }
+
+    String get(String key) {
+        roundTrip();
+        server.lock();
+        try {
+            return strings.get(key);
+        } finally {
+            server.unlock();
+        }
+    }
+
+    void del(String key) {
+        roundTrip();
+        server.lock();
+        try {
+            strings.remove(key);
+            hashes.remove(key);
+        } finally {
+            server.unlock();
+        }
+    }
+
+    // --- scripted commands (one round trip each) ---
+
+    void evalStore(String key, String code) {
+        roundTrip();
+        server.lock();
+        try {
+            Map<String, String> hash = new HashMap<>(4);
+            hash.put("code", code);
+            hash.put("attempts", "0");
+            hashes.put(key, hash);
+        } finally {
+            server.unlock();
+        }
+    }
+
+    long evalVerify(String key, String submitted, int maxAttempts) {
+        roundTrip();
+        server.lock();
+        try {
+            Map<String, String> hash = hashes.get(key);
+            if (hash == null) return -1;
+            if (hash.get("code").equals(submitted)) {
+                hashes.remove(key);
+                return 1;
+            }
+            int attempts = Integer.parseInt(hash.get("attempts")) + 1;
+            hash.put("attempts", String.valueOf(attempts));
+            if (attempts >= maxAttempts) {
+                hashes.remove(key);
+                return -2;
+            }
+            return 0;
+        } finally {
+            server.unlock();
+        }
+    }
+}
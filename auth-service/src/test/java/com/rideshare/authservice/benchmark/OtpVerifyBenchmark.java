@@ -0,0 +1,74 @@
+package com.rideshare.authservice.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the old GET + DEL OTP verification against the single-round-trip verify script.
+ * InProcessRedis only models the round trips; the shipped Lua scripts themselves are exercised
+ * against a real Redis in OtpServiceRedisTest.
+ * Each invocation stores an OTP and then verifies it, as one login would.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *           -Dexec.mainClass=com.rideshare.authservice.benchmark.OtpVerifyBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class OtpVerifyBenchmark {
+
+    /** Simulated client-to-Redis round trip. 0 isolates the command cost. */
+    @Param({"0", "100", "500"})
+    public long rttMicros;
+
+    private InProcessRedis redis;
+
+    @Setup
+    public void setUp() {
+        redis = new InProcessRedis(TimeUnit.MICROSECONDS.toNanos(rttMicros));
+    }
+
+    @Benchmark
+    public boolean getThenDelete() {
+        String key = nextKey();
+        redis.set(key, "123456");
+        String stored = redis.get(key);
+        boolean ok = "123456".equals(stored);
+        if (ok) redis.del(key);
+        return ok;
+    }
+
+    @Benchmark
+    public boolean verifyScript() {
+        String key = nextKey();
+        redis.evalStore(key, "123456");
+        return redis.evalVerify(key, "123456", 5) == 1;
+    }
+
+    private static String nextKey() {
+        return "otp:9" + ThreadLocalRandom.current().nextInt(100_000_000, 999_999_999);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(OtpVerifyBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,48 @@
+package com.rideshare.authservice.config;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Pins the layout of application.yaml: a top-level block inserted in the middle of the spring
+ * section re-parents everything below it, which unbinds spring.security.jwt and fails startup.
+ */
+class ApplicationYamlTest {
+
+    private static PropertySource<?> yaml;
+
+    @BeforeAll
+    static void load() throws IOException {
+        List<PropertySource<?>> sources = new YamlPropertySourceLoader()
+                .load("application", new ClassPathResource("application.yaml"));
+        yaml = sources.get(0);
+    }
+
+    @Test
+    void jwtKeysAreUnderSpringSecurity() {
+        assertThat(yaml.getProperty("spring.security.jwt.private-key")).isNotNull();
+        assertThat(yaml.getProperty("spring.security.jwt.public-key")).isNotNull();
+        assertThat(yaml.getProperty("spring.security.jwt.expiration-seconds")).isNotNull();
+    }
+
+    @Test
+    void notificationPublisherIsTopLevel() {
+        assertThat(yaml.getProperty("notification.publisher.queue-capacity")).isNotNull();
+        assertThat(yaml.getProperty("notification.security.jwt.private-key")).isNull();
+    }
+
+    @Test
+    void tracingSettingsStayUnderSpring() {
+        assertThat(yaml.getProperty("spring.zipkin.tracing.endpoint")).isNotNull();
+        assertThat(yaml.getProperty("spring.observations.key-values.environment")).isNotNull();
+        assertThat(yaml.getProperty("admission.zipkin.tracing.endpoint")).isNull();
+    }
+}
@@ -0,0 +1,55 @@
+package com.rideshare.authservice.config;
+
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.kafka.core.ProducerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Builds a real KafkaProducer from the shipped application.yaml. Kafka validates some producer
+ * settings only in the KafkaProducer constructor (delivery.timeout.ms against linger.ms +
+ * request.timeout.ms), so a bad combination would otherwise first show up as failed OTP sends.
+ * No broker is needed: the producer does not connect until the first send.
+ */
+class InfraConfigTest {
+
+    private final ApplicationContextRunner runner = new ApplicationContextRunner()
+            .withInitializer(context -> context.getEnvironment().getPropertySources().addLast(applicationYaml()))
+            .withPropertyValues("kafka.bootstrap=localhost:9092")
+            .withUserConfiguration(InfraConfig.class);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void producerStartsWithTheShippedSettings() {
+        runner.run(context -> {
+            Map<String, Object> configs = context.getBean(ProducerFactory.class).getConfigurationProperties();
+            assertThat(configs).containsEntry(ProducerConfig.LINGER_MS_CONFIG, 20);
+
+            KafkaProducer<String, String> producer = new KafkaProducer<>(configs);
+            try {
+                assertThat(producer.metrics()).isNotEmpty();
+            } finally {
+                producer.close(Duration.ZERO);
+            }
+        });
+    }
+
+    private static PropertySource<?> applicationYaml() {
+        try {
+            return new YamlPropertySourceLoader().load("application", new ClassPathResource("application.yaml")).get(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
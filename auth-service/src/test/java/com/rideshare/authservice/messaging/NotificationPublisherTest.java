@@ -0,0 +1,179 @@
+package com.rideshare.authservice.messaging;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * The drainer thread is only started where a test needs Kafka sends; queue overflow, replay and
+ * expiry are driven directly with a manual clock. Each test spills into its own temporary file.
+ */
+class NotificationPublisherTest {
+
+    private static final String TOPIC = "notification-events";
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    @TempDir
+    Path spillDir;
+    private MeterRegistry registry;
+    private KafkaTemplate<String, String> kafka;
+    private NotificationPublisher publisher;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        kafka = mock(KafkaTemplate.class);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (publisher != null) {
+            publisher.shutdown();
+        }
+    }
+
+    @Test
+    void fullQueueSpillsWithoutBlocking() throws IOException {
+        publisher = publisher(2, 2);
+
+        assertThat(publisher.publish(TOPIC, "9000000001", "{}")).isTrue();
+        assertThat(publisher.publish(TOPIC, "9000000002", "{}")).isTrue();
+        assertThat(publisher.publish(TOPIC, "9000000003", "{}")).isFalse();
+        assertThat(publisher.publish(TOPIC, "9000000004", "{}")).isFalse();
+        // Spill buffer full as well: dropped, still without blocking
+        assertThat(publisher.publish(TOPIC, "9000000005", "{}")).isFalse();
+
+        assertThat(count("rejected")).isEqualTo(3);
+        assertThat(count("dropped")).isEqualTo(1);
+        assertThat(publisher.pendingSpills()).isEqualTo(2);
+        // Nothing touches the file until the drainer flushes the buffer
+        assertThat(spilledLines()).isZero();
+
+        publisher.flushSpillBuffer();
+
+        assertThat(count("spilled")).isEqualTo(2);
+        assertThat(publisher.pendingSpills()).isZero();
+        assertThat(spilledLines()).isEqualTo(2);
+    }
+
+    @Test
+    void replayMovesSpilledEventsBackOnceTheQueueHasRoom() throws IOException {
+        when(kafka.send(eq(TOPIC), anyString(), anyString())).thenReturn(CompletableFuture.completedFuture(null));
+        publisher = publisher(1, 10);
+        publisher.publish(TOPIC, "9000000001", "{}");
+        publisher.publish(TOPIC, "9000000002", "{}");
+
+        // Queue still full: the event goes back to the spill log
+        publisher.replaySpilled();
+        assertThat(spilledLines()).isEqualTo(1);
+        assertThat(count("replayed")).isZero();
+
+        publisher.start();
+        verify(kafka, timeout(2000)).send(TOPIC, "9000000001", "{}");
+        now.addAndGet(Duration.ofSeconds(30).toMillis());
+
+        verify(kafka, timeout(2000)).send(TOPIC, "9000000002", "{}");
+        awaitCount("published", 2);
+        assertThat(count("replayed")).isEqualTo(1);
+        assertThat(spilledLines()).isZero();
+    }
+
+    @Test
+    void replayDropsEventsOlderThanMaxReplayAge() throws IOException {
+        publisher = publisher(1, 10);
+        publisher.publish(TOPIC, "9000000001", "{}");
+        publisher.publish(TOPIC, "9000000002", "{}");
+        now.addAndGet(Duration.ofMinutes(1).toMillis());
+        publisher.publish(TOPIC, "9000000003", "{}");
+        now.addAndGet(Duration.ofMinutes(2).toMillis() + 1);
+
+        publisher.replaySpilled();
+
+        assertThat(count("expired")).isEqualTo(1);
+        assertThat(spilledLines()).isEqualTo(1);
+    }
+
+    @Test
+    void failedSendsAreRetriedAndDeliveredOnReplay() {
+        when(kafka.send(eq(TOPIC), anyString(), anyString()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        publisher = publisher(10, 10);
+        publisher.start();
+
+        publisher.publish(TOPIC, "9000000001", "{\"type\":\"OTP\"}");
+        verify(kafka, timeout(2000)).send(TOPIC, "9000000001", "{\"type\":\"OTP\"}");
+        awaitCount("spilled", 1);
+        assertThat(count("failed")).isEqualTo(1);
+
+        // Next replay round puts it back in the queue and the second send succeeds
+        now.addAndGet(Duration.ofSeconds(30).toMillis());
+        verify(kafka, timeout(2000).times(2)).send(TOPIC, "9000000001", "{\"type\":\"OTP\"}");
+        awaitCount("published", 1);
+        assertThat(count("replayed")).isEqualTo(1);
+    }
+
+    @Test
+    void undeliveredEventsSurviveARestart() throws Exception {
+        NotificationPublisher previous = publisher(1, 10);
+        previous.publish(TOPIC, "9000000001", "{}");
+        previous.publish(TOPIC, "9000000002", "{}");
+
+        // One event still queued, one waiting in the spill buffer: both go to the file
+        previous.shutdown();
+        assertThat(spilledLines()).isEqualTo(2);
+
+        when(kafka.send(eq(TOPIC), anyString(), anyString())).thenReturn(CompletableFuture.completedFuture(null));
+        publisher = publisher(10, 10);
+        publisher.start();
+
+        verify(kafka, timeout(2000)).send(TOPIC, "9000000001", "{}");
+        verify(kafka, timeout(2000)).send(TOPIC, "9000000002", "{}");
+        awaitCount("published", 2);
+        assertThat(spilledLines()).isZero();
+    }
+
+    private NotificationPublisher publisher(int queueCapacity, int spillBufferCapacity) {
+        NotificationPublisher.PublisherProps props = new NotificationPublisher.PublisherProps(
+                queueCapacity, 10, Duration.ofMillis(5), Duration.ofSeconds(1), spillBufferCapacity,
+                spillDir.resolve("notification-spill.log").toString(), Duration.ofSeconds(30), Duration.ofMinutes(3));
+        return new NotificationPublisher(kafka, props, registry, now::get);
+    }
+
+    private double count(String result) {
+        return registry.get("notification.publisher.events").tag("result", result).counter().count();
+    }
+
+    private long spilledLines() throws IOException {
+        Path file = spillDir.resolve("notification-spill.log");
+        return Files.exists(file) ? Files.readAllLines(file).size() : 0;
+    }
+
+    private void awaitCount(String result, double expected) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(2).toNanos();
+        while (count(result) < expected && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertThat(count(result)).isEqualTo(expected);
+    }
+}
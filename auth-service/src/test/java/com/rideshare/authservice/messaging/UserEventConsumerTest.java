@@ -0,0 +1,153 @@
+package com.rideshare.authservice.messaging;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rideshare.authservice.service.RefreshTokenService;
+import com.rideshare.authservice.service.RegisteredNumberFilter;
+import com.rideshare.datasource.sharding.ShardRouter;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Real Postgres for the upsert; the admission filter and refresh tokens are mocks.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class UserEventConsumerTest {
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("auth").withUsername("test").withPassword("test");
+
+    private static final String TOPIC = "user-events";
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbc;
+    private RegisteredNumberFilter registeredNumbers;
+    private RefreshTokenService refreshTokens;
+    private UserEventConsumer consumer;
+    private long offset;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(postgres.getJdbcUrl());
+        dataSource.setUsername(postgres.getUsername());
+        dataSource.setPassword(postgres.getPassword());
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("drop table if exists auth_users");
+        jdbc.execute("""
+                create table auth_users (
+                    id bigint generated by default as identity primary key,
+                    mobile_number varchar(255) not null unique,
+                    role varchar(255) not null,
+                    verified boolean not null)""");
+
+        registeredNumbers = mock(RegisteredNumberFilter.class);
+        refreshTokens = mock(RefreshTokenService.class);
+        consumer = new UserEventConsumer(dataSource, new DataSourceTransactionManager(dataSource), ShardRouter.single(),
+                registeredNumbers, refreshTokens, new ObjectMapper(), registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dataSource.close();
+    }
+
+    private ConsumerRecord<String, String> event(String mobileNumber, String role) {
+        String type = "BOTH".equals(role) ? "ROLE_CHANGED" : "USER_REGISTERED";
+        return record(mobileNumber, """
+                {"eventId":%d,"type":"%s","mobileNumber":"%s","role":"%s"}""".formatted(offset, type, mobileNumber, role));
+    }
+
+    private ConsumerRecord<String, String> record(String key, String value) {
+        return new ConsumerRecord<>(TOPIC, 0, offset++, key, value);
+    }
+
+    private Map<String, Object> row(String mobileNumber) {
+        return jdbc.queryForMap("select role, verified from auth_users where mobile_number = ?", mobileNumber);
+    }
+
+    private double count(String result) {
+        return registry.get("auth.user.events").tag("result", result).counter().count();
+    }
+
+    @Test
+    void batchInsertsNewNumbersAndRegistersThemWithTheFilter() {
+        consumer.onEvents(List.of(event("9000000001", "RIDER"), event("9000000002", "OWNER")));
+
+        assertThat(row("9000000001")).containsEntry("role", "RIDER").containsEntry("verified", false);
+        assertThat(row("9000000002")).containsEntry("role", "OWNER");
+        verify(registeredNumbers).register("9000000001");
+        verify(registeredNumbers).register("9000000002");
+        verify(refreshTokens, never()).updateRole(anyString(), anyString());
+        assertThat(count("applied")).isEqualTo(2);
+    }
+
+    @Test
+    void bothWinsWithinABatchWhateverTheOrder() {
+        consumer.onEvents(List.of(
+                event("9000000001", "RIDER"), event("9000000001", "BOTH"), event("9000000001", "OWNER")));
+
+        assertThat(row("9000000001")).containsEntry("role", "BOTH");
+        assertThat(jdbc.queryForObject("select count(*) from auth_users", Integer.class)).isEqualTo(1);
+        verify(refreshTokens).updateRole("9000000001", "BOTH");
+        assertThat(count("applied")).isEqualTo(1);
+    }
+
+    @Test
+    void existingRoleIsOnlyEverUpgradedToBoth() {
+        consumer.onEvents(List.of(event("9000000001", "RIDER")));
+
+        consumer.onEvents(List.of(event("9000000001", "OWNER")));
+        assertThat(row("9000000001")).containsEntry("role", "RIDER");
+
+        consumer.onEvents(List.of(event("9000000001", "BOTH")));
+        // Late or replayed registration after the upgrade
+        consumer.onEvents(List.of(event("9000000001", "RIDER")));
+        assertThat(row("9000000001")).containsEntry("role", "BOTH");
+    }
+
+    @Test
+    void replayingABatchLeavesTheSameRows() {
+        List<ConsumerRecord<String, String>> batch = List.of(
+                event("9000000001", "RIDER"), event("9000000002", "BOTH"));
+
+        consumer.onEvents(batch);
+        List<Map<String, Object>> first = jdbc.queryForList("select * from auth_users order by mobile_number");
+        consumer.onEvents(batch);
+
+        assertThat(jdbc.queryForList("select * from auth_users order by mobile_number")).isEqualTo(first);
+        // Re-applying the role to refresh-token families is idempotent too
+        verify(refreshTokens, times(2)).updateRole("9000000002", "BOTH");
+    }
+
+    @Test
+    void unreadableRecordsAreSkippedAndCounted() {
+        consumer.onEvents(List.of(
+                record("x", "not json"),
+                record("9000000003", "{\"eventId\":1,\"type\":\"USER_REGISTERED\",\"mobileNumber\":\"9000000003\"}"),
+                event("9000000001", "RIDER")));
+
+        assertThat(count("unreadable")).isEqualTo(2);
+        assertThat(jdbc.queryForList("select mobile_number from auth_users", String.class)).containsExactly("9000000001");
+    }
+}
@@ -0,0 +1,76 @@
+package com.rideshare.authservice.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.EdECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Base64;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtAlgorithmTest {
+
+    private static byte[] decode(Object base64Url) {
+        return Base64.getUrlDecoder().decode((String) base64Url);
+    }
+
+    @Test
+    void ecCoordinatesAreAlways32Bytes() throws Exception {
+        // About 1 key in 128 has a coordinate below 2^248, whose magnitude is shorter than 32 bytes;
+        // about half have one with the high bit set, which BigInteger prefixes with a sign byte
+        boolean sawShort = false;
+        boolean sawSignByte = false;
+        for (int i = 0; i < 5_000 && !(sawShort && sawSignByte); i++) {
+            ECPublicKey key = (ECPublicKey) JwtUtilTest.generate(JwtAlgorithm.ES256).getPublic();
+            Map<String, Object> jwk = JwtAlgorithm.ES256.toJwk("k", key);
+            for (var entry : Map.of("x", key.getW().getAffineX(), "y", key.getW().getAffineY()).entrySet()) {
+                BigInteger coordinate = entry.getValue();
+                byte[] encoded = decode(jwk.get(entry.getKey()));
+                assertThat(encoded).hasSize(32);
+                assertThat(new BigInteger(1, encoded)).isEqualTo(coordinate);
+                sawShort |= coordinate.toByteArray().length < 32;
+                sawSignByte |= coordinate.toByteArray().length == 33;
+            }
+        }
+        assertThat(sawShort).as("generated a coordinate needing left-padding").isTrue();
+        assertThat(sawSignByte).as("generated a coordinate with a sign byte").isTrue();
+        assertThat(JwtAlgorithm.ES256.toJwk("k", JwtUtilTest.generate(JwtAlgorithm.ES256).getPublic()))
+                .containsEntry("kty", "EC")
+                .containsEntry("crv", "P-256");
+    }
+
+    @Test
+    void ed25519XIsTheRawLittleEndianPublicKey() throws Exception {
+        EdECPublicKey key = (EdECPublicKey) JwtUtilTest.generate(JwtAlgorithm.EdDSA).getPublic();
+
+        // RFC 8032 encoding: y little-endian, with the parity of x in the top bit of the last byte
+        byte[] expected = new byte[32];
+        byte[] y = key.getPoint().getY().toByteArray();
+        for (int i = 0; i < Math.min(y.length, 32); i++) {
+            expected[i] = y[y.length - 1 - i];
+        }
+        if (key.getPoint().isXOdd()) {
+            expected[31] |= (byte) 0x80;
+        }
+
+        Map<String, Object> jwk = JwtAlgorithm.EdDSA.toJwk("k", key);
+        assertThat(jwk).containsEntry("kty", "OKP").containsEntry("crv", "Ed25519");
+        assertThat(decode(jwk.get("x"))).isEqualTo(expected);
+    }
+
+    @Test
+    void rsaModulusHasNoSignByte() throws Exception {
+        KeyPair pair = JwtUtilTest.generate(JwtAlgorithm.RS256);
+        RSAPublicKey key = (RSAPublicKey) pair.getPublic();
+
+        Map<String, Object> jwk = JwtAlgorithm.RS256.toJwk("k", key);
+
+        assertThat(decode(jwk.get("n"))).hasSize(256);
+        assertThat(new BigInteger(1, decode(jwk.get("n")))).isEqualTo(key.getModulus());
+        assertThat(decode(jwk.get("e"))).isEqualTo(new byte[]{1, 0, 1});
+    }
+}
@@ -0,0 +1,116 @@
+package com.rideshare.authservice.service;
+
+import com.rideshare.authservice.messaging.NotificationPublisher;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the shipped otp-store.lua / otp-verify.lua against a real Redis and checks that every
+ * script result maps to the right {@link OtpService.Outcome}.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class OtpServiceRedisTest {
+
+    private static final String MOBILE = "9885791402";
+    private static final String KEY = "otp:" + MOBILE;
+
+    @Container
+    static final GenericContainer<?> redisContainer =
+            new GenericContainer<>("redis:7-alpine").withExposedPorts(6379);
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redis;
+
+    private OtpService otpService;
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(redisContainer.getHost(), redisContainer.getMappedPort(6379)));
+        connectionFactory.afterPropertiesSet();
+        redis = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redis.delete(KEY);
+        NotificationPublisher publisher = mock(NotificationPublisher.class);
+        when(publisher.publish(anyString(), anyString(), anyString())).thenReturn(true);
+        otpService = new OtpService(redis, publisher);
+    }
+
+    @Test
+    void generatedOtpVerifiesOnceAndIsConsumed() {
+        otpService.generateAndSendOtp(MOBILE);
+        String code = (String) redis.opsForHash().get(KEY, "code");
+
+        assertThat(redis.getExpire(KEY)).isPositive();
+        assertThat(otpService.verifyOtp(MOBILE, code)).isEqualTo(OtpService.Outcome.VERIFIED);
+        assertThat(redis.hasKey(KEY)).isFalse();
+        assertThat(otpService.verifyOtp(MOBILE, code)).isEqualTo(OtpService.Outcome.EXPIRED);
+    }
+
+    @Test
+    void wrongCodeIsAMismatchAndCountsAnAttempt() {
+        store("123456", 60_000);
+
+        assertThat(otpService.verifyOtp(MOBILE, "654321")).isEqualTo(OtpService.Outcome.MISMATCH);
+        assertThat(redis.opsForHash().get(KEY, "attempts")).isEqualTo("1");
+        assertThat(otpService.verifyOtp(MOBILE, "123456")).isEqualTo(OtpService.Outcome.VERIFIED);
+    }
+
+    @Test
+    void expiredOtpIsReportedAsExpired() throws InterruptedException {
+        store("123456", 100);
+        Thread.sleep(300);
+
+        assertThat(otpService.verifyOtp(MOBILE, "123456")).isEqualTo(OtpService.Outcome.EXPIRED);
+    }
+
+    @Test
+    void maxAttemptsBurnsTheOtp() {
+        store("123456", 60_000);
+
+        for (int i = 1; i < 5; i++) {
+            assertThat(otpService.verifyOtp(MOBILE, "000000")).isEqualTo(OtpService.Outcome.MISMATCH);
+        }
+        assertThat(otpService.verifyOtp(MOBILE, "000000")).isEqualTo(OtpService.Outcome.TOO_MANY_ATTEMPTS);
+        // Burned: even the right code no longer works
+        assertThat(otpService.verifyOtp(MOBILE, "123456")).isEqualTo(OtpService.Outcome.EXPIRED);
+    }
+
+    @Test
+    void storingANewOtpResetsTheAttempts() {
+        store("123456", 60_000);
+        otpService.verifyOtp(MOBILE, "000000");
+        store("222222", 60_000);
+
+        assertThat(redis.opsForHash().get(KEY, "attempts")).isEqualTo("0");
+        assertThat(otpService.verifyOtp(MOBILE, "123456")).isEqualTo(OtpService.Outcome.MISMATCH);
+        assertThat(otpService.verifyOtp(MOBILE, "222222")).isEqualTo(OtpService.Outcome.VERIFIED);
+    }
+
+    private static void store(String code, long ttlMillis) {
+        redis.execute(OtpService.STORE_SCRIPT, List.of(KEY), code, String.valueOf(ttlMillis));
+    }
+}
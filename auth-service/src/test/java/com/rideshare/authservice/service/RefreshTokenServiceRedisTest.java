@@ -0,0 +1,208 @@
+package com.rideshare.authservice.service;
+
+import com.rideshare.authservice.service.RefreshTokenService.Outcome;
+import com.rideshare.authservice.service.RefreshTokenService.RefreshProps;
+import com.rideshare.authservice.service.RefreshTokenService.Rotation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the shipped refresh-*.lua scripts against a real Redis. The absolute expiry and the reuse
+ * grace use the service clock, which the tests move; the idle TTL is Redis' own key expiry.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class RefreshTokenServiceRedisTest {
+
+    private static final String MOBILE = "9885791402";
+    private static final Duration IDLE_TTL = Duration.ofDays(14);
+    private static final Duration MAX_LIFETIME = Duration.ofDays(60);
+    private static final Duration GRACE = Duration.ofSeconds(10);
+
+    @Container
+    static final GenericContainer<?> redisContainer =
+            new GenericContainer<>("redis:7-alpine").withExposedPorts(6379);
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redis;
+
+    private final AtomicLong now = new AtomicLong(System.currentTimeMillis());
+    private SimpleMeterRegistry registry;
+    private RefreshTokenService refreshTokens;
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(redisContainer.getHost(), redisContainer.getMappedPort(6379)));
+        connectionFactory.afterPropertiesSet();
+        redis = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redis.execute((RedisCallback<Object>) connection -> {
+            connection.serverCommands().flushDb();
+            return null;
+        });
+        registry = new SimpleMeterRegistry();
+        refreshTokens = service(IDLE_TTL);
+    }
+
+    private RefreshTokenService service(Duration idleTtl) {
+        return new RefreshTokenService(redis, new RefreshProps(idleTtl, MAX_LIFETIME, GRACE), registry, now::get);
+    }
+
+    private static String familyKey(String token) {
+        return "refresh:" + token.substring(0, token.indexOf('.'));
+    }
+
+    private double count(Outcome outcome) {
+        return registry.get("auth.refresh.tokens").tag("result", outcome.name().toLowerCase()).counter().count();
+    }
+
+    @Test
+    void rotateReturnsTheLoginClaimsAndTheNextTokenOfTheFamily() {
+        String first = refreshTokens.issue(MOBILE, "RIDER", true);
+
+        Rotation rotation = refreshTokens.rotate(first);
+
+        assertThat(rotation.outcome()).isEqualTo(Outcome.ROTATED);
+        assertThat(rotation.subject()).isEqualTo(MOBILE);
+        assertThat(rotation.role()).isEqualTo("RIDER");
+        assertThat(rotation.verified()).isTrue();
+        assertThat(rotation.refreshToken()).isNotEqualTo(first);
+        assertThat(familyKey(rotation.refreshToken())).isEqualTo(familyKey(first));
+        assertThat(refreshTokens.rotate(rotation.refreshToken()).outcome()).isEqualTo(Outcome.ROTATED);
+        assertThat(count(Outcome.ROTATED)).isEqualTo(2);
+        // Only digests are stored
+        assertThat(redis.opsForHash().values(familyKey(first))).doesNotContain(first.substring(first.indexOf('.') + 1));
+    }
+
+    @Test
+    void oldSecretPresentedAfterTheGraceRevokesTheWholeFamily() {
+        String first = refreshTokens.issue(MOBILE, "RIDER", true);
+        String second = refreshTokens.rotate(first).refreshToken();
+
+        now.addAndGet(GRACE.toMillis() + 1);
+
+        assertThat(refreshTokens.rotate(first).outcome()).isEqualTo(Outcome.REUSED);
+        assertThat(redis.hasKey(familyKey(first))).isFalse();
+        // The legitimate holder of the newest token is logged out too
+        assertThat(refreshTokens.rotate(second).outcome()).isEqualTo(Outcome.EXPIRED);
+        assertThat(count(Outcome.REUSED)).isEqualTo(1);
+    }
+
+    @Test
+    void retryWithThePreviousSecretWithinTheGraceRotatesAgain() {
+        String first = refreshTokens.issue(MOBILE, "RIDER", true);
+        String lost = refreshTokens.rotate(first).refreshToken();
+
+        now.addAndGet(GRACE.toMillis() / 2);
+        Rotation retried = refreshTokens.rotate(first);
+
+        assertThat(retried.outcome()).isEqualTo(Outcome.ROTATED);
+        assertThat(retried.refreshToken()).isNotEqualTo(lost);
+        // The response the client never saw is superseded
+        assertThat(refreshTokens.rotate(lost).outcome()).isEqualTo(Outcome.REUSED);
+    }
+
+    @Test
+    void graceCountsFromTheRotationNotTheRetry() {
+        String first = refreshTokens.issue(MOBILE, "RIDER", true);
+        refreshTokens.rotate(first);
+
+        now.addAndGet(GRACE.toMillis() - 1);
+        assertThat(refreshTokens.rotate(first).outcome()).isEqualTo(Outcome.ROTATED);
+        now.addAndGet(2);
+        assertThat(refreshTokens.rotate(first).outcome()).isEqualTo(Outcome.REUSED);
+    }
+
+    @Test
+    void familyExpiresAtItsAbsoluteLifetimeHoweverOftenItIsUsed() {
+        String token = refreshTokens.issue(MOBILE, "RIDER", true);
+        token = refreshTokens.rotate(token).refreshToken();
+
+        now.addAndGet(MAX_LIFETIME.toMillis() - 1_000);
+        token = refreshTokens.rotate(token).refreshToken();
+        // Idle TTL is capped by what is left of the lifetime
+        assertThat(redis.getExpire(familyKey(token), TimeUnit.MILLISECONDS)).isBetween(1L, 1_000L);
+
+        now.addAndGet(1_000);
+        assertThat(refreshTokens.rotate(token).outcome()).isEqualTo(Outcome.EXPIRED);
+        assertThat(redis.hasKey(familyKey(token))).isFalse();
+    }
+
+    @Test
+    void familyExpiresAfterTheIdleTtlWithoutUse() throws InterruptedException {
+        RefreshTokenService shortIdle = service(Duration.ofMillis(200));
+        String token = shortIdle.issue(MOBILE, "RIDER", true);
+        token = shortIdle.rotate(token).refreshToken();
+        assertThat(redis.getExpire(familyKey(token), TimeUnit.MILLISECONDS)).isBetween(1L, 200L);
+
+        Thread.sleep(400);
+
+        assertThat(shortIdle.rotate(token).outcome()).isEqualTo(Outcome.EXPIRED);
+    }
+
+    @Test
+    void malformedTokensNeverReachRedis() {
+        assertThat(refreshTokens.rotate(null).outcome()).isEqualTo(Outcome.MALFORMED);
+        assertThat(refreshTokens.rotate("").outcome()).isEqualTo(Outcome.MALFORMED);
+        assertThat(refreshTokens.rotate("not-a-token").outcome()).isEqualTo(Outcome.MALFORMED);
+        String valid = refreshTokens.issue(MOBILE, "RIDER", true);
+        assertThat(refreshTokens.rotate(valid + "x").outcome()).isEqualTo(Outcome.MALFORMED);
+        assertThat(refreshTokens.rotate(valid.replace('.', '_')).outcome()).isEqualTo(Outcome.MALFORMED);
+        assertThat(count(Outcome.MALFORMED)).isEqualTo(5);
+        // Unknown family of the right shape
+        assertThat(refreshTokens.rotate("A".repeat(22) + "." + "B".repeat(43)).outcome()).isEqualTo(Outcome.EXPIRED);
+    }
+
+    @Test
+    void updateRoleReachesEveryLiveFamilyAndDropsExpiredOnes() {
+        String phone = refreshTokens.issue(MOBILE, "RIDER", false);
+        String laptop = refreshTokens.issue(MOBILE, "RIDER", false);
+        String gone = refreshTokens.issue(MOBILE, "RIDER", false);
+        redis.delete(familyKey(gone));
+
+        refreshTokens.updateRole(MOBILE, "BOTH");
+
+        assertThat(refreshTokens.rotate(phone).role()).isEqualTo("BOTH");
+        assertThat(refreshTokens.rotate(laptop).role()).isEqualTo("BOTH");
+        assertThat(redis.opsForSet().size("refresh-user:" + MOBILE)).isEqualTo(2);
+    }
+
+    @Test
+    void revokeEndsOneFamilyAndRevokeAllEndsEvery() {
+        String phone = refreshTokens.issue(MOBILE, "RIDER", true);
+        String laptop = refreshTokens.issue(MOBILE, "RIDER", true);
+        String other = refreshTokens.issue("9000000001", "OWNER", true);
+
+        refreshTokens.revoke(phone);
+        assertThat(refreshTokens.rotate(phone).outcome()).isEqualTo(Outcome.EXPIRED);
+
+        refreshTokens.revokeAll(MOBILE);
+        assertThat(refreshTokens.rotate(laptop).outcome()).isEqualTo(Outcome.EXPIRED);
+        assertThat(redis.hasKey("refresh-user:" + MOBILE)).isFalse();
+        assertThat(refreshTokens.rotate(other).outcome()).isEqualTo(Outcome.ROTATED);
+    }
+}
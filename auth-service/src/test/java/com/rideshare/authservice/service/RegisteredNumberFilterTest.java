@@ -0,0 +1,138 @@
+package com.rideshare.authservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rideshare.authservice.repository.UserAuthRepository;
+import com.rideshare.authservice.service.RegisteredNumberFilter.AdmissionProps;
+import com.rideshare.datasource.sharding.ShardRouter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Rebuilds are run directly; the user-events subscription is replaced by a captured handler.
+ */
+class RegisteredNumberFilterTest {
+
+    private static final String REGISTERED = "9000000001";
+    private static final String LATER = "9000000002";
+    private static final String UNKNOWN = "9000000099";
+
+    private final List<Consumer<String>> subscriptions = new ArrayList<>();
+    private UserAuthRepository userRepo;
+    private MeterRegistry registry;
+    private RegisteredNumberFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        userRepo = mock(UserAuthRepository.class);
+        when(userRepo.count()).thenReturn(1L);
+        when(userRepo.streamAllMobileNumbers()).thenAnswer(inv -> Stream.of(REGISTERED));
+        registry = new SimpleMeterRegistry();
+        filter = new RegisteredNumberFilter(userRepo, mock(PlatformTransactionManager.class),
+                new AdmissionProps(true, 1_000, 0.01, Duration.ofMinutes(10)), registry,
+                ShardRouter.single(), new ObjectMapper(), handler -> {
+                    subscriptions.add(handler);
+                    return () -> {};
+                });
+    }
+
+    @Test
+    void admitsEverythingUntilTheFirstBuild() {
+        assertThat(filter.mightBeRegistered(UNKNOWN)).isTrue();
+        assertThat(subscriptions).isEmpty();
+    }
+
+    @Test
+    void rejectsNumbersMissingFromTheScan() {
+        filter.rebuild();
+
+        assertThat(filter.mightBeRegistered(REGISTERED)).isTrue();
+        assertThat(filter.mightBeRegistered(UNKNOWN)).isFalse();
+        assertThat(decisions("admitted")).isEqualTo(1);
+        assertThat(decisions("rejected")).isEqualTo(1);
+    }
+
+    @Test
+    void registerAdmitsANumberBeforeTheNextRebuild() {
+        filter.rebuild();
+        assertThat(filter.mightBeRegistered(LATER)).isFalse();
+
+        filter.register(LATER);
+
+        assertThat(filter.mightBeRegistered(LATER)).isTrue();
+    }
+
+    @Test
+    void registrationsFromOtherReplicasArriveThroughTheSubscription() {
+        filter.rebuild();
+        filter.rebuild();
+        assertThat(subscriptions).as("subscribed once, on the first build").hasSize(1);
+
+        subscriptions.get(0).accept("""
+                {"eventId":7,"type":"REGISTERED","mobileNumber":"%s","role":"RIDER"}""".formatted(LATER));
+        subscriptions.get(0).accept("not json");
+
+        assertThat(filter.mightBeRegistered(LATER)).isTrue();
+    }
+
+    @Test
+    void registrationDuringARebuildLandsInTheNewFilter() {
+        when(userRepo.streamAllMobileNumbers()).thenAnswer(inv -> {
+            // Arrives after the scan started but is not in the rows it reads
+            filter.register(LATER);
+            return Stream.of(REGISTERED);
+        });
+
+        filter.rebuild();
+
+        assertThat(filter.mightBeRegistered(LATER)).isTrue();
+    }
+
+    @Test
+    void failedRebuildKeepsThePreviousFilter() {
+        filter.rebuild();
+        when(userRepo.streamAllMobileNumbers()).thenThrow(new IllegalStateException("db down"));
+
+        filter.rebuild();
+
+        assertThat(filter.mightBeRegistered(REGISTERED)).isTrue();
+        assertThat(filter.mightBeRegistered(UNKNOWN)).isFalse();
+    }
+
+    @Test
+    void observedRateIsFalsePositivesOverAllUnregisteredNumbers() {
+        filter.rebuild();
+        assertThat(gauge("observed.fpp")).isZero();
+
+        for (int i = 0; i < 10; i++) {
+            filter.mightBeRegistered(REGISTERED);
+        }
+        for (int i = 0; i < 3; i++) {
+            filter.mightBeRegistered(UNKNOWN);
+        }
+        filter.recordFalsePositive();
+
+        // 1 admitted-but-unregistered out of 1 + 3 unregistered; the 10 registered ones don't count
+        assertThat(gauge("observed.fpp")).isEqualTo(0.25);
+    }
+
+    private double decisions(String outcome) {
+        return registry.get("auth.admission.filter.decisions").tag("outcome", outcome).counter().count();
+    }
+
+    private double gauge(String name) {
+        return registry.get("auth.admission.filter." + name).gauge().value();
+    }
+}
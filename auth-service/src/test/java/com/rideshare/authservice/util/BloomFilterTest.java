@@ -0,0 +1,71 @@
+package com.rideshare.authservice.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BloomFilterTest {
+
+    @Test
+    void neverReportsAnInsertedValueAsAbsent() {
+        BloomFilter filter = BloomFilter.create(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put(number(i));
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(filter.mightContain(number(i))).as(number(i)).isTrue();
+        }
+    }
+
+    @Test
+    void falsePositiveRateStaysNearTheTargetAtCapacity() {
+        BloomFilter filter = BloomFilter.create(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put(number(i));
+        }
+        int falsePositives = 0;
+        int probes = 100_000;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain(number(1_000_000 + i))) {
+                falsePositives++;
+            }
+        }
+        double observed = (double) falsePositives / probes;
+        assertThat(observed).isLessThan(0.02);
+        assertThat(filter.expectedFalsePositiveRate()).isBetween(0.005, 0.02);
+    }
+
+    @Test
+    void expectedRateGrowsWithTheFillRatio() {
+        BloomFilter filter = BloomFilter.create(1_000, 0.01);
+        assertThat(filter.expectedFalsePositiveRate()).isZero();
+        filter.put(number(1));
+        double one = filter.expectedFalsePositiveRate();
+        for (int i = 2; i < 500; i++) {
+            filter.put(number(i));
+        }
+        assertThat(one).isPositive();
+        assertThat(filter.expectedFalsePositiveRate()).isGreaterThan(one);
+    }
+
+    @Test
+    void sizesFromExpectedInsertionsAndRate() {
+        BloomFilter filter = BloomFilter.create(1_000_000, 0.01);
+        // m = -n ln p / ln^2 2 ~ 9.59 bits per element, k = m/n ln 2 ~ 7
+        assertThat(filter.bitSize()).isBetween(9_585_000L, 9_590_000L);
+        assertThat(filter.bitSize() % 64).isZero();
+        assertThat(filter.hashCount()).isEqualTo(7);
+        assertThat(BloomFilter.create(0, 0.5).bitSize()).isEqualTo(64);
+    }
+
+    @Test
+    void rejectsRatesOutsideZeroToOne() {
+        assertThatThrownBy(() -> BloomFilter.create(100, 0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> BloomFilter.create(100, 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static String number(int i) {
+        return String.format("9%09d", i);
+    }
+}
@@ -0,0 +1,169 @@
+package com.rideshare.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Read-only connections spread round-robin over the replicas whose last lag check succeeded
+ * and was within {@code maxLag}. When none qualifies (or a replica refuses a connection) the
+ * primary serves the read, so a lagging or dead replica only costs primary capacity, never
+ * stale or failed reads beyond maxLag. Replicas start out unhealthy until their first check.
+ * A server that is not in recovery is never used: after a promotion, or with a primary URL
+ * listed by mistake, it would take reads without being kept in step with the primary.
+ */
+public class ReplicaPool extends AbstractDataSource implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaPool.class);
+
+    // Null for a server that is not a standby
+    static final String LAG_SQL = """
+            select case
+                when not pg_is_in_recovery() then null
+                when pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() then 0
+                else coalesce(extract(epoch from now() - pg_last_xact_replay_timestamp()), 0)
+            end""";
+
+    private static final class Replica {
+        final String name;
+        final HikariDataSource dataSource;
+        final Counter connections;
+        volatile boolean healthy;
+        volatile double lagSeconds = -1;
+        volatile boolean standby = true;
+
+        Replica(String name, HikariDataSource dataSource, Counter connections) {
+            this.name = name;
+            this.dataSource = dataSource;
+            this.connections = connections;
+        }
+    }
+
+    private final DataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final Duration maxLag;
+    private final Counter primaryFallbacks;
+    private final AtomicInteger next = new AtomicInteger();
+    private final ScheduledExecutorService monitor;
+
+    public ReplicaPool(DataSource primary, List<HikariDataSource> replicaDataSources,
+                       Duration maxLag, Duration checkInterval, MeterRegistry registry) {
+        this.primary = primary;
+        this.maxLag = maxLag;
+        this.primaryFallbacks = connections(registry, "primary");
+        for (HikariDataSource dataSource : replicaDataSources) {
+            String name = dataSource.getPoolName();
+            Replica replica = new Replica(name, dataSource, connections(registry, name));
+            Gauge.builder("datasource.replica.lag", replica, r -> r.lagSeconds)
+                    .tag("replica", name).baseUnit("seconds").register(registry);
+            Gauge.builder("datasource.replica.healthy", replica, r -> r.healthy ? 1 : 0)
+                    .tag("replica", name).register(registry);
+            replicas.add(replica);
+        }
+        if (replicas.isEmpty()) {
+            this.monitor = null;
+        } else {
+            this.monitor = Executors.newSingleThreadScheduledExecutor(
+                    Thread.ofPlatform().name("replica-lag-monitor").daemon().factory());
+            monitor.scheduleWithFixedDelay(this::checkReplicas, 0, checkInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static Counter connections(MeterRegistry registry, String target) {
+        return Counter.builder("datasource.routing.connections")
+                .description("Read-only connections handed out, by target")
+                .tag("target", target)
+                .register(registry);
+    }
+
+    public boolean isEmpty() {
+        return replicas.isEmpty();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        int size = replicas.size();
+        int start = size == 0 ? 0 : Math.floorMod(next.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (!replica.healthy) {
+                continue;
+            }
+            try {
+                Connection connection = replica.dataSource.getConnection();
+                replica.connections.increment();
+                return connection;
+            } catch (SQLException e) {
+                // Take it out of rotation until the next successful check
+                replica.healthy = false;
+                log.warn("Replica {} refused a connection, routing reads elsewhere: {}", replica.name, e.getMessage());
+            }
+        }
+        primaryFallbacks.increment();
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Replica pool uses the configured credentials");
+    }
+
+    void checkReplicas() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(LAG_SQL)) {
+                rs.next();
+                double lag = rs.getDouble(1);
+                if (rs.wasNull()) {
+                    if (replica.standby) {
+                        log.error("Replica {} is not a standby (promoted or misconfigured), out of rotation", replica.name);
+                    }
+                    replica.standby = false;
+                    replica.lagSeconds = -1;
+                    replica.healthy = false;
+                    continue;
+                }
+                replica.standby = true;
+                boolean healthy = lag <= maxLag.toMillis() / 1000.0;
+                if (healthy != replica.healthy) {
+                    log.info("Replica {} is now {} (lag {}s)", replica.name, healthy ? "in rotation" : "out of rotation", lag);
+                }
+                replica.lagSeconds = lag;
+                replica.healthy = healthy;
+            } catch (SQLException | RuntimeException e) {
+                if (replica.healthy) {
+                    log.warn("Replica {} lag check failed, out of rotation: {}", replica.name, e.getMessage());
+                }
+                replica.lagSeconds = -1;
+                replica.healthy = false;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (monitor != null) {
+            monitor.shutdownNow();
+        }
+        replicas.forEach(replica -> replica.dataSource.close());
+    }
+}
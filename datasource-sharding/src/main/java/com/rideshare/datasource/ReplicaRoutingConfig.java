@@ -0,0 +1,92 @@
+package com.rideshare.datasource;
+
+import com.rideshare.datasource.sharding.ShardRoutingDataSource;
+import com.rideshare.datasource.sharding.ShardingConfig;
+import com.rideshare.datasource.sharding.ShardingConfig.ShardPools;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sends read-only transactions to read replicas, everything else to the primary.
+ * The exposed DataSource is a {@link LazyConnectionDataSourceProxy}: the physical connection is
+ * only fetched at the first statement, after the transaction manager has marked it read-only,
+ * and read-only connections come from the {@link ReplicaPool}. When sharded, both sides go
+ * through a {@link ShardRoutingDataSource} (see {@link ShardingConfig}). With no replica URLs
+ * and no extra shards configured the primary pool is used directly.
+ */
+@Configuration
+@EnableConfigurationProperties(ReplicaRoutingConfig.ReplicaProps.class)
+public class ReplicaRoutingConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean(destroyMethod = "close")
+    public ReplicaPool replicaPool(HikariDataSource primaryDataSource, DataSourceProperties properties,
+                                   ReplicaProps props, MeterRegistry registry) {
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < props.urls().size(); i++) {
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + i);
+            replica.setJdbcUrl(props.urls().get(i));
+            replica.setUsername(properties.determineUsername());
+            replica.setPassword(properties.determinePassword());
+            replica.setMaximumPoolSize(props.poolSize());
+            // Fail fast so an unreachable replica falls back to the primary instead of stalling reads
+            replica.setConnectionTimeout(props.connectionTimeout().toMillis());
+            replica.setReadOnly(true);
+            // A replica that is down at startup must not stop the service; it joins once reachable
+            replica.setInitializationFailTimeout(-1);
+            replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+            replicas.add(replica);
+        }
+        return new ReplicaPool(primaryDataSource, replicas, props.maxLag(), props.checkInterval(), registry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaPool replicaPool, ShardPools shardPools) {
+        if (replicaPool.isEmpty() && shardPools.isEmpty()) {
+            return primaryDataSource;
+        }
+        // Lazy also when only sharded: the shard is picked at the first statement, not at transaction begin
+        LazyConnectionDataSourceProxy routing = new LazyConnectionDataSourceProxy(shardPools.isEmpty()
+                ? primaryDataSource
+                : new ShardRoutingDataSource(primaryDataSource, shardPools.pools()));
+        if (!replicaPool.isEmpty()) {
+            // Replicas belong to shard-0; other shards serve their reads from their own pool
+            routing.setReadOnlyDataSource(shardPools.isEmpty()
+                    ? replicaPool
+                    : new ShardRoutingDataSource(replicaPool, shardPools.pools()));
+        }
+        return routing;
+    }
+
+    @ConfigurationProperties(prefix = "datasource.read-replicas")
+    public record ReplicaProps(
+            @DefaultValue List<String> urls,
+            @DefaultValue("5s") Duration maxLag,
+            @DefaultValue("2s") Duration checkInterval,
+            @DefaultValue("10") int poolSize,
+            @DefaultValue("1s") Duration connectionTimeout
+    ) {}
+}
@@ -0,0 +1,74 @@
+package com.rideshare.datasource.sharding;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable consistent-hash ring over shard names. Each shard owns {@code virtualNodes} points
+ * on a 64-bit ring and a key belongs to the first point at or after its hash (wrapping around).
+ * Adding or removing one shard therefore only moves the keys adjacent to that shard's points,
+ * roughly 1/N of them, instead of rehashing everything as {@code hash % N} would.
+ * The hash is computed from the key bytes only, so every JVM agrees on the owner.
+ */
+public final class ConsistentHashRing {
+
+    private final List<String> members;
+    private final long[] points;
+    private final String[] owners;
+
+    public ConsistentHashRing(List<String> members, int virtualNodes) {
+        if (members.isEmpty()) {
+            throw new IllegalArgumentException("A ring needs at least one shard");
+        }
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("virtualNodes must be positive, got " + virtualNodes);
+        }
+        this.members = List.copyOf(members);
+
+        record Point(long hash, String owner) {}
+        Point[] ring = new Point[members.size() * virtualNodes];
+        int i = 0;
+        for (String member : members) {
+            for (int v = 0; v < virtualNodes; v++) {
+                ring[i++] = new Point(hash(member + "#" + v), member);
+            }
+        }
+        // Owner name breaks (astronomically unlikely) hash ties so the order is deterministic
+        Arrays.sort(ring, Comparator.comparingLong(Point::hash).thenComparing(Point::owner));
+        this.points = new long[ring.length];
+        this.owners = new String[ring.length];
+        for (int p = 0; p < ring.length; p++) {
+            points[p] = ring[p].hash();
+            owners[p] = ring[p].owner();
+        }
+    }
+
+    public String ownerOf(String key) {
+        int index = Arrays.binarySearch(points, hash(key));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    public List<String> members() {
+        return members;
+    }
+
+    // 64-bit FNV-1a followed by the MurmurHash3 finalizer to spread short, similar keys
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,156 @@
+package com.rideshare.datasource.sharding;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Background migration from the previous ring to the current one, for one table.
+ * Each shard of the previous ring is scanned in id order, {@code batchSize} rows at a time;
+ * rows whose owner changed are inserted on the new owner (ON CONFLICT DO NOTHING, so a row
+ * already moved by a write wins) and then deleted from the old one. Copy and delete are two
+ * separate commits on two databases: a crash in between leaves a duplicate that the next run
+ * cleans up, and reads stay correct meanwhile because the new owner is always asked first.
+ * <p>
+ * Keyed writes during the migration move their key synchronously through the same path
+ * (registered as a {@link ShardRouter.KeyMover}), so a write never lands beside a stale copy.
+ * Safe to run again after a failure or on several instances at once.
+ */
+public class Resharder {
+
+    private static final Logger log = LoggerFactory.getLogger(Resharder.class);
+
+    public enum State { IDLE, RUNNING, DONE, FAILED }
+
+    public record Status(String table, State state, List<String> previousRing, long scanned, long moved,
+                         String currentShard, String error) {}
+
+    private final ShardRouter router;
+    private final ShardedTable table;
+    private final List<String> sourceShards;
+    private final int batchSize;
+    private final NamedParameterJdbcTemplate jdbc;
+    private final Counter movedRows;
+    private final String scanSql;
+    private final String selectSql;
+    private final String insertSql;
+    private final String deleteSql;
+
+    private final AtomicLong scanned = new AtomicLong();
+    private final AtomicLong moved = new AtomicLong();
+    private volatile State state = State.IDLE;
+    private volatile String currentShard;
+    private volatile String error;
+
+    public Resharder(ShardRouter router, DataSource dataSource, ShardedTable table, List<String> previousRing,
+                     int batchSize, MeterRegistry registry) {
+        this.router = router;
+        this.table = table;
+        this.sourceShards = List.copyOf(previousRing);
+        this.batchSize = batchSize;
+        this.jdbc = new NamedParameterJdbcTemplate(dataSource);
+        this.movedRows = Counter.builder("datasource.reshard.rows.moved")
+                .description("Rows copied to their new shard and removed from the old one")
+                .tag("table", table.name())
+                .register(registry);
+
+        String columns = String.join(", ", table.copyColumns());
+        this.scanSql = "select " + table.idColumn() + ", " + table.keyColumn() + " from " + table.name()
+                + " where " + table.idColumn() + " > :after order by " + table.idColumn() + " limit :limit";
+        this.selectSql = "select " + columns + " from " + table.name() + " where " + table.keyColumn() + " in (:keys)";
+        this.insertSql = "insert into " + table.name() + " (" + columns + ") values ("
+                + table.copyColumns().stream().map(c -> ":" + c).collect(Collectors.joining(", "))
+                + ") on conflict (" + table.keyColumn() + ") do nothing";
+        this.deleteSql = "delete from " + table.name() + " where " + table.keyColumn() + " in (:keys)";
+
+        router.addKeyMover((key, from, to) -> moveKeys(from, to, List.of(key)));
+    }
+
+    public Status status() {
+        return new Status(table.name(), state, sourceShards, scanned.get(), moved.get(), currentShard, error);
+    }
+
+    /** Starts the background run; false if there is nothing to migrate or a run is in progress. */
+    public synchronized boolean start() {
+        if (!router.isResharding() || state == State.RUNNING) {
+            return false;
+        }
+        state = State.RUNNING;
+        Thread.ofPlatform().name("resharder-" + table.name()).daemon().start(this::run);
+        return true;
+    }
+
+    void run() {
+        long start = System.nanoTime();
+        scanned.set(0);
+        moved.set(0);
+        error = null;
+        state = State.RUNNING;
+        try {
+            for (String source : sourceShards) {
+                currentShard = source;
+                migrateShard(source);
+            }
+            state = State.DONE;
+            log.info("Resharding of {} finished: scanned={}, moved={} in {}s", table.name(), scanned.get(),
+                    moved.get(), (System.nanoTime() - start) / 1_000_000_000);
+        } catch (RuntimeException e) {
+            error = e.getMessage();
+            state = State.FAILED;
+            log.error("Resharding of {} failed on {}; rerun to resume", table.name(), currentShard, e);
+        } finally {
+            currentShard = null;
+        }
+    }
+
+    private void migrateShard(String source) {
+        long after = Long.MIN_VALUE;
+        while (true) {
+            MapSqlParameterSource page = new MapSqlParameterSource("after", after).addValue("limit", batchSize);
+            List<Map<String, Object>> rows = router.onShard(source, () -> jdbc.queryForList(scanSql, page));
+            if (rows.isEmpty()) {
+                return;
+            }
+            Map<String, List<String>> byTarget = new LinkedHashMap<>();
+            for (Map<String, Object> row : rows) {
+                String key = (String) row.get(table.keyColumn());
+                String owner = router.shardOf(key);
+                if (!owner.equals(source)) {
+                    byTarget.computeIfAbsent(owner, s -> new ArrayList<>()).add(key);
+                }
+            }
+            byTarget.forEach((target, keys) -> moveKeys(source, target, keys));
+            scanned.addAndGet(rows.size());
+            after = ((Number) rows.get(rows.size() - 1).get(table.idColumn())).longValue();
+        }
+    }
+
+    void moveKeys(String source, String target, Collection<String> keys) {
+        MapSqlParameterSource byKeys = new MapSqlParameterSource("keys", keys);
+        List<Map<String, Object>> rows = router.onShard(source, () -> jdbc.queryForList(selectSql, byKeys));
+        if (rows.isEmpty()) {
+            return;
+        }
+        MapSqlParameterSource[] batch = rows.stream().map(MapSqlParameterSource::new).toArray(MapSqlParameterSource[]::new);
+        router.runOnShard(target, () -> jdbc.batchUpdate(insertSql, batch));
+        // Only the rows that were read (and are now on the target) are removed
+        MapSqlParameterSource copied = new MapSqlParameterSource("keys",
+                rows.stream().map(row -> row.get(table.keyColumn())).toList());
+        int deleted = router.onShard(source, () -> jdbc.update(deleteSql, copied));
+        moved.addAndGet(deleted);
+        movedRows.increment(deleted);
+        log.debug("Moved {} {} rows {} -> {}", deleted, table.name(), source, target);
+    }
+}
@@ -0,0 +1,42 @@
+package com.rideshare.datasource.sharding;
+
+import java.util.function.Supplier;
+
+/**
+ * The shard the current thread's statements go to, read by {@link ShardRoutingDataSource}.
+ * The physical connection is chosen when a transaction runs its first statement, so the shard
+ * must be set before that and stays fixed for the rest of the transaction.
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    /** The shard set on this thread, or null for the home shard. */
+    public static String current() {
+        return CURRENT.get();
+    }
+
+    public static <T> T callOn(String shard, Supplier<T> work) {
+        String previous = CURRENT.get();
+        CURRENT.set(shard);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    public static void runOn(String shard, Runnable work) {
+        callOn(shard, () -> {
+            work.run();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,230 @@
+package com.rideshare.datasource.sharding;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Maps a mobile number to the shard that owns it and runs repository calls there.
+ * Keyed lookups touch exactly one shard. While resharding ({@code previousRing} set), a key
+ * whose owner changed and is not found on its new shard is looked up once more on its old
+ * shard (dual read), and keyed writes first move the key's row to the new shard.
+ * Unkeyed scans run on every shard that may hold rows.
+ * <p>
+ * A transaction is pinned to one connection, so shard switches must happen outside it: inside
+ * an active transaction every call must target the same shard, otherwise this fails fast.
+ */
+public class ShardRouter {
+
+    public static final String HOME = "shard-0";
+
+    private static final Pattern SHARD_NAME = Pattern.compile("shard-(\\d+)");
+
+    /** Moves one key's rows from its old shard to its new one before a write. */
+    @FunctionalInterface
+    public interface KeyMover {
+        void move(String key, String fromShard, String toShard);
+    }
+
+    private final ConsistentHashRing ring;
+    private final ConsistentHashRing previousRing;
+    private final List<String> shards;
+    private final MeterRegistry registry;
+    private final Map<String, Counter> routed = new ConcurrentHashMap<>();
+    private final Counter fallbackReads;
+    private final List<KeyMover> keyMovers = new CopyOnWriteArrayList<>();
+
+    public ShardRouter(ConsistentHashRing ring, ConsistentHashRing previousRing, MeterRegistry registry) {
+        this.ring = ring;
+        this.previousRing = previousRing;
+        this.registry = registry;
+        Set<String> all = new TreeSet<>(Comparator.comparingInt(ShardRouter::ordinal));
+        all.addAll(ring.members());
+        if (previousRing != null) {
+            all.addAll(previousRing.members());
+        }
+        this.shards = List.copyOf(all);
+        this.fallbackReads = Counter.builder("datasource.shard.fallback.reads")
+                .description("Keyed reads answered by the previous owner while resharding")
+                .register(registry);
+    }
+
+    /** Everything on the home shard: the unsharded setup, and a convenient default for tests. */
+    public static ShardRouter single() {
+        return new ShardRouter(new ConsistentHashRing(List.of(HOME), 1), null, new SimpleMeterRegistry());
+    }
+
+    /** Numeric suffix of a {@code shard-<n>} name; also the shard's id-range slot. */
+    public static int ordinal(String shard) {
+        Matcher matcher = SHARD_NAME.matcher(shard);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Shard names must look like shard-<n>, got " + shard);
+        }
+        return Integer.parseInt(matcher.group(1));
+    }
+
+    public String shardOf(String mobileNumber) {
+        return ring.ownerOf(mobileNumber);
+    }
+
+    /** Every shard that may hold rows: the ring, plus the previous ring while resharding. */
+    public List<String> shards() {
+        return shards;
+    }
+
+    public boolean isSharded() {
+        return shards.size() > 1;
+    }
+
+    public boolean isResharding() {
+        return previousRing != null;
+    }
+
+    /** Old owner of a key whose owner changed in the current resharding, otherwise empty. */
+    public Optional<String> previousShardOf(String mobileNumber) {
+        if (previousRing == null) {
+            return Optional.empty();
+        }
+        String previous = previousRing.ownerOf(mobileNumber);
+        return previous.equals(ring.ownerOf(mobileNumber)) ? Optional.empty() : Optional.of(previous);
+    }
+
+    public void addKeyMover(KeyMover mover) {
+        keyMovers.add(mover);
+    }
+
+    public <T> T onShard(String shard, Supplier<T> work) {
+        pinToTransaction(shard);
+        routed.computeIfAbsent(shard, s -> Counter.builder("datasource.shard.routed")
+                .description("Repository calls routed, by shard")
+                .tag("shard", s)
+                .register(registry)).increment();
+        return ShardContext.callOn(shard, work);
+    }
+
+    public void runOnShard(String shard, Runnable work) {
+        onShard(shard, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /** Single-key read or write on the key's current owner, without dual read. */
+    public <T> T onShardOf(String mobileNumber, Supplier<T> work) {
+        return onShard(shardOf(mobileNumber), work);
+    }
+
+    /** Single-key read; falls back to the previous owner while resharding. */
+    public <T> Optional<T> findByKey(String mobileNumber, Supplier<Optional<T>> lookup) {
+        Optional<T> found = onShardOf(mobileNumber, lookup);
+        if (found.isPresent()) {
+            return found;
+        }
+        Optional<String> previous = previousShardOf(mobileNumber);
+        if (previous.isEmpty()) {
+            return found;
+        }
+        found = onShard(previous.get(), lookup);
+        if (found.isPresent()) {
+            fallbackReads.increment();
+        }
+        return found;
+    }
+
+    /** Single-key write on the key's current owner, after moving its rows there if needed. */
+    public <T> T writeOnShardOf(String mobileNumber, Supplier<T> work) {
+        return onShard(ownerForWrite(mobileNumber), work);
+    }
+
+    /** Current owner of a key that is about to be written, with its rows moved there if needed. */
+    public String ownerForWrite(String mobileNumber) {
+        String owner = shardOf(mobileNumber);
+        previousShardOf(mobileNumber).ifPresent(previous ->
+                keyMovers.forEach(mover -> mover.move(mobileNumber, previous, owner)));
+        return owner;
+    }
+
+    /**
+     * Multi-key read: one lookup per owning shard, then (while resharding) one per previous
+     * owner for the moved keys that were not found. Result order is unspecified.
+     */
+    public <T> List<T> findAllByKeys(Collection<String> mobileNumbers,
+                                     Function<Collection<String>, List<T>> lookup,
+                                     Function<T, String> keyOf) {
+        List<T> found = new ArrayList<>();
+        Set<String> hits = new HashSet<>();
+        partition(mobileNumbers).forEach((shard, keys) -> {
+            for (T item : onShard(shard, () -> lookup.apply(keys))) {
+                found.add(item);
+                hits.add(keyOf.apply(item));
+            }
+        });
+        if (previousRing != null) {
+            Map<String, List<String>> moved = new LinkedHashMap<>();
+            for (String key : mobileNumbers) {
+                if (!hits.contains(key)) {
+                    previousShardOf(key).ifPresent(previous ->
+                            moved.computeIfAbsent(previous, s -> new ArrayList<>()).add(key));
+                }
+            }
+            moved.forEach((shard, keys) -> {
+                List<T> items = onShard(shard, () -> lookup.apply(keys));
+                fallbackReads.increment(items.size());
+                found.addAll(items);
+            });
+        }
+        return found;
+    }
+
+    /** Groups keys by their current owner. */
+    public Map<String, List<String>> partition(Collection<String> mobileNumbers) {
+        return partition(mobileNumbers, Function.identity());
+    }
+
+    public <K> Map<String, List<K>> partition(Collection<K> items, Function<K, String> mobileNumberOf) {
+        Map<String, List<K>> byShard = new LinkedHashMap<>();
+        for (K item : items) {
+            byShard.computeIfAbsent(shardOf(mobileNumberOf.apply(item)), s -> new ArrayList<>()).add(item);
+        }
+        return byShard;
+    }
+
+    // The first shard used inside a transaction is the one its connection came from
+    private void pinToTransaction(String shard) {
+        if (!isSharded() || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        Object pinned = TransactionSynchronizationManager.getResource(this);
+        if (pinned == null) {
+            TransactionSynchronizationManager.bindResource(this, shard);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ShardRouter.this);
+                }
+            });
+        } else if (!pinned.equals(shard)) {
+            throw new IllegalStateException("Transaction is pinned to " + pinned + ", cannot switch to " + shard
+                    + "; route before starting the transaction");
+        }
+    }
+}
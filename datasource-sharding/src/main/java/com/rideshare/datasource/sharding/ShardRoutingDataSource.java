@@ -0,0 +1,29 @@
+package com.rideshare.datasource.sharding;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hands out connections from the shard named by {@link ShardContext}, or from the home shard
+ * when none is set (reference tables such as roles live there). An unknown shard name fails
+ * instead of silently landing on the home shard.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    public ShardRoutingDataSource(DataSource home, Map<String, ? extends DataSource> others) {
+        Map<Object, Object> targets = new HashMap<>(others);
+        targets.put(ShardRouter.HOME, home);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(home);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardContext.current();
+    }
+}
@@ -0,0 +1,21 @@
+package com.rideshare.datasource.sharding;
+
+import java.util.List;
+
+/**
+ * A table partitioned by mobile number, as the {@link Resharder} sees it.
+ *
+ * @param name        table name
+ * @param keyColumn   shard key column; must carry a unique constraint
+ * @param idColumn    monotonically increasing column used to scan a shard in keyset pages
+ * @param copyColumns columns copied to the new owner (leave out identity columns the target assigns)
+ */
+public record ShardedTable(String name, String keyColumn, String idColumn, List<String> copyColumns) {
+
+    public ShardedTable {
+        copyColumns = List.copyOf(copyColumns);
+        if (!copyColumns.contains(keyColumn)) {
+            throw new IllegalArgumentException("copyColumns must include the key column " + keyColumn);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.rideshare.datasource.sharding;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hash sharding by mobile number. {@code shard-0} is the database configured under
+ * spring.datasource (and keeps its read replicas); further shards are listed under
+ * {@code datasource.sharding.shards}. With no extra shards everything stays on shard-0.
+ * Each service declares the {@link Resharder} of the tables it owns.
+ */
+@Configuration
+@EnableConfigurationProperties(ShardingConfig.ShardProps.class)
+public class ShardingConfig {
+
+    /** Connection pools of every shard except shard-0. */
+    public record ShardPools(Map<String, HikariDataSource> pools) implements AutoCloseable {
+
+        public boolean isEmpty() {
+            return pools.isEmpty();
+        }
+
+        @Override
+        public void close() {
+            pools.values().forEach(HikariDataSource::close);
+        }
+    }
+
+    @Bean(destroyMethod = "close")
+    public ShardPools shardPools(HikariDataSource primaryDataSource, DataSourceProperties properties,
+                                 ShardProps props, MeterRegistry registry) {
+        Map<String, HikariDataSource> pools = new LinkedHashMap<>();
+        props.shards().forEach((name, url) -> {
+            ShardRouter.ordinal(name);
+            if (ShardRouter.HOME.equals(name)) {
+                throw new IllegalStateException(ShardRouter.HOME + " is spring.datasource and cannot be listed as a shard");
+            }
+            HikariDataSource pool = new HikariDataSource();
+            pool.setPoolName(name);
+            pool.setJdbcUrl(url);
+            pool.setUsername(properties.determineUsername());
+            pool.setPassword(properties.determinePassword());
+            pool.setMaximumPoolSize(props.poolSize());
+            // Same driver settings as shard-0, e.g. reWriteBatchedInserts
+            pool.setDataSourceProperties(primaryDataSource.getDataSourceProperties());
+            pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+            pools.put(name, pool);
+        });
+        return new ShardPools(pools);
+    }
+
+    @Bean
+    public ShardRouter shardRouter(ShardProps props, MeterRegistry registry) {
+        List<String> ring = props.ring().isEmpty() ? List.of(ShardRouter.HOME) : props.ring();
+        List<String> previousRing = props.previousRing();
+        for (String member : ring) {
+            requireKnown(member, props);
+        }
+        for (String member : previousRing) {
+            requireKnown(member, props);
+        }
+        return new ShardRouter(new ConsistentHashRing(ring, props.virtualNodes()),
+                previousRing.isEmpty() ? null : new ConsistentHashRing(previousRing, props.virtualNodes()),
+                registry);
+    }
+
+    private static void requireKnown(String shard, ShardProps props) {
+        if (!ShardRouter.HOME.equals(shard) && !props.shards().containsKey(shard)) {
+            throw new IllegalStateException("Shard " + shard + " is in a ring but has no url under datasource.sharding.shards");
+        }
+    }
+
+    /**
+     * @param shards             shard name (shard-1, shard-2, ...) to JDBC url; shard-0 is spring.datasource
+     * @param ring               shards that own keys; empty = [shard-0]
+     * @param previousRing       ring before the current resharding; non-empty turns on dual reads,
+     *                           write-time moves and the background copy (actuator/resharding)
+     * @param virtualNodes       ring points per shard; more points, more even spread
+     * @param poolSize           max connections per additional shard
+     * @param migrationBatchSize rows per scan page and per copy/delete round trip when resharding
+     */
+    @ConfigurationProperties(prefix = "datasource.sharding")
+    public record ShardProps(
+            @DefaultValue Map<String, String> shards,
+            @DefaultValue List<String> ring,
+            @DefaultValue List<String> previousRing,
+            @DefaultValue("128") int virtualNodes,
+            @DefaultValue("10") int poolSize,
+            @DefaultValue("500") int migrationBatchSize
+    ) {}
+}
@@ -0,0 +1,159 @@
+package com.rideshare.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.Network;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.images.builder.Transferable;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A primary and a streaming standby cloned from it with pg_basebackup; pg_is_in_recovery()
+ * shows which one served a statement.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class ReplicaPoolTest {
+
+    private static final Network network = Network.newNetwork();
+
+    @Container
+    static final PostgreSQLContainer<?> primaryDb = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withNetwork(network).withNetworkAliases("primary")
+            .withDatabaseName("test").withUsername("test").withPassword("test")
+            .withCopyToContainer(Transferable.of(
+                    "echo 'host replication all all scram-sha-256' >> \"$PGDATA/pg_hba.conf\"\n"),
+                    "/docker-entrypoint-initdb.d/allow-replication.sh");
+
+    @Container
+    static final GenericContainer<?> standbyDb = new GenericContainer<>("postgres:16-alpine")
+            .dependsOn(primaryDb)
+            .withNetwork(network)
+            .withEnv("PGPASSWORD", "test")
+            .withExposedPorts(PostgreSQLContainer.POSTGRESQL_PORT)
+            .withCreateContainerCmdModifier(cmd -> cmd.withEntrypoint("sh", "-c", """
+                    mkdir -p "$PGDATA" && chown postgres "$PGDATA" && chmod 700 "$PGDATA" \
+                    && su-exec postgres pg_basebackup -h primary -U test -D "$PGDATA" -R -X stream \
+                    && exec docker-entrypoint.sh postgres"""))
+            .waitingFor(Wait.forLogMessage(".*ready to accept read-only connections.*", 1));
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private HikariDataSource primary;
+    private HikariDataSource replica;
+    private ReplicaPool pool;
+    private JdbcTemplate jdbc;
+    private TransactionTemplate readOnlyTx;
+    private TransactionTemplate readWriteTx;
+
+    private static HikariDataSource hikari(String jdbcUrl, String name) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName(name);
+        dataSource.setJdbcUrl(jdbcUrl);
+        dataSource.setUsername(primaryDb.getUsername());
+        dataSource.setPassword(primaryDb.getPassword());
+        dataSource.setConnectionTimeout(1000);
+        return dataSource;
+    }
+
+    private static String standbyUrl() {
+        return "jdbc:postgresql://" + standbyDb.getHost() + ":"
+                + standbyDb.getMappedPort(PostgreSQLContainer.POSTGRESQL_PORT) + "/" + primaryDb.getDatabaseName();
+    }
+
+    private void start(Duration maxLag) {
+        start(maxLag, standbyUrl());
+    }
+
+    private void start(Duration maxLag, String replicaUrl) {
+        primary = hikari(primaryDb.getJdbcUrl(), "primary");
+        replica = hikari(replicaUrl, "replica-0");
+        pool = new ReplicaPool(primary, List.of(replica), maxLag, Duration.ofHours(1), registry);
+        pool.checkReplicas();
+
+        LazyConnectionDataSourceProxy routing = new LazyConnectionDataSourceProxy(primary);
+        routing.setReadOnlyDataSource(pool);
+        DataSourceTransactionManager txManager = new DataSourceTransactionManager(routing);
+        jdbc = new JdbcTemplate(routing);
+        readOnlyTx = new TransactionTemplate(txManager);
+        readOnlyTx.setReadOnly(true);
+        readWriteTx = new TransactionTemplate(txManager);
+    }
+
+    private static final String SERVER_SQL = "select case when pg_is_in_recovery() then 'standby' else 'primary' end";
+
+    private String server(TransactionTemplate tx) {
+        return tx.execute(status -> jdbc.queryForObject(SERVER_SQL, String.class));
+    }
+
+    private double routed(String target) {
+        return registry.get("datasource.routing.connections").tag("target", target).counter().count();
+    }
+
+    private double healthy() {
+        return registry.get("datasource.replica.healthy").tag("replica", "replica-0").gauge().value();
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+        primary.close();
+    }
+
+    @Test
+    void testReadOnlyTransactionsUseReplica() {
+        start(Duration.ofSeconds(5));
+
+        assertThat(server(readOnlyTx)).isEqualTo("standby");
+        assertThat(server(readWriteTx)).isEqualTo("primary");
+        assertThat(jdbc.queryForObject(SERVER_SQL, String.class)).isEqualTo("primary");
+        assertThat(routed("replica-0")).isEqualTo(1);
+    }
+
+    @Test
+    void testLaggingReplicaFallsBackToPrimary() {
+        // Any lag, even 0, exceeds a negative bound
+        start(Duration.ofSeconds(-1));
+
+        assertThat(server(readOnlyTx)).isEqualTo("primary");
+        assertThat(routed("primary")).isEqualTo(1);
+        assertThat(healthy()).isZero();
+    }
+
+    @Test
+    void testServerThatIsNotAStandbyIsNeverUsed() {
+        // A promoted replica, or the primary's own URL listed as a replica
+        start(Duration.ofHours(1), primaryDb.getJdbcUrl());
+
+        assertThat(routed("primary")).isZero();
+        server(readOnlyTx);
+        assertThat(routed("primary")).isEqualTo(1);
+        assertThat(routed("replica-0")).isZero();
+        assertThat(healthy()).isZero();
+        assertThat(registry.get("datasource.replica.lag").tag("replica", "replica-0").gauge().value()).isEqualTo(-1);
+    }
+
+    @Test
+    void testUnreachableReplicaFallsBackToPrimary() {
+        start(Duration.ofSeconds(5));
+        assertThat(server(readOnlyTx)).isEqualTo("standby");
+
+        replica.close();
+        pool.checkReplicas();
+
+        assertThat(server(readOnlyTx)).isEqualTo("primary");
+        assertThat(registry.get("datasource.replica.lag").tag("replica", "replica-0").gauge().value()).isEqualTo(-1);
+    }
+}
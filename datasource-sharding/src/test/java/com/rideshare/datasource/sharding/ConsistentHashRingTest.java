@@ -0,0 +1,65 @@
+package com.rideshare.datasource.sharding;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ConsistentHashRingTest {
+
+    private static final int KEYS = 100_000;
+
+    private static String number(int i) {
+        return String.valueOf(9_000_000_000L + i);
+    }
+
+    @Test
+    void testOwnerIsStableAcrossInstances() {
+        ConsistentHashRing a = new ConsistentHashRing(List.of("shard-0", "shard-1", "shard-2"), 128);
+        ConsistentHashRing b = new ConsistentHashRing(List.of("shard-2", "shard-0", "shard-1"), 128);
+
+        for (int i = 0; i < 1000; i++) {
+            assertThat(a.ownerOf(number(i))).isEqualTo(b.ownerOf(number(i)));
+        }
+    }
+
+    @Test
+    void testKeysSpreadEvenly() {
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("shard-0", "shard-1", "shard-2", "shard-3"), 128);
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            counts.merge(ring.ownerOf(number(i)), 1, Integer::sum);
+        }
+
+        assertThat(counts).hasSize(4);
+        assertThat(counts.values()).allSatisfy(count -> assertThat(count).isBetween(KEYS * 18 / 100, KEYS * 32 / 100));
+    }
+
+    @Test
+    void testAddingAShardOnlyMovesKeysToIt() {
+        ConsistentHashRing before = new ConsistentHashRing(List.of("shard-0", "shard-1", "shard-2", "shard-3"), 128);
+        ConsistentHashRing after = new ConsistentHashRing(
+                List.of("shard-0", "shard-1", "shard-2", "shard-3", "shard-4"), 128);
+
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String oldOwner = before.ownerOf(number(i));
+            String newOwner = after.ownerOf(number(i));
+            if (!oldOwner.equals(newOwner)) {
+                assertThat(newOwner).isEqualTo("shard-4");
+                moved++;
+            }
+        }
+        // Roughly 1/5 of the keys; hash % N would have moved about 4/5
+        assertThat(moved).isBetween(KEYS * 12 / 100, KEYS * 28 / 100);
+    }
+
+    @Test
+    void testRejectsEmptyRing() {
+        assertThrows(IllegalArgumentException.class, () -> new ConsistentHashRing(List.of(), 128));
+    }
+}
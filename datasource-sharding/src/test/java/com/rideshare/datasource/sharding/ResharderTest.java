@@ -0,0 +1,139 @@
+package com.rideshare.datasource.sharding;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two Postgres instances as shard-0 and shard-1, resharding from [shard-0] to [shard-0, shard-1].
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class ResharderTest {
+
+    @Container
+    static final PostgreSQLContainer<?> shard0Db = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("shard0").withUsername("test").withPassword("test");
+
+    @Container
+    static final PostgreSQLContainer<?> shard1Db = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("shard1").withUsername("test").withPassword("test");
+
+    private static final ShardedTable PEOPLE = new ShardedTable("people", "mobile_number", "id",
+            List.of("id", "mobile_number", "name"));
+    private static final int ROWS = 200;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private HikariDataSource shard0;
+    private HikariDataSource shard1;
+    private JdbcTemplate jdbc;
+    private ShardRouter router;
+    private Resharder resharder;
+
+    private static HikariDataSource hikari(PostgreSQLContainer<?> db, String name) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName(name);
+        dataSource.setJdbcUrl(db.getJdbcUrl());
+        dataSource.setUsername(db.getUsername());
+        dataSource.setPassword(db.getPassword());
+        return dataSource;
+    }
+
+    private static String number(int i) {
+        return String.valueOf(9_000_000_000L + i);
+    }
+
+    @BeforeEach
+    void setUp() {
+        shard0 = hikari(shard0Db, "shard-0");
+        shard1 = hikari(shard1Db, "shard-1");
+        jdbc = new JdbcTemplate(new ShardRoutingDataSource(shard0, Map.of("shard-1", shard1)));
+        router = new ShardRouter(new ConsistentHashRing(List.of("shard-0", "shard-1"), 128),
+                new ConsistentHashRing(List.of("shard-0"), 128), registry);
+        resharder = new Resharder(router, jdbc.getDataSource(), PEOPLE, List.of("shard-0"), 50, registry);
+
+        for (String shard : router.shards()) {
+            router.runOnShard(shard, () -> {
+                jdbc.execute("drop table if exists people");
+                jdbc.execute("create table people (id bigint primary key, mobile_number varchar(10) unique not null, name varchar(50))");
+            });
+        }
+        // Everything starts on the old single shard
+        router.runOnShard("shard-0", () -> IntStream.range(0, ROWS).forEach(i ->
+                jdbc.update("insert into people (id, mobile_number, name) values (?, ?, ?)", i, number(i), "p" + i)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        shard0.close();
+        shard1.close();
+    }
+
+    private Optional<String> findName(String mobileNumber) {
+        return router.findByKey(mobileNumber, () -> jdbc.queryForList(
+                "select name from people where mobile_number = ?", String.class, mobileNumber).stream().findFirst());
+    }
+
+    private int count(String shard) {
+        return router.onShard(shard, () -> jdbc.queryForObject("select count(*) from people", Integer.class));
+    }
+
+    private String movedKey() {
+        return IntStream.range(0, ROWS).mapToObj(ResharderTest::number)
+                .filter(n -> router.previousShardOf(n).isPresent())
+                .findFirst().orElseThrow();
+    }
+
+    @Test
+    void testDualReadFindsRowsNotYetMoved() {
+        String moved = movedKey();
+
+        assertThat(router.shardOf(moved)).isEqualTo("shard-1");
+        assertThat(findName(moved)).isPresent();
+        assertThat(registry.get("datasource.shard.fallback.reads").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void testRunMovesEveryRowToItsOwner() {
+        resharder.run();
+
+        assertThat(resharder.status().state()).isEqualTo(Resharder.State.DONE);
+        assertThat(count("shard-0") + count("shard-1")).isEqualTo(ROWS);
+        assertThat(count("shard-1")).isEqualTo((int) resharder.status().moved()).isPositive();
+        for (int i = 0; i < ROWS; i++) {
+            String owner = router.shardOf(number(i));
+            String mobileNumber = number(i);
+            assertThat(router.onShard(owner, () -> jdbc.queryForObject(
+                    "select name from people where mobile_number = ?", String.class, mobileNumber))).isEqualTo("p" + i);
+        }
+        // Rerunning finds nothing left to move
+        resharder.run();
+        assertThat(resharder.status().moved()).isZero();
+    }
+
+    @Test
+    void testWriteMovesItsKeyFirst() {
+        String moved = movedKey();
+
+        router.writeOnShardOf(moved, () -> jdbc.update("update people set name = 'renamed' where mobile_number = ?", moved));
+
+        assertThat(router.onShard("shard-1", () -> jdbc.queryForObject(
+                "select name from people where mobile_number = ?", String.class, moved))).isEqualTo("renamed");
+        assertThat(count("shard-0")).isEqualTo(ROWS - 1);
+        // The background copy must not bring the old version back
+        resharder.run();
+        assertThat(findName(moved)).contains("renamed");
+    }
+}
@@ -1,12 +1,19 @@
 package com.rideshare.userservice;
 
+import com.rideshare.userservice.messaging.OutboxRelay;
+import com.rideshare.userservice.service.BulkRegistrationService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cache.annotation.EnableCaching;
 @Slf4j
 @EnableCaching
 @SpringBootApplication
+@EnableConfigurationProperties({
+        BulkRegistrationService.BulkImportProps.class,
+        OutboxRelay.OutboxProps.class
+})
 public class UserServiceApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,42 @@
+package com.rideshare.userservice.cache;
+
+import org.springframework.cache.Cache;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Multi-key access for caches that can serve it in one round trip per tier.
+ * The static helpers fall back to per-key calls for any other {@link Cache}.
+ */
+public interface BatchCache {
+
+    /** Cached values for the keys that are present; misses (and cached nulls) are left out. */
+    Map<Object, Object> getAll(Collection<?> keys);
+
+    /** Store loaded values without notifying peers: new entries cannot be stale elsewhere. */
+    void putAll(Map<?, ?> entries);
+
+    static Map<Object, Object> getAll(Cache cache, Collection<?> keys) {
+        if (cache instanceof BatchCache batch) {
+            return batch.getAll(keys);
+        }
+        Map<Object, Object> found = new HashMap<>();
+        for (Object key : keys) {
+            Cache.ValueWrapper wrapper = cache.get(key);
+            if (wrapper != null && wrapper.get() != null) {
+                found.put(key, wrapper.get());
+            }
+        }
+        return found;
+    }
+
+    static void putAll(Cache cache, Map<?, ?> entries) {
+        if (cache instanceof BatchCache batch) {
+            batch.putAll(entries);
+        } else {
+            entries.forEach(cache::put);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.rideshare.userservice.cache;
+
+import com.rideshare.userservice.dto.UserDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Cache value serializer with a compact, versioned binary layout for {@link UserDto}.
+ * <pre>
+ *   byte    MAGIC (0xC7)
+ *   byte    VERSION (2)
+ *   field*  firstName, lastName, gender, mobileNumber, role
+ *           each: varint (0 = null, n + 1 = n UTF-8 bytes follow)
+ *   varint  updatedAt (0 = null, n + 1 = n microseconds since the epoch, UTC)
+ * </pre>
+ * Version 1 entries (no updatedAt) are still read, with a null updatedAt.
+ * Any other value type (and legacy entries written with JDK serialization, which start with
+ * 0xACED) goes through the JDK serializer. Entries that cannot be decoded read as a cache miss
+ * so they are reloaded and overwritten instead of failing the request.
+ */
+@Slf4j
+public class CompactUserDtoSerializer implements RedisSerializer<Object> {
+
+    static final byte MAGIC = (byte) 0xC7;
+    static final byte VERSION = 2;
+    private static final byte VERSION_1 = 1;
+
+    private final JdkSerializationRedisSerializer fallback = new JdkSerializationRedisSerializer();
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (!(value instanceof UserDto dto)) {
+            return fallback.serialize(value);
+        }
+        byte[] firstName = utf8(dto.getFirstName());
+        byte[] lastName = utf8(dto.getLastName());
+        byte[] gender = utf8(dto.getGender());
+        byte[] mobileNumber = utf8(dto.getMobileNumber());
+        byte[] role = utf8(dto.getRole());
+        long updatedAt = dto.getUpdatedAt() == null ? 0 : epochMicros(dto.getUpdatedAt()) + 1;
+
+        byte[] out = new byte[2 + encodedSize(firstName) + encodedSize(lastName) + encodedSize(gender)
+                + encodedSize(mobileNumber) + encodedSize(role) + varintSize(updatedAt)];
+        out[0] = MAGIC;
+        out[1] = VERSION;
+        int pos = 2;
+        pos = writeField(out, pos, firstName);
+        pos = writeField(out, pos, lastName);
+        pos = writeField(out, pos, gender);
+        pos = writeField(out, pos, mobileNumber);
+        pos = writeField(out, pos, role);
+        writeVarint(out, pos, updatedAt);
+        return out;
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        try {
+            if (bytes[0] != MAGIC) {
+                // Legacy JDK-serialized entry (or another value type)
+                return fallback.deserialize(bytes);
+            }
+            if (bytes[1] != VERSION && bytes[1] != VERSION_1) {
+                log.warn("Unknown cached UserDto layout version {}, treating as miss", bytes[1]);
+                return null;
+            }
+            int[] pos = {2};
+            UserDto dto = new UserDto();
+            dto.setFirstName(readField(bytes, pos));
+            dto.setLastName(readField(bytes, pos));
+            dto.setGender(readField(bytes, pos));
+            dto.setMobileNumber(readField(bytes, pos));
+            dto.setRole(readField(bytes, pos));
+            if (bytes[1] != VERSION_1) {
+                long updatedAt = readVarint(bytes, pos);
+                dto.setUpdatedAt(updatedAt == 0 ? null : fromEpochMicros(updatedAt - 1));
+            }
+            return dto;
+        } catch (RuntimeException e) {
+            log.warn("Unreadable cache entry ({} bytes), treating as miss", bytes.length, e);
+            return null;
+        }
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int encodedSize(byte[] field) {
+        int len = field == null ? 0 : field.length + 1;
+        return varintSize(len) + (field == null ? 0 : field.length);
+    }
+
+    private static int varintSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static int writeField(byte[] out, int pos, byte[] field) {
+        pos = writeVarint(out, pos, field == null ? 0 : field.length + 1);
+        if (field != null) {
+            System.arraycopy(field, 0, out, pos, field.length);
+            pos += field.length;
+        }
+        return pos;
+    }
+
+    private static int writeVarint(byte[] out, int pos, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out[pos++] = (byte) value;
+        return pos;
+    }
+
+    private static long readVarint(byte[] in, int[] pos) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in[pos[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    // Microseconds: the precision PostgreSQL stores timestamps with
+    private static long epochMicros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + time.getNano() / 1_000;
+    }
+
+    private static LocalDateTime fromEpochMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000),
+                (int) Math.floorMod(micros, 1_000_000) * 1_000, ZoneOffset.UTC);
+    }
+
+    private static String readField(byte[] in, int[] pos) {
+        int len = (int) readVarint(in, pos);
+        if (len == 0) {
+            return null;
+        }
+        String value = new String(in, pos[0], len - 1, StandardCharsets.UTF_8);
+        pos[0] += len - 1;
+        return value;
+    }
+}
@@ -0,0 +1,81 @@
+package com.rideshare.userservice.cache;
+
+import org.springframework.cache.Cache.ValueWrapper;
+import org.springframework.cache.support.NullValue;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.util.ByteUtils;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MGET / pipelined SET against the same keys and value encoding a RedisCache for
+ * {@code cacheName} uses, so batch and single-key access see the same entries.
+ */
+public class RedisL2Batch implements TwoTierCache.L2Batch {
+
+    private final String cacheName;
+    private final RedisConnectionFactory connectionFactory;
+    private final RedisCacheConfiguration config;
+
+    public RedisL2Batch(String cacheName, RedisConnectionFactory connectionFactory, RedisCacheConfiguration config) {
+        this.cacheName = cacheName;
+        this.connectionFactory = connectionFactory;
+        this.config = config;
+    }
+
+    @Override
+    public List<ValueWrapper> getAll(List<Object> keys) {
+        byte[][] rawKeys = new byte[keys.size()][];
+        for (int i = 0; i < rawKeys.length; i++) {
+            rawKeys[i] = redisKey(keys.get(i));
+        }
+        List<byte[]> rawValues;
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            rawValues = connection.stringCommands().mGet(rawKeys);
+        }
+        List<ValueWrapper> values = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            byte[] raw = rawValues == null ? null : rawValues.get(i);
+            values.add(raw == null ? null : wrap(config.getValueSerializationPair().read(ByteBuffer.wrap(raw))));
+        }
+        return values;
+    }
+
+    @Override
+    public void putAll(Map<Object, Object> entries) {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.openPipeline();
+            entries.forEach((key, value) -> {
+                Object stored = value == null ? NullValue.INSTANCE : value;
+                Duration ttl = config.getTtlFunction().getTimeToLive(key, value);
+                connection.stringCommands().set(redisKey(key),
+                        ByteUtils.getBytes(config.getValueSerializationPair().write(stored)),
+                        ttl == null || ttl.isZero() || ttl.isNegative() ? Expiration.persistent() : Expiration.from(ttl),
+                        SetOption.upsert());
+            });
+            connection.closePipeline();
+        }
+    }
+
+    private static ValueWrapper wrap(Object value) {
+        if (value == null) {
+            // Unreadable entry: treat as a miss, it is reloaded and overwritten
+            return null;
+        }
+        return new SimpleValueWrapper(value instanceof NullValue ? null : value);
+    }
+
+    private byte[] redisKey(Object key) {
+        String name = config.usePrefix() ? config.getKeyPrefixFor(cacheName) + key : String.valueOf(key);
+        return ByteUtils.getBytes(config.getKeySerializationPair().write(name));
+    }
+}
@@ -0,0 +1,252 @@
+package com.rideshare.userservice.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+
+/**
+ * Cache with a size-bounded, TTL'd on-heap L1 in front of a shared L2 (Redis).
+ * Reads check L1 first and fall back to L2, promoting hits into L1. Writes and evictions go to
+ * both tiers and are broadcast so other replicas drop their L1 copy. L1 entries hold a
+ * {@link ValueWrapper} so cached nulls behave the same as in L2.
+ */
+public class TwoTierCache implements Cache, BatchCache {
+
+    /** Multi-key access to L2; {@link #sequential(Cache)} is the per-key fallback. */
+    public interface L2Batch {
+        /** One entry per key, in order; null for a miss. */
+        List<ValueWrapper> getAll(List<Object> keys);
+
+        void putAll(Map<Object, Object> entries);
+    }
+
+    static L2Batch sequential(Cache l2) {
+        return new L2Batch() {
+            @Override
+            public List<ValueWrapper> getAll(List<Object> keys) {
+                List<ValueWrapper> values = new ArrayList<>(keys.size());
+                for (Object key : keys) {
+                    values.add(l2.get(key));
+                }
+                return values;
+            }
+
+            @Override
+            public void putAll(Map<Object, Object> entries) {
+                entries.forEach(l2::put);
+            }
+        };
+    }
+
+    private final String name;
+    private final com.github.benmanes.caffeine.cache.Cache<Object, ValueWrapper> l1;
+    private final Cache l2;
+    private final L2Batch l2Batch;
+    private final Consumer<Object> invalidationSink;
+
+    private final Counter l1Hits;
+    private final Counter l1Misses;
+    private final Counter l2Hits;
+    private final Counter l2Misses;
+    private final Timer l2Load;
+    private final Timer sourceLoad;
+
+    /**
+     * @param invalidationSink receives the evicted key, or {@code null} for clear(), for broadcast to peers
+     */
+    public TwoTierCache(String name,
+                        com.github.benmanes.caffeine.cache.Cache<Object, ValueWrapper> l1,
+                        Cache l2,
+                        Consumer<Object> invalidationSink,
+                        MeterRegistry registry) {
+        this(name, l1, l2, sequential(l2), invalidationSink, registry);
+    }
+
+    public TwoTierCache(String name,
+                        com.github.benmanes.caffeine.cache.Cache<Object, ValueWrapper> l1,
+                        Cache l2,
+                        L2Batch l2Batch,
+                        Consumer<Object> invalidationSink,
+                        MeterRegistry registry) {
+        this.name = name;
+        this.l1 = l1;
+        this.l2 = l2;
+        this.l2Batch = l2Batch;
+        this.invalidationSink = invalidationSink;
+
+        this.l1Hits = requests(registry, "l1", "hit");
+        this.l1Misses = requests(registry, "l1", "miss");
+        this.l2Hits = requests(registry, "l2", "hit");
+        this.l2Misses = requests(registry, "l2", "miss");
+        this.l2Load = Timer.builder("cache.tier.load").tags("cache", name, "tier", "l2").register(registry);
+        this.sourceLoad = Timer.builder("cache.tier.load").tags("cache", name, "tier", "source").register(registry);
+        registry.gauge("cache.tier.size", Tags.of("cache", name, "tier", "l1"),
+                l1, c -> c.estimatedSize());
+    }
+
+    private Counter requests(MeterRegistry registry, String tier, String result) {
+        return Counter.builder("cache.tier.requests")
+                .tags("cache", name, "tier", tier, "result", result)
+                .register(registry);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return l1;
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        ValueWrapper local = l1.getIfPresent(key);
+        if (local != null) {
+            l1Hits.increment();
+            return local;
+        }
+        l1Misses.increment();
+        return getFromL2(key);
+    }
+
+    private ValueWrapper getFromL2(Object key) {
+        ValueWrapper remote = l2Load.record(() -> l2.get(key));
+        if (remote == null) {
+            l2Misses.increment();
+            return null;
+        }
+        l2Hits.increment();
+        ValueWrapper promoted = new SimpleValueWrapper(remote.get());
+        l1.put(key, promoted);
+        return promoted;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException(
+                    "Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper local = l1.getIfPresent(key);
+        if (local != null) {
+            l1Hits.increment();
+            return (T) local.get();
+        }
+        l1Misses.increment();
+        // Caffeine computes at most once per key per node; concurrent callers wait for that load
+        ValueWrapper loaded = l1.get(key, k -> {
+            ValueWrapper remote = l2Load.record(() -> l2.get(k));
+            if (remote != null) {
+                l2Hits.increment();
+                return new SimpleValueWrapper(remote.get());
+            }
+            l2Misses.increment();
+            try {
+                T value = sourceLoad.recordCallable(valueLoader);
+                l2.put(k, value);
+                return new SimpleValueWrapper(value);
+            } catch (Exception e) {
+                throw new ValueRetrievalException(k, valueLoader, e);
+            }
+        });
+        return (T) loaded.get();
+    }
+
+    @Override
+    public Map<Object, Object> getAll(Collection<?> keys) {
+        Map<Object, Object> found = new HashMap<>();
+        List<Object> remoteKeys = new ArrayList<>();
+        for (Object key : keys) {
+            ValueWrapper local = l1.getIfPresent(key);
+            if (local != null) {
+                l1Hits.increment();
+                if (local.get() != null) {
+                    found.put(key, local.get());
+                }
+            } else {
+                l1Misses.increment();
+                remoteKeys.add(key);
+            }
+        }
+        if (remoteKeys.isEmpty()) {
+            return found;
+        }
+        // One L2 round trip for every L1 miss
+        List<ValueWrapper> remote = l2Load.record(() -> l2Batch.getAll(remoteKeys));
+        for (int i = 0; i < remoteKeys.size(); i++) {
+            ValueWrapper wrapper = remote.get(i);
+            if (wrapper == null) {
+                l2Misses.increment();
+                continue;
+            }
+            l2Hits.increment();
+            Object key = remoteKeys.get(i);
+            l1.put(key, new SimpleValueWrapper(wrapper.get()));
+            if (wrapper.get() != null) {
+                found.put(key, wrapper.get());
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public void putAll(Map<?, ?> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        l2Batch.putAll(new HashMap<>(entries));
+        entries.forEach((key, value) -> l1.put(key, new SimpleValueWrapper(value)));
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        l2.put(key, value);
+        l1.put(key, new SimpleValueWrapper(value));
+        invalidationSink.accept(key);
+    }
+
+    @Override
+    public void evict(Object key) {
+        l2.evict(key);
+        l1.invalidate(key);
+        invalidationSink.accept(key);
+    }
+
+    @Override
+    public void clear() {
+        l2.clear();
+        l1.invalidateAll();
+        invalidationSink.accept(null);
+    }
+
+    /** Drop a local L1 entry because a peer changed it; L2 is already up to date. */
+    void invalidateLocal(Object key) {
+        if (key == null) {
+            l1.invalidateAll();
+        } else {
+            l1.invalidate(key);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.rideshare.userservice.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * {@link CacheManager} that layers a Caffeine L1 over every cache of the given L2 manager.
+ * Invalidations are published on a Redis channel as {@code origin \n cacheName \n key}
+ * (key omitted for clear); replicas drop the matching L1 entry, ignoring their own messages.
+ * Keys are matched by their string form, which holds for the String keys used by user-service.
+ */
+@Slf4j
+public class TwoTierCacheManager implements CacheManager, MessageListener {
+
+    private final CacheManager l2Manager;
+    private final Function<String, TwoTierCache.L2Batch> l2BatchFactory;
+    private final StringRedisTemplate redis;
+    private final String channel;
+    private final long l1MaxSize;
+    private final Duration l1Ttl;
+    private final MeterRegistry registry;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final ConcurrentMap<String, TwoTierCache> caches = new ConcurrentHashMap<>();
+
+    /**
+     * @param l2BatchFactory multi-key access to the L2 cache of the given name
+     */
+    public TwoTierCacheManager(CacheManager l2Manager, Function<String, TwoTierCache.L2Batch> l2BatchFactory,
+                               StringRedisTemplate redis, String channel,
+                               long l1MaxSize, Duration l1Ttl, MeterRegistry registry) {
+        this.l2Manager = l2Manager;
+        this.l2BatchFactory = l2BatchFactory;
+        this.redis = redis;
+        this.channel = channel;
+        this.l1MaxSize = l1MaxSize;
+        this.l1Ttl = l1Ttl;
+        this.registry = registry;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, this::createCache);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(caches.keySet());
+    }
+
+    private TwoTierCache createCache(String name) {
+        Cache l2 = l2Manager.getCache(name);
+        if (l2 == null) {
+            throw new IllegalStateException("No L2 cache named " + name);
+        }
+        // L1 TTL bounds staleness if an invalidation message is ever lost
+        com.github.benmanes.caffeine.cache.Cache<Object, Cache.ValueWrapper> l1 = Caffeine.newBuilder()
+                .maximumSize(l1MaxSize)
+                .expireAfterWrite(l1Ttl)
+                .build();
+        return new TwoTierCache(name, l1, l2, l2BatchFactory.apply(name), key -> publish(name, key), registry);
+    }
+
+    private void publish(String cacheName, Object key) {
+        String message = nodeId + "\n" + cacheName + (key == null ? "" : "\n" + key);
+        try {
+            redis.convertAndSend(channel, message);
+        } catch (Exception e) {
+            // Peers fall back to their L1 TTL
+            log.warn("Failed to publish cache invalidation for cache={} key={}", cacheName, key, e);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\n", 3);
+        if (parts.length < 2 || nodeId.equals(parts[0])) {
+            return;
+        }
+        TwoTierCache cache = caches.get(parts[1]);
+        if (cache != null) {
+            cache.invalidateLocal(parts.length == 3 ? parts[2] : null);
+        }
+    }
+}
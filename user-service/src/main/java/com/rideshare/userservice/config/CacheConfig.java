@@ -0,0 +1,62 @@
+package com.rideshare.userservice.config;
+
+import com.rideshare.userservice.cache.CompactUserDtoSerializer;
+import com.rideshare.userservice.cache.RedisL2Batch;
+import com.rideshare.userservice.cache.TwoTierCacheManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializationContext.SerializationPair;
+
+import java.time.Duration;
+
+/**
+ * Two-tier cache: Caffeine L1 per JVM in front of Redis L2, with Redis pub/sub invalidation.
+ */
+@Configuration
+@EnableConfigurationProperties(CacheConfig.TwoTierCacheProps.class)
+public class CacheConfig {
+
+    @Bean
+    public TwoTierCacheManager cacheManager(RedisConnectionFactory connectionFactory,
+                                            StringRedisTemplate redis,
+                                            TwoTierCacheProps props,
+                                            MeterRegistry registry) {
+        RedisCacheConfiguration l2Config = RedisCacheConfiguration.defaultCacheConfig()
+                .entryTtl(props.l2Ttl())
+                .serializeValuesWith(SerializationPair.fromSerializer(new CompactUserDtoSerializer()));
+        RedisCacheManager l2 = RedisCacheManager.builder(connectionFactory)
+                .cacheDefaults(l2Config)
+                .build();
+        l2.afterPropertiesSet();
+        return new TwoTierCacheManager(l2, name -> new RedisL2Batch(name, connectionFactory, l2Config),
+                redis, props.invalidationChannel(), props.l1MaxSize(), props.l1Ttl(), registry);
+    }
+
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationListener(RedisConnectionFactory connectionFactory,
+                                                                   TwoTierCacheManager cacheManager,
+                                                                   TwoTierCacheProps props) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(cacheManager, new ChannelTopic(props.invalidationChannel()));
+        return container;
+    }
+
+    @ConfigurationProperties(prefix = "cache.two-tier")
+    public record TwoTierCacheProps(
+            @DefaultValue("10000") long l1MaxSize,
+            @DefaultValue("60s") Duration l1Ttl,
+            @DefaultValue("30m") Duration l2Ttl,
+            @DefaultValue("user-service:cache-invalidation") String invalidationChannel
+    ) {}
+}
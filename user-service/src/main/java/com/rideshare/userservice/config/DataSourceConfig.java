@@ -0,0 +1,33 @@
+package com.rideshare.userservice.config;
+
+import com.rideshare.datasource.ReplicaRoutingConfig;
+import com.rideshare.datasource.sharding.Resharder;
+import com.rideshare.datasource.sharding.ShardRouter;
+import com.rideshare.datasource.sharding.ShardedTable;
+import com.rideshare.datasource.sharding.ShardingConfig;
+import com.rideshare.datasource.sharding.ShardingConfig.ShardProps;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * Read-replica routing and hash sharding from the datasource-sharding module, plus the table
+ * user-service moves between shards when resharding.
+ */
+@Configuration
+@Import({ReplicaRoutingConfig.class, ShardingConfig.class})
+public class DataSourceConfig {
+
+    static final ShardedTable USERS = new ShardedTable("users", "mobile_number", "id",
+            List.of("id", "first_name", "last_name", "gender", "mobile_number", "role_id", "created_at", "updated_at"));
+
+    @Bean
+    public Resharder userResharder(ShardRouter shardRouter, DataSource dataSource, ShardProps props,
+                                   MeterRegistry registry) {
+        return new Resharder(shardRouter, dataSource, USERS, props.previousRing(), props.migrationBatchSize(), registry);
+    }
+}
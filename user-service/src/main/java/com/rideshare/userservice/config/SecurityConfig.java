@@ -2,6 +2,7 @@ package com.rideshare.userservice.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
@@ -16,6 +17,8 @@ public class SecurityConfig {
                 .csrf(AbstractHttpConfigurer::disable) // disable CSRF for API testing
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/actuator/health", "/api/users/register", "/api/users", "/api/users/admin/**").permitAll() // allow registration
+                        // Bulk lookup of names and roles by number: service or admin credentials only
+                        .requestMatchers(HttpMethod.POST, "/api/users/profiles:batchGet").hasAnyRole("SERVICE", "ADMIN")
                         .anyRequest().authenticated()
                 )
                 .httpBasic(Customizer.withDefaults()); // temporary basic auth for other endpoints
@@ -0,0 +1,49 @@
+package com.rideshare.userservice.config;
+
+import com.rideshare.datasource.sharding.ShardRouter;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * users.id moved from an identity column to the pooled users_seq. On a database that already has
+ * rows, a freshly created sequence would hand out ids that are taken, so move it past max(id)
+ * before the first insert. A no-op once the sequence is ahead.
+ * <p>
+ * Each shard has its own users_seq, started at {@code ordinal << 40}, so ids stay unique across
+ * shards and rows keep their id when resharding moves them. shard-0 starts at 0 as before.
+ */
+@Slf4j
+@Component
+@DependsOn("entityManagerFactory") // schema update (which creates users_seq) has run
+public class UserIdSequenceInitializer {
+
+    static final int ID_RANGE_BITS = 40;
+
+    private static final String ALIGN_SQL = """
+            select setval('users_seq', m.next_id)
+            from (select greatest(coalesce(max(id), 0), ?) + 50 as next_id from users) m, users_seq s
+            where s.last_value < m.next_id""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardRouter shardRouter;
+
+    public UserIdSequenceInitializer(DataSource dataSource, ShardRouter shardRouter) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.shardRouter = shardRouter;
+    }
+
+    @PostConstruct
+    void alignSequence() {
+        for (String shard : shardRouter.shards()) {
+            long base = (long) ShardRouter.ordinal(shard) << ID_RANGE_BITS;
+            shardRouter.runOnShard(shard, () -> jdbcTemplate.query(ALIGN_SQL, (RowCallbackHandler) rs ->
+                    log.info("users_seq on {} moved past existing ids to {}", shard, rs.getLong(1)), base));
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.rideshare.userservice.controller;
+
+import com.rideshare.datasource.sharding.Resharder;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * /actuator/resharding: GET shows the progress of moving users to the current ring, POST starts
+ * (or resumes) the background copy. Only does anything while datasource.sharding.previous-ring is set.
+ */
+@Component
+@Endpoint(id = "resharding")
+public class ReshardingEndpoint {
+
+    private final Resharder userResharder;
+
+    public ReshardingEndpoint(Resharder userResharder) {
+        this.userResharder = userResharder;
+    }
+
+    @ReadOperation
+    public Resharder.Status status() {
+        return userResharder.status();
+    }
+
+    @WriteOperation
+    public Resharder.Status start() {
+        userResharder.start();
+        return userResharder.status();
+    }
+}
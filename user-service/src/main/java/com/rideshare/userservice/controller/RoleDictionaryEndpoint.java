@@ -0,0 +1,33 @@
+package com.rideshare.userservice.controller;
+
+import com.rideshare.userservice.service.RoleDictionary;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * /actuator/roles: GET lists the cached role names, POST reloads them from the database.
+ */
+@Component
+@Endpoint(id = "roles")
+public class RoleDictionaryEndpoint {
+
+    private final RoleDictionary roleDictionary;
+
+    public RoleDictionaryEndpoint(RoleDictionary roleDictionary) {
+        this.roleDictionary = roleDictionary;
+    }
+
+    @ReadOperation
+    public List<String> roles() {
+        return roleDictionary.names();
+    }
+
+    @WriteOperation
+    public List<String> refresh() {
+        return roleDictionary.refresh();
+    }
+}
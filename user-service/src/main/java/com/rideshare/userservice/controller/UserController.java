@@ -1,17 +1,30 @@
 package com.rideshare.userservice.controller;
 
 import com.rideshare.userservice.dto.ApiResponse;
+import com.rideshare.userservice.dto.BatchGetProfilesRequest;
+import com.rideshare.userservice.dto.BatchGetProfilesResponse;
+import com.rideshare.userservice.dto.BulkRegistrationReport;
 import com.rideshare.userservice.dto.RegistrationRequest;
 import com.rideshare.userservice.dto.UserDto;
+import com.rideshare.userservice.dto.UserPage;
 import com.rideshare.userservice.exception.InvalidMobileNumberException;
+import com.rideshare.userservice.service.BulkRegistrationService;
+import com.rideshare.userservice.service.UserExportService;
 import com.rideshare.userservice.service.UserService;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.ZoneOffset;
 import java.util.List;
 import java.util.Map;
 
@@ -21,10 +34,18 @@ import java.util.Map;
 public class UserController {
 
     public static final String REGEX = "\\d{10}";
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String CSV = "text/csv";
     private final UserService userService;
+    private final UserExportService userExportService;
+    private final BulkRegistrationService bulkRegistrationService;
 
-    public UserController(UserService userService){
+    public UserController(UserService userService, UserExportService userExportService,
+                          BulkRegistrationService bulkRegistrationService){
         this.userService = userService;
+        this.userExportService = userExportService;
+        this.bulkRegistrationService = bulkRegistrationService;
     }
 
     @PostMapping("/register")
@@ -33,9 +54,42 @@ public class UserController {
         return new ResponseEntity<>(response, response.isSuccess() ? HttpStatus.CREATED : HttpStatus.BAD_REQUEST);
     }
 
+    // Body is read as a stream: one JSON object per line (application/x-ndjson) or CSV rows (text/csv)
+    @PostMapping(value = "/register/bulk", consumes = {NDJSON, CSV})
+    public ResponseEntity<BulkRegistrationReport> registerBulk(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream body) throws IOException {
+        boolean csv = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.parseMediaType(CSV));
+        BulkRegistrationService.Format format = csv ? BulkRegistrationService.Format.CSV : BulkRegistrationService.Format.NDJSON;
+        return ResponseEntity.ok(bulkRegistrationService.importUsers(body, format));
+    }
+
+    // Keyset pagination: pass the X-Next-Cursor value of the previous page as ?after=
     @GetMapping
-    public ResponseEntity<List<UserDto>> getUsers(){
-        return ResponseEntity.ok(userService.getAllUsers());
+    public ResponseEntity<List<UserDto>> getUsers(
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "" + UserService.DEFAULT_PAGE_SIZE) int size) {
+        UserPage page = userService.getUsers(after, size);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(page.nextCursor()));
+        }
+        return response.body(page.items());
+    }
+
+    // Full export as NDJSON straight from a DB cursor; memory use is independent of table size
+    @GetMapping(params = "stream=true", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> exportUsers() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(userExportService::exportUsers);
+    }
+
+    // Batch form of /admin/profile/{mobileNumber} for downstream services (SERVICE or ADMIN role);
+    // unregistered numbers come back as NOT_FOUND entries
+    @PostMapping("/profiles:batchGet")
+    public ResponseEntity<BatchGetProfilesResponse> batchGetProfiles(@Valid @RequestBody BatchGetProfilesRequest request) {
+        List<String> numbers = request.mobileNumbers();
+        return ResponseEntity.ok(BatchGetProfilesResponse.of(numbers, userService.getUserProfiles(numbers)));
     }
 
     @GetMapping("/profile/me")
@@ -43,12 +97,12 @@ public class UserController {
         String loggedInUsername = authentication.getName();
         log.info("Fetching profile for user: {}", loggedInUsername);
         UserDto userProfile = userService.getUserProfile(loggedInUsername);
-        return ResponseEntity.ok(userProfile);
+        return profileResponse(userProfile);
     }
 
     // For Admin to view others' profiles
     @GetMapping("/admin/profile/{mobileNumber}")
-    public UserDto getUserProfileForAdmin(@PathVariable String mobileNumber) {
+    public ResponseEntity<UserDto> getUserProfileForAdmin(@PathVariable String mobileNumber) {
         // Null or blank check
         if (mobileNumber == null || mobileNumber.isBlank()) {
             throw new InvalidMobileNumberException("Mobile number cannot be empty");
@@ -57,7 +111,7 @@ public class UserController {
         if (!mobileNumber.matches(REGEX)) {
             throw new InvalidMobileNumberException("Invalid mobile number format. Must be 10 digits.");
         }
-        return userService.getUserProfile(mobileNumber);
+        return profileResponse(userService.getUserProfile(mobileNumber));
     }
 
     // ✅ New fallback endpoint when /admin has no mobile number
@@ -66,4 +120,24 @@ public class UserController {
         throw new InvalidMobileNumberException("Please provide a valid 10-digit mobile number in the URL path.");
     }
 
+    /**
+     * Profile reads carry a strong ETag built from the mobile number and the profile version, and
+     * must be revalidated on every use. A GET whose If-None-Match matches is answered with 304 by
+     * the ResponseEntity handler before the body is written, so the (usually cached) profile is never
+     * serialized. Profiles without a version (entries cached before it existed) get no ETag.
+     */
+    private static ResponseEntity<UserDto> profileResponse(UserDto profile) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().cacheControl(CacheControl.noCache().cachePrivate());
+        if (profile.getUpdatedAt() != null) {
+            response.eTag(profileETag(profile));
+        }
+        return response.body(profile);
+    }
+
+    static String profileETag(UserDto profile) {
+        long micros = profile.getUpdatedAt().toEpochSecond(ZoneOffset.UTC) * 1_000_000
+                + profile.getUpdatedAt().getNano() / 1_000;
+        return "\"" + profile.getMobileNumber() + "-" + Long.toString(micros, 36) + "\"";
+    }
+
 }
@@ -0,0 +1,13 @@
+package com.rideshare.userservice.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record BatchGetProfilesRequest(
+        @NotEmpty(message = "At least one mobile number is required")
+        @Size(max = 100, message = "At most 100 mobile numbers per request")
+        List<@Pattern(regexp = "\\d{10}", message = "Mobile number must be 10 digits") String> mobileNumbers
+) {}
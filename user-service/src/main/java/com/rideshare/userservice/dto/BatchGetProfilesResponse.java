@@ -0,0 +1,28 @@
+package com.rideshare.userservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One entry per requested mobile number, in request order. An entry has status FOUND and the
+ * profile, or status NOT_FOUND and no profile field when the number is not registered.
+ */
+public record BatchGetProfilesResponse(List<Entry> profiles) {
+
+    public enum Status { FOUND, NOT_FOUND }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Entry(String mobileNumber, Status status, UserDto profile) {}
+
+    /** @param profiles parallel to mobileNumbers, null where a number is not registered */
+    public static BatchGetProfilesResponse of(List<String> mobileNumbers, List<UserDto> profiles) {
+        List<Entry> entries = new ArrayList<>(mobileNumbers.size());
+        for (int i = 0; i < mobileNumbers.size(); i++) {
+            UserDto profile = profiles.get(i);
+            entries.add(new Entry(mobileNumbers.get(i), profile != null ? Status.FOUND : Status.NOT_FOUND, profile));
+        }
+        return new BatchGetProfilesResponse(entries);
+    }
+}
@@ -0,0 +1,38 @@
+package com.rideshare.userservice.dto;
+
+import java.util.List;
+
+/**
+ * Result of a bulk registration: totals plus one entry per data row, in input order.
+ */
+public record BulkRegistrationReport(
+        int total,
+        int created,
+        int alreadyRegistered,
+        int invalid,
+        int failed,
+        List<RowResult> rows
+) {
+
+    public enum Status {
+        CREATED,
+        ALREADY_REGISTERED,
+        INVALID,
+        FAILED
+    }
+
+    public record RowResult(int line, String mobileNumber, Status status, String message) {}
+
+    public static BulkRegistrationReport of(List<RowResult> rows) {
+        int[] counts = new int[Status.values().length];
+        for (RowResult row : rows) {
+            counts[row.status().ordinal()]++;
+        }
+        return new BulkRegistrationReport(rows.size(),
+                counts[Status.CREATED.ordinal()],
+                counts[Status.ALREADY_REGISTERED.ordinal()],
+                counts[Status.INVALID.ordinal()],
+                counts[Status.FAILED.ordinal()],
+                rows);
+    }
+}
@@ -1,11 +1,13 @@
 package com.rideshare.userservice.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.io.Serial;
 import java.io.Serializable;
+import java.time.LocalDateTime;
 
 @Data
 @NoArgsConstructor
@@ -19,4 +21,13 @@ public class UserDto implements Serializable {
     private String gender;
     private String mobileNumber;
     private String role;
-}
\ No newline at end of file
+
+    // Profile version (last update, else creation time), used for the ETag; not part of the JSON body.
+    // Null for listings and for cache entries written before it existed.
+    @JsonIgnore
+    private LocalDateTime updatedAt;
+
+    public UserDto(String firstName, String lastName, String gender, String mobileNumber, String role) {
+        this(firstName, lastName, gender, mobileNumber, role, null);
+    }
+}
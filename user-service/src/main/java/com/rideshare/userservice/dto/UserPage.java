@@ -0,0 +1,12 @@
+package com.rideshare.userservice.dto;
+
+import java.util.List;
+
+/**
+ * One keyset page of users. {@code nextCursor} is the last user id on the page,
+ * or null when there are no more rows.
+ */
+public record UserPage(
+        List<UserDto> items,
+        Long nextCursor
+) {}
@@ -0,0 +1,14 @@
+package com.rideshare.userservice.dto;
+
+/**
+ * Listing projection: user columns plus the joined role name, read in a single query.
+ * The id is only carried for keyset pagination and is not exposed in UserDto.
+ */
+public record UserRow(
+        Long id,
+        String firstName,
+        String lastName,
+        String gender,
+        String mobileNumber,
+        String role
+) {}
@@ -0,0 +1,49 @@
+package com.rideshare.userservice.entity;
+
+import com.rideshare.userservice.enums.UserEventType;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A user change waiting to be relayed to Kafka, written in the same transaction as the change.
+ * Rows are deleted once the relay has published them.
+ */
+@Entity
+@Table(name = "user_outbox")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEvent {
+
+    // Pooled like users_seq so bulk registration batches these inserts too
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_outbox_seq")
+    @SequenceGenerator(name = "user_outbox_seq", sequenceName = "user_outbox_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private String mobileNumber;
+
+    // Role after the change; resolved to its name when relayed
+    @Column(nullable = false)
+    private Long roleId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private UserEventType eventType;
+
+    @Column(nullable = false)
+    private LocalDateTime occurredAt = LocalDateTime.now();
+
+    // Set by OutboxRelay while a batch is being sent; null = waiting to be relayed
+    private LocalDateTime claimedUntil;
+
+    public OutboxEvent(String mobileNumber, Long roleId, UserEventType eventType) {
+        this.mobileNumber = mobileNumber;
+        this.roleId = roleId;
+        this.eventType = eventType;
+    }
+}
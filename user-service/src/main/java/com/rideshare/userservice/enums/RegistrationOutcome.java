@@ -0,0 +1,11 @@
+package com.rideshare.userservice.enums;
+
+/**
+ * Which branch of the registration upsert applied; returned by the statement itself.
+ */
+public enum RegistrationOutcome {
+    CREATED,
+    UPGRADED,
+    ALREADY_BOTH,
+    ALREADY_REGISTERED;
+}
@@ -0,0 +1,9 @@
+package com.rideshare.userservice.enums;
+
+/**
+ * Kinds of user change written to the outbox and relayed to auth-service.
+ */
+public enum UserEventType {
+    USER_REGISTERED,
+    ROLE_CHANGED;
+}
@@ -0,0 +1,47 @@
+package com.rideshare.userservice.mapper;
+
+import com.rideshare.userservice.dto.UserDto;
+import com.rideshare.userservice.dto.UserRow;
+import com.rideshare.userservice.entity.User;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Straight-line User / UserRow → UserDto mapping, including the Role.name → role projection.
+ * Replaces the reflective ModelMapper type map: no per-call property lookups, TypeToken
+ * resolution or intermediate objects, just one UserDto per User.
+ */
+@Component
+public class UserMapper {
+
+    public UserDto toDto(User user) {
+        return new UserDto(
+                user.getFirstName(),
+                user.getLastName(),
+                user.getGender(),
+                user.getMobileNumber(),
+                user.getRole() != null ? user.getRole().getName() : null);
+    }
+
+    public UserDto toDto(UserRow row) {
+        return new UserDto(row.firstName(), row.lastName(), row.gender(), row.mobileNumber(), row.role());
+    }
+
+    public List<UserDto> rowsToDtos(List<UserRow> rows) {
+        List<UserDto> dtos = new ArrayList<>(rows.size());
+        for (UserRow row : rows) {
+            dtos.add(toDto(row));
+        }
+        return dtos;
+    }
+
+    public List<UserDto> toDtos(List<User> users) {
+        List<UserDto> dtos = new ArrayList<>(users.size());
+        for (User user : users) {
+            dtos.add(toDto(user));
+        }
+        return dtos;
+    }
+}
@@ -0,0 +1,197 @@
+package com.rideshare.userservice.messaging;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rideshare.datasource.sharding.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Relays user_outbox rows to the user-events topic, oldest first, keyed by mobile number so
+ * events for one user stay in order on one partition.
+ * Each poll claims up to {@code batchSize} rows in one short transaction, by setting a lease
+ * (claimed_until) on unclaimed rows picked with FOR UPDATE SKIP LOCKED, so several instances can
+ * relay side by side. The batch is then sent as one producer batch with no transaction or
+ * connection held, and deleted once every send is acknowledged. If any send fails the claim is
+ * released and the whole batch is sent again on the next poll; rows claimed by an instance that
+ * died are picked up once their lease expires. Delivery is at-least-once and consumers must be
+ * idempotent.
+ */
+@Slf4j
+@Component
+public class OutboxRelay {
+
+    private static final String METRIC = "outbox.relay";
+
+    static final String CLAIM_SQL = """
+            update user_outbox o
+            set claimed_until = localtimestamp + make_interval(secs => :leaseSeconds)
+            from roles r
+            where r.id = o.role_id
+              and o.id in (
+                  select id from user_outbox
+                  where claimed_until is null or claimed_until < localtimestamp
+                  order by id
+                  limit :limit
+                  for update skip locked)
+            returning o.id, o.mobile_number, o.event_type, r.name as role, o.occurred_at""";
+    static final String DELETE_SQL = "delete from user_outbox where id in (:ids)";
+    static final String RELEASE_SQL = "update user_outbox set claimed_until = null where id in (:ids)";
+
+    private record Claimed(UserEvent event, LocalDateTime occurredAt) {}
+
+    private static final RowMapper<Claimed> CLAIMED = (rs, i) -> new Claimed(
+            new UserEvent(rs.getLong("id"), rs.getString("event_type"), rs.getString("mobile_number"), rs.getString("role")),
+            rs.getTimestamp("occurred_at").toLocalDateTime());
+
+    private final KafkaTemplate<String, String> kafka;
+    private final NamedParameterJdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final ShardRouter shardRouter;
+    private final ObjectMapper objectMapper;
+    private final OutboxProps props;
+    private final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("outbox-relay").daemon().factory());
+
+    private final Counter published;
+    private final Counter failed;
+    private final DistributionSummary batchSize;
+    private final AtomicLong lagMillis = new AtomicLong();
+
+    public OutboxRelay(KafkaTemplate<String, String> kafka, DataSource dataSource,
+                       PlatformTransactionManager transactionManager, ShardRouter shardRouter,
+                       ObjectMapper objectMapper, OutboxProps props, MeterRegistry registry) {
+        this.kafka = kafka;
+        this.jdbc = new NamedParameterJdbcTemplate(dataSource);
+        this.tx = new TransactionTemplate(transactionManager);
+        this.shardRouter = shardRouter;
+        this.objectMapper = objectMapper;
+        this.props = props;
+
+        this.published = Counter.builder(METRIC + ".events").tag("result", "published").register(registry);
+        this.failed = Counter.builder(METRIC + ".events").tag("result", "failed").register(registry);
+        this.batchSize = DistributionSummary.builder(METRIC + ".batch.size").register(registry);
+        Gauge.builder(METRIC + ".lag", lagMillis, AtomicLong::get)
+                .description("Age of the oldest event in the last relayed batch")
+                .baseUnit("milliseconds")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!props.enabled()) return;
+        long interval = props.pollInterval().toMillis();
+        poller.scheduleWithFixedDelay(this::poll, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    void poll() {
+        for (String shard : shardRouter.shards()) {
+            try {
+                // Keep draining while batches come back full, so a backlog clears without waiting a poll per batch
+                int relayed;
+                do {
+                    relayed = relayBatch(shard);
+                } while (relayed == props.batchSize());
+            } catch (RuntimeException e) {
+                // Rolled back; the same rows are claimed again on the next poll
+                log.warn("Outbox relay on {} failed, will retry: {}", shard, e.getMessage());
+            }
+        }
+    }
+
+    int relayBatch(String shard) {
+        List<Claimed> claimed = shardRouter.onShard(shard, () -> tx.execute(status -> jdbc.query(CLAIM_SQL,
+                Map.of("limit", props.batchSize(), "leaseSeconds", props.claimLease().toMillis() / 1000.0), CLAIMED)));
+        if (claimed == null || claimed.isEmpty()) {
+            lagMillis.set(0);
+            return 0;
+        }
+        // RETURNING has no order; send oldest first
+        List<Claimed> batch = claimed.stream().sorted(Comparator.comparingLong(c -> c.event().eventId())).toList();
+        List<Long> ids = batch.stream().map(c -> c.event().eventId()).toList();
+
+        CompletableFuture<?>[] sends = new CompletableFuture<?>[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            UserEvent event = batch.get(i).event();
+            sends[i] = kafka.send(props.topic(), event.mobileNumber(), toJson(event));
+        }
+        try {
+            CompletableFuture.allOf(sends).get(props.sendTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failed.increment(batch.size());
+            release(shard, ids);
+            throw new IllegalStateException("Interrupted while publishing outbox batch", e);
+        } catch (ExecutionException | TimeoutException e) {
+            failed.increment(batch.size());
+            release(shard, ids);
+            throw new IllegalStateException("Outbox batch of " + batch.size() + " not acknowledged", e);
+        }
+        shardRouter.runOnShard(shard, () -> jdbc.update(DELETE_SQL, Map.of("ids", ids)));
+
+        published.increment(batch.size());
+        batchSize.record(batch.size());
+        lagMillis.set(Duration.between(batch.get(0).occurredAt(), LocalDateTime.now()).toMillis());
+        return batch.size();
+    }
+
+    // Best effort: if this fails too, the rows are retried when the lease expires
+    private void release(String shard, List<Long> ids) {
+        try {
+            shardRouter.runOnShard(shard, () -> jdbc.update(RELEASE_SQL, Map.of("ids", ids)));
+        } catch (RuntimeException e) {
+            log.warn("Could not release {} outbox rows on {}, retried after the lease: {}", ids.size(), shard, e.getMessage());
+        }
+    }
+
+    private String toJson(UserEvent event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize " + event, e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        poller.shutdownNow();
+    }
+
+    @ConfigurationProperties(prefix = "outbox.relay")
+    public record OutboxProps(
+            @DefaultValue("true") boolean enabled,
+            @DefaultValue("user-events") String topic,
+            @DefaultValue("500") int batchSize,
+            @DefaultValue("500ms") Duration pollInterval,
+            @DefaultValue("10s") Duration sendTimeout,
+            // How long a claimed batch is kept from other instances; must exceed sendTimeout
+            @DefaultValue("1m") Duration claimLease
+    ) {}
+}
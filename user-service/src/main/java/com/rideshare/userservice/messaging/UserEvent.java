@@ -0,0 +1,11 @@
+package com.rideshare.userservice.messaging;
+
+/**
+ * Wire format of the user-events topic (JSON, keyed by mobile number).
+ *
+ * @param eventId      outbox row id, unique per shard; for tracing only
+ * @param type         a {@link com.rideshare.userservice.enums.UserEventType} name
+ * @param mobileNumber the user
+ * @param role         role name after the change
+ */
+public record UserEvent(long eventId, String type, String mobileNumber, String role) {}
@@ -0,0 +1,9 @@
+package com.rideshare.userservice.repository;
+
+import com.rideshare.userservice.entity.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+}
@@ -0,0 +1,41 @@
+package com.rideshare.userservice.repository;
+
+import com.rideshare.userservice.dto.UserDto;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.util.function.Consumer;
+
+/**
+ * Forward-only export of all users straight from a JDBC cursor.
+ * Rows are never collected or attached to a persistence context, so memory stays constant.
+ * Must be called inside a transaction: PostgreSQL only honours the fetch size with autocommit off.
+ */
+@Repository
+public class UserExportRepository {
+
+    private static final int FETCH_SIZE = 500;
+    private static final String EXPORT_SQL = """
+            select u.first_name, u.last_name, u.gender, u.mobile_number, r.name as role
+            from users u
+            join roles r on r.id = u.role_id
+            order by u.id""";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public UserExportRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(FETCH_SIZE);
+    }
+
+    public void forEachUser(Consumer<UserDto> consumer) {
+        jdbcTemplate.query(EXPORT_SQL, (RowCallbackHandler) rs -> consumer.accept(new UserDto(
+                rs.getString("first_name"),
+                rs.getString("last_name"),
+                rs.getString("gender"),
+                rs.getString("mobile_number"),
+                rs.getString("role"))));
+    }
+}
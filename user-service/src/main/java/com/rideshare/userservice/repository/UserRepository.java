@@ -1,12 +1,94 @@
 package com.rideshare.userservice.repository;
 
+import com.rideshare.userservice.dto.UserDto;
+import com.rideshare.userservice.dto.UserRow;
 import com.rideshare.userservice.entity.User;
+import com.rideshare.userservice.enums.RegistrationOutcome;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByMobileNumber(String mobileNumber);
+
+    /**
+     * Registers in a single statement and returns the {@link RegistrationOutcome} name.
+     * New numbers are inserted with roleId. An existing user holding a different role (and not
+     * already BOTH) is upgraded to bothRoleId; otherwise the row is left untouched. ON CONFLICT
+     * makes concurrent registrations for one number serialize on the row instead of failing on
+     * the unique constraint. "existing" reads the statement snapshot, so when a concurrent insert
+     * wins and nothing is updated, the outcome is reported as ALREADY_REGISTERED.
+     * An insert or upgrade also writes its user_outbox event in the same statement, so the event
+     * exists if and only if the change committed.
+     */
+    @Transactional
+    @Query(value = """
+            with existing as (
+                select role_id from users where mobile_number = :mobileNumber
+            ), upsert as (
+                insert into users (id, first_name, last_name, gender, mobile_number, role_id, created_at)
+                values (nextval('users_seq'), :firstName, :lastName, :gender, :mobileNumber, :roleId, localtimestamp)
+                on conflict (mobile_number) do update
+                    set role_id = :bothRoleId, updated_at = localtimestamp
+                    where users.role_id <> :bothRoleId and users.role_id <> excluded.role_id
+                returning (xmax = 0) as inserted, role_id
+            ), outbox as (
+                insert into user_outbox (id, mobile_number, role_id, event_type, occurred_at)
+                select nextval('user_outbox_seq'), :mobileNumber, role_id,
+                       case when inserted then 'USER_REGISTERED' else 'ROLE_CHANGED' end, localtimestamp
+                from upsert
+            )
+            select case
+                when exists (select 1 from upsert where inserted) then 'CREATED'
+                when exists (select 1 from upsert) then 'UPGRADED'
+                when (select role_id from existing) = :bothRoleId then 'ALREADY_BOTH'
+                else 'ALREADY_REGISTERED'
+            end""", nativeQuery = true)
+    String upsertRegistration(@Param("firstName") String firstName,
+                              @Param("lastName") String lastName,
+                              @Param("gender") String gender,
+                              @Param("mobileNumber") String mobileNumber,
+                              @Param("roleId") Long roleId,
+                              @Param("bothRoleId") Long bothRoleId);
+
+    @Query("select u.mobileNumber from User u where u.mobileNumber in :mobileNumbers")
+    List<String> findExistingMobileNumbers(@Param("mobileNumbers") Collection<String> mobileNumbers);
+
+    // Keyset page: WHERE id > :afterId ORDER BY id LIMIT n, role name joined in the same query
+    @Query("""
+            select new com.rideshare.userservice.dto.UserRow(
+                u.id, u.firstName, u.lastName, u.gender, u.mobileNumber, r.name)
+            from User u join u.role r
+            where u.id > :afterId
+            order by u.id""")
+    List<UserRow> findPageAfter(@Param("afterId") Long afterId, Limit limit);
+
+    // Profile read as a projection: one select, no managed entity, no separate roles lookup.
+    // Carries the row's last change time as the profile version (ETag).
+    // Read-write transaction on purpose: profile reads fill the cache, so they are answered by the
+    // primary and a lagging replica can never pin a pre-upgrade role for the whole L2 TTL
+    @Transactional
+    @Query("""
+            select new com.rideshare.userservice.dto.UserDto(
+                u.firstName, u.lastName, u.gender, u.mobileNumber, r.name, coalesce(u.updatedAt, u.createdAt))
+            from User u join u.role r
+            where u.mobileNumber = :mobileNumber""")
+    Optional<UserDto> findProfileByMobileNumber(@Param("mobileNumber") String mobileNumber);
+
+    // Primary read for the same reason as findProfileByMobileNumber
+    @Transactional
+    @Query("""
+            select new com.rideshare.userservice.dto.UserDto(
+                u.firstName, u.lastName, u.gender, u.mobileNumber, r.name, coalesce(u.updatedAt, u.createdAt))
+            from User u join u.role r
+            where u.mobileNumber in :mobileNumbers""")
+    List<UserDto> findProfilesByMobileNumbers(@Param("mobileNumbers") Collection<String> mobileNumbers);
 }
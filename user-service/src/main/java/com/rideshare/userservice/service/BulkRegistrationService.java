@@ -0,0 +1,229 @@
+package com.rideshare.userservice.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rideshare.datasource.sharding.ShardRouter;
+import com.rideshare.userservice.dto.BulkRegistrationReport;
+import com.rideshare.userservice.dto.BulkRegistrationReport.RowResult;
+import com.rideshare.userservice.dto.BulkRegistrationReport.Status;
+import com.rideshare.userservice.dto.RegistrationRequest;
+import com.rideshare.userservice.entity.OutboxEvent;
+import com.rideshare.userservice.entity.Role;
+import com.rideshare.userservice.entity.User;
+import com.rideshare.userservice.enums.UserEventType;
+import com.rideshare.userservice.repository.OutboxEventRepository;
+import com.rideshare.userservice.repository.UserRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Imports registrations from a JSON-lines or CSV body, one line per user.
+ * The body is read line by line; valid rows are inserted in chunks of {@code chunkSize}, one
+ * transaction per chunk and shard, which Hibernate sends as JDBC batches (hibernate.jdbc.batch_size).
+ * Each created user gets a USER_REGISTERED outbox event in the same transaction.
+ * Rows are validated with the same constraints as {@code POST /api/users/register}. Numbers that
+ * already exist are reported, not upgraded; use the single registration endpoint for that.
+ */
+@Slf4j
+@Service
+public class BulkRegistrationService {
+
+    public enum Format { NDJSON, CSV }
+
+    static final String CSV_HEADER = "firstName,lastName,gender,mobileNumber,role";
+
+    private final UserRepository userRepository;
+    private final OutboxEventRepository outboxRepository;
+    private final RoleDictionary roles;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final BulkImportProps props;
+    private final ShardRouter shardRouter;
+
+    public BulkRegistrationService(UserRepository userRepository,
+                                   OutboxEventRepository outboxRepository,
+                                   RoleDictionary roles,
+                                   Validator validator,
+                                   ObjectMapper objectMapper,
+                                   PlatformTransactionManager transactionManager,
+                                   BulkImportProps props,
+                                   ShardRouter shardRouter) {
+        this.userRepository = userRepository;
+        this.outboxRepository = outboxRepository;
+        this.roles = roles;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.props = props;
+        this.shardRouter = shardRouter;
+    }
+
+    private record PendingRow(int line, RegistrationRequest request) {}
+
+    public BulkRegistrationReport importUsers(InputStream body, Format format) throws IOException {
+        List<RowResult> results = new ArrayList<>();
+        List<PendingRow> chunk = new ArrayList<>(props.chunkSize());
+        Set<String> seenNumbers = new HashSet<>();
+        int dataRows = 0;
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || (format == Format.CSV && lineNumber == 1 && isCsvHeader(line))) {
+                    continue;
+                }
+                if (++dataRows > props.maxRows()) {
+                    results.add(new RowResult(lineNumber, null, Status.INVALID,
+                            "Row limit of " + props.maxRows() + " exceeded; remaining rows were not read"));
+                    break;
+                }
+
+                RegistrationRequest request;
+                try {
+                    request = format == Format.CSV ? parseCsv(line) : objectMapper.readValue(line, RegistrationRequest.class);
+                } catch (JsonProcessingException e) {
+                    results.add(new RowResult(lineNumber, null, Status.INVALID, "Unreadable row: " + e.getOriginalMessage()));
+                    continue;
+                } catch (IllegalArgumentException e) {
+                    results.add(new RowResult(lineNumber, null, Status.INVALID, "Unreadable row: " + e.getMessage()));
+                    continue;
+                }
+
+                Set<ConstraintViolation<RegistrationRequest>> violations = validator.validate(request);
+                if (!violations.isEmpty()) {
+                    String message = violations.stream()
+                            .map(ConstraintViolation::getMessage)
+                            .sorted()
+                            .collect(Collectors.joining("; "));
+                    results.add(new RowResult(lineNumber, request.mobileNumber(), Status.INVALID, message));
+                    continue;
+                }
+                if (!seenNumbers.add(request.mobileNumber())) {
+                    results.add(new RowResult(lineNumber, request.mobileNumber(), Status.INVALID,
+                            "Mobile number repeated in this file"));
+                    continue;
+                }
+
+                chunk.add(new PendingRow(lineNumber, request));
+                if (chunk.size() >= props.chunkSize()) {
+                    results.addAll(insertChunk(chunk));
+                    chunk.clear();
+                }
+            }
+        }
+        if (!chunk.isEmpty()) {
+            results.addAll(insertChunk(chunk));
+        }
+
+        results.sort((a, b) -> Integer.compare(a.line(), b.line()));
+        BulkRegistrationReport report = BulkRegistrationReport.of(results);
+        log.info("Bulk registration finished: total={}, created={}, alreadyRegistered={}, invalid={}, failed={}",
+                report.total(), report.created(), report.alreadyRegistered(), report.invalid(), report.failed());
+        return report;
+    }
+
+    private List<RowResult> insertChunk(List<PendingRow> chunk) {
+        // One transaction per shard: a transaction cannot span databases
+        List<RowResult> results = new ArrayList<>(chunk.size());
+        shardRouter.partition(chunk, row -> row.request().mobileNumber())
+                .forEach((shard, rows) -> results.addAll(insertOnShard(shard, rows)));
+        return results;
+    }
+
+    private List<RowResult> insertOnShard(String shard, List<PendingRow> rows) {
+        try {
+            // Checked before the insert transaction so that, while resharding, old owners are asked too
+            Set<String> existing = new HashSet<>(shardRouter.findAllByKeys(
+                    rows.stream().map(row -> row.request().mobileNumber()).toList(),
+                    userRepository::findExistingMobileNumbers, Function.identity()));
+
+            List<RowResult> results = new ArrayList<>(rows.size());
+            List<User> newUsers = new ArrayList<>(rows.size());
+            List<OutboxEvent> events = new ArrayList<>(rows.size());
+            for (PendingRow row : rows) {
+                RegistrationRequest request = row.request();
+                if (existing.contains(request.mobileNumber())) {
+                    results.add(new RowResult(row.line(), request.mobileNumber(), Status.ALREADY_REGISTERED,
+                            "Mobile number already registered"));
+                    continue;
+                }
+                Role role = roles.byName(request.role()).orElse(null);
+                if (role == null) {
+                    // A role missing from the roles table fails only its own rows, not the import
+                    results.add(new RowResult(row.line(), request.mobileNumber(), Status.INVALID,
+                            "Role " + request.role() + " not found"));
+                    continue;
+                }
+                User user = new User();
+                user.setFirstName(request.firstName());
+                user.setLastName(request.lastName());
+                user.setGender(request.gender());
+                user.setMobileNumber(request.mobileNumber());
+                user.setRole(role);
+                newUsers.add(user);
+                events.add(new OutboxEvent(request.mobileNumber(), role.getId(), UserEventType.USER_REGISTERED));
+                results.add(new RowResult(row.line(), request.mobileNumber(), Status.CREATED,
+                        "Registration successful as " + request.role()));
+            }
+            if (newUsers.isEmpty()) {
+                return results;
+            }
+            // Ids come from the pooled sequence, so the inserts are flushed as JDBC batches on commit
+            shardRouter.runOnShard(shard, () -> transactionTemplate.executeWithoutResult(status -> {
+                userRepository.saveAll(newUsers);
+                outboxRepository.saveAll(events);
+            }));
+            return results;
+        } catch (DataAccessException e) {
+            // Typically a number registered concurrently; nothing from these rows was committed
+            log.warn("Bulk registration of {} rows on {} rolled back: {}", rows.size(), shard,
+                    e.getMostSpecificCause().getMessage());
+            return rows.stream()
+                    .map(row -> new RowResult(row.line(), row.request().mobileNumber(), Status.FAILED,
+                            "Chunk rolled back, resubmit this row: " + e.getMostSpecificCause().getMessage()))
+                    .toList();
+        }
+    }
+
+    private static boolean isCsvHeader(String line) {
+        return line.replace(" ", "").equalsIgnoreCase(CSV_HEADER);
+    }
+
+    // Plain comma-separated columns in CSV_HEADER order; quoting is not supported
+    private static RegistrationRequest parseCsv(String line) {
+        String[] columns = line.split(",", -1);
+        if (columns.length != 5) {
+            throw new IllegalArgumentException("expected 5 columns (" + CSV_HEADER + "), got " + columns.length);
+        }
+        return new RegistrationRequest(columns[0].trim(), columns[1].trim(), columns[2].trim(),
+                columns[3].trim(), columns[4].trim());
+    }
+
+    @ConfigurationProperties(prefix = "users.bulk-import")
+    public record BulkImportProps(
+            @DefaultValue("500") int chunkSize,
+            @DefaultValue("100000") int maxRows
+    ) {}
+}
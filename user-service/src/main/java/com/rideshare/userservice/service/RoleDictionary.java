@@ -0,0 +1,78 @@
+package com.rideshare.userservice.service;
+
+import com.rideshare.userservice.entity.Role;
+import com.rideshare.userservice.repository.RoleRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory copy of the (tiny, almost static) roles table, keyed by name and by id.
+ * Each refresh swaps in a new immutable snapshot, so lookups never lock or touch the database.
+ * A lookup that misses triggers one reload, which picks up roles inserted after startup.
+ */
+@Slf4j
+@Component
+public class RoleDictionary {
+
+    private record Snapshot(Map<String, Role> byName, Map<Long, Role> byId) {
+        static final Snapshot EMPTY = new Snapshot(Map.of(), Map.of());
+    }
+
+    private final RoleRepository roleRepository;
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    public RoleDictionary(RoleRepository roleRepository) {
+        this.roleRepository = roleRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        refresh();
+    }
+
+    public Optional<Role> byName(String name) {
+        Role role = snapshot.byName().get(name);
+        if (role == null && reloadOnMiss(s -> s.byName().containsKey(name))) {
+            role = snapshot.byName().get(name);
+        }
+        return Optional.ofNullable(role);
+    }
+
+    public Optional<Role> byId(Long id) {
+        Role role = snapshot.byId().get(id);
+        if (role == null && reloadOnMiss(s -> s.byId().containsKey(id))) {
+            role = snapshot.byId().get(id);
+        }
+        return Optional.ofNullable(role);
+    }
+
+    public List<String> names() {
+        return List.copyOf(snapshot.byName().keySet());
+    }
+
+    public synchronized List<String> refresh() {
+        List<Role> roles = roleRepository.findAll();
+        snapshot = new Snapshot(
+                roles.stream().collect(Collectors.toUnmodifiableMap(Role::getName, Function.identity())),
+                roles.stream().collect(Collectors.toUnmodifiableMap(Role::getId, Function.identity())));
+        log.info("Role dictionary loaded: {}", snapshot.byName().keySet());
+        return names();
+    }
+
+    // Another thread may have reloaded while we waited for the lock
+    private synchronized boolean reloadOnMiss(Predicate<Snapshot> present) {
+        if (!present.test(snapshot)) {
+            refresh();
+        }
+        return present.test(snapshot);
+    }
+}
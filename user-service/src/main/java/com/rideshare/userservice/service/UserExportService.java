@@ -0,0 +1,63 @@
+package com.rideshare.userservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.rideshare.datasource.sharding.ShardRouter;
+import com.rideshare.userservice.dto.UserDto;
+import com.rideshare.userservice.repository.UserExportRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Streams every user as newline-delimited JSON, one row at a time.
+ * Shards are exported one after another, each in id order.
+ */
+@Slf4j
+@Service
+public class UserExportService {
+
+    private final UserExportRepository exportRepository;
+    private final TransactionTemplate readOnlyTx;
+    private final ObjectMapper objectMapper;
+    private final ShardRouter shardRouter;
+
+    public UserExportService(UserExportRepository exportRepository,
+                             PlatformTransactionManager transactionManager,
+                             ObjectMapper objectMapper,
+                             ShardRouter shardRouter) {
+        this.exportRepository = exportRepository;
+        this.objectMapper = objectMapper;
+        this.shardRouter = shardRouter;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+    }
+
+    public void exportUsers(OutputStream out) throws IOException {
+        // Let the servlet buffer decide when to flush instead of flushing per row
+        try (SequenceWriter writer = objectMapper.writerFor(UserDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator("\n")
+                .writeValues(out)) {
+            for (String shard : shardRouter.shards()) {
+                shardRouter.runOnShard(shard, () -> readOnlyTx.executeWithoutResult(
+                        status -> exportRepository.forEachUser(dto -> {
+                            try {
+                                writer.write(dto);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        })));
+            }
+        } catch (UncheckedIOException e) {
+            log.warn("User export aborted: {}", e.getMessage());
+            throw e.getCause();
+        }
+    }
+}
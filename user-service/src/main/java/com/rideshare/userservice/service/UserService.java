@@ -1,98 +1,150 @@
 package com.rideshare.userservice.service;
 
+import com.rideshare.datasource.sharding.ShardRouter;
+import com.rideshare.userservice.cache.BatchCache;
 import com.rideshare.userservice.dto.ApiResponse;
 import com.rideshare.userservice.dto.RegistrationRequest;
 import com.rideshare.userservice.dto.UserDto;
+import com.rideshare.userservice.dto.UserPage;
+import com.rideshare.userservice.dto.UserRow;
 import com.rideshare.userservice.entity.Role;
-import com.rideshare.userservice.entity.User;
+import com.rideshare.userservice.enums.RegistrationOutcome;
 import com.rideshare.userservice.enums.RoleType;
 import com.rideshare.userservice.exception.UserNotFoundException;
-import com.rideshare.userservice.repository.RoleRepository;
+import com.rideshare.userservice.mapper.UserMapper;
 import com.rideshare.userservice.repository.UserRepository;
 import lombok.extern.slf4j.Slf4j;
-import org.modelmapper.ModelMapper;
-import org.modelmapper.TypeToken;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 @Slf4j
 @Service
 public class UserService {
 
+    public static final String PROFILE_CACHE = "userProfiles";
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+
     private final UserRepository userRepository;
-    private final RoleRepository roleRepository;
-    private final ModelMapper modelMapper;
+    private final RoleDictionary roles;
+    private final UserMapper userMapper;
+    private final CacheManager cacheManager;
+    private final ShardRouter shardRouter;
 
-    public UserService(UserRepository userRepository, RoleRepository roleRepository, ModelMapper modelMapper) {
+    public UserService(UserRepository userRepository, RoleDictionary roles, UserMapper userMapper,
+                       CacheManager cacheManager, ShardRouter shardRouter) {
         this.userRepository = userRepository;
-        this.roleRepository = roleRepository;
-        this.modelMapper = modelMapper;
+        this.roles = roles;
+        this.userMapper = userMapper;
+        this.cacheManager = cacheManager;
+        this.shardRouter = shardRouter;
     }
 
+    // Role may change (upgrade to BOTH): evict the profile from L2 and every replica's L1
+    @CacheEvict(value = PROFILE_CACHE, key = "#request.mobileNumber()")
     public ApiResponse registerUser(RegistrationRequest request) {
         log.info("Registration attempt for mobileNumber={} with role={}", request.mobileNumber(), request.role());
 
         String requestedRole = request.role().toUpperCase();
 
-        return userRepository.findByMobileNumber(request.mobileNumber())
-                .map(existingUser -> {
-                    String currentRole = existingUser.getRole().getName();
-                    log.info("Existing user found: mobileNumber={}, role={}", existingUser.getMobileNumber(), currentRole);
-
-                    if (RoleType.BOTH.name().equals(currentRole)) {
-                        log.warn("User {} already has BOTH roles", existingUser.getMobileNumber());
-                        return new ApiResponse(false, "You already have BOTH roles. Please login.");
-                    }
-
-                    if (currentRole.equals(requestedRole)) {
-                        log.warn("User {} already registered with role {}", existingUser.getMobileNumber(), requestedRole);
-                        return new ApiResponse(false, "You are already registered with this role. Please login.");
-                    }
-
-                    // Upgrade to BOTH
-                    Role bothRole = roleRepository.findByName("BOTH")
-                            .orElseThrow(() -> new RuntimeException("Role BOTH not found"));
-                    existingUser.setRole(bothRole);
-                    userRepository.save(existingUser);
-
-                    log.info("User {} upgraded to BOTH roles", existingUser.getMobileNumber());
-                    return new ApiResponse(true, "You are now registered with BOTH roles.");
-                })
-                .orElseGet(() -> {
-                    // ✅ Manual mapping instead of ModelMapper
-                    Role role = roleRepository.findByName(requestedRole)
-                            .orElseThrow(() -> new RuntimeException("Role not found"));
-
-                    User newUser = new User();
-                    newUser.setFirstName(request.firstName());
-                    newUser.setLastName(request.lastName());
-                    newUser.setGender(request.gender());
-                    newUser.setMobileNumber(request.mobileNumber());
-                    newUser.setRole(role);
-
-                    userRepository.save(newUser);
-
-                    log.info("New user {} registered successfully with role={}", newUser.getMobileNumber(), requestedRole);
-                    return new ApiResponse(true, "Registration successful as " + requestedRole);
-                });
+        Role role = roles.byName(requestedRole)
+                .orElseThrow(() -> new RuntimeException("Role not found"));
+        Role bothRole = roles.byName(RoleType.BOTH.name())
+                .orElseThrow(() -> new RuntimeException("Role BOTH not found"));
+
+        // One round trip on the owning shard: insert, upgrade to BOTH, or leave as is, decided atomically by the database
+        RegistrationOutcome outcome = RegistrationOutcome.valueOf(shardRouter.writeOnShardOf(request.mobileNumber(),
+                () -> userRepository.upsertRegistration(request.firstName(), request.lastName(), request.gender(),
+                        request.mobileNumber(), role.getId(), bothRole.getId())));
+
+        return switch (outcome) {
+            case CREATED -> {
+                log.info("New user {} registered successfully with role={}", request.mobileNumber(), requestedRole);
+                yield new ApiResponse(true, "Registration successful as " + requestedRole);
+            }
+            case UPGRADED -> {
+                log.info("User {} upgraded to BOTH roles", request.mobileNumber());
+                yield new ApiResponse(true, "You are now registered with BOTH roles.");
+            }
+            case ALREADY_BOTH -> {
+                log.warn("User {} already has BOTH roles", request.mobileNumber());
+                yield new ApiResponse(false, "You already have BOTH roles. Please login.");
+            }
+            case ALREADY_REGISTERED -> {
+                log.warn("User {} already registered with role {}", request.mobileNumber(), requestedRole);
+                yield new ApiResponse(false, "You are already registered with this role. Please login.");
+            }
+        };
     }
 
 
 
-    // ✅ Fetch all users
-    public List<UserDto> getAllUsers() {
-        List<User> users = userRepository.findAll();
-        return modelMapper.map(users, new TypeToken<List<UserDto>>() {}.getType());
+    // ✅ Fetch one keyset page of users (id > afterId), capped at MAX_PAGE_SIZE
+    // Ids are unique across shards, so each shard's page is merged by id and the cursor stays global
+    public UserPage getUsers(Long afterId, int size) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        long after = afterId == null ? 0L : afterId;
+        // Fetch one extra row to know whether another page exists
+        List<UserRow> rows = new ArrayList<>();
+        for (String shard : shardRouter.shards()) {
+            rows.addAll(shardRouter.onShard(shard, () -> userRepository.findPageAfter(after, Limit.of(pageSize + 1))));
+        }
+        if (shardRouter.shards().size() > 1) {
+            rows.sort(Comparator.comparing(UserRow::id));
+            // While resharding, a moved row is on both shards between Resharder's copy and its delete
+            Set<Long> seen = new HashSet<>();
+            rows.removeIf(row -> !seen.add(row.id()));
+        }
+        boolean hasMore = rows.size() > pageSize;
+        List<UserRow> page = hasMore ? rows.subList(0, pageSize) : rows;
+        List<UserDto> items = userMapper.rowsToDtos(page);
+        Long nextCursor = hasMore ? page.get(page.size() - 1).id() : null;
+        return new UserPage(items, nextCursor);
     }
 
 
-    // ✅ Fetch user profile by mobile number
-    @Cacheable(value = "userProfiles", key = "#mobileNumber")
+    // ✅ Fetch user profile by mobile number, from the one shard that owns it
+    @Cacheable(value = PROFILE_CACHE, key = "#mobileNumber", sync = true)
     public UserDto getUserProfile(String mobileNumber) {
-        User user = userRepository.findByMobileNumber(mobileNumber)
+        return shardRouter.findByKey(mobileNumber, () -> userRepository.findProfileByMobileNumber(mobileNumber))
                 .orElseThrow(() -> new UserNotFoundException(mobileNumber));
-        return modelMapper.map(user, UserDto.class);
+    }
+
+    // ✅ Fetch many profiles: one cache multi-get, one IN query per shard for the misses, results in request order
+    public List<UserDto> getUserProfiles(List<String> mobileNumbers) {
+        Cache cache = cacheManager.getCache(PROFILE_CACHE);
+        Set<String> distinct = new LinkedHashSet<>(mobileNumbers);
+        Map<Object, Object> found = new HashMap<>(BatchCache.getAll(cache, distinct));
+
+        List<String> misses = distinct.stream().filter(number -> !found.containsKey(number)).toList();
+        if (!misses.isEmpty()) {
+            Map<String, UserDto> loaded = new HashMap<>();
+            for (UserDto dto : shardRouter.findAllByKeys(misses, userRepository::findProfilesByMobileNumbers,
+                    UserDto::getMobileNumber)) {
+                loaded.put(dto.getMobileNumber(), dto);
+            }
+            BatchCache.putAll(cache, loaded);
+            found.putAll(loaded);
+        }
+        log.debug("Batch profile lookup: requested={}, cacheMisses={}", mobileNumbers.size(), misses.size());
+
+        List<UserDto> profiles = new ArrayList<>(mobileNumbers.size());
+        for (String number : mobileNumbers) {
+            profiles.add((UserDto) found.get(number));
+        }
+        return profiles;
     }
 
 }
@@ -0,0 +1,97 @@
+package com.rideshare.userservice.benchmark;
+
+import com.rideshare.userservice.cache.CompactUserDtoSerializer;
+import com.rideshare.userservice.dto.UserDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode/decode throughput of cached UserDto values: compact binary vs JDK vs JSON.
+ * Payload sizes are printed before the run.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *           -Dexec.mainClass=com.rideshare.userservice.benchmark.UserDtoSerializationBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserDtoSerializationBenchmark {
+
+    private final RedisSerializer<Object> compact = new CompactUserDtoSerializer();
+    private final RedisSerializer<Object> jdk = new JdkSerializationRedisSerializer();
+    private final RedisSerializer<UserDto> json = new Jackson2JsonRedisSerializer<>(UserDto.class);
+
+    private UserDto dto;
+    private byte[] compactBytes;
+    private byte[] jdkBytes;
+    private byte[] jsonBytes;
+
+    @Setup
+    public void setUp() {
+        dto = sample();
+        compactBytes = compact.serialize(dto);
+        jdkBytes = jdk.serialize(dto);
+        jsonBytes = json.serialize(dto);
+    }
+
+    @Benchmark
+    public byte[] serializeCompact() {
+        return compact.serialize(dto);
+    }
+
+    @Benchmark
+    public byte[] serializeJdk() {
+        return jdk.serialize(dto);
+    }
+
+    @Benchmark
+    public byte[] serializeJson() {
+        return json.serialize(dto);
+    }
+
+    @Benchmark
+    public Object deserializeCompact() {
+        return compact.deserialize(compactBytes);
+    }
+
+    @Benchmark
+    public Object deserializeJdk() {
+        return jdk.deserialize(jdkBytes);
+    }
+
+    @Benchmark
+    public Object deserializeJson() {
+        return json.deserialize(jsonBytes);
+    }
+
+    private static UserDto sample() {
+        return new UserDto("Gopal", "Rao", "MALE", "9885791402", "BOTH");
+    }
+
+    public static void main(String[] args) throws Exception {
+        UserDto dto = sample();
+        System.out.printf("Payload bytes: compact=%d jdk=%d json=%d%n",
+                new CompactUserDtoSerializer().serialize(dto).length,
+                new JdkSerializationRedisSerializer().serialize(dto).length,
+                new Jackson2JsonRedisSerializer<>(UserDto.class).serialize(dto).length);
+        new Runner(new OptionsBuilder().include(UserDtoSerializationBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,113 @@
+package com.rideshare.userservice.benchmark;
+
+import com.rideshare.userservice.dto.UserDto;
+import com.rideshare.userservice.entity.Role;
+import com.rideshare.userservice.entity.User;
+import com.rideshare.userservice.mapper.UserMapper;
+import org.modelmapper.ModelMapper;
+import org.modelmapper.TypeToken;
+import org.modelmapper.config.Configuration.AccessLevel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * User → UserDto mapping: the former reflective ModelMapper setup vs the hand-written UserMapper,
+ * for a single profile and for a listing page. The GC profiler reports gc.alloc.rate.norm
+ * (bytes allocated per operation) next to throughput.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *           -Dexec.mainClass=com.rideshare.userservice.benchmark.UserMappingBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserMappingBenchmark {
+
+    private static final Type USER_DTO_LIST = new TypeToken<List<UserDto>>() {}.getType();
+
+    @Param({"50", "500"})
+    public int pageSize;
+
+    private ModelMapper modelMapper;
+    private UserMapper userMapper;
+    private User user;
+    private List<User> page;
+
+    @Setup
+    public void setUp() {
+        modelMapper = legacyModelMapper();
+        userMapper = new UserMapper();
+
+        Role rider = new Role(1L, "RIDER", "Rider");
+        page = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            User u = new User();
+            u.setId((long) i + 1);
+            u.setFirstName("First" + i);
+            u.setLastName("Last" + i);
+            u.setGender(i % 2 == 0 ? "MALE" : "FEMALE");
+            u.setMobileNumber(String.valueOf(9_000_000_000L + i));
+            u.setRole(rider);
+            page.add(u);
+        }
+        user = page.get(0);
+    }
+
+    /** The configuration AppConfig used to register as a bean. */
+    private static ModelMapper legacyModelMapper() {
+        ModelMapper mapper = new ModelMapper();
+        mapper.getConfiguration()
+                .setFieldMatchingEnabled(true)
+                .setFieldAccessLevel(AccessLevel.PRIVATE);
+        mapper.typeMap(User.class, UserDto.class)
+                .addMappings(m -> m.map(src -> src.getRole().getName(), UserDto::setRole));
+        return mapper;
+    }
+
+    @Benchmark
+    public UserDto singleModelMapper() {
+        return modelMapper.map(user, UserDto.class);
+    }
+
+    @Benchmark
+    public UserDto singleUserMapper() {
+        return userMapper.toDto(user);
+    }
+
+    @Benchmark
+    public List<UserDto> pageModelMapper() {
+        return modelMapper.map(page, USER_DTO_LIST);
+    }
+
+    @Benchmark
+    public List<UserDto> pageUserMapper() {
+        return userMapper.toDtos(page);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(UserMappingBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,88 @@
+package com.rideshare.userservice.cache;
+
+import com.rideshare.userservice.dto.UserDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompactUserDtoSerializerTest {
+
+    private final CompactUserDtoSerializer serializer = new CompactUserDtoSerializer();
+
+    @Test
+    void testRoundTrip() {
+        UserDto dto = new UserDto("Gopal", "Rao", "MALE", "9885791402", "BOTH");
+
+        byte[] bytes = serializer.serialize(dto);
+
+        assertThat(bytes[0]).isEqualTo(CompactUserDtoSerializer.MAGIC);
+        assertThat(bytes[1]).isEqualTo(CompactUserDtoSerializer.VERSION);
+        assertThat(serializer.deserialize(bytes)).isEqualTo(dto);
+    }
+
+    @Test
+    void testRoundTrip_KeepsUpdatedAtToTheMicrosecond() {
+        UserDto dto = new UserDto("Gopal", "Rao", "MALE", "9885791402", "BOTH",
+                LocalDateTime.of(2026, 3, 1, 10, 15, 30, 123_456_000));
+
+        assertThat(serializer.deserialize(serializer.serialize(dto))).isEqualTo(dto);
+    }
+
+    @Test
+    void testReadsVersion1EntriesWithoutUpdatedAt() {
+        UserDto dto = new UserDto("Gopal", "Rao", "MALE", "9885791402", "BOTH");
+        byte[] bytes = serializer.serialize(dto);
+        // A version 1 entry is the version 2 layout without the trailing updatedAt varint
+        byte[] v1 = Arrays.copyOf(bytes, bytes.length - 1);
+        v1[1] = 1;
+
+        assertThat(serializer.deserialize(v1)).isEqualTo(dto);
+    }
+
+    @Test
+    void testRoundTrip_NullsAndMultiByteCharacters() {
+        UserDto dto = new UserDto("లక్ష్మి", null, null, "9876543210", "OWNER");
+
+        assertThat(serializer.deserialize(serializer.serialize(dto))).isEqualTo(dto);
+    }
+
+    @Test
+    void testRoundTrip_LongFieldUsesMultiByteLength() {
+        UserDto dto = new UserDto("x".repeat(300), "Doe", "M", "9999999999", "RIDER");
+
+        assertThat(serializer.deserialize(serializer.serialize(dto))).isEqualTo(dto);
+    }
+
+    @Test
+    void testMuchSmallerThanJdkSerialization() {
+        UserDto dto = new UserDto("Gopal", "Rao", "MALE", "9885791402", "BOTH");
+        byte[] jdk = new JdkSerializationRedisSerializer().serialize(dto);
+
+        assertThat(serializer.serialize(dto).length).isLessThan(jdk.length / 4);
+    }
+
+    @Test
+    void testReadsLegacyJdkEntries() {
+        UserDto dto = new UserDto("John", "Doe", "Male", "9999999999", "RIDER");
+        byte[] legacy = new JdkSerializationRedisSerializer().serialize(dto);
+
+        assertThat(serializer.deserialize(legacy)).isEqualTo(dto);
+    }
+
+    @Test
+    void testCorruptOrUnknownEntriesReadAsMiss() {
+        assertThat(serializer.deserialize(new byte[]{CompactUserDtoSerializer.MAGIC, 99, 1})).isNull();
+        assertThat(serializer.deserialize(new byte[]{CompactUserDtoSerializer.MAGIC, 1, 50})).isNull();
+        assertThat(serializer.deserialize(new byte[]{1, 2, 3})).isNull();
+        assertThat(serializer.deserialize(new byte[0])).isNull();
+    }
+
+    @Test
+    void testOtherTypesUseJdkSerialization() {
+        assertThat(serializer.deserialize(serializer.serialize("plain"))).isEqualTo("plain");
+    }
+}
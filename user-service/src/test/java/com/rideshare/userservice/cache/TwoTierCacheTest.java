@@ -0,0 +1,152 @@
+package com.rideshare.userservice.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TwoTierCacheTest {
+
+    private ConcurrentMapCache l2;
+    private com.github.benmanes.caffeine.cache.Cache<Object, Cache.ValueWrapper> l1;
+    private List<Object> invalidations;
+    private SimpleMeterRegistry registry;
+    private TwoTierCache cache;
+
+    @BeforeEach
+    void setUp() {
+        l2 = new ConcurrentMapCache("userProfiles");
+        l1 = Caffeine.newBuilder().maximumSize(100).build();
+        invalidations = new ArrayList<>();
+        registry = new SimpleMeterRegistry();
+        cache = new TwoTierCache("userProfiles", l1, l2, invalidations::add, registry);
+    }
+
+    private double requests(String tier, String result) {
+        return registry.get("cache.tier.requests").tags("tier", tier, "result", result).counter().count();
+    }
+
+    @Test
+    void testGet_L2HitIsPromotedToL1() {
+        l2.put("9999999999", "profile");
+
+        assertThat(cache.get("9999999999").get()).isEqualTo("profile");
+        assertThat(cache.get("9999999999").get()).isEqualTo("profile");
+
+        assertThat(l1.getIfPresent("9999999999")).isNotNull();
+        assertThat(requests("l1", "miss")).isEqualTo(1);
+        assertThat(requests("l1", "hit")).isEqualTo(1);
+        assertThat(requests("l2", "hit")).isEqualTo(1);
+    }
+
+    @Test
+    void testGet_MissInBothTiersReturnsNull() {
+        assertThat(cache.get("8888888888")).isNull();
+        assertThat(requests("l2", "miss")).isEqualTo(1);
+    }
+
+    @Test
+    void testGetWithLoader_LoadsOnceAndWritesBothTiers() {
+        AtomicInteger loads = new AtomicInteger();
+
+        String first = cache.get("7777777777", () -> "loaded-" + loads.incrementAndGet());
+        String second = cache.get("7777777777", () -> "loaded-" + loads.incrementAndGet());
+
+        assertThat(first).isEqualTo("loaded-1");
+        assertThat(second).isEqualTo("loaded-1");
+        assertThat(l2.get("7777777777").get()).isEqualTo("loaded-1");
+        // Loading on a miss is not a change, so peers are not told to invalidate
+        assertThat(invalidations).isEmpty();
+    }
+
+    @Test
+    void testGetWithLoader_WrapsLoaderFailure() {
+        assertThrows(Cache.ValueRetrievalException.class,
+                () -> cache.get("6666666666", () -> { throw new IllegalStateException("db down"); }));
+    }
+
+    @Test
+    void testEvict_RemovesFromBothTiersAndBroadcasts() {
+        cache.put("9999999999", "RIDER");
+
+        cache.evict("9999999999");
+
+        assertThat(l1.getIfPresent("9999999999")).isNull();
+        assertThat(l2.get("9999999999")).isNull();
+        assertThat(invalidations).containsExactly("9999999999", "9999999999");
+    }
+
+    @Test
+    void testClear_BroadcastsNullKey() {
+        cache.put("9999999999", "RIDER");
+
+        cache.clear();
+
+        assertThat(l1.estimatedSize()).isZero();
+        assertThat(invalidations).containsExactly("9999999999", null);
+    }
+
+    @Test
+    void testInvalidateLocal_KeepsL2() {
+        cache.put("9999999999", "RIDER");
+
+        cache.invalidateLocal("9999999999");
+
+        assertThat(l1.getIfPresent("9999999999")).isNull();
+        assertThat(l2.get("9999999999").get()).isEqualTo("RIDER");
+    }
+
+    @Test
+    void testGetTyped_RejectsWrongType() {
+        cache.put("9999999999", 42);
+        assertThrows(IllegalStateException.class, () -> cache.get("9999999999", String.class));
+    }
+
+    @Test
+    void testGetAll_ServesL1ThenOneL2BatchAndPromotes() {
+        List<List<Object>> l2Batches = new ArrayList<>();
+        TwoTierCache.L2Batch sequential = TwoTierCache.sequential(l2);
+        cache = new TwoTierCache("userProfiles", l1, l2, new TwoTierCache.L2Batch() {
+            @Override
+            public List<Cache.ValueWrapper> getAll(List<Object> keys) {
+                l2Batches.add(keys);
+                return sequential.getAll(keys);
+            }
+
+            @Override
+            public void putAll(Map<Object, Object> entries) {
+                sequential.putAll(entries);
+            }
+        }, invalidations::add, registry);
+        cache.put("1111111111", "local");
+        l1.invalidate("1111111111");
+        l1.put("2222222222", new SimpleValueWrapper("l1-only"));
+
+        Map<Object, Object> found = cache.getAll(List.of("1111111111", "2222222222", "3333333333"));
+
+        assertThat(found).containsOnly(Map.entry("1111111111", "local"), Map.entry("2222222222", "l1-only"));
+        assertThat(l2Batches).containsExactly(List.of("1111111111", "3333333333"));
+        assertThat(l1.getIfPresent("1111111111")).isNotNull();
+        assertThat(requests("l2", "miss")).isEqualTo(1);
+    }
+
+    @Test
+    void testPutAll_WritesBothTiersWithoutBroadcast() {
+        cache.putAll(Map.of("1111111111", "a", "2222222222", "b"));
+
+        assertThat(l2.get("1111111111").get()).isEqualTo("a");
+        assertThat(l1.getIfPresent("2222222222").get()).isEqualTo("b");
+        assertThat(invalidations).isEmpty();
+    }
+}
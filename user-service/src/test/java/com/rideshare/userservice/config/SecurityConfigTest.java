@@ -0,0 +1,82 @@
+package com.rideshare.userservice.config;
+
+import com.rideshare.userservice.controller.UserController;
+import com.rideshare.userservice.service.BulkRegistrationService;
+import com.rideshare.userservice.service.UserExportService;
+import com.rideshare.userservice.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs the controller behind the real filter chain to pin who may call the batch profile lookup.
+ */
+@WebMvcTest(UserController.class)
+@Import(SecurityConfig.class)
+class SecurityConfigTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private UserService userService;
+
+    @MockBean
+    private UserExportService userExportService;
+
+    @MockBean
+    private BulkRegistrationService bulkRegistrationService;
+
+    @Test
+    void batchGetRequiresCredentials() throws Exception {
+        mockMvc.perform(batchGet()).andExpect(status().isUnauthorized());
+
+        verify(userService, never()).getUserProfiles(any());
+    }
+
+    @Test
+    @WithMockUser(roles = "RIDER")
+    void batchGetIsForbiddenToOrdinaryUsers() throws Exception {
+        mockMvc.perform(batchGet()).andExpect(status().isForbidden());
+
+        verify(userService, never()).getUserProfiles(any());
+    }
+
+    @Test
+    @WithMockUser(roles = "SERVICE")
+    void batchGetIsOpenToServices() throws Exception {
+        when(userService.getUserProfiles(List.of("9999999999"))).thenReturn(Collections.singletonList(null));
+
+        mockMvc.perform(batchGet()).andExpect(status().isOk());
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void batchGetIsOpenToAdmins() throws Exception {
+        when(userService.getUserProfiles(List.of("9999999999"))).thenReturn(Collections.singletonList(null));
+
+        mockMvc.perform(batchGet()).andExpect(status().isOk());
+    }
+
+    private static MockHttpServletRequestBuilder batchGet() {
+        return post("/api/users/profiles:batchGet")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"mobileNumbers\":[\"9999999999\"]}");
+    }
+}
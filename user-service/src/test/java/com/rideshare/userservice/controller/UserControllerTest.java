@@ -2,10 +2,14 @@ package com.rideshare.userservice.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.rideshare.userservice.dto.ApiResponse;
+import com.rideshare.userservice.dto.BulkRegistrationReport;
 import com.rideshare.userservice.dto.RegistrationRequest;
 import com.rideshare.userservice.dto.UserDto;
+import com.rideshare.userservice.dto.UserPage;
 import com.rideshare.userservice.exception.InvalidMobileNumberException;
 import com.rideshare.userservice.exception.UserNotFoundException;
+import com.rideshare.userservice.service.BulkRegistrationService;
+import com.rideshare.userservice.service.UserExportService;
 import com.rideshare.userservice.service.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -17,16 +21,27 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.security.core.Authentication;
 import org.springframework.test.web.servlet.MockMvc;
-
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(UserController.class)
@@ -39,6 +54,12 @@ class UserControllerTest {
     @MockBean
     private UserService userService;  // <-- Mocked service
 
+    @MockBean
+    private UserExportService userExportService;
+
+    @MockBean
+    private BulkRegistrationService bulkRegistrationService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -113,6 +134,21 @@ class UserControllerTest {
                         .content(new ObjectMapper().writeValueAsString(req)))
                 .andExpect(status().isInternalServerError());
     }
+    @Test
+    void testRegisterBulk_CsvBodyReturnsReport() throws Exception {
+        BulkRegistrationReport report = BulkRegistrationReport.of(List.of(
+                new BulkRegistrationReport.RowResult(2, "9000000001", BulkRegistrationReport.Status.CREATED, "Registration successful as RIDER")));
+        when(bulkRegistrationService.importUsers(any(InputStream.class), eq(BulkRegistrationService.Format.CSV)))
+                .thenReturn(report);
+
+        mockMvc.perform(post("/api/users/register/bulk")
+                        .contentType("text/csv")
+                        .content("firstName,lastName,gender,mobileNumber,role\nA,One,MALE,9000000001,RIDER"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(1))
+                .andExpect(jsonPath("$.rows[0].status").value("CREATED"));
+    }
+
     @Test
     void testGetUsers_ShouldReturnListOfUsers() throws Exception {
         List<UserDto> mockUsers = List.of(
@@ -120,16 +156,86 @@ class UserControllerTest {
                 new UserDto("Jane", "Smith", "FEMALE", "8888888888", "OWNER")
         );
 
-        when(userService.getAllUsers()).thenReturn(mockUsers);
+        when(userService.getUsers(null, 50)).thenReturn(new UserPage(mockUsers, null));
         mockMvc.perform(get("/api/users")
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(UserController.NEXT_CURSOR_HEADER))
                 .andExpect(jsonPath("$[0].firstName").value("John"))
                 .andExpect(jsonPath("$[0].role").value("RIDER"))
                 .andExpect(jsonPath("$[1].firstName").value("Jane"))
                 .andExpect(jsonPath("$[1].role").value("OWNER"));
 
-        verify(userService, times(1)).getAllUsers();
+        verify(userService, times(1)).getUsers(null, 50);
+    }
+
+    @Test
+    void testGetUsers_ShouldReturnNextCursorHeader() throws Exception {
+        List<UserDto> mockUsers = List.of(new UserDto("John", "Doe", "MALE", "9999999999", "RIDER"));
+
+        when(userService.getUsers(40L, 1)).thenReturn(new UserPage(mockUsers, 41L));
+        mockMvc.perform(get("/api/users").param("after", "40").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(UserController.NEXT_CURSOR_HEADER, "41"))
+                .andExpect(jsonPath("$[0].firstName").value("John"));
+    }
+
+    @Test
+    void testGetUsers_StreamModeWritesNdjson() throws Exception {
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(0);
+            out.write("{\"firstName\":\"John\"}\n{\"firstName\":\"Jane\"}".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(userExportService).exportUsers(any(OutputStream.class));
+
+        MvcResult result = mockMvc.perform(get("/api/users").param("stream", "true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string("{\"firstName\":\"John\"}\n{\"firstName\":\"Jane\"}"));
+        verify(userService, never()).getUsers(any(), anyInt());
+    }
+
+    @Test
+    void testBatchGetProfiles_ReturnsProfilesInRequestOrder() throws Exception {
+        UserDto known = new UserDto("Gopal", "Rao", "MALE", "9885791402", "RIDER");
+        when(userService.getUserProfiles(List.of("9999999999", "9885791402")))
+                .thenReturn(Arrays.asList(null, known));
+
+        mockMvc.perform(post("/api/users/profiles:batchGet")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"mobileNumbers\":[\"9999999999\",\"9885791402\"]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.profiles[0].mobileNumber").value("9999999999"))
+                .andExpect(jsonPath("$.profiles[0].status").value("NOT_FOUND"))
+                .andExpect(jsonPath("$.profiles[0].profile").doesNotExist())
+                .andExpect(jsonPath("$.profiles[1].status").value("FOUND"))
+                .andExpect(jsonPath("$.profiles[1].profile.firstName").value("Gopal"));
+    }
+
+    @Test
+    void testBatchGetProfiles_RejectsMoreThan100Numbers() throws Exception {
+        String numbers = String.join(",", Collections.nCopies(101, "\"9999999999\""));
+
+        mockMvc.perform(post("/api/users/profiles:batchGet")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"mobileNumbers\":[" + numbers + "]}"))
+                .andExpect(status().isBadRequest());
+
+        verify(userService, never()).getUserProfiles(any());
+    }
+
+    @Test
+    void testBatchGetProfiles_RejectsInvalidNumbers() throws Exception {
+        mockMvc.perform(post("/api/users/profiles:batchGet")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"mobileNumbers\":[\"123\"]}"))
+                .andExpect(status().isBadRequest());
+
+        verify(userService, never()).getUserProfiles(any());
     }
 
     @Test
@@ -157,6 +263,40 @@ class UserControllerTest {
                 .andExpect(jsonPath("$.role").value("OWNER"));
     }
 
+    @Test
+    void testGetUserProfile_EmitsETagAndAnswersMatchingIfNoneMatchWith304() throws Exception {
+        UserDto profile = new UserDto("Gopal", "Rao", "MALE", "9885791402", "RIDER",
+                LocalDateTime.of(2026, 3, 1, 10, 15, 30, 123_456_000));
+        when(userService.getUserProfile("9885791402")).thenReturn(profile);
+        String etag = UserController.profileETag(profile);
+
+        mockMvc.perform(get("/api/users/admin/profile/9885791402"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", etag))
+                .andExpect(header().string("Cache-Control", "no-cache, private"))
+                .andExpect(jsonPath("$.updatedAt").doesNotExist());
+
+        mockMvc.perform(get("/api/users/admin/profile/9885791402").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag))
+                .andExpect(content().string(""));
+
+        profile.setUpdatedAt(profile.getUpdatedAt().plusSeconds(1));
+        mockMvc.perform(get("/api/users/admin/profile/9885791402").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.firstName").value("Gopal"));
+    }
+
+    @Test
+    void testGetUserProfile_WithoutVersionHasNoETag() throws Exception {
+        when(userService.getUserProfile("9885791402"))
+                .thenReturn(new UserDto("Gopal", "Rao", "MALE", "9885791402", "RIDER"));
+
+        mockMvc.perform(get("/api/users/admin/profile/9885791402"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("ETag"));
+    }
+
     @Test
     void testGetUserProfile_InvalidMobile() throws Exception {
         mockMvc.perform(get("/api/users/admin/profile/12345"))
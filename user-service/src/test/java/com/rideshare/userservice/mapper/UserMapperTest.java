@@ -0,0 +1,47 @@
+package com.rideshare.userservice.mapper;
+
+import com.rideshare.userservice.dto.UserDto;
+import com.rideshare.userservice.entity.Role;
+import com.rideshare.userservice.entity.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserMapperTest {
+
+    private final UserMapper mapper = new UserMapper();
+
+    private static User user(String mobileNumber, Role role) {
+        User user = new User();
+        user.setFirstName("Gopal");
+        user.setLastName("Rao");
+        user.setGender("MALE");
+        user.setMobileNumber(mobileNumber);
+        user.setRole(role);
+        return user;
+    }
+
+    @Test
+    void testToDto_ProjectsRoleName() {
+        UserDto dto = mapper.toDto(user("9885791402", new Role(1L, "RIDER", "Rider")));
+
+        assertThat(dto).isEqualTo(new UserDto("Gopal", "Rao", "MALE", "9885791402", "RIDER"));
+    }
+
+    @Test
+    void testToDto_NullRole() {
+        assertThat(mapper.toDto(user("9885791402", null)).getRole()).isNull();
+    }
+
+    @Test
+    void testToDtos_KeepsOrder() {
+        Role owner = new Role(2L, "OWNER", "Owner");
+
+        List<UserDto> dtos = mapper.toDtos(List.of(user("9999999999", owner), user("8888888888", owner)));
+
+        assertThat(dtos).extracting(UserDto::getMobileNumber).containsExactly("9999999999", "8888888888");
+        assertThat(dtos).extracting(UserDto::getRole).containsOnly("OWNER");
+    }
+}
@@ -0,0 +1,45 @@
+package com.rideshare.userservice.messaging;
+
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Builds the KafkaProducer behind OutboxRelay's template from the shipped application.yml, the
+ * way Boot's auto-configuration does. Kafka validates delivery.timeout.ms against linger.ms +
+ * request.timeout.ms only in the KafkaProducer constructor, so a bad combination would otherwise
+ * first show up as an outbox that never drains. No broker is needed.
+ */
+class OutboxProducerSettingsTest {
+
+    @Test
+    void producerStartsWithTheShippedSettings() throws IOException {
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(
+                new MapPropertySource("test", Map.of("kafka.bootstrap", "localhost:9092")));
+        environment.getPropertySources().addLast(
+                new YamlPropertySourceLoader().load("application", new ClassPathResource("application.yml")).get(0));
+        KafkaProperties kafka = Binder.get(environment).bind("spring.kafka", KafkaProperties.class)
+                .orElseThrow(IllegalStateException::new);
+        Map<String, Object> configs = kafka.buildProducerProperties(null);
+        assertThat(configs).containsEntry("linger.ms", "20");
+
+        KafkaProducer<String, String> producer = new KafkaProducer<>(configs);
+        try {
+            assertThat(producer.metrics()).isNotEmpty();
+        } finally {
+            producer.close(Duration.ZERO);
+        }
+    }
+}
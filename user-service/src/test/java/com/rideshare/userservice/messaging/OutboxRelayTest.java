@@ -0,0 +1,169 @@
+package com.rideshare.userservice.messaging;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rideshare.datasource.sharding.ShardRouter;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Real Postgres for the claim/lease SQL; Kafka is a mocked template whose futures the tests complete.
+ */
+@Testcontainers
+class OutboxRelayTest {
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("users").withUsername("test").withPassword("test");
+
+    private static final String TOPIC = "user-events";
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbc;
+    private KafkaTemplate<String, String> kafka;
+    private OutboxRelay relay;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(postgres.getJdbcUrl());
+        dataSource.setUsername(postgres.getUsername());
+        dataSource.setPassword(postgres.getPassword());
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("drop table if exists user_outbox, roles");
+        jdbc.execute("create table roles (id bigint primary key, name varchar(255) not null)");
+        jdbc.execute("""
+                create table user_outbox (
+                    id bigint primary key,
+                    mobile_number varchar(255) not null,
+                    role_id bigint not null,
+                    event_type varchar(32) not null,
+                    occurred_at timestamp not null,
+                    claimed_until timestamp)""");
+        jdbc.update("insert into roles values (1, 'RIDER'), (3, 'BOTH')");
+
+        kafka = mock(KafkaTemplate.class);
+        relay = new OutboxRelay(kafka, dataSource, new DataSourceTransactionManager(dataSource), ShardRouter.single(),
+                new ObjectMapper(), new OutboxRelay.OutboxProps(false, TOPIC, 2, Duration.ofHours(1),
+                Duration.ofSeconds(2), Duration.ofMinutes(1)), registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        relay.shutdown();
+        dataSource.close();
+    }
+
+    private void outbox(long id, String mobileNumber, long roleId, String type) {
+        jdbc.update("insert into user_outbox (id, mobile_number, role_id, event_type, occurred_at) values (?, ?, ?, ?, localtimestamp)",
+                id, mobileNumber, roleId, type);
+    }
+
+    private int remaining() {
+        return jdbc.queryForObject("select count(*) from user_outbox", Integer.class);
+    }
+
+    private void acknowledgeSends() {
+        when(kafka.send(anyString(), anyString(), anyString()))
+                .thenReturn(CompletableFuture.completedFuture(mock(SendResult.class)));
+    }
+
+    @Test
+    void pollDrainsTheBacklogInBatchesOldestFirst() {
+        acknowledgeSends();
+        for (long id = 5; id >= 1; id--) {
+            outbox(id, "900000000" + id, 1, "USER_REGISTERED");
+        }
+
+        relay.poll();
+
+        ArgumentCaptor<String> keys = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<String> payloads = ArgumentCaptor.forClass(String.class);
+        verify(kafka, times(5)).send(anyString(), keys.capture(), payloads.capture());
+        assertThat(keys.getAllValues()).containsExactly(
+                "9000000001", "9000000002", "9000000003", "9000000004", "9000000005");
+        assertThat(payloads.getValue()).contains("\"eventId\":5", "\"role\":\"RIDER\"");
+        assertThat(remaining()).isZero();
+        // Full batches keep draining within one poll: 2 + 2 + 1
+        assertThat(registry.get("outbox.relay.batch.size").summary().count()).isEqualTo(3);
+        assertThat(registry.get("outbox.relay.events").tag("result", "published").counter().count()).isEqualTo(5);
+    }
+
+    @Test
+    void claimIsCommittedBeforeSendingSoNoTransactionWaitsOnKafka() {
+        outbox(1, "9000000001", 1, "USER_REGISTERED");
+        outbox(2, "9000000002", 1, "USER_REGISTERED");
+        List<Integer> claimedDuringSend = new ArrayList<>();
+        when(kafka.send(anyString(), anyString(), anyString())).thenAnswer(inv -> {
+            // A separate connection already sees the lease
+            claimedDuringSend.add(jdbc.queryForObject(
+                    "select count(*) from user_outbox where claimed_until > localtimestamp", Integer.class));
+            return CompletableFuture.completedFuture(mock(SendResult.class));
+        });
+
+        assertThat(relay.relayBatch(ShardRouter.HOME)).isEqualTo(2);
+
+        assertThat(claimedDuringSend).containsOnly(2);
+        assertThat(remaining()).isZero();
+    }
+
+    @Test
+    void failedAckReleasesTheClaimAndTheBatchIsSentAgain() {
+        outbox(1, "9000000001", 1, "USER_REGISTERED");
+        outbox(2, "9000000002", 1, "USER_REGISTERED");
+        when(kafka.send(anyString(), anyString(), anyString()))
+                .thenReturn(CompletableFuture.completedFuture(mock(SendResult.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+        assertThatThrownBy(() -> relay.relayBatch(ShardRouter.HOME))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("not acknowledged");
+        assertThat(remaining()).isEqualTo(2);
+        assertThat(jdbc.queryForObject("select count(*) from user_outbox where claimed_until is null", Integer.class))
+                .isEqualTo(2);
+        assertThat(registry.get("outbox.relay.events").tag("result", "failed").counter().count()).isEqualTo(2);
+
+        acknowledgeSends();
+        assertThat(relay.relayBatch(ShardRouter.HOME)).isEqualTo(2);
+        assertThat(remaining()).isZero();
+    }
+
+    @Test
+    void rowsLeasedByAnotherInstanceWaitForTheLeaseToExpire() {
+        acknowledgeSends();
+        outbox(1, "9000000001", 1, "USER_REGISTERED");
+        jdbc.update("update user_outbox set claimed_until = localtimestamp + interval '1 hour'");
+
+        assertThat(relay.relayBatch(ShardRouter.HOME)).isZero();
+
+        // That instance died mid-send
+        jdbc.update("update user_outbox set claimed_until = localtimestamp - interval '1 second'");
+        assertThat(relay.relayBatch(ShardRouter.HOME)).isEqualTo(1);
+        assertThat(remaining()).isZero();
+    }
+}
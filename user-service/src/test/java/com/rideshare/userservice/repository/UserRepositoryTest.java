@@ -1,12 +1,18 @@
 package com.rideshare.userservice.repository;
 
+import com.rideshare.userservice.dto.UserDto;
+import com.rideshare.userservice.dto.UserRow;
+import com.rideshare.userservice.entity.OutboxEvent;
 import com.rideshare.userservice.entity.Role;
 import com.rideshare.userservice.entity.User;
+import com.rideshare.userservice.enums.UserEventType;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
@@ -14,6 +20,8 @@ import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
+import java.util.List;
+
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 
 
@@ -43,6 +51,9 @@ class UserRepositoryTest {
     @Autowired
     private RoleRepository roleRepository;
 
+    @Autowired
+    private OutboxEventRepository outboxRepository;
+
     private Role riderRole;
 
     @BeforeEach
@@ -69,4 +80,62 @@ class UserRepositoryTest {
         assertThat(found.getFirstName()).isEqualTo("John");
         assertThat(found.getRole().getName()).isEqualTo("RIDER");
     }
+
+    @Test
+    void testProjectionsJoinRoleName() {
+        for (String mobile : new String[]{"9000000001", "9000000002", "9000000003"}) {
+            User user = new User();
+            user.setFirstName("F" + mobile);
+            user.setLastName("L");
+            user.setGender("Male");
+            user.setMobileNumber(mobile);
+            user.setRole(riderRole);
+            userRepository.save(user);
+        }
+
+        List<UserRow> firstPage = userRepository.findPageAfter(0L, Limit.of(2));
+        assertThat(firstPage.size()).isEqualTo(2);
+        assertThat(firstPage.get(0).role()).isEqualTo("RIDER");
+
+        List<UserRow> secondPage = userRepository.findPageAfter(firstPage.get(1).id(), Limit.of(2));
+        assertThat(secondPage.size()).isEqualTo(1);
+        assertThat(secondPage.get(0).mobileNumber()).isEqualTo("9000000003");
+
+        UserDto profile = userRepository.findProfileByMobileNumber("9000000002").orElse(null);
+        assertThat(profile).usingRecursiveComparison().ignoringFields("updatedAt")
+                .isEqualTo(new UserDto("F9000000002", "L", "Male", "9000000002", "RIDER"));
+        // Never updated: the version falls back to the creation time
+        assertThat(profile.getUpdatedAt()).isNotNull();
+    }
+
+    @Test
+    void testUpsertRegistrationOutcomes() {
+        Role owner = new Role();
+        owner.setName("OWNER");
+        owner = roleRepository.save(owner);
+        Role both = new Role();
+        both.setName("BOTH");
+        both = roleRepository.save(both);
+
+        assertThat(userRepository.upsertRegistration("John", "Doe", "Male", "9111111111", riderRole.getId(), both.getId()))
+                .isEqualTo("CREATED");
+        assertThat(userRepository.upsertRegistration("John", "Doe", "Male", "9111111111", riderRole.getId(), both.getId()))
+                .isEqualTo("ALREADY_REGISTERED");
+        assertThat(userRepository.upsertRegistration("John", "Doe", "Male", "9111111111", owner.getId(), both.getId()))
+                .isEqualTo("UPGRADED");
+        assertThat(userRepository.upsertRegistration("John", "Doe", "Male", "9111111111", riderRole.getId(), both.getId()))
+                .isEqualTo("ALREADY_BOTH");
+
+        assertThat(userRepository.findProfileByMobileNumber("9111111111").map(UserDto::getRole).orElse(null))
+                .isEqualTo("BOTH");
+
+        // Only the insert and the upgrade changed anything, so only they wrote outbox events
+        List<OutboxEvent> events = outboxRepository.findAll(Sort.by("id"));
+        assertThat(events.size()).isEqualTo(2);
+        assertThat(events.get(0).getEventType()).isEqualTo(UserEventType.USER_REGISTERED);
+        assertThat(events.get(0).getRoleId()).isEqualTo(riderRole.getId());
+        assertThat(events.get(1).getEventType()).isEqualTo(UserEventType.ROLE_CHANGED);
+        assertThat(events.get(1).getRoleId()).isEqualTo(both.getId());
+        assertThat(events.get(1).getMobileNumber()).isEqualTo("9111111111");
+    }
 }
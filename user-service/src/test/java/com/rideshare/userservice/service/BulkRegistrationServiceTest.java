@@ -0,0 +1,168 @@
+package com.rideshare.userservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rideshare.datasource.sharding.ShardRouter;
+import com.rideshare.userservice.dto.BulkRegistrationReport;
+import com.rideshare.userservice.dto.BulkRegistrationReport.Status;
+import com.rideshare.userservice.entity.OutboxEvent;
+import com.rideshare.userservice.entity.Role;
+import com.rideshare.userservice.entity.User;
+import com.rideshare.userservice.enums.UserEventType;
+import com.rideshare.userservice.repository.OutboxEventRepository;
+import com.rideshare.userservice.repository.UserRepository;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BulkRegistrationServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private OutboxEventRepository outboxRepository;
+
+    @Mock
+    private RoleDictionary roleDictionary;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private BulkRegistrationService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new BulkRegistrationService(userRepository, outboxRepository, roleDictionary,
+                Validation.buildDefaultValidatorFactory().getValidator(), new ObjectMapper(),
+                transactionManager, new BulkRegistrationService.BulkImportProps(2, 100), ShardRouter.single());
+    }
+
+    private static InputStream body(String... lines) {
+        return new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testCsvImport_InsertsInChunksAndReportsEachRow() throws Exception {
+        when(roleDictionary.byName("RIDER")).thenReturn(Optional.of(new Role(1L, "RIDER", "Rider")));
+        when(userRepository.findExistingMobileNumbers(anyCollection()))
+                .thenReturn(List.of("9000000002"))
+                .thenReturn(List.of());
+
+        BulkRegistrationReport report = service.importUsers(body(
+                "firstName,lastName,gender,mobileNumber,role",
+                "A,One,MALE,9000000001,RIDER",
+                "B,Two,MALE,9000000002,RIDER",
+                "C,Three,MALE,123,RIDER",
+                "D,Four,MALE,9000000001,RIDER",
+                "E,Five,FEMALE,9000000005,RIDER"), BulkRegistrationService.Format.CSV);
+
+        assertThat(report.total()).isEqualTo(5);
+        assertThat(report.created()).isEqualTo(2);
+        assertThat(report.alreadyRegistered()).isEqualTo(1);
+        assertThat(report.invalid()).isEqualTo(2);
+        assertThat(report.rows()).extracting(BulkRegistrationReport.RowResult::line).containsExactly(2, 3, 4, 5, 6);
+        assertThat(report.rows().get(2).message()).contains("Mobile number must be 10 digits");
+        assertThat(report.rows().get(3).message()).contains("repeated");
+
+        // Two chunks: [A, B] and [E]
+        ArgumentCaptor<List<User>> saved = ArgumentCaptor.forClass(List.class);
+        verify(userRepository, times(2)).saveAll(saved.capture());
+        assertThat(saved.getAllValues().get(0)).extracting(User::getMobileNumber).containsExactly("9000000001");
+        assertThat(saved.getAllValues().get(1)).extracting(User::getMobileNumber).containsExactly("9000000005");
+
+        // Each created user has its outbox event in the same transaction
+        ArgumentCaptor<List<OutboxEvent>> events = ArgumentCaptor.forClass(List.class);
+        verify(outboxRepository, times(2)).saveAll(events.capture());
+        assertThat(events.getAllValues().get(0))
+                .extracting(OutboxEvent::getMobileNumber, OutboxEvent::getEventType, OutboxEvent::getRoleId)
+                .containsExactly(tuple("9000000001", UserEventType.USER_REGISTERED, 1L));
+    }
+
+    @Test
+    void testNdjsonImport_UnreadableLineIsInvalid() throws Exception {
+        when(roleDictionary.byName("OWNER")).thenReturn(Optional.of(new Role(2L, "OWNER", "Owner")));
+        when(userRepository.findExistingMobileNumbers(anyCollection())).thenReturn(List.of());
+
+        BulkRegistrationReport report = service.importUsers(body(
+                "{\"firstName\":\"A\",\"lastName\":\"One\",\"gender\":\"MALE\",\"mobileNumber\":\"9000000001\",\"role\":\"OWNER\"}",
+                "",
+                "{not json"), BulkRegistrationService.Format.NDJSON);
+
+        assertThat(report.created()).isEqualTo(1);
+        assertThat(report.invalid()).isEqualTo(1);
+        assertThat(report.rows().get(1).line()).isEqualTo(3);
+    }
+
+    @Test
+    void testRolledBackChunkIsReportedAsFailed() throws Exception {
+        when(roleDictionary.byName("RIDER")).thenReturn(Optional.of(new Role(1L, "RIDER", "Rider")));
+        when(userRepository.findExistingMobileNumbers(anyCollection())).thenReturn(List.of());
+        when(userRepository.saveAll(any())).thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+        BulkRegistrationReport report = service.importUsers(body(
+                "A,One,MALE,9000000001,RIDER"), BulkRegistrationService.Format.CSV);
+
+        assertThat(report.failed()).isEqualTo(1);
+        assertThat(report.rows().get(0).status()).isEqualTo(Status.FAILED);
+    }
+
+    @Test
+    void testUnknownRoleIsInvalidAndTheRestOfTheChunkIsInserted() throws Exception {
+        when(roleDictionary.byName("RIDER")).thenReturn(Optional.of(new Role(1L, "RIDER", "Rider")));
+        when(roleDictionary.byName("OWNER")).thenReturn(Optional.empty());
+        when(userRepository.findExistingMobileNumbers(anyCollection())).thenReturn(List.of());
+
+        BulkRegistrationReport report = service.importUsers(body(
+                "A,One,MALE,9000000001,RIDER",
+                "B,Two,MALE,9000000002,OWNER",
+                "C,Three,MALE,9000000003,OWNER"), BulkRegistrationService.Format.CSV);
+
+        assertThat(report.created()).isEqualTo(1);
+        assertThat(report.invalid()).isEqualTo(2);
+        assertThat(report.rows()).extracting(BulkRegistrationReport.RowResult::status)
+                .containsExactly(Status.CREATED, Status.INVALID, Status.INVALID);
+        assertThat(report.rows().get(1).message()).isEqualTo("Role OWNER not found");
+
+        // The all-invalid second chunk opens no transaction
+        ArgumentCaptor<List<User>> saved = ArgumentCaptor.forClass(List.class);
+        verify(userRepository, times(1)).saveAll(saved.capture());
+        assertThat(saved.getValue()).extracting(User::getMobileNumber).containsExactly("9000000001");
+    }
+
+    @Test
+    void testRowLimitStopsReading() throws Exception {
+        service = new BulkRegistrationService(userRepository, outboxRepository, roleDictionary,
+                Validation.buildDefaultValidatorFactory().getValidator(), new ObjectMapper(),
+                transactionManager, new BulkRegistrationService.BulkImportProps(10, 1), ShardRouter.single());
+        when(roleDictionary.byName("RIDER")).thenReturn(Optional.of(new Role(1L, "RIDER", "Rider")));
+        when(userRepository.findExistingMobileNumbers(anyCollection())).thenReturn(List.of());
+
+        BulkRegistrationReport report = service.importUsers(body(
+                "A,One,MALE,9000000001,RIDER",
+                "B,Two,MALE,9000000002,RIDER",
+                "C,Three,MALE,9000000003,RIDER"), BulkRegistrationService.Format.CSV);
+
+        assertThat(report.created()).isEqualTo(1);
+        assertThat(report.invalid()).isEqualTo(1);
+        assertThat(report.rows().get(1).message()).contains("Row limit");
+    }
+}
@@ -0,0 +1,66 @@
+package com.rideshare.userservice.service;
+
+import com.rideshare.userservice.entity.Role;
+import com.rideshare.userservice.repository.RoleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RoleDictionaryTest {
+
+    @Mock
+    private RoleRepository roleRepository;
+
+    private RoleDictionary roleDictionary;
+
+    private final Role rider = new Role(1L, "RIDER", "Rider");
+    private final Role owner = new Role(2L, "OWNER", "Owner");
+
+    @BeforeEach
+    void setUp() {
+        roleDictionary = new RoleDictionary(roleRepository);
+    }
+
+    @Test
+    void testLookupsServedFromSnapshot() {
+        when(roleRepository.findAll()).thenReturn(List.of(rider, owner));
+        roleDictionary.load();
+
+        assertThat(roleDictionary.byName("RIDER")).contains(rider);
+        assertThat(roleDictionary.byId(2L)).contains(owner);
+        assertThat(roleDictionary.byName("OWNER")).contains(owner);
+
+        verify(roleRepository, times(1)).findAll();
+    }
+
+    @Test
+    void testMissReloadsOnce() {
+        Role both = new Role(3L, "BOTH", "Both");
+        when(roleRepository.findAll())
+                .thenReturn(List.of(rider, owner))
+                .thenReturn(List.of(rider, owner, both));
+        roleDictionary.load();
+
+        assertThat(roleDictionary.byName("BOTH")).contains(both);
+        assertThat(roleDictionary.byId(3L)).contains(both);
+
+        verify(roleRepository, times(2)).findAll();
+    }
+
+    @Test
+    void testUnknownRoleIsEmpty() {
+        when(roleRepository.findAll()).thenReturn(List.of(rider));
+        roleDictionary.load();
+
+        assertThat(roleDictionary.byName("ADMIN")).isEmpty();
+        assertThat(roleDictionary.names()).containsExactly("RIDER");
+    }
+}
@@ -1,12 +1,15 @@
 package com.rideshare.userservice.service;
 
+import com.rideshare.datasource.sharding.ShardRouter;
 import com.rideshare.userservice.dto.ApiResponse;
 import com.rideshare.userservice.dto.RegistrationRequest;
 import com.rideshare.userservice.dto.UserDto;
+import com.rideshare.userservice.dto.UserPage;
+import com.rideshare.userservice.dto.UserRow;
 import com.rideshare.userservice.entity.Role;
 import com.rideshare.userservice.entity.User;
 import com.rideshare.userservice.exception.UserNotFoundException;
-import com.rideshare.userservice.repository.RoleRepository;
+import com.rideshare.userservice.mapper.UserMapper;
 import com.rideshare.userservice.repository.UserRepository;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -14,10 +17,12 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.data.domain.Limit;
 
-import java.lang.reflect.Type;
 import java.util.List;
 import java.util.Optional;
 
@@ -33,15 +38,22 @@ class UserServiceTest {
     private UserRepository userRepository;
 
     @Mock
-    private RoleRepository roleRepository;
+    private RoleDictionary roleDictionary;
+
+    @Spy
+    private UserMapper userMapper = new UserMapper();
 
     @Mock
-    private ModelMapper modelMapper;
+    private CacheManager cacheManager;
+
+    @Spy
+    private ShardRouter shardRouter = ShardRouter.single();
 
     @InjectMocks
     private UserService userService;
 
     private Role riderRole;
+    private Role ownerRole;
     private Role bothRole;
     private User user;
     private UserDto userDto;
@@ -49,6 +61,7 @@ class UserServiceTest {
     @BeforeEach
     void setUp() {
         riderRole = new Role(1L, "RIDER", "Rider");
+        ownerRole = new Role(2L, "OWNER", "Owner");
         bothRole = new Role(3L, "BOTH", "Both");
 
         user = new User();
@@ -62,27 +75,26 @@ class UserServiceTest {
         userDto.setMobileNumber("9885791402");
     }
 
+    private void stubRoles(Role requested) {
+        when(roleDictionary.byName(requested.getName())).thenReturn(Optional.of(requested));
+        when(roleDictionary.byName("BOTH")).thenReturn(Optional.of(bothRole));
+    }
+
     // 1️⃣ Test: New user registration (RIDER)
     @Test
     void testRegisterUser_NewRider() {
         RegistrationRequest request = new RegistrationRequest("John", "Doe", "M", "9999999999", "RIDER");
 
-        when(userRepository.findByMobileNumber("9999999999")).thenReturn(Optional.empty());
-        when(roleRepository.findByName("RIDER")).thenReturn(Optional.of(riderRole));
-
-        User mappedUser = new User();
-        mappedUser.setFirstName("John");
-        mappedUser.setMobileNumber("9999999999");
-        mappedUser.setRole(riderRole);
-
-        //when(modelMapper.map(any(RegistrationRequest.class), eq(User.class))).thenReturn(mappedUser);
-        when(userRepository.save(any(User.class))).thenReturn(mappedUser);
+        stubRoles(riderRole);
+        when(userRepository.upsertRegistration("John", "Doe", "M", "9999999999", 1L, 3L)).thenReturn("CREATED");
 
         ApiResponse response = userService.registerUser(request);
 
         assertThat(response.isSuccess()).isTrue();
         assertThat(response.getMessage()).contains("Registration successful");
-        verify(userRepository, times(1)).save(any(User.class));
+        verify(userRepository, times(1)).upsertRegistration("John", "Doe", "M", "9999999999", 1L, 3L);
+        verify(userRepository, never()).findByMobileNumber(any());
+        verify(userRepository, never()).save(any());
     }
 
     // 2️⃣ Test: Existing user upgrading from RIDER → BOTH
@@ -90,18 +102,13 @@ class UserServiceTest {
     void testRegisterUser_UpgradeToBoth() {
         RegistrationRequest request = new RegistrationRequest("John", "Doe", "M", "9999999999", "OWNER");
 
-        User existingUser = new User();
-        existingUser.setMobileNumber("9999999999");
-        existingUser.setRole(riderRole);
-
-        when(userRepository.findByMobileNumber("9999999999")).thenReturn(Optional.of(existingUser));
-        when(roleRepository.findByName("BOTH")).thenReturn(Optional.of(bothRole));
+        stubRoles(ownerRole);
+        when(userRepository.upsertRegistration("John", "Doe", "M", "9999999999", 2L, 3L)).thenReturn("UPGRADED");
 
         ApiResponse response = userService.registerUser(request);
 
         assertThat(response.isSuccess()).isTrue();
         assertThat(response.getMessage()).contains("BOTH");
-        verify(userRepository, times(1)).save(existingUser);
     }
 
     // 3️⃣ Test: Existing user already has same role
@@ -109,17 +116,14 @@ class UserServiceTest {
     void testRegisterUser_AlreadySameRole() {
         RegistrationRequest request = new RegistrationRequest("John", "Doe", "M", "9999999999", "RIDER");
 
-        User existingUser = new User();
-        existingUser.setMobileNumber("9999999999");
-        existingUser.setRole(riderRole);
-
-        when(userRepository.findByMobileNumber("9999999999")).thenReturn(Optional.of(existingUser));
+        stubRoles(riderRole);
+        when(userRepository.upsertRegistration(any(), any(), any(), eq("9999999999"), eq(1L), eq(3L)))
+                .thenReturn("ALREADY_REGISTERED");
 
         ApiResponse response = userService.registerUser(request);
 
         assertThat(response.isSuccess()).isFalse();
         assertThat(response.getMessage()).contains("already registered");
-        verify(userRepository, never()).save(any());
     }
 
     // 4️⃣ Test: Role not found scenario
@@ -127,69 +131,47 @@ class UserServiceTest {
     void testRegisterUser_RoleNotFound() {
         RegistrationRequest request = new RegistrationRequest("John", "Doe", "M", "8888888888", "ADMIN");
 
-        when(userRepository.findByMobileNumber("8888888888")).thenReturn(Optional.empty());
-        when(roleRepository.findByName("ADMIN")).thenReturn(Optional.empty());
+        when(roleDictionary.byName("ADMIN")).thenReturn(Optional.empty());
 
-        try {
-            userService.registerUser(request);
-        } catch (RuntimeException ex) {
-            assertThat(ex.getMessage()).contains("Role not found");
-        }
+        RuntimeException thrown = assertThrows(RuntimeException.class, () -> userService.registerUser(request));
 
-        verify(userRepository, never()).save(any());
+        assertThat(thrown.getMessage()).contains("Role not found");
+        verify(userRepository, never()).upsertRegistration(any(), any(), any(), any(), any(), any());
     }
 
     @Test
     void testRegisterUser_ExistingUserAlreadyBoth() {
-        User existingUser = new User();
-        existingUser.setMobileNumber("9999999999");
-
-        Role roleBoth = new Role();
-        roleBoth.setName("BOTH");
-        existingUser.setRole(roleBoth);
-
-        when(userRepository.findByMobileNumber("9999999999")).thenReturn(Optional.of(existingUser));
+        stubRoles(ownerRole);
+        when(userRepository.upsertRegistration(any(), any(), any(), eq("9999999999"), eq(2L), eq(3L)))
+                .thenReturn("ALREADY_BOTH");
 
         RegistrationRequest req = new RegistrationRequest("John", "Doe", "M", "9999999999", "OWNER");
         ApiResponse response = userService.registerUser(req);
 
         Assertions.assertFalse(response.isSuccess());
         Assertions.assertTrue(response.getMessage().contains("already have BOTH roles"));
-        verify(userRepository, never()).save(any());
     }
 
     @Test
     void testRegisterUser_ExistingUserSameRole() {
-        User existingUser = new User();
-        existingUser.setMobileNumber("7777777777");
-
-        Role roleRider = new Role();
-        roleRider.setName("RIDER");
-        existingUser.setRole(roleRider);
-
-        when(userRepository.findByMobileNumber("7777777777")).thenReturn(Optional.of(existingUser));
+        stubRoles(riderRole);
+        when(userRepository.upsertRegistration(any(), any(), any(), eq("7777777777"), eq(1L), eq(3L)))
+                .thenReturn("ALREADY_REGISTERED");
 
         RegistrationRequest req = new RegistrationRequest("John", "Doe", "M", "7777777777", "RIDER");
         ApiResponse response = userService.registerUser(req);
 
         Assertions.assertFalse(response.isSuccess());
         Assertions.assertTrue(response.getMessage().contains("already registered with this role"));
-        verify(userRepository, never()).save(any());
     }
+
     @Test
     void testRegisterUser_BothRoleNotFound_ShouldThrowException() {
         // Arrange
-        User existingUser = new User();
-        existingUser.setMobileNumber("9999999999");
-
-        Role roleRider = new Role();
-        roleRider.setName("RIDER");
-        existingUser.setRole(roleRider);
-
-        when(userRepository.findByMobileNumber("9999999999")).thenReturn(Optional.of(existingUser));
+        when(roleDictionary.byName("OWNER")).thenReturn(Optional.of(ownerRole));
 
         // Simulate no BOTH role found
-        when(roleRepository.findByName("BOTH")).thenReturn(Optional.empty());
+        when(roleDictionary.byName("BOTH")).thenReturn(Optional.empty());
 
         RegistrationRequest req = new RegistrationRequest("John", "Doe", "M", "9999999999", "OWNER");
 
@@ -199,63 +181,125 @@ class UserServiceTest {
         });
 
         assertEquals("Role BOTH not found", thrown.getMessage());
+        verify(userRepository, never()).upsertRegistration(any(), any(), any(), any(), any(), any());
     }
 
-    // ✅ Test for getAllUsers()
+    // ✅ Test for getUsers() - last page
     @Test
-    void testGetAllUsers_ShouldReturnListOfUserDtos() {
-        when(userRepository.findAll()).thenReturn(List.of(user));
-
-        // Use doReturn to avoid PotentialStubbingProblem
-        doReturn(List.of(userDto))
-                .when(modelMapper)
-                .map(anyList(), any(Type.class));
+    void testGetUsers_ShouldReturnPageWithoutCursor_WhenNoMoreRows() {
+        when(userRepository.findPageAfter(0L, Limit.of(51)))
+                .thenReturn(List.of(new UserRow(1L, "Gopal", "Rao", "MALE", "9885791402", "RIDER")));
 
-        List<UserDto> result = userService.getAllUsers();
+        UserPage result = userService.getUsers(null, 50);
 
         assertNotNull(result);
-        assertEquals(1, result.size());
-        assertEquals("Gopal", result.get(0).getFirstName());
-        verify(userRepository, times(1)).findAll();
+        assertEquals(1, result.items().size());
+        assertEquals("Gopal", result.items().get(0).getFirstName());
+        assertNull(result.nextCursor());
+    }
+
+    // ✅ Test for getUsers() - more rows available
+    @Test
+    void testGetUsers_ShouldReturnCursor_WhenMoreRowsExist() {
+        UserRow first = new UserRow(11L, "A", "A", "MALE", "9000000011", "RIDER");
+        UserRow second = new UserRow(12L, "B", "B", "MALE", "9000000012", "RIDER");
+        UserRow extra = new UserRow(13L, "C", "C", "MALE", "9000000013", "RIDER");
+        when(userRepository.findPageAfter(10L, Limit.of(3)))
+                .thenReturn(List.of(first, second, extra));
+
+        UserPage result = userService.getUsers(10L, 2);
+
+        assertEquals(2, result.items().size());
+        assertEquals("9000000012", result.items().get(1).getMobileNumber());
+        assertEquals(12L, result.nextCursor());
+    }
+
+    // ✅ Test for getUsers() - a row on two shards mid-resharding is listed once
+    @Test
+    void testGetUsers_ShouldListRowCopiedToNewShardOnce() {
+        doReturn(List.of("shard-0", "shard-1")).when(shardRouter).shards();
+        UserRow first = new UserRow(11L, "A", "A", "MALE", "9000000011", "RIDER");
+        UserRow moved = new UserRow(12L, "B", "B", "MALE", "9000000012", "RIDER");
+        UserRow third = new UserRow(13L, "C", "C", "MALE", "9000000013", "RIDER");
+        when(userRepository.findPageAfter(10L, Limit.of(4)))
+                .thenReturn(List.of(first, moved))
+                .thenReturn(List.of(moved, third));
+
+        UserPage result = userService.getUsers(10L, 3);
+
+        assertThat(result.items()).extracting(UserDto::getMobileNumber)
+                .containsExactly("9000000011", "9000000012", "9000000013");
+        assertNull(result.nextCursor());
+    }
+
+    // ✅ Test for getUsers() - page size is clamped
+    @Test
+    void testGetUsers_ShouldClampPageSize() {
+        when(userRepository.findPageAfter(any(), any())).thenReturn(List.of());
+
+        userService.getUsers(null, 100_000);
+        userService.getUsers(null, 0);
+
+        verify(userRepository).findPageAfter(0L, Limit.of(UserService.MAX_PAGE_SIZE + 1));
+        verify(userRepository).findPageAfter(0L, Limit.of(2));
     }
 
 
     // ✅ Test for getUserProfile() - Success
     @Test
     void testGetUserProfile_ShouldReturnUserDto_WhenUserExists() {
-        Role role = new Role();
-        role.setName("RIDER");
-        user.setRole(role);
-
-        when(userRepository.findByMobileNumber("9885791402")).thenReturn(Optional.of(user));
-
-        when(modelMapper.map(any(User.class), eq(UserDto.class))).thenAnswer(invocation -> {
-            User source = invocation.getArgument(0);
-            UserDto dto = new UserDto();
-            dto.setFirstName(source.getFirstName());
-            dto.setLastName(source.getLastName());
-            dto.setGender(source.getGender());
-            dto.setMobileNumber(source.getMobileNumber());
-            dto.setRole(source.getRole() != null ? source.getRole().getName() : null);
-            return dto;
-        });
+        userDto.setRole("RIDER");
+
+        when(userRepository.findProfileByMobileNumber("9885791402")).thenReturn(Optional.of(userDto));
 
         UserDto result = userService.getUserProfile("9885791402");
 
         assertNotNull(result);
         assertEquals("RIDER", result.getRole());
         assertEquals("Gopal", result.getFirstName());
-        verify(userRepository, times(1)).findByMobileNumber("9885791402");
+        verify(userRepository, times(1)).findProfileByMobileNumber("9885791402");
+        verify(roleDictionary, never()).byId(any());
     }
 
     // ✅ Test for getUserProfile() - Not Found
     @Test
     void testGetUserProfile_ShouldThrowException_WhenUserNotFound() {
-        when(userRepository.findByMobileNumber("9999999999")).thenReturn(Optional.empty());
+        when(userRepository.findProfileByMobileNumber("9999999999")).thenReturn(Optional.empty());
 
         assertThrows(UserNotFoundException.class,
                 () -> userService.getUserProfile("9999999999"));
 
-        verify(userRepository, times(1)).findByMobileNumber("9999999999");
+        verify(userRepository, times(1)).findProfileByMobileNumber("9999999999");
+    }
+
+    // ✅ Test for getUserProfiles() - cache hits, one IN query for misses, request order kept
+    @Test
+    void testGetUserProfiles_ShouldUseCacheThenSingleQueryAndKeepOrder() {
+        ConcurrentMapCache cache = new ConcurrentMapCache(UserService.PROFILE_CACHE);
+        UserDto cached = new UserDto("A", "One", "MALE", "9000000001", "RIDER");
+        cache.put("9000000001", cached);
+        when(cacheManager.getCache(UserService.PROFILE_CACHE)).thenReturn(cache);
+
+        UserDto loaded = new UserDto("B", "Two", "MALE", "9000000002", "OWNER");
+        when(userRepository.findProfilesByMobileNumbers(List.of("9000000002", "9000000003")))
+                .thenReturn(List.of(loaded));
+
+        List<UserDto> result = userService.getUserProfiles(
+                List.of("9000000002", "9000000001", "9000000003", "9000000002"));
+
+        assertThat(result).containsExactly(loaded, cached, null, loaded);
+        assertThat(cache.get("9000000002").get()).isEqualTo(loaded);
+        assertThat(cache.get("9000000003")).isNull();
+        verify(userRepository, times(1)).findProfilesByMobileNumbers(any());
+    }
+
+    @Test
+    void testGetUserProfiles_AllCachedSkipsDatabase() {
+        ConcurrentMapCache cache = new ConcurrentMapCache(UserService.PROFILE_CACHE);
+        cache.put("9000000001", userDto);
+        when(cacheManager.getCache(UserService.PROFILE_CACHE)).thenReturn(cache);
+
+        assertThat(userService.getUserProfiles(List.of("9000000001"))).containsExactly(userDto);
+        verify(userRepository, never()).findProfilesByMobileNumbers(any());
     }
 }